@@ -55,6 +55,10 @@ public class MediaType extends javax.ws.rs.core.MediaType {
     public final static String APPLICATION_AUDIT_ENTRY_XML = "application/auditEntry+xml"; //$NON-NLS-1$
     public final static MediaType APPLICATION_AUDIT_ENTRY_XML_TYPE = new MediaType("application", "auditEntry+xml"); //$NON-NLS-1$ //$NON-NLS-2$
 
+    /** "application/sramp+json" */
+    public final static String APPLICATION_SRAMP_JSON = "application/sramp+json"; //$NON-NLS-1$
+    public final static MediaType APPLICATION_SRAMP_JSON_TYPE = new MediaType("application", "sramp+json"); //$NON-NLS-1$ //$NON-NLS-2$
+
     /**
      * Creates a parameter map.
      *
@@ -32,7 +32,6 @@ import org.jboss.resteasy.plugins.providers.atom.Link;
 import org.jboss.resteasy.plugins.providers.atom.Person;
 import org.jboss.resteasy.plugins.providers.atom.Source;
 import org.jboss.resteasy.plugins.providers.jaxb.JAXBContextFinder;
-import org.jboss.resteasy.plugins.providers.jaxb.XmlJAXBContextFinder;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.Artifact;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactEnum;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
@@ -42,6 +41,7 @@ import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.StoredQuery;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.StoredQueryData;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.XmlDocument;
 import org.overlord.sramp.common.ArtifactType;
+import org.overlord.sramp.common.ArtifactTypeEnum;
 import org.overlord.sramp.common.SrampConstants;
 import org.overlord.sramp.common.ontology.SrampOntology;
 import org.w3._1999._02._22_rdf_syntax_ns_.RDF;
@@ -56,8 +56,18 @@ import org.w3c.dom.NodeList;
  */
 public final class SrampAtomUtils {
 
-    private static final XmlJAXBContextFinder finder = new XmlJAXBContextFinder();
-    
+    private static final Method setFinderMethod;
+    static {
+        Method method = null;
+        try {
+            method = Entry.class.getDeclaredMethod("setFinder", JAXBContextFinder.class); //$NON-NLS-1$
+            method.setAccessible(true);
+        } catch (Exception e) {
+            // Not available - we'll just have to do without.
+        }
+        setFinderMethod = method;
+    }
+
 	/**
 	 * Private constructor.
 	 */
@@ -150,13 +160,24 @@ public final class SrampAtomUtils {
 		if (artifact.getDescription() != null)
 			entry.setSummary(artifact.getDescription());
 
-		Artifact srampArty = new Artifact();
-		Method method = Artifact.class.getMethod("set" + artifact.getClass().getSimpleName(), artifact.getClass()); //$NON-NLS-1$
-		method.invoke(srampArty, artifact);
-		entry.setAnyOtherJAXBObject(srampArty);
+		entry.setAnyOtherJAXBObject(createArtifactWrapper(artifact));
 
 		return entry;
 	}
+
+	/**
+	 * Wraps the given s-ramp artifact in an S-RAMP {@link Artifact} wrapper.
+	 * @param artifact
+	 */
+	public static Artifact createArtifactWrapper(BaseArtifactType artifact) {
+		ArtifactTypeEnum artifactType = ArtifactTypeEnum.valueOfTypeClass(artifact.getClass());
+		if (artifactType == null) {
+			artifactType = ArtifactTypeEnum.valueOf(artifact);
+		}
+		Artifact srampArty = new Artifact();
+		artifactType.wrap(srampArty, artifact);
+		return srampArty;
+	}
     
     public static Entry wrapStoredQuery(StoredQuery storedQuery) throws Exception {
         Entry entry = new Entry();
@@ -346,15 +367,13 @@ public final class SrampAtomUtils {
     private static void setFinder(Entry entry) {
         // Eat any exception we might encounter - if this fails it'll just revert to creating
         // a new JAXBContext each time.  This is slow but works.
+        if (setFinderMethod == null)
+            return;
         try {
-            Method method = entry.getClass().getDeclaredMethod("setFinder", JAXBContextFinder.class); //$NON-NLS-1$
-            method.setAccessible(true);
-            method.invoke(entry, finder);
-        } catch (SecurityException e) {
+            setFinderMethod.invoke(entry, SrampJaxbContexts.getFinder());
         } catch (IllegalArgumentException e) {
         } catch (IllegalAccessException e) {
         } catch (InvocationTargetException e) {
-        } catch (NoSuchMethodException e) {
         }
     }
 
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.atom;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+import org.jboss.resteasy.plugins.providers.atom.Entry;
+import org.jboss.resteasy.plugins.providers.jaxb.JAXBContextFinder;
+import org.jboss.resteasy.plugins.providers.jaxb.XmlJAXBContextFinder;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.Artifact;
+
+/**
+ * A registry of the JAXB contexts used to read and write the S-RAMP types.  Creating a
+ * JAXB context is very expensive, so exactly one context is created per root type (and
+ * shared by all threads).  Marshallers and unmarshallers are cheaper, but are not thread
+ * safe - so each thread gets (and re-uses) its own.
+ * <br/>
+ * The context for an Atom {@link Entry} also knows about the S-RAMP {@link Artifact}
+ * wrapper, so that an entry and the artifact inside it can be (un)marshalled in one go.
+ */
+public final class SrampJaxbContexts {
+
+    private static final Map<Class<?>, Class<?>[]> contextTypes = new HashMap<Class<?>, Class<?>[]>();
+    static {
+        contextTypes.put(Entry.class, new Class<?>[] { Entry.class, Artifact.class });
+    }
+
+    private static final ConcurrentMap<Class<?>, JAXBContext> contexts = new ConcurrentHashMap<Class<?>, JAXBContext>();
+    private static final JAXBContextFinder finder = new XmlJAXBContextFinder();
+
+    private static final ThreadLocal<Map<Class<?>, Marshaller>> marshallers = new ThreadLocal<Map<Class<?>, Marshaller>>() {
+        @Override
+        protected Map<Class<?>, Marshaller> initialValue() {
+            return new HashMap<Class<?>, Marshaller>();
+        }
+    };
+    private static final ThreadLocal<Map<Class<?>, Unmarshaller>> unmarshallers = new ThreadLocal<Map<Class<?>, Unmarshaller>>() {
+        @Override
+        protected Map<Class<?>, Unmarshaller> initialValue() {
+            return new HashMap<Class<?>, Unmarshaller>();
+        }
+    };
+
+    /**
+     * Private constructor.
+     */
+    private SrampJaxbContexts() {
+    }
+
+    /**
+     * Gets the (shared) JAXB context for the given root type, creating it if necessary.
+     * @param rootType
+     * @throws JAXBException
+     */
+    public static JAXBContext getContext(Class<?> rootType) throws JAXBException {
+        JAXBContext context = contexts.get(rootType);
+        if (context == null) {
+            Class<?>[] types = contextTypes.get(rootType);
+            if (types == null) {
+                types = new Class<?>[] { rootType };
+            }
+            // Two threads may race to create the same context - only one of them is kept.
+            JAXBContext newContext = JAXBContext.newInstance(types);
+            context = contexts.putIfAbsent(rootType, newContext);
+            if (context == null) {
+                context = newContext;
+            }
+        }
+        return context;
+    }
+
+    /**
+     * Gets the calling thread's marshaller for the given root type.  The marshaller must not
+     * be handed to another thread.  It always starts out writing complete documents (see
+     * {@link Marshaller#JAXB_FRAGMENT}).
+     * @param rootType
+     * @param formatted whether the output should be pretty-printed
+     * @throws JAXBException
+     */
+    public static Marshaller getMarshaller(Class<?> rootType, boolean formatted) throws JAXBException {
+        Map<Class<?>, Marshaller> threadMarshallers = marshallers.get();
+        Marshaller marshaller = threadMarshallers.get(rootType);
+        if (marshaller == null) {
+            marshaller = getContext(rootType).createMarshaller();
+            threadMarshallers.put(rootType, marshaller);
+        }
+        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.valueOf(formatted));
+        marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.FALSE);
+        return marshaller;
+    }
+
+    /**
+     * Gets the calling thread's unmarshaller for the given root type.  The unmarshaller must
+     * not be handed to another thread.
+     * @param rootType
+     * @throws JAXBException
+     */
+    public static Unmarshaller getUnmarshaller(Class<?> rootType) throws JAXBException {
+        Map<Class<?>, Unmarshaller> threadUnmarshallers = unmarshallers.get();
+        Unmarshaller unmarshaller = threadUnmarshallers.get(rootType);
+        if (unmarshaller == null) {
+            unmarshaller = getContext(rootType).createUnmarshaller();
+            threadUnmarshallers.put(rootType, unmarshaller);
+        }
+        return unmarshaller;
+    }
+
+    /**
+     * @return the (shared) context finder handed to Atom entries so that they can unwrap
+     *         their JAXB content without creating a new context each time
+     */
+    public static JAXBContextFinder getFinder() {
+        return finder;
+    }
+
+}
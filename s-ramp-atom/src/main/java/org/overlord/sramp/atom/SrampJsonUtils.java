@@ -0,0 +1,429 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.atom;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.DocumentArtifactType;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.Property;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.Relationship;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.Target;
+import org.overlord.sramp.atom.i18n.Messages;
+import org.overlord.sramp.common.ArtifactType;
+import org.overlord.sramp.common.ArtifactTypeEnum;
+import org.overlord.sramp.common.SrampConstants;
+import org.overlord.sramp.common.SrampModelUtils;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads and writes S-RAMP artifacts in the compact JSON format (see
+ * {@link MediaType#APPLICATION_SRAMP_JSON}).  An artifact is written as a single flat
+ * object:
+ *
+ * <pre>
+ *   {
+ *     "uuid" : "...", "artifactType" : "XsdDocument", "model" : "xsd", "derived" : false,
+ *     "name" : "...", "description" : "...", "version" : "...",
+ *     "createdBy" : "...", "createdTimestamp" : "2014-01-01T12:00:00.000Z",
+ *     "lastModifiedBy" : "...", "lastModifiedTimestamp" : "...",
+ *     "contentType" : "...", "contentSize" : 1234, "contentHash" : "...",
+ *     "properties" : { "name" : "value" },
+ *     "classifiedBy" : [ "http://..." ],
+ *     "relationships" : [ { "type" : "...", "targets" : [ "uuid" ] } ]
+ *   }
+ * </pre>
+ *
+ * Only the meta-data common to all artifacts is included (the core attributes, custom
+ * properties, classifiers and generic relationships) - type specific attributes and
+ * modeled/derived relationships are only available in the Atom representation.  A summary
+ * (as found in a query feed) contains only the core attributes and the requested custom
+ * properties.
+ */
+public final class SrampJsonUtils {
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    private static final DatatypeFactory datatypeFactory;
+    static {
+        try {
+            datatypeFactory = DatatypeFactory.newInstance();
+        } catch (DatatypeConfigurationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Private constructor.
+     */
+    private SrampJsonUtils() {
+    }
+
+    /**
+     * @return the (shared, thread safe) factory used to create JSON generators and parsers
+     */
+    public static JsonFactory getFactory() {
+        return jsonFactory;
+    }
+
+    /**
+     * Writes the meta-data of the given artifact to the output stream.  The stream is not
+     * closed.
+     * @param output
+     * @param artifact
+     * @throws IOException
+     */
+    public static void writeArtifact(OutputStream output, BaseArtifactType artifact) throws IOException {
+        JsonGenerator json = jsonFactory.createGenerator(output, JsonEncoding.UTF8);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        writeArtifact(json, artifact);
+        json.close();
+    }
+
+    /**
+     * Writes the meta-data of the given artifact as a JSON object.
+     * @param json
+     * @param artifact
+     * @throws IOException
+     */
+    public static void writeArtifact(JsonGenerator json, BaseArtifactType artifact) throws IOException {
+        writeArtifact(json, artifact, true, null);
+    }
+
+    /**
+     * Writes a summary of the given artifact as a JSON object.  Only the custom properties
+     * named in propertyNames are included.
+     * @param json
+     * @param artifact
+     * @param propertyNames the custom properties to include (may be null)
+     * @throws IOException
+     */
+    public static void writeArtifactSummary(JsonGenerator json, BaseArtifactType artifact, Set<String> propertyNames)
+            throws IOException {
+        writeArtifact(json, artifact, false, propertyNames);
+    }
+
+    /**
+     * Writes the given artifact as a JSON object.
+     * @param json
+     * @param artifact
+     * @param full true to write the full meta-data, false to write a summary
+     * @param propertyNames the custom properties to include in a summary
+     * @throws IOException
+     */
+    private static void writeArtifact(JsonGenerator json, BaseArtifactType artifact, boolean full,
+            Set<String> propertyNames) throws IOException {
+        ArtifactType artifactType = ArtifactType.valueOf(artifact);
+        json.writeStartObject();
+        writeField(json, "uuid", artifact.getUuid()); //$NON-NLS-1$
+        json.writeStringField("artifactType", artifactType.getArtifactType().getType()); //$NON-NLS-1$
+        json.writeStringField("model", artifactType.getArtifactType().getModel()); //$NON-NLS-1$
+        if (artifactType.isExtendedType()) {
+            writeField(json, "extendedType", artifactType.getExtendedType()); //$NON-NLS-1$
+        }
+        json.writeBooleanField("derived", artifactType.isDerived()); //$NON-NLS-1$
+        writeField(json, "name", artifact.getName()); //$NON-NLS-1$
+        writeField(json, "description", artifact.getDescription()); //$NON-NLS-1$
+        if (full) {
+            writeField(json, "version", artifact.getVersion()); //$NON-NLS-1$
+        }
+        writeField(json, "createdBy", artifact.getCreatedBy()); //$NON-NLS-1$
+        writeField(json, "createdTimestamp", artifact.getCreatedTimestamp()); //$NON-NLS-1$
+        writeField(json, "lastModifiedBy", artifact.getLastModifiedBy()); //$NON-NLS-1$
+        writeField(json, "lastModifiedTimestamp", artifact.getLastModifiedTimestamp()); //$NON-NLS-1$
+        if (artifact instanceof DocumentArtifactType) {
+            DocumentArtifactType document = (DocumentArtifactType) artifact;
+            writeField(json, "contentType", document.getContentType()); //$NON-NLS-1$
+            if (document.getContentSize() != null) {
+                json.writeNumberField("contentSize", document.getContentSize()); //$NON-NLS-1$
+            }
+            if (full) {
+                writeField(json, "contentHash", document.getContentHash()); //$NON-NLS-1$
+            }
+        } else if (artifactType.isExtendedType()) {
+            writeField(json, "contentType", artifact.getOtherAttributes().get(SrampConstants.SRAMP_CONTENT_TYPE_QNAME)); //$NON-NLS-1$
+        }
+
+        boolean hasProperties = false;
+        for (Property property : artifact.getProperty()) {
+            if (full || (propertyNames != null && propertyNames.contains(property.getPropertyName()))) {
+                if (!hasProperties) {
+                    json.writeObjectFieldStart("properties"); //$NON-NLS-1$
+                    hasProperties = true;
+                }
+                json.writeStringField(property.getPropertyName(), property.getPropertyValue());
+            }
+        }
+        if (hasProperties) {
+            json.writeEndObject();
+        }
+
+        if (full && !artifact.getClassifiedBy().isEmpty()) {
+            json.writeArrayFieldStart("classifiedBy"); //$NON-NLS-1$
+            for (String classifier : artifact.getClassifiedBy()) {
+                json.writeString(classifier);
+            }
+            json.writeEndArray();
+        }
+        if (full && !artifact.getRelationship().isEmpty()) {
+            json.writeArrayFieldStart("relationships"); //$NON-NLS-1$
+            for (Relationship relationship : artifact.getRelationship()) {
+                json.writeStartObject();
+                json.writeStringField("type", relationship.getRelationshipType()); //$NON-NLS-1$
+                json.writeArrayFieldStart("targets"); //$NON-NLS-1$
+                for (Target target : relationship.getRelationshipTarget()) {
+                    json.writeString(target.getValue());
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        }
+        json.writeEndObject();
+    }
+
+    /**
+     * Reads an artifact from the given input stream.  The stream is not closed.
+     * @param input
+     * @throws IOException
+     */
+    public static BaseArtifactType readArtifact(InputStream input) throws IOException {
+        JsonParser json = jsonFactory.createParser(input);
+        json.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        try {
+            json.nextToken();
+            return readArtifact(json);
+        } finally {
+            json.close();
+        }
+    }
+
+    /**
+     * Reads an artifact (either the full meta-data or a summary) from the given parser,
+     * which must be positioned on the start of the artifact's JSON object.  When this
+     * returns, the parser is positioned on the end of the object.  Unknown fields are
+     * ignored.
+     * @param json
+     * @throws IOException
+     */
+    public static BaseArtifactType readArtifact(JsonParser json) throws IOException {
+        if (json.getCurrentToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(Messages.i18n.format("JSON_EXPECTED_ARTIFACT"), json.getCurrentLocation()); //$NON-NLS-1$
+        }
+        Map<String, String> fields = new HashMap<String, String>();
+        Map<String, String> properties = new LinkedHashMap<String, String>();
+        List<String> classifiers = new ArrayList<String>();
+        Map<String, List<String>> relationships = new LinkedHashMap<String, List<String>>();
+        boolean derived = false;
+
+        while (json.nextToken() == JsonToken.FIELD_NAME) {
+            String field = json.getCurrentName();
+            JsonToken token = json.nextToken();
+            if ("properties".equals(field) && token == JsonToken.START_OBJECT) { //$NON-NLS-1$
+                while (json.nextToken() == JsonToken.FIELD_NAME) {
+                    String propertyName = json.getCurrentName();
+                    json.nextToken();
+                    properties.put(propertyName, json.getText());
+                }
+            } else if ("classifiedBy".equals(field) && token == JsonToken.START_ARRAY) { //$NON-NLS-1$
+                while (json.nextToken() != JsonToken.END_ARRAY) {
+                    classifiers.add(json.getText());
+                }
+            } else if ("relationships".equals(field) && token == JsonToken.START_ARRAY) { //$NON-NLS-1$
+                while (json.nextToken() == JsonToken.START_OBJECT) {
+                    readRelationship(json, relationships);
+                }
+            } else if ("derived".equals(field)) { //$NON-NLS-1$
+                derived = token == JsonToken.VALUE_TRUE;
+            } else if (token.isScalarValue()) {
+                fields.put(field, token == JsonToken.VALUE_NULL ? null : json.getText());
+            } else {
+                json.skipChildren();
+            }
+        }
+
+        String typeName = fields.get("artifactType"); //$NON-NLS-1$
+        if (typeName == null || !ArtifactTypeEnum.hasEnum(typeName)) {
+            throw new JsonParseException(Messages.i18n.format("JSON_INVALID_ARTIFACT_TYPE", typeName), json.getCurrentLocation()); //$NON-NLS-1$
+        }
+        ArtifactType artifactType = ArtifactType.valueOf(ArtifactTypeEnum.valueOf(typeName).getApiType());
+        if (artifactType.isExtendedType()) {
+            artifactType.setExtendedType(fields.get("extendedType")); //$NON-NLS-1$
+            artifactType.setExtendedDerivedType(derived);
+        }
+        if (fields.get("contentType") != null) { //$NON-NLS-1$
+            artifactType.setMimeType(fields.get("contentType")); //$NON-NLS-1$
+        }
+        BaseArtifactType artifact = artifactType.newArtifactInstance();
+        if (artifactType.isExtendedType() && derived) {
+            artifact.getOtherAttributes().put(SrampConstants.SRAMP_DERIVED_QNAME, String.valueOf(derived));
+        }
+        artifact.setUuid(fields.get("uuid")); //$NON-NLS-1$
+        artifact.setName(fields.get("name")); //$NON-NLS-1$
+        artifact.setDescription(fields.get("description")); //$NON-NLS-1$
+        artifact.setVersion(fields.get("version")); //$NON-NLS-1$
+        artifact.setCreatedBy(fields.get("createdBy")); //$NON-NLS-1$
+        artifact.setCreatedTimestamp(toCalendar(fields.get("createdTimestamp"))); //$NON-NLS-1$
+        artifact.setLastModifiedBy(fields.get("lastModifiedBy")); //$NON-NLS-1$
+        artifact.setLastModifiedTimestamp(toCalendar(fields.get("lastModifiedTimestamp"))); //$NON-NLS-1$
+        if (artifact instanceof DocumentArtifactType) {
+            DocumentArtifactType document = (DocumentArtifactType) artifact;
+            String contentSize = fields.get("contentSize"); //$NON-NLS-1$
+            if (contentSize != null) {
+                document.setContentSize(Long.valueOf(contentSize));
+            }
+            document.setContentHash(fields.get("contentHash")); //$NON-NLS-1$
+        }
+        for (Entry<String, String> property : properties.entrySet()) {
+            SrampModelUtils.setCustomProperty(artifact, property.getKey(), property.getValue());
+        }
+        artifact.getClassifiedBy().addAll(classifiers);
+        for (Entry<String, List<String>> relationship : relationships.entrySet()) {
+            if (relationship.getValue().isEmpty()) {
+                SrampModelUtils.addGenericRelationship(artifact, relationship.getKey(), null);
+            }
+            for (String targetUuid : relationship.getValue()) {
+                SrampModelUtils.addGenericRelationship(artifact, relationship.getKey(), targetUuid);
+            }
+        }
+        return artifact;
+    }
+
+    /**
+     * Reads a JSON feed of artifacts - an object with an "artifacts" array, as returned by
+     * the query and bulk meta-data endpoints.  The feed's other (scalar) fields, such as
+     * "totalResults", are put into the given map.  The stream is not closed.
+     * @param input
+     * @param feedFields
+     * @throws IOException
+     */
+    public static List<BaseArtifactType> readFeed(InputStream input, Map<String, String> feedFields) throws IOException {
+        JsonParser json = jsonFactory.createParser(input);
+        json.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        try {
+            List<BaseArtifactType> artifacts = new ArrayList<BaseArtifactType>();
+            if (json.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(Messages.i18n.format("JSON_EXPECTED_FEED"), json.getCurrentLocation()); //$NON-NLS-1$
+            }
+            while (json.nextToken() == JsonToken.FIELD_NAME) {
+                String field = json.getCurrentName();
+                JsonToken token = json.nextToken();
+                if ("artifacts".equals(field) && token == JsonToken.START_ARRAY) { //$NON-NLS-1$
+                    while (json.nextToken() == JsonToken.START_OBJECT) {
+                        artifacts.add(readArtifact(json));
+                    }
+                } else if (token.isScalarValue()) {
+                    feedFields.put(field, json.getText());
+                } else {
+                    json.skipChildren();
+                }
+            }
+            return artifacts;
+        } finally {
+            json.close();
+        }
+    }
+
+    /**
+     * Reads a single relationship object.
+     * @param json
+     * @param relationships
+     * @throws IOException
+     */
+    private static void readRelationship(JsonParser json, Map<String, List<String>> relationships) throws IOException {
+        String type = null;
+        List<String> targets = new ArrayList<String>();
+        while (json.nextToken() == JsonToken.FIELD_NAME) {
+            String field = json.getCurrentName();
+            JsonToken token = json.nextToken();
+            if ("type".equals(field)) { //$NON-NLS-1$
+                type = json.getText();
+            } else if ("targets".equals(field) && token == JsonToken.START_ARRAY) { //$NON-NLS-1$
+                while (json.nextToken() != JsonToken.END_ARRAY) {
+                    targets.add(json.getText());
+                }
+            } else {
+                json.skipChildren();
+            }
+        }
+        if (type != null) {
+            List<String> allTargets = relationships.get(type);
+            if (allTargets == null) {
+                relationships.put(type, targets);
+            } else {
+                allTargets.addAll(targets);
+            }
+        }
+    }
+
+    /**
+     * Writes a string field, unless the value is null.
+     * @param json
+     * @param name
+     * @param value
+     * @throws IOException
+     */
+    private static void writeField(JsonGenerator json, String name, String value) throws IOException {
+        if (value != null) {
+            json.writeStringField(name, value);
+        }
+    }
+
+    /**
+     * Writes a date/time field (in xsd:dateTime format), unless the value is null.
+     * @param json
+     * @param name
+     * @param value
+     * @throws IOException
+     */
+    private static void writeField(JsonGenerator json, String name, XMLGregorianCalendar value) throws IOException {
+        if (value != null) {
+            json.writeStringField(name, value.toXMLFormat());
+        }
+    }
+
+    /**
+     * Parses an xsd:dateTime value.
+     * @param value
+     */
+    private static XMLGregorianCalendar toCalendar(String value) {
+        if (value == null) {
+            return null;
+        }
+        synchronized (datatypeFactory) {
+            return datatypeFactory.newXMLGregorianCalendar(value);
+        }
+    }
+
+}
@@ -20,12 +20,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.lang.reflect.InvocationTargetException;
-import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 import javax.xml.bind.JAXBException;
 
@@ -279,15 +275,15 @@ public class SrampArchive {
 			try {
 				archiveFile = File.createTempFile("s-ramp-archive", ".sramp"); //$NON-NLS-1$ //$NON-NLS-2$
 				FileOutputStream outputStream = FileUtils.openOutputStream(archiveFile);
-				ZipOutputStream zipOutputStream = null;
+				SrampArchiveWriter writer = null;
 				try {
-					zipOutputStream = new ZipOutputStream(outputStream);
+					writer = new SrampArchiveWriter(outputStream);
 					Collection<SrampArchiveEntry> entries = getEntries();
 					for (SrampArchiveEntry entry : entries) {
-						packEntry(entry, zipOutputStream);
+						writer.addEntry(entry.getPath(), entry.getMetaData(), getInputStream(entry));
 					}
 				} finally {
-					IOUtils.closeQuietly(zipOutputStream);
+					SrampArchiveWriter.closeQuietly(writer);
 				}
 			} catch (Throwable t) {
 				// If anything goes wrong, make sure the File is cleaned up, as
@@ -302,41 +298,6 @@ public class SrampArchive {
 		}
 	}
 
-	/**
-	 * Pack the given S-RAMP archive entry into the ZIP.
-	 * @param entry an s-ramp archive entry
-	 * @param zipOutputStream the zip file
-	 * @throws IOException
-	 * @throws NoSuchMethodException
-	 * @throws InvocationTargetException
-	 * @throws IllegalAccessException
-	 * @throws URISyntaxException
-	 * @throws SecurityException
-	 * @throws IllegalArgumentException
-	 * @throws JAXBException
-	 */
-	private void packEntry(SrampArchiveEntry entry, ZipOutputStream zipOutputStream) throws IOException, IllegalArgumentException, SecurityException, URISyntaxException, IllegalAccessException, InvocationTargetException, NoSuchMethodException, JAXBException {
-		// Store the artifact content in the ZIP
-		InputStream contentStream = getInputStream(entry);
-		if (contentStream != null) {
-			zipOutputStream.putNextEntry(new ZipEntry(entry.getPath()));
-			try {
-				IOUtils.copy(contentStream, zipOutputStream);
-			} finally {
-				IOUtils.closeQuietly(contentStream);
-			}
-			zipOutputStream.closeEntry();
-		}
-
-		// Store the meta-data in the ZIP
-		zipOutputStream.putNextEntry(new ZipEntry(entry.getPath() + ".atom")); //$NON-NLS-1$
-		try {
-			SrampArchiveJaxbUtils.writeMetaData(zipOutputStream, entry.getMetaData());
-		} finally {
-		}
-		zipOutputStream.closeEntry();
-	}
-
 	/**
 	 * Gets a single entry in the archive by path.
 	 * @param archivePath the path of the entry within the archive
@@ -16,17 +16,17 @@
 package org.overlord.sramp.atom.archive;
 
 import java.io.File;
+import java.io.InputStream;
 import java.io.OutputStream;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
 
 import org.jboss.resteasy.plugins.providers.atom.Entry;
-import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.Artifact;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
 import org.overlord.sramp.atom.SrampAtomUtils;
+import org.overlord.sramp.atom.SrampJaxbContexts;
 
 /**
  * Utility methods for using jaxb.
@@ -35,14 +35,6 @@ import org.overlord.sramp.atom.SrampAtomUtils;
  */
 public class SrampArchiveJaxbUtils {
 
-	private static JAXBContext jaxbContext;
-	private static JAXBContext getJaxbContext() throws JAXBException {
-		if (jaxbContext == null) {
-			jaxbContext = JAXBContext.newInstance(Entry.class, Artifact.class);
-		}
-		return jaxbContext;
-	}
-
 	/**
 	 * Reads the meta-data (*.atom) file and returns a JAXB object.
 	 * @param metaDataFile
@@ -50,7 +42,7 @@ public class SrampArchiveJaxbUtils {
 	 */
 	public static BaseArtifactType readMetaData(File metaDataFile) throws JAXBException {
 		try {
-			Unmarshaller unmarshaller = getJaxbContext().createUnmarshaller();
+			Unmarshaller unmarshaller = SrampJaxbContexts.getUnmarshaller(Entry.class);
 			Entry entry = (Entry) unmarshaller.unmarshal(metaDataFile);
 			return SrampAtomUtils.unwrapSrampArtifact(entry);
 		} catch (JAXBException e) {
@@ -60,6 +52,23 @@ public class SrampArchiveJaxbUtils {
 		}
 	}
 
+	/**
+	 * Reads the meta-data (atom entry) from the given input stream and returns a JAXB object.
+	 * @param metaData
+	 * @throws JAXBException
+	 */
+	public static BaseArtifactType readMetaData(InputStream metaData) throws JAXBException {
+		try {
+			Unmarshaller unmarshaller = SrampJaxbContexts.getUnmarshaller(Entry.class);
+			Entry entry = (Entry) unmarshaller.unmarshal(metaData);
+			return SrampAtomUtils.unwrapSrampArtifact(entry);
+		} catch (JAXBException e) {
+			throw e;
+		} catch (Throwable t) {
+			throw new JAXBException(t);
+		}
+	}
+
 	/**
 	 * Writes the artifact meta-data to the given working path.
 	 * @param outputFile
@@ -79,8 +88,7 @@ public class SrampArchiveJaxbUtils {
 	 */
 	public static void writeMetaData(File outputFile, BaseArtifactType artifact, boolean wrap) throws JAXBException {
 		try {
-			Marshaller marshaller = getJaxbContext().createMarshaller();
-			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+			Marshaller marshaller = SrampJaxbContexts.getMarshaller(Entry.class, true);
 			Entry atomEntry = SrampAtomUtils.wrapSrampArtifact(artifact);
 			if (wrap) {
 				marshaller.marshal(atomEntry, outputFile);
@@ -103,8 +111,7 @@ public class SrampArchiveJaxbUtils {
 	public static void writeMetaData(OutputStream outputStream, BaseArtifactType artifact) throws JAXBException {
 		try {
 			Entry atomEntry = SrampAtomUtils.wrapSrampArtifact(artifact);
-			Marshaller marshaller = getJaxbContext().createMarshaller();
-			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+			Marshaller marshaller = SrampJaxbContexts.getMarshaller(Entry.class, true);
 			marshaller.marshal(atomEntry, outputStream);
 		} catch (JAXBException e) {
 			throw e;
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.atom.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.xml.bind.JAXBException;
+
+import org.apache.commons.io.IOUtils;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
+
+/**
+ * Writes an S-RAMP package (the archive format defined in the S-RAMP Atom Binding document)
+ * directly to an output stream, one entry at a time.  Unlike an {@link SrampArchive}, nothing
+ * is staged in a work directory - each entry's content is copied straight from its input
+ * stream into the zip, followed by its *.atom meta-data.
+ */
+public class SrampArchiveWriter implements Closeable {
+
+    private final ZipOutputStream zipOutputStream;
+
+    /**
+     * Constructor.
+     * @param output
+     */
+    public SrampArchiveWriter(OutputStream output) {
+        this.zipOutputStream = new ZipOutputStream(output);
+    }
+
+    /**
+     * Writes a single entry to the package.  The content stream (if any) is consumed and
+     * closed.
+     * @param path the path of the entry within the package
+     * @param metaData the artifact meta-data
+     * @param content the artifact content (or null for an artifact without content)
+     * @throws IOException
+     * @throws JAXBException
+     */
+    public void addEntry(String path, BaseArtifactType metaData, InputStream content) throws IOException, JAXBException {
+        // Store the artifact content in the ZIP
+        if (content != null) {
+            try {
+                zipOutputStream.putNextEntry(new ZipEntry(path));
+                IOUtils.copy(content, zipOutputStream);
+            } finally {
+                IOUtils.closeQuietly(content);
+            }
+            zipOutputStream.closeEntry();
+        }
+
+        // Store the meta-data in the ZIP
+        zipOutputStream.putNextEntry(new ZipEntry(path + ".atom")); //$NON-NLS-1$
+        SrampArchiveJaxbUtils.writeMetaData(zipOutputStream, metaData);
+        zipOutputStream.closeEntry();
+    }
+
+    /**
+     * Finishes writing the package without closing the underlying output stream.
+     * @throws IOException
+     */
+    public void finish() throws IOException {
+        zipOutputStream.finish();
+    }
+
+    /**
+     * Finishes writing the package and closes the underlying output stream.
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        zipOutputStream.close();
+    }
+
+    /**
+     * Close the writer quietly (eat any {@link IOException}).
+     * @param writer
+     */
+    public static void closeQuietly(SrampArchiveWriter writer) {
+        try {
+            if (writer != null)
+                writer.close();
+        } catch (IOException e) {
+        }
+    }
+
+}
@@ -29,12 +29,12 @@ import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.ext.MessageBodyReader;
 import javax.ws.rs.ext.MessageBodyWriter;
 import javax.ws.rs.ext.Provider;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 
 import org.jboss.downloads.overlord.sramp._2013.auditing.AuditEntry;
 import org.jboss.resteasy.plugins.providers.jaxb.JAXBMarshalException;
 import org.jboss.resteasy.plugins.providers.jaxb.JAXBUnmarshalException;
+import org.overlord.sramp.atom.SrampJaxbContexts;
 import org.overlord.sramp.atom.i18n.Messages;
 
 /**
@@ -48,15 +48,6 @@ import org.overlord.sramp.atom.i18n.Messages;
 @Consumes("application/auditEntry+xml")
 public class AuditEntryProvider implements MessageBodyReader<AuditEntry>, MessageBodyWriter<AuditEntry> {
 
-	private static JAXBContext auditEntryContext;
-	{
-		try {
-			auditEntryContext = JAXBContext.newInstance(AuditEntry.class);
-		} catch (JAXBException e) {
-			auditEntryContext = null;
-		}
-	}
-
 	/**
 	 * Constructor.
 	 */
@@ -101,11 +92,8 @@ public class AuditEntryProvider implements MessageBodyReader<AuditEntry>, Messag
 	public void writeTo(AuditEntry t, Class<?> type, Type genericType, Annotation[] annotations,
 			MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
 			throws IOException, WebApplicationException {
-		if (auditEntryContext == null)
-			throw new JAXBMarshalException(Messages.i18n.format("UNABLE_TO_MARSHAL", mediaType), //$NON-NLS-1$
-			        new NullPointerException(Messages.i18n.format("FAILED_TO_CREATE_AUDIT_JAXBCTX"))); //$NON-NLS-1$
 		try {
-			auditEntryContext.createMarshaller().marshal(t, entityStream);
+			SrampJaxbContexts.getMarshaller(AuditEntry.class, false).marshal(t, entityStream);
 		} catch (JAXBException e) {
 			throw new JAXBMarshalException(Messages.i18n.format("UNABLE_TO_MARSHAL", mediaType), e); //$NON-NLS-1$
 		}
@@ -120,11 +108,8 @@ public class AuditEntryProvider implements MessageBodyReader<AuditEntry>, Messag
 	public AuditEntry readFrom(Class<AuditEntry> type, Type genericType, Annotation[] annotations, MediaType mediaType,
 			MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException,
 			WebApplicationException {
-		if (auditEntryContext == null)
-			throw new JAXBUnmarshalException(Messages.i18n.format("UNABLE_TO_MARSHAL", mediaType), //$NON-NLS-1$
-			        new NullPointerException(Messages.i18n.format("FAILED_TO_CREATE_AUDIT_JAXBCTX"))); //$NON-NLS-1$
 		try {
-			AuditEntry entry = (AuditEntry) auditEntryContext.createUnmarshaller().unmarshal(entityStream);
+			AuditEntry entry = (AuditEntry) SrampJaxbContexts.getUnmarshaller(AuditEntry.class).unmarshal(entityStream);
 			return entry;
 		} catch (JAXBException e) {
 			throw new JAXBUnmarshalException(Messages.i18n.format("UNABLE_TO_MARSHAL", mediaType), e); //$NON-NLS-1$
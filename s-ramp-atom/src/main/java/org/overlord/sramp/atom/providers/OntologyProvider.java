@@ -29,11 +29,11 @@ import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.ext.MessageBodyReader;
 import javax.ws.rs.ext.MessageBodyWriter;
 import javax.ws.rs.ext.Provider;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 
 import org.jboss.resteasy.plugins.providers.jaxb.JAXBMarshalException;
 import org.jboss.resteasy.plugins.providers.jaxb.JAXBUnmarshalException;
+import org.overlord.sramp.atom.SrampJaxbContexts;
 import org.overlord.sramp.atom.i18n.Messages;
 import org.w3._1999._02._22_rdf_syntax_ns_.RDF;
 
@@ -48,15 +48,6 @@ import org.w3._1999._02._22_rdf_syntax_ns_.RDF;
 @Consumes("application/rdf+xml")
 public class OntologyProvider implements MessageBodyReader<RDF>, MessageBodyWriter<RDF> {
 
-	private static JAXBContext rdfContext;
-	{
-		try {
-			rdfContext = JAXBContext.newInstance(RDF.class);
-		} catch (JAXBException e) {
-			rdfContext = null;
-		}
-	}
-
 	/**
 	 * Constructor.
 	 */
@@ -101,11 +92,8 @@ public class OntologyProvider implements MessageBodyReader<RDF>, MessageBodyWrit
 	public void writeTo(RDF t, Class<?> type, Type genericType, Annotation[] annotations,
 			MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
 			throws IOException, WebApplicationException {
-		if (rdfContext == null)
-			throw new JAXBMarshalException(Messages.i18n.format("UNABLE_TO_MARSHAL", mediaType), //$NON-NLS-1$
-			        new NullPointerException(Messages.i18n.format("FAILED_TO_CREATE_ONT_JAXBCTX"))); //$NON-NLS-1$
 		try {
-			rdfContext.createMarshaller().marshal(t, entityStream);
+			SrampJaxbContexts.getMarshaller(RDF.class, false).marshal(t, entityStream);
 		} catch (JAXBException e) {
 			throw new JAXBMarshalException(Messages.i18n.format("UNABLE_TO_MARSHAL", mediaType), e); //$NON-NLS-1$
 		}
@@ -120,11 +108,8 @@ public class OntologyProvider implements MessageBodyReader<RDF>, MessageBodyWrit
 	public RDF readFrom(Class<RDF> type, Type genericType, Annotation[] annotations, MediaType mediaType,
 			MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException,
 			WebApplicationException {
-		if (rdfContext == null)
-			throw new JAXBUnmarshalException(Messages.i18n.format("UNABLE_TO_MARSHAL", mediaType), //$NON-NLS-1$
-			        new NullPointerException(Messages.i18n.format("FAILED_TO_CREATE_ONT_JAXBCTX"))); //$NON-NLS-1$
 		try {
-			RDF entry = (RDF) rdfContext.createUnmarshaller().unmarshal(entityStream);
+			RDF entry = (RDF) SrampJaxbContexts.getUnmarshaller(RDF.class).unmarshal(entityStream);
 			return entry;
 		} catch (JAXBException e) {
 			throw new JAXBUnmarshalException(Messages.i18n.format("UNABLE_TO_MARSHAL")); //$NON-NLS-1$
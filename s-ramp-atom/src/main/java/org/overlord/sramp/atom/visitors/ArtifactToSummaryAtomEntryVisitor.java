@@ -15,7 +15,6 @@
  */
 package org.overlord.sramp.atom.visitors;
 
-import java.lang.reflect.Method;
 import java.net.URI;
 import java.util.List;
 import java.util.Set;
@@ -175,11 +174,8 @@ public class ArtifactToSummaryAtomEntryVisitor extends HierarchicalArtifactVisit
 			setAtomEntry(entry);
 
 			if (includeArtifact()) {
-				Artifact artifactWrapper = new Artifact();
 				BaseArtifactType includedArtifact = createIncludedArtifact(artifact);
-				Method method = Artifact.class.getMethod("set" + includedArtifact.getClass().getSimpleName(), includedArtifact.getClass()); //$NON-NLS-1$
-				method.invoke(artifactWrapper, includedArtifact);
-				entry.setAnyOtherJAXBObject(artifactWrapper);
+				entry.setAnyOtherJAXBObject(SrampAtomUtils.createArtifactWrapper(includedArtifact));
 			}
 		} catch (Exception e) {
 			this.failure = e;
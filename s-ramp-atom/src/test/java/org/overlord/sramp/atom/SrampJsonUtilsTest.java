@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.atom;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.datatype.DatatypeFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.ExtendedArtifactType;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.XsdDocument;
+import org.overlord.sramp.common.ArtifactType;
+import org.overlord.sramp.common.SrampConstants;
+import org.overlord.sramp.common.SrampModelUtils;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Unit test for the {@link SrampJsonUtils} class.
+ */
+public class SrampJsonUtilsTest {
+
+    @Test
+    public void testArtifactRoundTrip() throws Exception {
+        XsdDocument document = (XsdDocument) ArtifactType.XsdDocument().newArtifactInstance();
+        document.setUuid("1234-5678"); //$NON-NLS-1$
+        document.setName("sample.xsd"); //$NON-NLS-1$
+        document.setDescription("A \"sample\" schema"); //$NON-NLS-1$
+        document.setCreatedBy("bob"); //$NON-NLS-1$
+        document.setCreatedTimestamp(DatatypeFactory.newInstance().newXMLGregorianCalendar("2014-01-02T03:04:05.678Z")); //$NON-NLS-1$
+        document.setContentSize(1024L);
+        document.setContentType("application/xml"); //$NON-NLS-1$
+        document.getClassifiedBy().add("http://www.example.org/regions.owl#China"); //$NON-NLS-1$
+        SrampModelUtils.setCustomProperty(document, "prop-1", "value-1"); //$NON-NLS-1$ //$NON-NLS-2$
+        SrampModelUtils.addGenericRelationship(document, "relatedTo", "abcd"); //$NON-NLS-1$ //$NON-NLS-2$
+        SrampModelUtils.addGenericRelationship(document, "relatedTo", "efgh"); //$NON-NLS-1$ //$NON-NLS-2$
+        SrampModelUtils.addGenericRelationship(document, "empty", null); //$NON-NLS-1$
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        SrampJsonUtils.writeArtifact(output, document);
+        BaseArtifactType artifact = SrampJsonUtils.readArtifact(new ByteArrayInputStream(output.toByteArray()));
+
+        Assert.assertTrue(artifact instanceof XsdDocument);
+        XsdDocument copy = (XsdDocument) artifact;
+        Assert.assertEquals("1234-5678", copy.getUuid()); //$NON-NLS-1$
+        Assert.assertEquals("sample.xsd", copy.getName()); //$NON-NLS-1$
+        Assert.assertEquals("A \"sample\" schema", copy.getDescription()); //$NON-NLS-1$
+        Assert.assertEquals("bob", copy.getCreatedBy()); //$NON-NLS-1$
+        Assert.assertEquals(document.getCreatedTimestamp(), copy.getCreatedTimestamp());
+        Assert.assertEquals(Long.valueOf(1024L), copy.getContentSize());
+        Assert.assertEquals("application/xml", copy.getContentType()); //$NON-NLS-1$
+        Assert.assertEquals(document.getClassifiedBy(), copy.getClassifiedBy());
+        Assert.assertEquals("value-1", SrampModelUtils.getCustomProperty(copy, "prop-1")); //$NON-NLS-1$ //$NON-NLS-2$
+        Assert.assertEquals(2, SrampModelUtils.getGenericRelationship(copy, "relatedTo").getRelationshipTarget().size()); //$NON-NLS-1$
+        Assert.assertNotNull(SrampModelUtils.getGenericRelationship(copy, "empty")); //$NON-NLS-1$
+    }
+
+    @Test
+    public void testExtendedArtifactRoundTrip() throws Exception {
+        BaseArtifactType extended = ArtifactType.ExtendedArtifactType("MyType", true).newArtifactInstance(); //$NON-NLS-1$
+        extended.setUuid("ext-1"); //$NON-NLS-1$
+        extended.getOtherAttributes().put(SrampConstants.SRAMP_DERIVED_QNAME, "true"); //$NON-NLS-1$
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        SrampJsonUtils.writeArtifact(output, extended);
+        BaseArtifactType artifact = SrampJsonUtils.readArtifact(new ByteArrayInputStream(output.toByteArray()));
+
+        Assert.assertTrue(artifact instanceof ExtendedArtifactType);
+        ArtifactType artifactType = ArtifactType.valueOf(artifact);
+        Assert.assertEquals("MyType", artifactType.getExtendedType()); //$NON-NLS-1$
+        Assert.assertTrue(artifactType.isDerived());
+    }
+
+    @Test
+    public void testFeed() throws Exception {
+        XsdDocument document = (XsdDocument) ArtifactType.XsdDocument().newArtifactInstance();
+        document.setUuid("1234"); //$NON-NLS-1$
+        SrampModelUtils.setCustomProperty(document, "wanted", "yes"); //$NON-NLS-1$ //$NON-NLS-2$
+        SrampModelUtils.setCustomProperty(document, "unwanted", "no"); //$NON-NLS-1$ //$NON-NLS-2$
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        JsonGenerator json = SrampJsonUtils.getFactory().createGenerator(output, JsonEncoding.UTF8);
+        json.writeStartObject();
+        json.writeNumberField("totalResults", 1); //$NON-NLS-1$
+        json.writeArrayFieldStart("artifacts"); //$NON-NLS-1$
+        SrampJsonUtils.writeArtifactSummary(json, document, Collections.singleton("wanted")); //$NON-NLS-1$
+        json.writeEndArray();
+        json.writeObjectFieldStart("links"); //$NON-NLS-1$
+        json.writeStringField("next", "http://localhost/next"); //$NON-NLS-1$ //$NON-NLS-2$
+        json.writeEndObject();
+        json.writeEndObject();
+        json.close();
+
+        Map<String, String> fields = new HashMap<String, String>();
+        List<BaseArtifactType> artifacts = SrampJsonUtils.readFeed(new ByteArrayInputStream(output.toByteArray()), fields);
+        Assert.assertEquals("1", fields.get("totalResults")); //$NON-NLS-1$ //$NON-NLS-2$
+        Assert.assertEquals(1, artifacts.size());
+        Assert.assertEquals("1234", artifacts.get(0).getUuid()); //$NON-NLS-1$
+        Assert.assertEquals("yes", SrampModelUtils.getCustomProperty(artifacts.get(0), "wanted")); //$NON-NLS-1$ //$NON-NLS-2$
+        Assert.assertNull(SrampModelUtils.getCustomProperty(artifacts.get(0), "unwanted")); //$NON-NLS-1$
+    }
+
+}
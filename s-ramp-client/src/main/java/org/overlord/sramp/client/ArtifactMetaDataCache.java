@@ -0,0 +1,159 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.bind.JAXBException;
+
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
+import org.overlord.sramp.atom.archive.SrampArchiveJaxbUtils;
+import org.overlord.sramp.common.ArtifactType;
+
+/**
+ * A bounded, least-recently-used cache of artifact meta-data, keyed by artifact UUID.  Each
+ * cached item remembers the ETag the server returned for it, so that it can be revalidated
+ * with an If-None-Match request.  Items are stored in serialized form, so every lookup
+ * returns a fresh copy that the caller is free to modify.
+ */
+public class ArtifactMetaDataCache {
+
+    private final int maxSize;
+    private final long maxAge;
+    private final Map<String, CachedMetaData> items;
+
+    /**
+     * Constructor.
+     * @param maxSize the maximum number of artifacts to cache
+     * @param maxAge how long (in ms) a cached item is used without revalidating it
+     */
+    public ArtifactMetaDataCache(int maxSize, long maxAge) {
+        this.maxSize = maxSize;
+        this.maxAge = maxAge;
+        this.items = new LinkedHashMap<String, CachedMetaData>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedMetaData> eldest) {
+                return size() > ArtifactMetaDataCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Gets the cached item for the given artifact, or null if it isn't cached.
+     * @param uuid
+     */
+    public synchronized CachedMetaData get(String uuid) {
+        return items.get(uuid);
+    }
+
+    /**
+     * Caches the meta-data of the given artifact.
+     * @param artifactType
+     * @param artifact
+     * @param etag the ETag returned by the server (artifacts without one are not cached)
+     * @throws JAXBException
+     */
+    public void put(ArtifactType artifactType, BaseArtifactType artifact, String etag) throws JAXBException {
+        if (etag == null) {
+            return;
+        }
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        SrampArchiveJaxbUtils.writeMetaData(data, artifact);
+        CachedMetaData item = new CachedMetaData(artifactType, etag, data.toByteArray());
+        synchronized (this) {
+            items.put(artifact.getUuid(), item);
+        }
+    }
+
+    /**
+     * Removes the given artifact from the cache.
+     * @param uuid
+     */
+    public synchronized void invalidate(String uuid) {
+        items.remove(uuid);
+    }
+
+    /**
+     * Removes everything from the cache.
+     */
+    public synchronized void clear() {
+        items.clear();
+    }
+
+    /**
+     * A single cached artifact.
+     */
+    public class CachedMetaData {
+        private final ArtifactType artifactType;
+        private final String etag;
+        private final byte[] data;
+        private volatile long validatedOn;
+
+        /**
+         * Constructor.
+         * @param artifactType
+         * @param etag
+         * @param data
+         */
+        private CachedMetaData(ArtifactType artifactType, String etag, byte[] data) {
+            this.artifactType = artifactType;
+            this.etag = etag;
+            this.data = data;
+            this.validatedOn = System.currentTimeMillis();
+        }
+
+        /**
+         * @return the artifact type
+         */
+        public ArtifactType getArtifactType() {
+            return artifactType;
+        }
+
+        /**
+         * @return the ETag the server returned for this version of the meta-data
+         */
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * @return true if the item was (re)validated recently enough to use it as-is
+         */
+        public boolean isFresh() {
+            return System.currentTimeMillis() - validatedOn < maxAge;
+        }
+
+        /**
+         * Marks the item as just having been revalidated with the server.
+         */
+        public void validated() {
+            this.validatedOn = System.currentTimeMillis();
+        }
+
+        /**
+         * @return a new copy of the cached artifact meta-data
+         * @throws JAXBException
+         */
+        public BaseArtifactType getArtifact() throws JAXBException {
+            return SrampArchiveJaxbUtils.readMetaData(new ByteArrayInputStream(data));
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.client;
+
+import java.io.InputStream;
+
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
+
+/**
+ * A single entry of a streamed batch upload (see
+ * {@link SrampAtomApiClient#uploadBatch(java.util.Iterator)}): the path of the entry
+ * within the s-ramp package, the artifact meta-data and (optionally) the artifact content.
+ */
+public class BatchEntry {
+
+    private final String path;
+    private final BaseArtifactType metaData;
+    private final InputStream content;
+
+    /**
+     * Constructor.
+     * @param path the path of the entry within the s-ramp package (the batch results are keyed by it)
+     * @param metaData the artifact meta-data
+     * @param content the artifact content, or null if the artifact has none (or for a meta-data update)
+     */
+    public BatchEntry(String path, BaseArtifactType metaData, InputStream content) {
+        this.path = path;
+        this.metaData = metaData;
+        this.content = content;
+    }
+
+    /**
+     * @return the path
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return the artifact meta-data
+     */
+    public BaseArtifactType getMetaData() {
+        return metaData;
+    }
+
+    /**
+     * @return the artifact content (may be null)
+     */
+    public InputStream getContent() {
+        return content;
+    }
+
+}
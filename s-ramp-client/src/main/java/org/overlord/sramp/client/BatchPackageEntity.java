@@ -0,0 +1,162 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+import javax.xml.bind.JAXBException;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.overlord.sramp.atom.MediaType;
+import org.overlord.sramp.atom.archive.SrampArchiveWriter;
+
+/**
+ * An http entity that writes an s-ramp package (.zip) straight to the request body as it
+ * is sent, pulling the entries from an iterator.  The request is sent using chunked
+ * transfer encoding, so neither the package nor its entries are ever staged on disk or
+ * held in memory.  The entity can only be written once.
+ * <br/>
+ * Every entry's content stream is closed, whether or not it could be sent: if writing the
+ * package fails (or it is never written at all, see {@link #closeRemaining()}), the content
+ * of the remaining entries is closed as well.
+ */
+class BatchPackageEntity extends AbstractHttpEntity {
+
+    private final Iterator<BatchEntry> entries;
+    private BatchEntry current;
+
+    /**
+     * Constructor.
+     * @param entries
+     */
+    public BatchPackageEntity(Iterator<BatchEntry> entries) {
+        this.entries = entries;
+        setContentType(MediaType.APPLICATION_ZIP);
+        setChunked(true);
+    }
+
+    /**
+     * @see org.apache.http.HttpEntity#isRepeatable()
+     */
+    @Override
+    public boolean isRepeatable() {
+        return false;
+    }
+
+    /**
+     * @see org.apache.http.HttpEntity#getContentLength()
+     */
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    /**
+     * @see org.apache.http.HttpEntity#getContent()
+     */
+    @Override
+    public InputStream getContent() throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @see org.apache.http.HttpEntity#writeTo(java.io.OutputStream)
+     */
+    @Override
+    public void writeTo(OutputStream outstream) throws IOException {
+        SrampArchiveWriter writer = new SrampArchiveWriter(outstream);
+        boolean written = false;
+        try {
+            while (entries.hasNext()) {
+                current = entries.next();
+                writer.addEntry(current.getPath(), current.getMetaData(), current.getContent());
+                current = null;
+            }
+            // The http client owns (and closes) the underlying stream.
+            writer.finish();
+            written = true;
+        } catch (JAXBException e) {
+            throw new IOException(e);
+        } catch (EntryException e) {
+            throw e.getCause();
+        } finally {
+            if (!written) {
+                closeRemaining();
+            }
+        }
+    }
+
+    /**
+     * Closes the content of the entry being written (if any) and of all entries that
+     * haven't been written yet.  Called when the package can't be (completely) written.
+     */
+    public void closeRemaining() {
+        if (current != null) {
+            IOUtils.closeQuietly(current.getContent());
+            current = null;
+        }
+        try {
+            while (entries.hasNext()) {
+                try {
+                    IOUtils.closeQuietly(entries.next().getContent());
+                } catch (EntryException e) {
+                    // That entry's content couldn't be opened, so there's nothing to close.
+                }
+            }
+        } catch (RuntimeException e) {
+            // The iterator itself is broken, so nothing more can be closed.
+        }
+    }
+
+    /**
+     * @see org.apache.http.HttpEntity#isStreaming()
+     */
+    @Override
+    public boolean isStreaming() {
+        return true;
+    }
+
+    /**
+     * Thrown (from {@link Iterator#next()}) by an entry iterator that fails to open an
+     * entry's content.  {@link BatchPackageEntity#writeTo(OutputStream)} rethrows the
+     * underlying {@link IOException}.
+     */
+    static class EntryException extends RuntimeException {
+
+        private static final long serialVersionUID = -3360713380719622735L;
+
+        /**
+         * Constructor.
+         * @param cause
+         */
+        public EntryException(IOException cause) {
+            super(cause);
+        }
+
+        /**
+         * @see java.lang.Throwable#getCause()
+         */
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+}
@@ -185,11 +185,27 @@ public class ClientRequest extends org.jboss.resteasy.client.ClientRequest {
 	}
 
 	/**
-	 * Handles the possibility of an error found in the response.
+	 * Handles the possibility of an error found in the response.  If the response is an
+	 * error, the connection is released before the exception is thrown (the caller never
+	 * gets the response, so it cannot release it).
 	 * @param response
 	 * @throws Exception
 	 */
 	private <T> void handlePotentialServerError(ClientResponse<T> response) throws Exception {
+		try {
+			checkForServerError(response);
+		} catch (Exception e) {
+			response.releaseConnection();
+			throw e;
+		}
+	}
+
+	/**
+	 * Throws an appropriate exception if the response is an error.
+	 * @param response
+	 * @throws Exception
+	 */
+	private <T> void checkForServerError(ClientResponse<T> response) throws Exception {
 		String contentType = String.valueOf(response.getMetadata().getFirst(HttpHeaderNames.CONTENT_TYPE));
 		if (response.getStatus() == 500) {
 			Exception error = new Exception(Messages.i18n.format("UNKNOWN_SRAMP_ERROR")); //$NON-NLS-1$
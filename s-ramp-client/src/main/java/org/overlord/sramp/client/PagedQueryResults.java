@@ -0,0 +1,186 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.client;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.overlord.sramp.client.query.ArtifactSummary;
+import org.overlord.sramp.client.query.QueryResultSet;
+
+/**
+ * All of the results of an S-RAMP query, fetched lazily one page at a time.  Created by
+ * {@link SrampClientQuery#stream()}.
+ * <br/>
+ * Each iterator fetches the next page in the background while the caller works through
+ * the current one, so a full scan of the repository overlaps the network round trips with
+ * whatever processing the caller does.  At most one page is fetched ahead.  The pages are
+ * fetched by a small pool of daemon threads shared by all iterators (the threads go away
+ * when they've been idle for a while).
+ * <br/>
+ * The pages are separate queries, so artifacts added or removed during the iteration may
+ * shift the page boundaries (and cause an artifact to be skipped or returned twice).
+ * Order the query by a stable property (e.g. createdTimestamp) to keep this to a minimum.
+ * <br/>
+ * Failures to fetch a page are thrown from {@link Iterator#hasNext()} as a
+ * {@link SrampClientPagingException}.
+ */
+public class PagedQueryResults implements Iterable<ArtifactSummary> {
+
+    private static final int PREFETCH_THREADS = 4;
+    private static final ExecutorService prefetchExecutor;
+    static {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(PREFETCH_THREADS, PREFETCH_THREADS, 60l, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory("S-RAMP Query Prefetch ")); //$NON-NLS-1$
+        executor.allowCoreThreadTimeOut(true);
+        prefetchExecutor = executor;
+    }
+
+    private final SrampAtomApiClient client;
+    private final String query;
+    private final int startIndex;
+    private final int pageSize;
+    private final String orderBy;
+    private final boolean ascending;
+    private final Set<String> propertyNames;
+
+    /**
+     * Constructor.
+     * @param client
+     * @param query the (formatted) s-ramp query
+     * @param startIndex the index of the first result to return
+     * @param pageSize the number of results to fetch with each request
+     * @param orderBy
+     * @param ascending
+     * @param propertyNames additional properties to include in the results
+     */
+    protected PagedQueryResults(SrampAtomApiClient client, String query, int startIndex, int pageSize,
+            String orderBy, boolean ascending, Set<String> propertyNames) {
+        if (pageSize < 1)
+            throw new IllegalArgumentException("pageSize"); //$NON-NLS-1$
+        this.client = client;
+        this.query = query;
+        this.startIndex = startIndex;
+        this.pageSize = pageSize;
+        this.orderBy = orderBy;
+        this.ascending = ascending;
+        this.propertyNames = propertyNames;
+    }
+
+    /**
+     * Returns a new iterator over all of the results.  The first page is requested
+     * right away.
+     * @see java.lang.Iterable#iterator()
+     */
+    @Override
+    public Iterator<ArtifactSummary> iterator() {
+        return new PagingIterator();
+    }
+
+    /**
+     * Starts fetching the page of results beginning at the given index in the background.
+     * @param index
+     */
+    private Future<QueryResultSet> fetchPage(final int index) {
+        return prefetchExecutor.submit(new Callable<QueryResultSet>() {
+            @Override
+            public QueryResultSet call() throws Exception {
+                return client.query(query, index, pageSize, orderBy, ascending, propertyNames);
+            }
+        });
+    }
+
+    /**
+     * Iterates over the current page while the next one is being fetched.
+     */
+    private class PagingIterator implements Iterator<ArtifactSummary> {
+
+        private Iterator<ArtifactSummary> current = Collections.<ArtifactSummary>emptyList().iterator();
+        private Future<QueryResultSet> nextPage;
+        private int nextIndex;
+
+        /**
+         * Constructor.
+         */
+        public PagingIterator() {
+            nextIndex = startIndex;
+            nextPage = fetchPage(nextIndex);
+        }
+
+        /**
+         * @see java.util.Iterator#hasNext()
+         */
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                if (nextPage == null)
+                    return false;
+                QueryResultSet page = awaitPage();
+                nextIndex += page.size();
+                // A short page means there is nothing after it.
+                boolean more = page.size() >= pageSize
+                        && (page.getTotalResults() < 0 || nextIndex < page.getTotalResults());
+                nextPage = more ? fetchPage(nextIndex) : null;
+                current = page.iterator();
+            }
+            return true;
+        }
+
+        /**
+         * @see java.util.Iterator#next()
+         */
+        @Override
+        public ArtifactSummary next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return current.next();
+        }
+
+        /**
+         * @see java.util.Iterator#remove()
+         */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Waits for the page currently being fetched.
+         */
+        private QueryResultSet awaitPage() {
+            try {
+                return nextPage.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                nextPage = null;
+                throw new SrampClientPagingException(e);
+            } catch (ExecutionException e) {
+                nextPage = null;
+                throw new SrampClientPagingException(e.getCause());
+            }
+        }
+    }
+
+}
@@ -15,16 +15,16 @@
  */
 package org.overlord.sramp.client;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.http.*;
+import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
 import org.apache.http.protocol.HttpContext;
 import org.jboss.downloads.overlord.sramp._2013.auditing.AuditEntry;
 import org.jboss.resteasy.client.ClientExecutor;
 import org.jboss.resteasy.client.ClientResponse;
-import org.jboss.resteasy.client.core.executors.ApacheHttpClient4Executor;
 import org.jboss.resteasy.plugins.providers.atom.Category;
 import org.jboss.resteasy.plugins.providers.atom.Entry;
 import org.jboss.resteasy.plugins.providers.atom.Feed;
@@ -37,9 +37,12 @@ import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.StoredQuery;
 import org.overlord.sramp.atom.MediaType;
 import org.overlord.sramp.atom.SrampAtomUtils;
+import org.overlord.sramp.atom.SrampJsonUtils;
 import org.overlord.sramp.atom.archive.SrampArchive;
+import org.overlord.sramp.atom.archive.SrampArchiveEntry;
 import org.overlord.sramp.atom.beans.HttpResponseBean;
 import org.overlord.sramp.atom.err.SrampAtomException;
+import org.overlord.sramp.client.ArtifactMetaDataCache.CachedMetaData;
 import org.overlord.sramp.client.audit.AuditResultSet;
 import org.overlord.sramp.client.auth.AuthenticationProvider;
 import org.overlord.sramp.client.auth.BasicAuthenticationProvider;
@@ -53,11 +56,11 @@ import org.overlord.sramp.common.SrampModelUtils;
 import org.w3._1999._02._22_rdf_syntax_ns_.RDF;
 
 import javax.xml.namespace.QName;
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URLEncoder;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Class used to communicate with the S-RAMP server via the S-RAMP Atom API.
@@ -66,6 +69,12 @@ import java.util.*;
  */
 public class SrampAtomApiClient {
 
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+    public static final int DEFAULT_MAX_CONNECTIONS = 50;
+    public static final long DEFAULT_IDLE_CONNECTION_TIMEOUT = 30000;
+    /** The number of artifacts fetched per bulk meta-data request - well below the server's default limit. */
+    public static final int BULK_META_DATA_BATCH_SIZE = 100;
+
 	private String endpoint;
 	private boolean validating;
 	private Set<String> enabledFeatures = new HashSet<String>();
@@ -75,6 +84,16 @@ public class SrampAtomApiClient {
     // TODO: Not a huge fan of this.  We need *some* way
     private String bearerToken;
 
+    private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    private long idleConnectionTimeout = DEFAULT_IDLE_CONNECTION_TIMEOUT;
+    private PoolingClientConnectionManager connectionManager;
+    private DefaultHttpClient httpClient;
+    private ClientExecutor clientExecutor;
+    private long lastIdleEviction;
+    private volatile ArtifactMetaDataCache metaDataCache;
+    private boolean preferJson;
+
 	/**
 	 * Constructor.
 	 * @param endpoint
@@ -232,6 +251,12 @@ public class SrampAtomApiClient {
     public BaseArtifactType getArtifactMetaData(String artifactUuid) throws SrampClientException,
             SrampAtomException {
         try {
+            // No need to look up the type if the artifact is cached.
+            ArtifactMetaDataCache cache = this.metaDataCache;
+            CachedMetaData cached = cache != null ? cache.get(artifactUuid) : null;
+            if (cached != null) {
+                return getArtifactMetaData(cached.getArtifactType(), artifactUuid);
+            }
             QueryResultSet uuidRS = buildQuery("/s-ramp[@uuid = ?]").parameter(artifactUuid).count(1).query(); //$NON-NLS-1$
             if (uuidRS.size() == 0)
                 throw new SrampClientException(Messages.i18n.format("ARTIFACT_NOT_FOUND", artifactUuid)); //$NON-NLS-1$
@@ -257,7 +282,10 @@ public class SrampAtomApiClient {
     }
 
 	/**
-	 * Gets the full meta-data listing for an Artifact in the S-RAMP repository.
+	 * Gets the full meta-data listing for an Artifact in the S-RAMP repository.  This always
+	 * uses the Atom format (regardless of {@link #setPreferJson(boolean)}), since the compact
+	 * JSON format doesn't carry the full meta-data - and it's the full meta-data that ends up
+	 * in the {@link ArtifactMetaDataCache}.
 	 * @param artifactType
 	 * @param artifactUuid
 	 * @throws SrampClientException
@@ -266,15 +294,32 @@ public class SrampAtomApiClient {
 	public BaseArtifactType getArtifactMetaData(ArtifactType artifactType, String artifactUuid)
 			throws SrampClientException, SrampAtomException {
 		assertFeatureEnabled(artifactType);
-		ClientResponse<Entry> response = null;
+		ClientResponse<?> response = null;
 		try {
 			String atomUrl = String.format("%1$s/%2$s/%3$s/%4$s", this.endpoint, //$NON-NLS-1$
 					artifactType.getArtifactType().getModel(), artifactType.getArtifactType().getType(),
 					artifactUuid);
+			ArtifactMetaDataCache cache = this.metaDataCache;
+			CachedMetaData cached = cache != null ? cache.get(artifactUuid) : null;
+			if (cached != null && cached.isFresh()) {
+			    return cached.getArtifact();
+			}
 			ClientRequest request = createClientRequest(atomUrl);
-			response = request.get(Entry.class);
-			Entry entry = response.getEntity();
-			return SrampAtomUtils.unwrapSrampArtifact(artifactType, entry);
+			if (cached != null) {
+			    request.header("If-None-Match", cached.getEtag()); //$NON-NLS-1$
+			}
+			response = request.get();
+			if (cached != null && response.getStatus() == 304) {
+			    cached.validated();
+			    return cached.getArtifact();
+			}
+			Entry entry = response.getEntity(Entry.class);
+			BaseArtifactType artifact = SrampAtomUtils.unwrapSrampArtifact(artifactType, entry);
+			if (cache != null && artifact != null) {
+			    Object etag = response.getMetadata().getFirst("ETag"); //$NON-NLS-1$
+			    cache.put(artifactType, artifact, etag != null ? etag.toString() : null);
+			}
+			return artifact;
 		} catch (SrampAtomException e) {
 			throw e;
 		} catch (Throwable e) {
@@ -284,8 +329,76 @@ public class SrampAtomApiClient {
 		}
 	}
 
+	/**
+	 * Gets the meta-data listing for a number of Artifacts (of any type) in the S-RAMP
+	 * repository.  This is a lot cheaper than fetching each of the artifacts individually:
+	 * the artifacts are fetched {@value #BULK_META_DATA_BATCH_SIZE} at a time (the server
+	 * limits the size of a single request).  The artifacts are returned in the order of the
+	 * given UUIDs.  Any UUID that does not identify an artifact is simply skipped.
+	 * <br/>
+	 * The meta-data is the full (Atom) listing, unless {@link #setPreferJson(boolean)} is on -
+	 * then it's the compact JSON listing, which only carries the meta-data common to all
+	 * artifacts (and none of the type specific meta-data).
+	 * @param artifactUuids
+	 * @throws SrampClientException
+	 * @throws SrampAtomException
+	 */
+	public List<BaseArtifactType> getArtifactMetaData(Collection<String> artifactUuids)
+	        throws SrampClientException, SrampAtomException {
+	    List<String> uuids = new ArrayList<String>(new LinkedHashSet<String>(artifactUuids));
+	    List<BaseArtifactType> rval = new ArrayList<BaseArtifactType>(uuids.size());
+	    for (int i = 0; i < uuids.size(); i += BULK_META_DATA_BATCH_SIZE) {
+	        rval.addAll(getArtifactMetaDataBatch(uuids.subList(i, Math.min(i + BULK_META_DATA_BATCH_SIZE, uuids.size()))));
+	    }
+	    return rval;
+	}
+
+	/**
+	 * Gets the meta-data listing for a (limited) number of Artifacts using a single request
+	 * (as compact JSON if {@link #setPreferJson(boolean)} is on, otherwise as full Atom).
+	 * @param artifactUuids
+	 * @throws SrampClientException
+	 * @throws SrampAtomException
+	 */
+	private List<BaseArtifactType> getArtifactMetaDataBatch(List<String> artifactUuids)
+	        throws SrampClientException, SrampAtomException {
+	    ClientResponse<?> response = null;
+	    try {
+	        String atomUrl = String.format("%1$s/metadata", this.endpoint); //$NON-NLS-1$
+	        ClientRequest request = createClientRequest(atomUrl);
+	        for (String artifactUuid : artifactUuids) {
+	            request.formParameter("uuid", artifactUuid); //$NON-NLS-1$
+	        }
+	        if (preferJson) {
+	            request.accept(MediaType.APPLICATION_SRAMP_JSON_TYPE);
+	        }
+	        response = request.post();
+	        if (isJsonResponse(response)) {
+	            InputStream is = response.getEntity(InputStream.class);
+	            try {
+	                return SrampJsonUtils.readFeed(is, new HashMap<String, String>());
+	            } finally {
+	                IOUtils.closeQuietly(is);
+	            }
+	        }
+	        Feed feed = response.getEntity(Feed.class);
+	        List<BaseArtifactType> rval = new ArrayList<BaseArtifactType>(feed.getEntries().size());
+	        for (Entry entry : feed.getEntries()) {
+	            rval.add(SrampAtomUtils.unwrapSrampArtifact(entry));
+	        }
+	        return rval;
+	    } catch (SrampAtomException e) {
+	        throw e;
+	    } catch (Throwable e) {
+	        throw new SrampClientException(e);
+	    } finally {
+	        closeQuietly(response);
+	    }
+	}
+
 	/**
 	 * Gets the content for an artifact as an input stream.  The caller must close the resulting
+	 * stream, which also returns the underlying connection to the connection pool.
 	 * @param artifactType the artifact type
 	 * @param artifactUuid the S-RAMP uuid of the artifact
 	 * @return an {@link InputStream} to the S-RAMP artifact content
@@ -300,16 +413,7 @@ public class SrampAtomApiClient {
 					artifactType.getArtifactType().getModel(), artifactType.getArtifactType().getType(),
 					artifactUuid);
 
-	        DefaultHttpClient httpClient = new DefaultHttpClient();
-	        if (this.authProvider != null) {
-	            httpClient.addRequestInterceptor(new HttpRequestInterceptor() {
-	                @Override
-	                public void process(HttpRequest request, HttpContext context) throws HttpException, IOException {
-	                    authProvider.provideAuthentication(request);
-	                }
-	            });
-	        }
-	        HttpResponse response = httpClient.execute(new HttpGet(atomUrl));
+	        HttpResponse response = getHttpClient().execute(new HttpGet(atomUrl));
 	        HttpEntity entity = response.getEntity();
 	        return entity.getContent();
 		} catch (Throwable e) {
@@ -486,61 +590,101 @@ public class SrampAtomApiClient {
 	 * @throws SrampClientException
 	 * @throws SrampAtomException
 	 */
-	public Map<String, ?> uploadBatch(SrampArchive archive) throws SrampClientException, SrampAtomException {
-		File packageFile = null;
-		InputStream packageStream = null;
+	public Map<String, ?> uploadBatch(final SrampArchive archive) throws SrampClientException, SrampAtomException {
+        final Iterator<SrampArchiveEntry> archiveEntries;
+        try {
+            archiveEntries = archive.getEntries().iterator();
+        } catch (Throwable e) {
+            throw new SrampClientException(e);
+        }
+        // Stream the archive's entries rather than packing it into a temp file first.
+        return uploadBatch(new Iterator<BatchEntry>() {
+            @Override
+            public boolean hasNext() {
+                return archiveEntries.hasNext();
+            }
+            @Override
+            public BatchEntry next() {
+                SrampArchiveEntry entry = archiveEntries.next();
+                try {
+                    return new BatchEntry(entry.getPath(), entry.getMetaData(), archive.getInputStream(entry));
+                } catch (IOException e) {
+                    // Rethrown as the IOException by the entity
+                    throw new BatchPackageEntity.EntryException(e);
+                }
+            }
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        });
+	}
 
-        ClientResponse<MultipartInput> clientResponse = null;
-		try {
-	        if (archive.getEntries().isEmpty()) {
-	            return new HashMap<String, Object>();
-	        }
+    /**
+     * Performs a batch operation by streaming an s-ramp package to the s-ramp server.  The
+     * package (.zip) is written directly to the request body (using chunked transfer encoding)
+     * as the given entries are iterated, so nothing is staged on disk no matter how many
+     * artifacts are uploaded.  Each entry's content stream is closed once it has been sent (or
+     * once the upload has failed).
+     * The results are returned as a Map indexed by the entry path - see
+     * {@link #uploadBatch(SrampArchive)}.
+     *
+     * @param entries the entries (meta-data plus optional content) of the s-ramp package
+     * @return the collection of results (one per entry)
+     * @throws SrampClientException
+     * @throws SrampAtomException
+     */
+    public Map<String, ?> uploadBatch(Iterator<BatchEntry> entries) throws SrampClientException, SrampAtomException {
+        if (!entries.hasNext()) {
+            return new HashMap<String, Object>();
+        }
 
-	        packageFile = archive.pack();
-			packageStream = FileUtils.openInputStream(packageFile);
-			ClientRequest request = createClientRequest(this.endpoint);
-			request.header("Content-Type", "application/zip"); //$NON-NLS-1$ //$NON-NLS-2$
-			request.body(MediaType.APPLICATION_ZIP, packageStream);
-
-			clientResponse = request.post(MultipartInput.class);
-			MultipartInput response = clientResponse.getEntity();
-			List<InputPart> parts = response.getParts();
-
-			Map<String, Object> rval = new HashMap<String, Object>(parts.size());
-			for (InputPart part : parts) {
-				String contentId = part.getHeaders().getFirst("Content-ID"); //$NON-NLS-1$
-				String path = contentId.substring(1, contentId.lastIndexOf('@'));
-				HttpResponseBean rbean = part.getBody(HttpResponseBean.class, null);
-				if (rbean.getCode() == 201) {
-					Entry entry = (Entry) rbean.getBody();
-					BaseArtifactType artifact = SrampAtomUtils.unwrapSrampArtifact(entry);
-					rval.put(path, artifact);
-				} else if (rbean.getCode() == 409) {
-					if (MediaType.APPLICATION_SRAMP_ATOM_EXCEPTION.equals(rbean.getHeaders().get("Content-Type"))) { //$NON-NLS-1$
-						SrampAtomException exception = (SrampAtomException) rbean.getBody();
-						rval.put(path, exception);
-					} else {
-						String errorReason = (String) rbean.getBody();
-						SrampAtomException exception = new SrampAtomException(errorReason);
-						rval.put(path, exception);
-					}
-				} else {
-					// Only a non-compliant s-ramp impl could cause this
-					SrampAtomException exception = new SrampAtomException(Messages.i18n.format("BAD_RETURN_CODE", rbean.getCode(), contentId));  //$NON-NLS-1$
-					rval.put(path, exception);
-				}
-			}
-			return rval;
-		} catch (SrampAtomException e) {
-			throw e;
-		} catch (Throwable e) {
-			throw new SrampClientException(e);
-		} finally {
-			IOUtils.closeQuietly(packageStream);
-			FileUtils.deleteQuietly(packageFile);
+        ClientResponse<MultipartInput> clientResponse = null;
+        BatchPackageEntity entity = new BatchPackageEntity(entries);
+        try {
+            ClientRequest request = createClientRequest(this.endpoint);
+            request.header("Content-Type", "application/zip"); //$NON-NLS-1$ //$NON-NLS-2$
+            request.body(MediaType.APPLICATION_ZIP, entity);
+
+            clientResponse = request.post(MultipartInput.class);
+            MultipartInput response = clientResponse.getEntity();
+            List<InputPart> parts = response.getParts();
+
+            Map<String, Object> rval = new HashMap<String, Object>(parts.size());
+            for (InputPart part : parts) {
+                String contentId = part.getHeaders().getFirst("Content-ID"); //$NON-NLS-1$
+                String path = contentId.substring(1, contentId.lastIndexOf('@'));
+                HttpResponseBean rbean = part.getBody(HttpResponseBean.class, null);
+                if (rbean.getCode() == 201 || rbean.getCode() == 200) {
+                    Entry entry = (Entry) rbean.getBody();
+                    BaseArtifactType artifact = SrampAtomUtils.unwrapSrampArtifact(entry);
+                    rval.put(path, artifact);
+                } else if (rbean.getCode() == 409) {
+                    if (MediaType.APPLICATION_SRAMP_ATOM_EXCEPTION.equals(rbean.getHeaders().get("Content-Type"))) { //$NON-NLS-1$
+                        SrampAtomException exception = (SrampAtomException) rbean.getBody();
+                        rval.put(path, exception);
+                    } else {
+                        String errorReason = (String) rbean.getBody();
+                        SrampAtomException exception = new SrampAtomException(errorReason);
+                        rval.put(path, exception);
+                    }
+                } else {
+                    // Only a non-compliant s-ramp impl could cause this
+                    SrampAtomException exception = new SrampAtomException(Messages.i18n.format("BAD_RETURN_CODE", rbean.getCode(), contentId));  //$NON-NLS-1$
+                    rval.put(path, exception);
+                }
+            }
+            return rval;
+        } catch (SrampAtomException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new SrampClientException(e);
+        } finally {
+            // In case the request failed before (all of) the package was sent
+            entity.closeRemaining();
             closeQuietly(clientResponse);
-		}
-	}
+        }
+    }
 
 	/**
 	 * Called to update the meta-data stored in the s-ramp repository for the given s-ramp
@@ -560,6 +704,7 @@ public class SrampAtomApiClient {
 				artifactType = type.getExtendedType();
 			}
 			String artifactUuid = artifact.getUuid();
+			invalidateCachedMetaData(artifactUuid);
 			String atomUrl = String.format("%1$s/%2$s/%3$s/%4$s", this.endpoint, artifactModel, artifactType, artifactUuid); //$NON-NLS-1$
 			ClientRequest request = createClientRequest(atomUrl);
 
@@ -595,6 +740,7 @@ public class SrampAtomApiClient {
 				artifactType = type.getExtendedType();
 			}
 			String artifactUuid = artifact.getUuid();
+			invalidateCachedMetaData(artifactUuid);
 			String atomUrl = String.format("%1$s/%2$s/%3$s/%4$s/media", this.endpoint, artifactModel, artifactType, artifactUuid); //$NON-NLS-1$
 			ClientRequest request = createClientRequest(atomUrl);
 			request.body(type.getMimeType(), content);
@@ -625,6 +771,7 @@ public class SrampAtomApiClient {
 				artifactType = type.getExtendedType();
 			}
 			String artifactUuid = uuid;
+			invalidateCachedMetaData(artifactUuid);
 			String atomUrl = String.format("%1$s/%2$s/%3$s/%4$s", this.endpoint, artifactModel, artifactType, artifactUuid); //$NON-NLS-1$
 			ClientRequest request = createClientRequest(atomUrl);
 			response = request.delete();
@@ -654,6 +801,7 @@ public class SrampAtomApiClient {
 				artifactType = type.getExtendedType();
 			}
 			String artifactUuid = uuid;
+			invalidateCachedMetaData(artifactUuid);
 			String atomUrl = String.format("%1$s/%2$s/%3$s/%4$s/media", this.endpoint, artifactModel, artifactType, artifactUuid); //$NON-NLS-1$
 			ClientRequest request = createClientRequest(atomUrl);
 			response = request.delete();
@@ -706,7 +854,7 @@ public class SrampAtomApiClient {
 	 */
 	public QueryResultSet query(String srampQuery, int startIndex, int count, String orderBy, boolean ascending,
 	        Collection<String> propertyNames) throws SrampClientException, SrampAtomException {
-        ClientResponse<Feed> response = null;
+        ClientResponse<?> response = null;
 		try {
 			String xpath = srampQuery;
 			if (xpath == null)
@@ -734,8 +882,11 @@ public class SrampAtomApiClient {
     			}
 
     			request.body(MediaType.MULTIPART_FORM_DATA_TYPE, formData);
-    			response = request.post(Feed.class);
-    			return new QueryResultSet(response.getEntity());
+    			if (preferJson) {
+    			    request.accept(MediaType.APPLICATION_SRAMP_JSON_TYPE);
+    			}
+    			response = request.post();
+    			return readQueryResultSet(response);
 			} else {
 			    StringBuilder urlBuilder = new StringBuilder();
 			    urlBuilder.append(atomUrl);
@@ -754,8 +905,11 @@ public class SrampAtomApiClient {
                     urlBuilder.append(URLEncoder.encode(propName, "UTF8")); //$NON-NLS-1$
                 }
                 ClientRequest request = createClientRequest(urlBuilder.toString());
-                response = request.get(Feed.class);
-                return new QueryResultSet(response.getEntity());
+                if (preferJson) {
+                    request.accept(MediaType.APPLICATION_SRAMP_JSON_TYPE);
+                }
+                response = request.get();
+                return readQueryResultSet(response);
 			}
 		} catch (SrampAtomException e) {
 			throw e;
@@ -766,6 +920,45 @@ public class SrampAtomApiClient {
 		}
 	}
 
+	/**
+	 * Reads the query result set from the given response, which contains either an Atom
+	 * {@link Feed} or its JSON equivalent.
+	 * @param response
+	 * @throws Exception
+	 */
+	private QueryResultSet readQueryResultSet(ClientResponse<?> response) throws Exception {
+	    if (!isJsonResponse(response)) {
+	        return new QueryResultSet(response.getEntity(Feed.class));
+	    }
+	    InputStream is = response.getEntity(InputStream.class);
+	    try {
+	        Map<String, String> feedFields = new HashMap<String, String>();
+	        List<BaseArtifactType> artifacts = SrampJsonUtils.readFeed(is, feedFields);
+	        List<ArtifactSummary> summaries = new ArrayList<ArtifactSummary>(artifacts.size());
+	        for (BaseArtifactType artifact : artifacts) {
+	            summaries.add(new ArtifactSummary(artifact));
+	        }
+	        String totalResults = feedFields.get("totalResults"); //$NON-NLS-1$
+	        String itemsPerPage = feedFields.get("itemsPerPage"); //$NON-NLS-1$
+	        String startIndex = feedFields.get("startIndex"); //$NON-NLS-1$
+	        return new QueryResultSet(summaries, totalResults != null ? Long.parseLong(totalResults) : -1,
+	                itemsPerPage != null ? Integer.parseInt(itemsPerPage) : -1,
+	                startIndex != null ? Integer.parseInt(startIndex) : -1);
+	    } finally {
+	        IOUtils.closeQuietly(is);
+	    }
+	}
+
+	/**
+	 * Returns true if the given response contains the (compact) JSON representation.
+	 * @param response
+	 */
+	private static boolean isJsonResponse(ClientResponse<?> response) {
+	    Object contentType = response.getHeaders().getFirst("Content-Type"); //$NON-NLS-1$
+	    return contentType != null
+	            && MediaType.APPLICATION_SRAMP_JSON_TYPE.isCompatible(MediaType.valueOf(contentType.toString()));
+	}
+
 	/**
 	 * Build a query that can be parameterized and then executed.  The format
 	 * of the query can either be a complete valid query or a query with JDBC style
@@ -1343,31 +1536,167 @@ public class SrampAtomApiClient {
     }
 
     /**
-     * Creates the client executor that will be used by RESTEasy when
-     * making the request.
+     * Returns the client executor that will be used by RESTEasy when making the request.
+     * A single executor (backed by the shared, pooling http client) is used for all
+     * requests made by this client.
      */
-    private ClientExecutor createClientExecutor() {
-        // TODO I think the http client is thread safe - so let's try to create just one of these
-        DefaultHttpClient httpClient = new DefaultHttpClient();
-        httpClient.addRequestInterceptor(new HttpRequestInterceptor() {
-            @Override
-            public void process(HttpRequest request, HttpContext context) throws HttpException, IOException {
-                Locale l = getLocale();
-                if (l == null) {
-                    l = Locale.getDefault();
+    private synchronized ClientExecutor createClientExecutor() {
+        if (this.clientExecutor == null) {
+            this.clientExecutor = new SrampClientExecutor(getHttpClient());
+        }
+        return this.clientExecutor;
+    }
+
+    /**
+     * Returns the http client shared by all requests made by this client, creating it (and
+     * its pooling connection manager) if necessary.  Connections that have been idle for
+     * longer than the idle timeout are evicted from the pool along the way.
+     */
+    protected synchronized HttpClient getHttpClient() {
+        if (this.httpClient == null) {
+            this.connectionManager = new PoolingClientConnectionManager();
+            this.connectionManager.setDefaultMaxPerRoute(this.maxConnectionsPerRoute);
+            this.connectionManager.setMaxTotal(this.maxConnections);
+            this.httpClient = new DefaultHttpClient(this.connectionManager);
+            this.httpClient.addRequestInterceptor(new HttpRequestInterceptor() {
+                @Override
+                public void process(HttpRequest request, HttpContext context) throws HttpException, IOException {
+                    Locale l = getLocale();
+                    if (l == null) {
+                        l = Locale.getDefault();
+                    }
+                    request.addHeader("Accept-Language", l.toString()); //$NON-NLS-1$
                 }
-                request.addHeader("Accept-Language", l.toString()); //$NON-NLS-1$
-            }
-        });
-        if (this.authProvider != null) {
-            httpClient.addRequestInterceptor(new HttpRequestInterceptor() {
+            });
+            this.httpClient.addRequestInterceptor(new HttpRequestInterceptor() {
                 @Override
                 public void process(HttpRequest request, HttpContext context) throws HttpException, IOException {
-                    authProvider.provideAuthentication(request);
+                    if (authProvider != null) {
+                        authProvider.provideAuthentication(request);
+                    }
                 }
             });
+            this.lastIdleEviction = System.currentTimeMillis();
+        } else if (System.currentTimeMillis() - this.lastIdleEviction > this.idleConnectionTimeout) {
+            this.connectionManager.closeExpiredConnections();
+            this.connectionManager.closeIdleConnections(this.idleConnectionTimeout, TimeUnit.MILLISECONDS);
+            this.lastIdleEviction = System.currentTimeMillis();
+        }
+        return this.httpClient;
+    }
+
+    /**
+     * Closes this client, releasing all pooled connections.  Any further use of the client
+     * will open new connections.
+     */
+    public synchronized void close() {
+        if (this.connectionManager != null) {
+            this.connectionManager.shutdown();
         }
-        return new ApacheHttpClient4Executor(httpClient);
+        this.connectionManager = null;
+        this.httpClient = null;
+        this.clientExecutor = null;
+    }
+
+    /**
+     * @return the maximum number of pooled connections per route (i.e. to the s-ramp server)
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * @param maxConnectionsPerRoute the maximum number of pooled connections per route
+     */
+    public synchronized void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        if (this.connectionManager != null) {
+            this.connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        }
+    }
+
+    /**
+     * @return the maximum total number of pooled connections
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * @param maxConnections the maximum total number of pooled connections
+     */
+    public synchronized void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+        if (this.connectionManager != null) {
+            this.connectionManager.setMaxTotal(maxConnections);
+        }
+    }
+
+    /**
+     * @return the time (in ms) after which an idle pooled connection is evicted
+     */
+    public long getIdleConnectionTimeout() {
+        return idleConnectionTimeout;
+    }
+
+    /**
+     * @param idleConnectionTimeout the time (in ms) after which an idle pooled connection is evicted
+     */
+    public void setIdleConnectionTimeout(long idleConnectionTimeout) {
+        this.idleConnectionTimeout = idleConnectionTimeout;
+    }
+
+    /**
+     * Enables the (client side) artifact meta-data cache.  Meta-data fetched by UUID is kept
+     * in a bounded LRU cache and re-used for up to maxAge ms.  After that, the cached copy is
+     * revalidated with the server (If-None-Match), which avoids re-sending unchanged meta-data.
+     * Cached items are invalidated when the artifact is updated or deleted through this client.
+     * Changes made by other clients are only seen once an item is revalidated, so
+     * maxAge should be kept short (or 0 to always revalidate).
+     * @param maxSize the maximum number of artifacts to cache
+     * @param maxAge how long (in ms) a cached item is used without revalidating it
+     */
+    public void enableMetaDataCache(int maxSize, long maxAge) {
+        this.metaDataCache = new ArtifactMetaDataCache(maxSize, maxAge);
+    }
+
+    /**
+     * Disables (and discards) the artifact meta-data cache.
+     */
+    public void disableMetaDataCache() {
+        this.metaDataCache = null;
+    }
+
+    /**
+     * Removes the given artifact from the meta-data cache (if enabled).
+     * @param artifactUuid
+     */
+    private void invalidateCachedMetaData(String artifactUuid) {
+        ArtifactMetaDataCache cache = this.metaDataCache;
+        if (cache != null) {
+            cache.invalidate(artifactUuid);
+        }
+    }
+
+    /**
+     * @return true if the compact JSON format is requested (rather than Atom) for queries
+     *         and bulk artifact meta-data
+     */
+    public boolean isPreferJson() {
+        return preferJson;
+    }
+
+    /**
+     * Sets whether the compact JSON format should be requested from the server (rather than
+     * Atom) for queries and bulk artifact meta-data (see {@link #getArtifactMetaData(Collection)}).
+     * The JSON format is much smaller and much cheaper to parse, but only carries the meta-data
+     * common to all artifacts (the core attributes, custom properties, classifiers and generic
+     * relationships) - so leave this off if the type specific meta-data of artifacts is needed.
+     * Single artifact meta-data is always fetched as (full) Atom.
+     * @param preferJson
+     */
+    public void setPreferJson(boolean preferJson) {
+        this.preferJson = preferJson;
     }
 
     /**
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.client;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
+import org.overlord.sramp.client.query.ArtifactSummary;
+import org.overlord.sramp.client.query.QueryResultSet;
+import org.overlord.sramp.common.ArtifactType;
+
+/**
+ * An asynchronous variant of the {@link SrampAtomApiClient}.  Each call returns immediately
+ * with a {@link Future}; the actual request is made by one of a fixed number of worker
+ * threads.  The number of worker threads bounds the number of concurrent requests made to
+ * the S-RAMP server, so a caller can fan out hundreds of lookups without holding (or
+ * creating) hundreds of threads of its own.
+ * <br/>
+ * All requests go through the wrapped (synchronous) client, and therefore share its
+ * pooled connections and its authentication.
+ */
+public class SrampAtomAsyncClient {
+
+    public static final int DEFAULT_MAX_CONCURRENCY = 10;
+
+    private static final AtomicInteger poolCounter = new AtomicInteger();
+
+    private final SrampAtomApiClient client;
+    private final ExecutorService executor;
+
+    /**
+     * Constructor.
+     * @param client
+     */
+    public SrampAtomAsyncClient(SrampAtomApiClient client) {
+        this(client, DEFAULT_MAX_CONCURRENCY);
+    }
+
+    /**
+     * Constructor.
+     * @param client
+     * @param maxConcurrency the maximum number of requests in flight at any one time
+     */
+    public SrampAtomAsyncClient(SrampAtomApiClient client, int maxConcurrency) {
+        this.client = client;
+        this.executor = Executors.newFixedThreadPool(maxConcurrency,
+                new DaemonThreadFactory("S-RAMP Client " + poolCounter.incrementAndGet() + " Worker ")); //$NON-NLS-1$ //$NON-NLS-2$
+        // Make sure the workers don't have to wait for a pooled connection.
+        if (client.getMaxConnectionsPerRoute() < maxConcurrency) {
+            client.setMaxConnectionsPerRoute(maxConcurrency);
+        }
+        if (client.getMaxConnections() < maxConcurrency) {
+            client.setMaxConnections(maxConcurrency);
+        }
+    }
+
+    /**
+     * @return the wrapped (synchronous) client
+     */
+    public SrampAtomApiClient getClient() {
+        return client;
+    }
+
+    /**
+     * Asynchronously performs an S-RAMP query.
+     * @param srampQuery
+     * @see SrampAtomApiClient#query(String)
+     */
+    public Future<QueryResultSet> query(final String srampQuery) {
+        return executor.submit(new Callable<QueryResultSet>() {
+            @Override
+            public QueryResultSet call() throws Exception {
+                return client.query(srampQuery);
+            }
+        });
+    }
+
+    /**
+     * Asynchronously performs an S-RAMP query.
+     * @param srampQuery
+     * @param startIndex
+     * @param count
+     * @param orderBy
+     * @param ascending
+     * @see SrampAtomApiClient#query(String, int, int, String, boolean)
+     */
+    public Future<QueryResultSet> query(final String srampQuery, final int startIndex, final int count,
+            final String orderBy, final boolean ascending) {
+        return executor.submit(new Callable<QueryResultSet>() {
+            @Override
+            public QueryResultSet call() throws Exception {
+                return client.query(srampQuery, startIndex, count, orderBy, ascending);
+            }
+        });
+    }
+
+    /**
+     * Asynchronously gets the full meta-data for an artifact.
+     * @param artifactType
+     * @param artifactUuid
+     * @see SrampAtomApiClient#getArtifactMetaData(ArtifactType, String)
+     */
+    public Future<BaseArtifactType> getArtifactMetaData(final ArtifactType artifactType, final String artifactUuid) {
+        return executor.submit(new Callable<BaseArtifactType>() {
+            @Override
+            public BaseArtifactType call() throws Exception {
+                return client.getArtifactMetaData(artifactType, artifactUuid);
+            }
+        });
+    }
+
+    /**
+     * Asynchronously gets the full meta-data for an artifact.
+     * @param artifact
+     * @see SrampAtomApiClient#getArtifactMetaData(ArtifactSummary)
+     */
+    public Future<BaseArtifactType> getArtifactMetaData(ArtifactSummary artifact) {
+        return getArtifactMetaData(artifact.getType(), artifact.getUuid());
+    }
+
+    /**
+     * Asynchronously gets the full meta-data for each of the given artifacts.  At most
+     * "maxConcurrency" of the requests will be in flight at once.  The returned futures
+     * are in the same order as the given artifacts.
+     * @param artifacts
+     */
+    public List<Future<BaseArtifactType>> getArtifactMetaData(Collection<ArtifactSummary> artifacts) {
+        List<Future<BaseArtifactType>> rval = new ArrayList<Future<BaseArtifactType>>(artifacts.size());
+        for (ArtifactSummary artifact : artifacts) {
+            rval.add(getArtifactMetaData(artifact));
+        }
+        return rval;
+    }
+
+    /**
+     * Asynchronously gets the content of an artifact.  The caller must close the resulting
+     * stream.
+     * @param artifactType
+     * @param artifactUuid
+     * @see SrampAtomApiClient#getArtifactContent(ArtifactType, String)
+     */
+    public Future<InputStream> getArtifactContent(final ArtifactType artifactType, final String artifactUuid) {
+        return executor.submit(new Callable<InputStream>() {
+            @Override
+            public InputStream call() throws Exception {
+                return client.getArtifactContent(artifactType, artifactUuid);
+            }
+        });
+    }
+
+    /**
+     * Asynchronously uploads an artifact.  The content stream is closed once the upload
+     * has completed (or failed).
+     * @param artifactType
+     * @param content
+     * @param artifactFileName
+     * @see SrampAtomApiClient#uploadArtifact(ArtifactType, InputStream, String)
+     */
+    public Future<BaseArtifactType> uploadArtifact(final ArtifactType artifactType, final InputStream content,
+            final String artifactFileName) {
+        return executor.submit(new Callable<BaseArtifactType>() {
+            @Override
+            public BaseArtifactType call() throws Exception {
+                try {
+                    return client.uploadArtifact(artifactType, content, artifactFileName);
+                } finally {
+                    content.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Asynchronously uploads an artifact.  The content stream is closed once the upload
+     * has completed (or failed).
+     * @param baseArtifactType
+     * @param content
+     * @see SrampAtomApiClient#uploadArtifact(BaseArtifactType, InputStream)
+     */
+    public Future<BaseArtifactType> uploadArtifact(final BaseArtifactType baseArtifactType, final InputStream content) {
+        return executor.submit(new Callable<BaseArtifactType>() {
+            @Override
+            public BaseArtifactType call() throws Exception {
+                try {
+                    return client.uploadArtifact(baseArtifactType, content);
+                } finally {
+                    content.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Stops the worker threads.  Requests that have already been submitted are still
+     * completed.  Note that this does not close the wrapped client.
+     */
+    public void close() {
+        executor.shutdown();
+    }
+
+}
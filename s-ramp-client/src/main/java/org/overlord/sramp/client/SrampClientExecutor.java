@@ -0,0 +1,56 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.client;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.jboss.resteasy.client.core.executors.ApacheHttpClient4Executor;
+
+/**
+ * The RESTEasy client executor used by the {@link SrampAtomApiClient}.  RESTEasy normally
+ * marshals a request body up front (to memory, or to a temp file once it gets large) so
+ * that it knows the content length.  A body that is already an {@link HttpEntity} is instead
+ * handed to the http client as-is, which lets a caller stream a request body of unknown
+ * length (see {@link BatchPackageEntity}).
+ */
+class SrampClientExecutor extends ApacheHttpClient4Executor {
+
+    /**
+     * Constructor.
+     * @param httpClient
+     */
+    public SrampClientExecutor(HttpClient httpClient) {
+        super(httpClient);
+    }
+
+    /**
+     * @see org.jboss.resteasy.client.core.executors.ApacheHttpClient4Executor#loadHttpMethod(org.jboss.resteasy.client.ClientRequest, org.apache.http.client.methods.HttpRequestBase)
+     */
+    @Override
+    public void loadHttpMethod(org.jboss.resteasy.client.ClientRequest request, HttpRequestBase httpMethod)
+            throws Exception {
+        Object body = request.getBody();
+        if (body instanceof HttpEntity && httpMethod instanceof HttpEntityEnclosingRequestBase) {
+            commitHeaders(request, httpMethod);
+            ((HttpEntityEnclosingRequestBase) httpMethod).setEntity((HttpEntity) body);
+        } else {
+            super.loadHttpMethod(request, httpMethod);
+        }
+    }
+
+}
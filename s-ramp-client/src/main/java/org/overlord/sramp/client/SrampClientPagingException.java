@@ -0,0 +1,36 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.client;
+
+/**
+ * Unchecked exception thrown while iterating over {@link PagedQueryResults} when a page
+ * of results could not be fetched.  An {@link java.util.Iterator} cannot throw checked
+ * exceptions, so the original {@link SrampClientException} (or
+ * {@link org.overlord.sramp.atom.err.SrampAtomException}) is available as the cause.
+ */
+public class SrampClientPagingException extends RuntimeException {
+
+    private static final long serialVersionUID = 4127906447432583741L;
+
+    /**
+     * Constructor.
+     * @param cause
+     */
+    public SrampClientPagingException(Throwable cause) {
+        super(cause);
+    }
+
+}
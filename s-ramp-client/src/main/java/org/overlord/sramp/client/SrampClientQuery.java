@@ -200,6 +200,20 @@ public class SrampClientQuery {
         return client.query(query, startIndex, count, orderBy, ascending, propertyNames);
     }
 
+    /**
+     * Formats the query given the replacement params and returns <em>all</em> of
+     * its results (starting at the start index), rather than a single page.  The
+     * results are fetched lazily, {@link #count(int)} at a time, with the next page
+     * being fetched in the background while the current one is processed.
+     * @throws SrampClientException
+     * @see PagedQueryResults
+     */
+    public PagedQueryResults stream() throws SrampClientException {
+        String query = formatQuery();
+        return new PagedQueryResults(client, query, startIndex, count, orderBy, ascending,
+                new HashSet<String>(propertyNames));
+    }
+
     /**
      * Formats the query by replacing all ? characters with their replacement
      * parameters.
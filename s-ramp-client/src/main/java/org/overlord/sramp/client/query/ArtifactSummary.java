@@ -19,6 +19,8 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
+import javax.xml.datatype.XMLGregorianCalendar;
+
 import org.jboss.resteasy.plugins.providers.atom.Entry;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
 import org.overlord.sramp.atom.SrampAtomUtils;
@@ -27,7 +29,9 @@ import org.overlord.sramp.common.SrampModelUtils;
 
 /**
  * Models a summary of a single S-RAMP artifact from a Feed (result of an
- * S-RAMP query).
+ * S-RAMP query).  The summary comes either from an Atom {@link Entry} or from
+ * the (compact) JSON representation of the feed, in which case it is backed
+ * by a partially populated artifact.
  *
  * @author eric.wittmann@redhat.com
  */
@@ -44,10 +48,22 @@ public class ArtifactSummary {
 		this.entry = entry;
 	}
 
+	/**
+	 * Constructor.
+	 * @param artifact the (summary) artifact
+	 */
+	public ArtifactSummary(BaseArtifactType artifact) {
+		this.entry = null;
+		this.artifact = artifact;
+	}
+
 	/**
 	 * @return the artifact type
 	 */
 	public ArtifactType getType() {
+		if (entry == null) {
+			return ArtifactType.valueOf(artifact);
+		}
 		return SrampAtomUtils.getArtifactType(entry);
 	}
 
@@ -55,6 +71,9 @@ public class ArtifactSummary {
 	 * @return the artifact's uuid
 	 */
 	public String getUuid() {
+		if (entry == null) {
+			return artifact.getUuid();
+		}
 		return entry.getId().toString().replace("urn:uuid:", ""); //$NON-NLS-1$ //$NON-NLS-2$
 	}
 
@@ -62,6 +81,9 @@ public class ArtifactSummary {
 	 * @return the artifact's last modified timestamp
 	 */
 	public Date getLastModifiedTimestamp() {
+		if (entry == null) {
+			return toDate(artifact.getLastModifiedTimestamp());
+		}
 		return entry.getUpdated();
 	}
 
@@ -69,6 +91,9 @@ public class ArtifactSummary {
 	 * @return the artifact's name
 	 */
 	public String getName() {
+		if (entry == null) {
+			return artifact.getName();
+		}
 		return entry.getTitle();
 	}
 
@@ -76,6 +101,9 @@ public class ArtifactSummary {
 	 * @return the artifact's created timestamp
 	 */
 	public Date getCreatedTimestamp() {
+		if (entry == null) {
+			return toDate(artifact.getCreatedTimestamp());
+		}
 		return entry.getPublished();
 	}
 
@@ -83,6 +111,9 @@ public class ArtifactSummary {
 	 * @return the artifact's created by
 	 */
 	public String getCreatedBy() {
+		if (entry == null) {
+			return artifact.getCreatedBy();
+		}
 		return entry.getAuthors().get(0).getName();
 	}
 
@@ -90,6 +121,9 @@ public class ArtifactSummary {
 	 * @return the artifact's description
 	 */
 	public String getDescription() {
+		if (entry == null) {
+			return artifact.getDescription();
+		}
 		return entry.getSummary();
 	}
 
@@ -141,4 +175,12 @@ public class ArtifactSummary {
         }
         return result;
     }
+
+    /**
+     * Converts an xsd:dateTime value to a {@link Date}.
+     * @param calendar
+     */
+    private static Date toDate(XMLGregorianCalendar calendar) {
+        return calendar != null ? calendar.toGregorianCalendar().getTime() : null;
+    }
 }
@@ -15,7 +15,10 @@
  */
 package org.overlord.sramp.client.query;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 
 import org.jboss.resteasy.plugins.providers.atom.Entry;
 import org.jboss.resteasy.plugins.providers.atom.Feed;
@@ -23,27 +26,54 @@ import org.overlord.sramp.common.SrampConstants;
 
 /**
  * An instance of this class is returned by the Atom API client when consumers
- * call the query methods.
+ * call the query methods.  The result set is created either from an Atom {@link Feed}
+ * or from the (compact) JSON representation of the query results.
  *
  * @author eric.wittmann@redhat.com
  */
 public class QueryResultSet implements Iterable<ArtifactSummary> {
 
-	private Feed currentFeed;
+	private final List<ArtifactSummary> artifacts;
+	private final long totalResults;
+	private final int itemsPerPage;
+	private final int startIndex;
 
 	/**
 	 * Constructor.
 	 * @param feed
 	 */
 	public QueryResultSet(Feed feed) {
-		this.currentFeed = feed;
+		this.artifacts = new ArrayList<ArtifactSummary>(feed.getEntries().size());
+		for (Entry entry : feed.getEntries()) {
+			this.artifacts.add(new ArtifactSummary(entry));
+		}
+		Object totalResultsAttr = feed.getExtensionAttributes().get(SrampConstants.SRAMP_TOTAL_RESULTS_QNAME);
+		this.totalResults = totalResultsAttr != null ? Long.parseLong((String) totalResultsAttr) : -1;
+		Object itemsPerPageAttr = feed.getExtensionAttributes().get(SrampConstants.SRAMP_ITEMS_PER_PAGE_QNAME);
+		this.itemsPerPage = itemsPerPageAttr != null ? Integer.parseInt((String) itemsPerPageAttr) : -1;
+		Object startIndexAttr = feed.getExtensionAttributes().get(SrampConstants.SRAMP_START_INDEX_QNAME);
+		this.startIndex = startIndexAttr != null ? Integer.parseInt((String) startIndexAttr) : -1;
+	}
+
+	/**
+	 * Constructor.
+	 * @param artifacts the artifacts in this page of results
+	 * @param totalResults the total number of results (or -1 if not known)
+	 * @param itemsPerPage the number of items requested per page (or -1 if not known)
+	 * @param startIndex the index of the first item (or -1 if not known)
+	 */
+	public QueryResultSet(List<ArtifactSummary> artifacts, long totalResults, int itemsPerPage, int startIndex) {
+		this.artifacts = artifacts;
+		this.totalResults = totalResults;
+		this.itemsPerPage = itemsPerPage;
+		this.startIndex = startIndex;
 	}
 
 	/**
 	 * Returns the number of artifacts that matched the query.
 	 */
 	public long size() {
-		return this.currentFeed.getEntries().size();
+		return this.artifacts.size();
 	}
 
 	/**
@@ -52,12 +82,7 @@ public class QueryResultSet implements Iterable<ArtifactSummary> {
 	 * Returns -1 if this feature is not supported by the server.
 	 */
 	public long getTotalResults() {
-        Object totalResultsAttr = this.currentFeed.getExtensionAttributes().get(SrampConstants.SRAMP_TOTAL_RESULTS_QNAME);
-        if (totalResultsAttr != null) {
-            return Long.parseLong((String) totalResultsAttr);
-        } else {
-            return -1;
-        }
+		return this.totalResults;
 	}
 
     /**
@@ -71,12 +96,7 @@ public class QueryResultSet implements Iterable<ArtifactSummary> {
      * Returns -1 if this feature is not supported by the server.
      */
 	public int getItemsPerPage() {
-        Object itemsPerPageAttr = this.currentFeed.getExtensionAttributes().get(SrampConstants.SRAMP_ITEMS_PER_PAGE_QNAME);
-        if (itemsPerPageAttr != null) {
-            return Integer.parseInt((String) itemsPerPageAttr);
-        } else {
-            return -1;
-        }
+		return this.itemsPerPage;
 	}
 
     /**
@@ -86,12 +106,7 @@ public class QueryResultSet implements Iterable<ArtifactSummary> {
      * Returns -1 if this feature is not supported by the server.
      */
 	public int getStartIndex() {
-        Object startIndexAttr = this.currentFeed.getExtensionAttributes().get(SrampConstants.SRAMP_START_INDEX_QNAME);
-        if (startIndexAttr != null) {
-            return Integer.parseInt((String) startIndexAttr);
-        } else {
-            return -1;
-        }
+		return this.startIndex;
 	}
 
 	/**
@@ -99,10 +114,10 @@ public class QueryResultSet implements Iterable<ArtifactSummary> {
 	 * @param index
 	 */
 	public ArtifactSummary get(int index) {
-		if (index >= currentFeed.getEntries().size()) {
+		if (index >= artifacts.size()) {
 			return null;
 		} else {
-			return new ArtifactSummary(currentFeed.getEntries().get(index));
+			return artifacts.get(index);
 		}
 	}
 
@@ -111,50 +126,7 @@ public class QueryResultSet implements Iterable<ArtifactSummary> {
 	 */
 	@Override
 	public Iterator<ArtifactSummary> iterator() {
-		return new DelegatingIterator(currentFeed.getEntries().iterator());
+		return Collections.unmodifiableList(artifacts).iterator();
 	}
 
-
-	/**
-	 * Delegates iteration to an underlying impl, simply converts the objects
-	 * into the correct type.
-	 *
-	 * @author eric.wittmann@redhat.com
-	 */
-	private static class DelegatingIterator implements Iterator<ArtifactSummary> {
-
-		private Iterator<Entry> delegate;
-
-		/**
-		 * Constructor.
-		 * @param delegate
-		 */
-		public DelegatingIterator(Iterator<Entry> delegate) {
-			this.delegate = delegate;
-		}
-
-		/**
-		 * @see java.util.Iterator#hasNext()
-		 */
-		@Override
-		public boolean hasNext() {
-			return delegate.hasNext();
-		}
-
-		/**
-		 * @see java.util.Iterator#next()
-		 */
-		@Override
-		public ArtifactSummary next() {
-			return new ArtifactSummary(delegate.next());
-		}
-
-		/**
-		 * @see java.util.Iterator#remove()
-		 */
-		@Override
-		public void remove() {
-			throw new UnsupportedOperationException();
-		}
-	}
 }
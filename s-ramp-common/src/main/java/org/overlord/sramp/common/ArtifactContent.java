@@ -17,8 +17,12 @@ package org.overlord.sramp.common;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.overlord.sramp.common.xml.XmlRootElement;
 
 import java.io.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
@@ -28,11 +32,19 @@ import java.util.UUID;
  * extensions, then again in ModeShape), some of which automatically close the stream.  Further, we don't want to trust
  * that custom extensions will always "do the right thing" and call #reset.  So, this object is passed
  * around throughout the process.  Using a temp file, it creates on-demand streams.
+ * <br/>
+ * The MD5 and SHA-1 hashes of the content are computed while it is being copied to the temp file, so
+ * that they are available (e.g. for maven checksum files) without reading the content again.  For the same
+ * reason, the first {@link #HEADER_SIZE} bytes are kept in memory: type and mime type detection only ever
+ * look at the beginning of the content (see {@link #getHeader()} and {@link #getXmlRootElement()}).
  * 
  * @author Brett Meyer
  */
 public class ArtifactContent {
 
+    /** The number of bytes kept from the start of the content. */
+    public static final int HEADER_SIZE = 8 * 1024;
+
     private final String path;
 
     private final String filename;
@@ -40,6 +52,16 @@ public class ArtifactContent {
     private File tempFile = null;
 
     private List<InputStream> tempStreams = new ArrayList<InputStream>();
+
+    private String md5Hash = null;
+
+    private String sha1Hash = null;
+
+    private byte[] header = null;
+
+    private XmlRootElement xmlRootElement = null;
+
+    private boolean xmlRootElementPeeked = false;
     
     public ArtifactContent(String path, InputStream is) throws IOException {
         if (path != null) {
@@ -57,9 +79,18 @@ public class ArtifactContent {
 
         OutputStream os = null;
         try {
+            MessageDigest md5 = MessageDigest.getInstance("MD5");
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
             tempFile = File.createTempFile(UUID.randomUUID().toString(), filename);
             os = FileUtils.openOutputStream(tempFile);
-            IOUtils.copy(is, os);
+            HeaderInputStream his = new HeaderInputStream(new DigestInputStream(new DigestInputStream(is, md5), sha1));
+            IOUtils.copy(his, os);
+            md5Hash = toHex(md5.digest());
+            sha1Hash = toHex(sha1.digest());
+            header = his.getHeader();
+        } catch (NoSuchAlgorithmException e) {
+            // Every JRE is required to support MD5 and SHA-1.
+            throw new RuntimeException(e);
         } catch (IOException e) {
             if (tempFile != null) {
                 FileUtils.deleteQuietly(tempFile);
@@ -118,6 +149,96 @@ public class ArtifactContent {
         return path;
     }
 
+    /**
+     * Obtain the MD5 hash of the content, as a lower case hex string.
+     *
+     * @return String
+     */
+    public String getMd5Hash() {
+        return md5Hash;
+    }
+
+    /**
+     * Obtain the SHA-1 hash of the content, as a lower case hex string.
+     *
+     * @return String
+     */
+    public String getSha1Hash() {
+        return sha1Hash;
+    }
+
+    /**
+     * Obtain the first {@link #HEADER_SIZE} bytes of the content (or all of it, if it is smaller).  Unlike
+     * {@link #getInputStream()}, this does not open the temp file.
+     *
+     * @return byte[]
+     */
+    public byte[] getHeader() {
+        return header;
+    }
+
+    /**
+     * Obtain the root element of the content, if it is an XML document.  This only looks at the
+     * {@link #getHeader()}, so it is cheap enough for every type detector to call.
+     *
+     * @return XmlRootElement, or null if the content isn't XML
+     */
+    public XmlRootElement getXmlRootElement() {
+        if (!xmlRootElementPeeked) {
+            xmlRootElement = XmlRootElement.peek(header);
+            xmlRootElementPeeked = true;
+        }
+        return xmlRootElement;
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+            hex.append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Keeps a copy of the first {@link ArtifactContent#HEADER_SIZE} bytes read through it.
+     */
+    private static class HeaderInputStream extends FilterInputStream {
+
+        private final byte[] buffer = new byte[HEADER_SIZE];
+        private int length = 0;
+
+        public HeaderInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1 && length < buffer.length) {
+                buffer[length++] = (byte) b;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = super.read(b, off, len);
+            if (count > 0 && length < buffer.length) {
+                int n = Math.min(count, buffer.length - length);
+                System.arraycopy(b, off, buffer, length, n);
+                length += n;
+            }
+            return count;
+        }
+
+        public byte[] getHeader() {
+            byte[] header = new byte[length];
+            System.arraycopy(buffer, 0, header, 0, length);
+            return header;
+        }
+    }
+
     public void cleanup() {
         if (tempFile != null) {
             tempFile.delete();
@@ -15,8 +15,6 @@
  */
 package org.overlord.sramp.common;
 
-import java.lang.reflect.Method;
-
 import org.apache.commons.lang.StringUtils;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.Artifact;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactEnum;
@@ -109,14 +107,12 @@ public class ArtifactType {
      * @return the specific artifact based on type
      */
     public BaseArtifactType unwrap(Artifact artifactWrapper) {
-        try {
-            Method method = Artifact.class.getMethod("get" + getArtifactType().getType()); //$NON-NLS-1$
-            BaseArtifactType artifact = (BaseArtifactType) method.invoke(artifactWrapper);
-            artifact.setArtifactType(this.getArtifactType().getApiType());
-            return artifact;
-        } catch (Exception e) {
-            throw new RuntimeException(Messages.i18n.format("ARTIFACT_UNWRAP_ERROR", getArtifactType().getType()), e); //$NON-NLS-1$
+        BaseArtifactType artifact = getArtifactType().unwrap(artifactWrapper);
+        if (artifact == null) {
+            throw new RuntimeException(Messages.i18n.format("ARTIFACT_UNWRAP_ERROR", getArtifactType().getType())); //$NON-NLS-1$
         }
+        artifact.setArtifactType(this.getArtifactType().getApiType());
+        return artifact;
     }
 
     /**
@@ -394,40 +390,32 @@ public class ArtifactType {
      * @param artifactWrapper
      */
     public static ArtifactType valueOf(Artifact artifactWrapper, String hint) {
-        ArtifactType type = null;
         // We were given a hint - try using that first.
-        if (hint != null) {
-            String methodName = "get" + hint; //$NON-NLS-1$
-            try {
-                Method method = artifactWrapper.getClass().getMethod(methodName);
-                Object o = method.invoke(artifactWrapper);
-                if (o != null && BaseArtifactType.class.isAssignableFrom(o.getClass())) {
-                    Class<? extends BaseArtifactType> artyClass = ((BaseArtifactType) o).getClass();
-                    return valueOf(artyClass);
-                }
-            } catch (Exception e) {
-                // eat it
+        if (hint != null && ArtifactTypeEnum.hasEnum(hint)) {
+            ArtifactType type = valueOf(getWrapped(artifactWrapper, ArtifactTypeEnum.valueOf(hint)));
+            if (type != null) {
+                return type;
             }
         }
 
         // Didn't find it based on the hint - try them all!
-        if (type == null) {
-            Method[] methods = artifactWrapper.getClass().getMethods();
-            try {
-                for (Method method : methods) {
-                    if (method.getName().startsWith("get")) { //$NON-NLS-1$
-                        Object o = method.invoke(artifactWrapper);
-                        if (o != null && BaseArtifactType.class.isAssignableFrom(o.getClass())) {
-                            Class<? extends BaseArtifactType> artyClass = ((BaseArtifactType) o).getClass();
-                            return valueOf(artyClass);
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                // eat it
+        for (ArtifactTypeEnum artifactType : ArtifactTypeEnum.values()) {
+            ArtifactType type = valueOf(getWrapped(artifactWrapper, artifactType));
+            if (type != null) {
+                return type;
             }
         }
-        return type;
+        return null;
+    }
+
+    /**
+     * Returns the artifact of the given type held by the wrapper, or null if there isn't one.
+     * @param artifactWrapper
+     * @param artifactType
+     */
+    private static Class<? extends BaseArtifactType> getWrapped(Artifact artifactWrapper, ArtifactTypeEnum artifactType) {
+        BaseArtifactType artifact = artifactType.unwrap(artifactWrapper);
+        return artifact != null ? artifact.getClass() : null;
     }
 
     /**
@@ -435,13 +423,11 @@ public class ArtifactType {
      * @param artyClass
      */
     private static ArtifactType valueOf(Class<? extends BaseArtifactType> artyClass) {
-        ArtifactType rval = null;
-        for (ArtifactTypeEnum e : ArtifactTypeEnum.values()) {
-            if (e.getTypeClass().equals(artyClass)) {
-                rval = new ArtifactType(e, null);
-            }
+        if (artyClass == null) {
+            return null;
         }
-        return rval;
+        ArtifactTypeEnum e = ArtifactTypeEnum.valueOfTypeClass(artyClass);
+        return e != null ? new ArtifactType(e, null) : null;
     }
 
     /**
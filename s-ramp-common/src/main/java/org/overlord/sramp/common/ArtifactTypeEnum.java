@@ -15,8 +15,10 @@
  */
 package org.overlord.sramp.common;
 
-import java.lang.reflect.Method;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.Actor;
@@ -152,10 +154,14 @@ public enum ArtifactTypeEnum {
     ;
 
     private final static Set<String> enumValueIndex = new HashSet<String>();
+    private final static Map<Class<? extends BaseArtifactType>, ArtifactTypeEnum> typeClassIndex = new HashMap<Class<? extends BaseArtifactType>, ArtifactTypeEnum>();
+    private final static Map<BaseArtifactEnum, ArtifactTypeEnum> apiTypeIndex = new EnumMap<BaseArtifactEnum, ArtifactTypeEnum>(BaseArtifactEnum.class);
     static {
         ArtifactTypeEnum[] values = ArtifactTypeEnum.values();
         for (ArtifactTypeEnum value : values) {
             enumValueIndex.add(value.name());
+            typeClassIndex.put(value.getTypeClass(), value);
+            apiTypeIndex.put(value.getApiType(), value);
         }
     }
 
@@ -230,14 +236,136 @@ public enum ArtifactTypeEnum {
     /**
      * Called to unwrap the S-RAMP artifact from its wrapper.
      * @param artifactWrapper the S-RAMP artifact wrapper
-     * @return the specific artifact based on type
+     * @return the specific artifact based on type, or null if the wrapper doesn't hold one
      */
     public BaseArtifactType unwrap(Artifact artifactWrapper) {
-        try {
-            Method method = Artifact.class.getMethod("get" + this.name()); //$NON-NLS-1$
-            return (BaseArtifactType) method.invoke(artifactWrapper);
-        } catch (Exception e) {
-            throw new RuntimeException(Messages.i18n.format("ARTIFACT_UNWRAP_ERROR", this.name()), e); //$NON-NLS-1$
+        // Note: a plain switch rather than reflection - this is called for every entry in every feed.
+        switch (this) {
+            case Document: return artifactWrapper.getDocument();
+            case XmlDocument: return artifactWrapper.getXmlDocument();
+            case XsdDocument: return artifactWrapper.getXsdDocument();
+            case AttributeDeclaration: return artifactWrapper.getAttributeDeclaration();
+            case ElementDeclaration: return artifactWrapper.getElementDeclaration();
+            case SimpleTypeDeclaration: return artifactWrapper.getSimpleTypeDeclaration();
+            case ComplexTypeDeclaration: return artifactWrapper.getComplexTypeDeclaration();
+            case PolicyDocument: return artifactWrapper.getPolicyDocument();
+            case PolicyExpression: return artifactWrapper.getPolicyExpression();
+            case PolicyAttachment: return artifactWrapper.getPolicyAttachment();
+            case SoapAddress: return artifactWrapper.getSoapAddress();
+            case SoapBinding: return artifactWrapper.getSoapBinding();
+            case WsdlDocument: return artifactWrapper.getWsdlDocument();
+            case WsdlService: return artifactWrapper.getWsdlService();
+            case Port: return artifactWrapper.getPort();
+            case WsdlExtension: return artifactWrapper.getWsdlExtension();
+            case Part: return artifactWrapper.getPart();
+            case Message: return artifactWrapper.getMessage();
+            case Fault: return artifactWrapper.getFault();
+            case PortType: return artifactWrapper.getPortType();
+            case Operation: return artifactWrapper.getOperation();
+            case OperationInput: return artifactWrapper.getOperationInput();
+            case OperationOutput: return artifactWrapper.getOperationOutput();
+            case Binding: return artifactWrapper.getBinding();
+            case BindingOperation: return artifactWrapper.getBindingOperation();
+            case BindingOperationInput: return artifactWrapper.getBindingOperationInput();
+            case BindingOperationOutput: return artifactWrapper.getBindingOperationOutput();
+            case BindingOperationFault: return artifactWrapper.getBindingOperationFault();
+            case ServiceEndpoint: return artifactWrapper.getServiceEndpoint();
+            case ServiceInstance: return artifactWrapper.getServiceInstance();
+            case ServiceOperation: return artifactWrapper.getServiceOperation();
+            case ExtendedArtifactType: return artifactWrapper.getExtendedArtifactType();
+            case ExtendedDocument: return artifactWrapper.getExtendedDocument();
+            case Actor: return artifactWrapper.getActor();
+            case Choreography: return artifactWrapper.getChoreography();
+            case ChoreographyProcess: return artifactWrapper.getChoreographyProcess();
+            case Collaboration: return artifactWrapper.getCollaboration();
+            case CollaborationProcess: return artifactWrapper.getCollaborationProcess();
+            case Composition: return artifactWrapper.getComposition();
+            case Effect: return artifactWrapper.getEffect();
+            case Element: return artifactWrapper.getElement();
+            case Event: return artifactWrapper.getEvent();
+            case InformationType: return artifactWrapper.getInformationType();
+            case Orchestration: return artifactWrapper.getOrchestration();
+            case OrchestrationProcess: return artifactWrapper.getOrchestrationProcess();
+            case Organization: return artifactWrapper.getOrganization();
+            case Policy: return artifactWrapper.getPolicy();
+            case PolicySubject: return artifactWrapper.getPolicySubject();
+            case Process: return artifactWrapper.getProcess();
+            case Service: return artifactWrapper.getService();
+            case ServiceContract: return artifactWrapper.getServiceContract();
+            case ServiceComposition: return artifactWrapper.getServiceComposition();
+            case ServiceInterface: return artifactWrapper.getServiceInterface();
+            case System: return artifactWrapper.getSystem();
+            case Task: return artifactWrapper.getTask();
+            default:
+                // Abstract types (XsdType) are never wrapped.
+                return null;
+        }
+    }
+
+    /**
+     * Called to wrap the given S-RAMP artifact (which must be of this type) in the given wrapper.
+     * @param artifactWrapper the S-RAMP artifact wrapper
+     * @param artifact the specific artifact
+     */
+    public void wrap(Artifact artifactWrapper, BaseArtifactType artifact) {
+        switch (this) {
+            case Document: artifactWrapper.setDocument((Document) artifact); break;
+            case XmlDocument: artifactWrapper.setXmlDocument((XmlDocument) artifact); break;
+            case XsdDocument: artifactWrapper.setXsdDocument((XsdDocument) artifact); break;
+            case AttributeDeclaration: artifactWrapper.setAttributeDeclaration((AttributeDeclaration) artifact); break;
+            case ElementDeclaration: artifactWrapper.setElementDeclaration((ElementDeclaration) artifact); break;
+            case SimpleTypeDeclaration: artifactWrapper.setSimpleTypeDeclaration((SimpleTypeDeclaration) artifact); break;
+            case ComplexTypeDeclaration: artifactWrapper.setComplexTypeDeclaration((ComplexTypeDeclaration) artifact); break;
+            case PolicyDocument: artifactWrapper.setPolicyDocument((PolicyDocument) artifact); break;
+            case PolicyExpression: artifactWrapper.setPolicyExpression((PolicyExpression) artifact); break;
+            case PolicyAttachment: artifactWrapper.setPolicyAttachment((PolicyAttachment) artifact); break;
+            case SoapAddress: artifactWrapper.setSoapAddress((SoapAddress) artifact); break;
+            case SoapBinding: artifactWrapper.setSoapBinding((SoapBinding) artifact); break;
+            case WsdlDocument: artifactWrapper.setWsdlDocument((WsdlDocument) artifact); break;
+            case WsdlService: artifactWrapper.setWsdlService((WsdlService) artifact); break;
+            case Port: artifactWrapper.setPort((Port) artifact); break;
+            case WsdlExtension: artifactWrapper.setWsdlExtension((WsdlExtension) artifact); break;
+            case Part: artifactWrapper.setPart((Part) artifact); break;
+            case Message: artifactWrapper.setMessage((Message) artifact); break;
+            case Fault: artifactWrapper.setFault((Fault) artifact); break;
+            case PortType: artifactWrapper.setPortType((PortType) artifact); break;
+            case Operation: artifactWrapper.setOperation((Operation) artifact); break;
+            case OperationInput: artifactWrapper.setOperationInput((OperationInput) artifact); break;
+            case OperationOutput: artifactWrapper.setOperationOutput((OperationOutput) artifact); break;
+            case Binding: artifactWrapper.setBinding((Binding) artifact); break;
+            case BindingOperation: artifactWrapper.setBindingOperation((BindingOperation) artifact); break;
+            case BindingOperationInput: artifactWrapper.setBindingOperationInput((BindingOperationInput) artifact); break;
+            case BindingOperationOutput: artifactWrapper.setBindingOperationOutput((BindingOperationOutput) artifact); break;
+            case BindingOperationFault: artifactWrapper.setBindingOperationFault((BindingOperationFault) artifact); break;
+            case ServiceEndpoint: artifactWrapper.setServiceEndpoint((ServiceEndpoint) artifact); break;
+            case ServiceInstance: artifactWrapper.setServiceInstance((ServiceInstance) artifact); break;
+            case ServiceOperation: artifactWrapper.setServiceOperation((ServiceOperation) artifact); break;
+            case ExtendedArtifactType: artifactWrapper.setExtendedArtifactType((ExtendedArtifactType) artifact); break;
+            case ExtendedDocument: artifactWrapper.setExtendedDocument((ExtendedDocument) artifact); break;
+            case Actor: artifactWrapper.setActor((Actor) artifact); break;
+            case Choreography: artifactWrapper.setChoreography((Choreography) artifact); break;
+            case ChoreographyProcess: artifactWrapper.setChoreographyProcess((ChoreographyProcess) artifact); break;
+            case Collaboration: artifactWrapper.setCollaboration((Collaboration) artifact); break;
+            case CollaborationProcess: artifactWrapper.setCollaborationProcess((CollaborationProcess) artifact); break;
+            case Composition: artifactWrapper.setComposition((Composition) artifact); break;
+            case Effect: artifactWrapper.setEffect((Effect) artifact); break;
+            case Element: artifactWrapper.setElement((Element) artifact); break;
+            case Event: artifactWrapper.setEvent((Event) artifact); break;
+            case InformationType: artifactWrapper.setInformationType((InformationType) artifact); break;
+            case Orchestration: artifactWrapper.setOrchestration((Orchestration) artifact); break;
+            case OrchestrationProcess: artifactWrapper.setOrchestrationProcess((OrchestrationProcess) artifact); break;
+            case Organization: artifactWrapper.setOrganization((Organization) artifact); break;
+            case Policy: artifactWrapper.setPolicy((Policy) artifact); break;
+            case PolicySubject: artifactWrapper.setPolicySubject((PolicySubject) artifact); break;
+            case Process: artifactWrapper.setProcess((org.oasis_open.docs.s_ramp.ns.s_ramp_v1.Process) artifact); break;
+            case Service: artifactWrapper.setService((Service) artifact); break;
+            case ServiceContract: artifactWrapper.setServiceContract((ServiceContract) artifact); break;
+            case ServiceComposition: artifactWrapper.setServiceComposition((ServiceComposition) artifact); break;
+            case ServiceInterface: artifactWrapper.setServiceInterface((ServiceInterface) artifact); break;
+            case System: artifactWrapper.setSystem((org.oasis_open.docs.s_ramp.ns.s_ramp_v1.System) artifact); break;
+            case Task: artifactWrapper.setTask((Task) artifact); break;
+            default:
+                throw new RuntimeException(Messages.i18n.format("ARTIFACT_WRAP_ERROR", this.name())); //$NON-NLS-1$
         }
     }
 
@@ -271,11 +399,9 @@ public enum ArtifactTypeEnum {
         if (apiType != null) {
             return valueOf(apiType);
         }
-        ArtifactTypeEnum[] values = values();
-        for (ArtifactTypeEnum artifactType : values) {
-            if (artifactType.getTypeClass().equals(artifact.getClass())) {
-                return artifactType;
-            }
+        ArtifactTypeEnum artifactType = valueOfTypeClass(artifact.getClass());
+        if (artifactType != null) {
+            return artifactType;
         }
         throw new RuntimeException(Messages.i18n.format("ARTIFACT_TYPE_FROM_CLASS_ERROR", artifact.getClass())); //$NON-NLS-1$
     }
@@ -285,15 +411,22 @@ public enum ArtifactTypeEnum {
      * @param apiType
      */
     public static ArtifactTypeEnum valueOf(BaseArtifactEnum apiType) {
-        ArtifactTypeEnum[] values = values();
-        for (ArtifactTypeEnum artifactType : values) {
-            if (artifactType.getApiType() == apiType) {
-                return artifactType;
-            }
+        ArtifactTypeEnum artifactType = apiTypeIndex.get(apiType);
+        if (artifactType != null) {
+            return artifactType;
         }
         throw new RuntimeException(Messages.i18n.format("ARTIFACT_TYPE_FROM_APITYPE_ERROR", apiType.value())); //$NON-NLS-1$
     }
 
+    /**
+     * Figures out the type from the class that implements it.
+     * @param typeClass
+     * @return the artifact type, or null if the class isn't an s-ramp artifact class
+     */
+    public static ArtifactTypeEnum valueOfTypeClass(Class<?> typeClass) {
+        return typeClassIndex.get(typeClass);
+    }
+
     /**
      * Returns true if the given string is one of the valid enum values.
      * @param artifactType
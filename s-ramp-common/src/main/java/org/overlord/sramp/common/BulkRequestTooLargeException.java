@@ -0,0 +1,33 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.common;
+
+
+/**
+ * Exception thrown when the user asks for more artifacts in a single bulk request than
+ * the server is configured to allow.
+ */
+public class BulkRequestTooLargeException extends SrampUserException {
+
+    private static final long serialVersionUID = 6384127260911741233L;
+
+    /**
+     * Constructor.
+     */
+    public BulkRequestTooLargeException(String message) {
+        super(message);
+    }
+}
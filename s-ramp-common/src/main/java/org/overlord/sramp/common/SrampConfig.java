@@ -76,6 +76,69 @@ public class SrampConfig {
         return configuration.getBoolean(SrampConstants.SRAMP_CONFIG_DERIVED_AUDITING, true);
     }
 
+    /**
+     * Gets the audit durability mode.  One of "sync" (audit entries are written as part of
+     * the artifact's own JCR save), "async" (audit entries are queued and written by a
+     * background writer as soon as possible) or "async-interval" (the background writer
+     * group-commits queued audit entries every {@link #getAuditCommitInterval()} ms).
+     */
+    public static String getAuditDurability() {
+        return configuration.getString(SrampConstants.SRAMP_CONFIG_AUDIT_DURABILITY, "sync"); //$NON-NLS-1$
+    }
+
+    /**
+     * @return the interval (in ms) at which queued audit entries are committed when using "async-interval" durability
+     */
+    public static long getAuditCommitInterval() {
+        return configuration.getLong(SrampConstants.SRAMP_CONFIG_AUDIT_COMMIT_INTERVAL, 1000l);
+    }
+
+    /**
+     * @return the number of threads used to detect and build the artifacts expanded from an archive (or
+     *         uploaded in a batch) - defaults to the number of available processors, 1 disables it
+     */
+    public static int getArtifactProcessingThreads() {
+        return configuration.getInt(SrampConstants.SRAMP_CONFIG_ARTIFACT_PROCESSING_THREADS,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @return the maximum number of artifacts that can be fetched with a single bulk meta-data request
+     */
+    public static int getMaxBulkMetaDataUuids() {
+        return configuration.getInt(SrampConstants.SRAMP_CONFIG_MAX_BULK_META_DATA, 500);
+    }
+
+    /**
+     * @return the username used by the background audit writer to log in to the repository (or null) - required
+     *         by the "async" and "async-interval" audit durabilities
+     */
+    public static String getAuditUser() {
+        return configuration.getString(SrampConstants.SRAMP_CONFIG_AUDIT_USER, null);
+    }
+
+    /**
+     * @return the password used by the background audit writer to log in to the repository (or null)
+     */
+    public static String getAuditPassword() {
+        return configuration.getString(SrampConstants.SRAMP_CONFIG_AUDIT_PASS, null);
+    }
+
+    /**
+     * @return the username used by long-lived, server-side repository sessions (like the one that
+     *         watches for ontology changes) to log in to the repository (or null)
+     */
+    public static String getSystemUser() {
+        return configuration.getString(SrampConstants.SRAMP_CONFIG_SYSTEM_USER, null);
+    }
+
+    /**
+     * @return the password used by long-lived, server-side repository sessions (or null)
+     */
+    public static String getSystemPassword() {
+        return configuration.getString(SrampConstants.SRAMP_CONFIG_SYSTEM_PASS, null);
+    }
+
     /**
      * Gets a property from the s-ramp configuration.
      * @param propertyName
@@ -58,6 +58,12 @@ public class SrampConstants {
     public static final String SRAMP_CONFIG_DERIVED_AUDITING    = "sramp.config.auditing.enabled-derived"; //$NON-NLS-1$
     public static final String SRAMP_CONFIG_AUDIT_USER          = "sramp.config.auditing.user"; //$NON-NLS-1$
     public static final String SRAMP_CONFIG_AUDIT_PASS          = "sramp.config.auditing.password"; //$NON-NLS-1$
+    public static final String SRAMP_CONFIG_SYSTEM_USER         = "sramp.config.system.user"; //$NON-NLS-1$
+    public static final String SRAMP_CONFIG_SYSTEM_PASS         = "sramp.config.system.password"; //$NON-NLS-1$
+    public static final String SRAMP_CONFIG_AUDIT_DURABILITY    = "sramp.config.auditing.durability"; //$NON-NLS-1$
+    public static final String SRAMP_CONFIG_AUDIT_COMMIT_INTERVAL = "sramp.config.auditing.commit-interval"; //$NON-NLS-1$
+    public static final String SRAMP_CONFIG_ARTIFACT_PROCESSING_THREADS = "sramp.config.artifact-processing.threads"; //$NON-NLS-1$
+    public static final String SRAMP_CONFIG_MAX_BULK_META_DATA  = "sramp.config.metadata.max-bulk-uuids"; //$NON-NLS-1$
     public static final String SRAMP_CONFIG_JCR_REPO_JNDI       = "sramp.config.jcr.repository.jndi-path"; //$NON-NLS-1$
     public static final String SRAMP_CONFIG_JCR_REPO_NAME       = "sramp.config.jcr.repository.name"; //$NON-NLS-1$
     public static final String SRAMP_CONFIG_EVENT_JMS_CONNECTIONFACTORY    = "sramp.config.events.jms.connectionfactory"; //$NON-NLS-1$
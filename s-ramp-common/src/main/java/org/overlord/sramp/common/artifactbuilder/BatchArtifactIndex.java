@@ -0,0 +1,220 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.common.artifactbuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.AttributeDeclaration;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.ComplexTypeDeclaration;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.ElementDeclaration;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.NamedWsdlDerivedArtifactType;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.SimpleTypeDeclaration;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.WsdlDocument;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.WsdlExtension;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.XsdDocument;
+import org.overlord.sramp.common.ArtifactType;
+import org.overlord.sramp.common.SrampModelUtils;
+
+/**
+ * An in-memory index of the (primary and derived) artifacts created by a single batch, such as the
+ * entries of an expanded archive.  Relationships between the entries of an archive (a WSDL part's
+ * element, a SwitchYard transformer's Java class, etc.) are far more common than relationships to
+ * artifacts outside of it, so a {@link RelationshipContext} can answer most
+ * {@link RelationshipContext#findArtifacts(String, String, Map)} calls from here, and only go to the
+ * repository for the rest.
+ * <br/>
+ * The criteria are matched the same way the repository query matches them.  The "name",
+ * "namespace", "ncName" and "targetNamespace" properties are supported, as are custom properties.
+ * Criteria on any other core property can't be answered, in which case
+ * {@link #findArtifacts(String, String, Map)} returns null.  Like {@link IndexedArtifactCollection},
+ * lookups are hashed.  An index is built for each set of criteria keys the first time it is used.
+ */
+public class BatchArtifactIndex {
+
+    private static final Set<String> UNSUPPORTED_CORE_PROPERTIES = new HashSet<String>(Arrays.asList(
+            "uuid", "version", "description", "createdBy", "createdTimestamp", "lastModifiedBy", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+            "lastModifiedTimestamp", "contentType", "contentSize", "contentHash", "contentEncoding", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+            "extendedType", "style", "transport", "soapLocation", "derived")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+
+    /* model/type -> artifacts (most recently added first) */
+    private final Map<String, List<BaseArtifactType>> artifactsByType = new HashMap<String, List<BaseArtifactType>>();
+    /* model/type + criteria keys -> criteria values -> artifacts */
+    private final Map<String, Map<List<String>, List<BaseArtifactType>>> indexes = new HashMap<String, Map<List<String>, List<BaseArtifactType>>>();
+
+    /**
+     * Constructor.
+     */
+    public BatchArtifactIndex() {
+    }
+
+    /**
+     * Adds an artifact to the index.  It must already have its UUID.
+     * @param artifact
+     */
+    public void add(BaseArtifactType artifact) {
+        ArtifactType artifactType = ArtifactType.valueOf(artifact);
+        String typeKey = getTypeKey(artifactType.getModel(), artifactType.getType());
+        List<BaseArtifactType> artifacts = artifactsByType.get(typeKey);
+        if (artifacts == null) {
+            artifacts = new LinkedList<BaseArtifactType>();
+            artifactsByType.put(typeKey, artifacts);
+        }
+        // Newest first, the same order the repository query uses
+        artifacts.add(0, artifact);
+        indexes.clear();
+    }
+
+    /**
+     * Adds a number of artifacts to the index.
+     * @param artifacts
+     */
+    public void addAll(Collection<? extends BaseArtifactType> artifacts) {
+        for (BaseArtifactType artifact : artifacts) {
+            add(artifact);
+        }
+    }
+
+    /**
+     * Finds the indexed artifacts of the given type that match the given criteria.
+     *
+     * @param model
+     * @param type
+     * @param criteria
+     * @return the matching artifacts (possibly empty), or null if the criteria can't be answered by the index
+     */
+    public Collection<BaseArtifactType> findArtifacts(String model, String type, Map<String, String> criteria) {
+        for (String key : criteria.keySet()) {
+            if (UNSUPPORTED_CORE_PROPERTIES.contains(key)) {
+                return null;
+            }
+        }
+        String typeKey = getTypeKey(model, type);
+        List<BaseArtifactType> artifacts = artifactsByType.get(typeKey);
+        if (artifacts == null) {
+            return Collections.emptyList();
+        }
+
+        List<String> keys = new ArrayList<String>(new TreeSet<String>(criteria.keySet()));
+        String indexKey = typeKey + keys;
+        Map<List<String>, List<BaseArtifactType>> index = indexes.get(indexKey);
+        if (index == null) {
+            index = new HashMap<List<String>, List<BaseArtifactType>>();
+            for (BaseArtifactType artifact : artifacts) {
+                List<String> values = getValues(artifact, keys);
+                List<BaseArtifactType> matches = index.get(values);
+                if (matches == null) {
+                    matches = new ArrayList<BaseArtifactType>(1);
+                    index.put(values, matches);
+                }
+                matches.add(artifact);
+            }
+            indexes.put(indexKey, index);
+        }
+
+        List<String> values = new ArrayList<String>(keys.size());
+        for (String key : keys) {
+            values.add(criteria.get(key));
+        }
+        List<BaseArtifactType> matches = index.get(values);
+        if (matches == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(matches);
+    }
+
+    /**
+     * Gets the values of the given properties of the artifact.
+     * @param artifact
+     * @param keys
+     */
+    private static List<String> getValues(BaseArtifactType artifact, List<String> keys) {
+        List<String> values = new ArrayList<String>(keys.size());
+        for (String key : keys) {
+            values.add(getValue(artifact, key));
+        }
+        return values;
+    }
+
+    /**
+     * Gets the value of a single (supported core, or custom) property of the artifact.
+     * @param artifact
+     * @param key
+     */
+    private static String getValue(BaseArtifactType artifact, String key) {
+        if ("name".equals(key)) { //$NON-NLS-1$
+            return artifact.getName();
+        } else if ("namespace".equals(key)) { //$NON-NLS-1$
+            if (artifact instanceof NamedWsdlDerivedArtifactType) {
+                return ((NamedWsdlDerivedArtifactType) artifact).getNamespace();
+            } else if (artifact instanceof ElementDeclaration) {
+                return ((ElementDeclaration) artifact).getNamespace();
+            } else if (artifact instanceof AttributeDeclaration) {
+                return ((AttributeDeclaration) artifact).getNamespace();
+            } else if (artifact instanceof SimpleTypeDeclaration) {
+                return ((SimpleTypeDeclaration) artifact).getNamespace();
+            } else if (artifact instanceof ComplexTypeDeclaration) {
+                return ((ComplexTypeDeclaration) artifact).getNamespace();
+            } else if (artifact instanceof WsdlExtension) {
+                return ((WsdlExtension) artifact).getNamespace();
+            }
+            return null;
+        } else if ("ncName".equals(key)) { //$NON-NLS-1$
+            if (artifact instanceof NamedWsdlDerivedArtifactType) {
+                return ((NamedWsdlDerivedArtifactType) artifact).getNCName();
+            } else if (artifact instanceof ElementDeclaration) {
+                return ((ElementDeclaration) artifact).getNCName();
+            } else if (artifact instanceof AttributeDeclaration) {
+                return ((AttributeDeclaration) artifact).getNCName();
+            } else if (artifact instanceof SimpleTypeDeclaration) {
+                return ((SimpleTypeDeclaration) artifact).getNCName();
+            } else if (artifact instanceof ComplexTypeDeclaration) {
+                return ((ComplexTypeDeclaration) artifact).getNCName();
+            } else if (artifact instanceof WsdlExtension) {
+                return ((WsdlExtension) artifact).getNCName();
+            }
+            return null;
+        } else if ("targetNamespace".equals(key)) { //$NON-NLS-1$
+            if (artifact instanceof XsdDocument) {
+                return ((XsdDocument) artifact).getTargetNamespace();
+            } else if (artifact instanceof WsdlDocument) {
+                return ((WsdlDocument) artifact).getTargetNamespace();
+            }
+            return null;
+        } else {
+            return SrampModelUtils.getCustomProperty(artifact, key);
+        }
+    }
+
+    /**
+     * @param model
+     * @param type
+     */
+    private static String getTypeKey(String model, String type) {
+        return model + "/" + type; //$NON-NLS-1$
+    }
+
+}
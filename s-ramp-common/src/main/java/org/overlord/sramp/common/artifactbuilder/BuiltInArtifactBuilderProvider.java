@@ -42,7 +42,7 @@ public class BuiltInArtifactBuilderProvider implements ArtifactBuilderProvider {
             builders.add(new PolicyArtifactBuilder());
             break;
         case XML_DOCUMENT:
-            builders.add(new XmlArtifactBuilder());
+            builders.add(new XmlArtifactBuilder(true));
             break;
         }
         return builders;
@@ -102,6 +102,14 @@ public abstract class CriteriaQueryRelationshipSource implements RelationshipSou
     
     private static class CreationDateComparator implements Comparator<BaseArtifactType> {
         public int compare(BaseArtifactType o1, BaseArtifactType o2) {
+            // Artifacts found in the current batch (see BatchArtifactIndex) haven't been read back from the
+            // repository, so they have no timestamp yet -- but they are the newest of all.
+            if (o1.getCreatedTimestamp() == null || o2.getCreatedTimestamp() == null) {
+                if (o1.getCreatedTimestamp() == o2.getCreatedTimestamp()) {
+                    return 0;
+                }
+                return o1.getCreatedTimestamp() == null ? -1 : 1;
+            }
             // newest first
             return o2.getCreatedTimestamp().compare(o1.getCreatedTimestamp());
         }
@@ -15,8 +15,6 @@
  */
 package org.overlord.sramp.common.artifactbuilder;
 
-import org.overlord.sramp.common.query.xpath.StaticNamespaceContext;
-
 /**
  * Creates derived content from a Policy document.  This will create the derived content as
  * defined in the Policy model found in the s-ramp specification.  The following derived
@@ -31,9 +29,11 @@ import org.overlord.sramp.common.query.xpath.StaticNamespaceContext;
  */
 public class PolicyArtifactBuilder extends XmlArtifactBuilder {
 
-	@Override
-	protected void configureNamespaceMappings(StaticNamespaceContext namespaceContext) {
-		super.configureNamespaceMappings(namespaceContext);
-		namespaceContext.addMapping("wsp", "http://www.w3.org/ns/ws-policy"); //$NON-NLS-1$ //$NON-NLS-2$
+	/**
+	 * Creates a (streaming) Policy builder.
+	 */
+	public PolicyArtifactBuilder() {
+		super(true);
 	}
+
 }
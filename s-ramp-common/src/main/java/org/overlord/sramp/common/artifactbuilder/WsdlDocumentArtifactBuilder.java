@@ -37,6 +37,14 @@ import org.w3c.dom.NodeList;
 public class WsdlDocumentArtifactBuilder extends XsdDocumentArtifactBuilder {
     
    private String targetNS;
+   
+    /**
+     * Creates a WSDL builder.  WSDLs are parsed into a DOM, since messages, port types, bindings and
+     * services refer to each other regardless of where they appear in the document.
+     */
+    public WsdlDocumentArtifactBuilder() {
+        super(false);
+    }
 
     @Override
     protected void configureNamespaceMappings(StaticNamespaceContext namespaceContext) {
@@ -60,11 +68,9 @@ public class WsdlDocumentArtifactBuilder extends XsdDocumentArtifactBuilder {
             for (int idx = 0; idx < schemas.getLength(); idx++) {
                 Element schema = (Element) schemas.item(idx);
                 
-                deriveXsd(schema);
-                String xsdTargetNS = schema.getAttribute("targetNamespace");
-                processImportedXsds(((WsdlDocument) getPrimaryArtifact()).getImportedXsds(), schema, xsdTargetNS);
-                processIncludedXsds(((WsdlDocument) getPrimaryArtifact()).getIncludedXsds(), schema, xsdTargetNS);
-                processRedefinedXsds(((WsdlDocument) getPrimaryArtifact()).getRedefinedXsds(), schema, xsdTargetNS);
+                WsdlDocument wsdlDocument = (WsdlDocument) getPrimaryArtifact();
+                deriveXsd(schema, wsdlDocument.getImportedXsds(), wsdlDocument.getIncludedXsds(),
+                        wsdlDocument.getRedefinedXsds());
             }
             
             processWsdlImports();
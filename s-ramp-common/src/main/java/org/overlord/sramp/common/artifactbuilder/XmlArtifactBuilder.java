@@ -22,12 +22,13 @@ import java.util.List;
 
 import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.DerivedArtifactType;
@@ -38,6 +39,8 @@ import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.XmlDocument;
 import org.overlord.sramp.common.ArtifactContent;
 import org.overlord.sramp.common.SrampModelUtils;
 import org.overlord.sramp.common.query.xpath.StaticNamespaceContext;
+import org.overlord.sramp.common.xml.XPathExpressionCache;
+import org.overlord.sramp.common.xml.XmlParsers;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
@@ -45,6 +48,13 @@ import org.w3c.dom.Element;
  * Provides the basis for an {@link ArtifactBuilder} responsible for an XML artifact.  Sets up commonly-used namespaces,
  * initializes XPath, and generates "relatedDocument" relationships.
  * 
+ * The content is either parsed into a DOM (the default), which gives {@link #derive()} access to the
+ * {@link #rootElement} and XPath {@link #query(Element, String, QName)}, or streamed through StAX in a single pass,
+ * which calls {@link #startElement(XMLStreamReader, int)} and {@link #endElement(XMLStreamReader, int)} for every
+ * element instead.  Streaming never holds the document in memory, so builders that only need to look at each element
+ * once (like the built-in XSD and Policy builders) should use it.  When streaming, {@link #rootElement} and
+ * {@link #xpath} are not available.
+ * 
  * @author Brett Meyer
  */
 public class XmlArtifactBuilder extends AbstractArtifactBuilder {
@@ -56,37 +66,36 @@ public class XmlArtifactBuilder extends AbstractArtifactBuilder {
     protected Element rootElement;
     
     protected XPath xpath;
+    
+    private StaticNamespaceContext namespaceContext;
+    
+    private final boolean streaming;
+    
+    /**
+     * Creates a builder that parses the content into a DOM.
+     */
+    public XmlArtifactBuilder() {
+        this(false);
+    }
+    
+    /**
+     * @param streaming true to stream the content (StAX) rather than parse it into a DOM
+     */
+    public XmlArtifactBuilder(boolean streaming) {
+        this.streaming = streaming;
+    }
 
     @Override
     public ArtifactBuilder buildArtifacts(BaseArtifactType primaryArtifact, ArtifactContent artifactContent) throws IOException {
         super.buildArtifacts(primaryArtifact, artifactContent);
         
         try {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(true);
-            factory.setValidating(false);
-            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-dtd-grammar", false); //$NON-NLS-1$
-            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false); //$NON-NLS-1$
-
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document document = builder.parse(getContentStream());
-            // This *must* be setup prior to calling #configureNamespaceMappings.  Most subclasses will need it.
-            rootElement = document.getDocumentElement();
-            
-            if (primaryArtifact instanceof XmlDocument) {
-                String encoding = document.getXmlEncoding();
-                if (StringUtils.isBlank(encoding)) {
-                    encoding = "UTF-8";
-                }
-                ((XmlDocument) primaryArtifact).setContentEncoding(encoding);
+            if (streaming) {
+                parseStream();
+            } else {
+                parseDocument();
             }
             
-            XPathFactory xPathfactory = XPathFactory.newInstance();
-            xpath = xPathfactory.newXPath();
-            StaticNamespaceContext nsCtx = new StaticNamespaceContext();
-            configureNamespaceMappings(nsCtx);
-            xpath.setNamespaceContext(nsCtx);
-            
             // Create all derived artifacts
             derive();
 
@@ -116,6 +125,71 @@ public class XmlArtifactBuilder extends AbstractArtifactBuilder {
         }
     }
     
+    /**
+     * Parses the content into a DOM and sets up the {@link #rootElement} and {@link #xpath}.
+     * 
+     * @throws Exception
+     */
+    private void parseDocument() throws Exception {
+        DocumentBuilder builder = XmlParsers.getDocumentBuilder();
+        Document document = builder.parse(getContentStream());
+        // This *must* be setup prior to calling #configureNamespaceMappings.  Most subclasses will need it.
+        rootElement = document.getDocumentElement();
+        
+        setContentEncoding(document.getXmlEncoding());
+        
+        xpath = XmlParsers.newXPath();
+        namespaceContext = new StaticNamespaceContext();
+        configureNamespaceMappings(namespaceContext);
+        xpath.setNamespaceContext(namespaceContext);
+    }
+    
+    /**
+     * Streams the content in a single pass, handing every element to {@link #startElement(XMLStreamReader, int)}
+     * and {@link #endElement(XMLStreamReader, int)}.
+     * 
+     * @throws Exception
+     */
+    private void parseStream() throws Exception {
+        XMLInputFactory factory = XmlParsers.getXMLInputFactory();
+        InputStream is = getContentStream();
+        XMLStreamReader reader = null;
+        try {
+            reader = factory.createXMLStreamReader(is);
+            setContentEncoding(reader.getCharacterEncodingScheme());
+            int depth = 0;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    startElement(reader, depth);
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    endElement(reader, depth);
+                    depth--;
+                }
+            }
+        } finally {
+            if (reader != null) {
+                reader.close();
+            }
+            IOUtils.closeQuietly(is);
+        }
+    }
+    
+    /**
+     * Sets the content encoding of the primary artifact (if it is an XML document).
+     * 
+     * @param encoding the encoding declared by the document, if any
+     */
+    private void setContentEncoding(String encoding) {
+        if (getPrimaryArtifact() instanceof XmlDocument) {
+            if (StringUtils.isBlank(encoding)) {
+                encoding = "UTF-8";
+            }
+            ((XmlDocument) getPrimaryArtifact()).setContentEncoding(encoding);
+        }
+    }
+    
     @Override
     public ArtifactBuilder buildRelationships(RelationshipContext context) throws IOException {
         for (RelationshipSource relationshipSource : relationshipSources) {
@@ -128,11 +202,42 @@ public class XmlArtifactBuilder extends AbstractArtifactBuilder {
         
     }
     
+    /**
+     * Called (when streaming) as each element starts.  The reader is positioned on the START_ELEMENT
+     * event, and must not be advanced.
+     * 
+     * @param reader
+     * @param depth the depth of the element (the root element is 1)
+     * @throws Exception
+     */
+    protected void startElement(XMLStreamReader reader, int depth) throws Exception {
+    }
+    
+    /**
+     * Called (when streaming) as each element ends.
+     * 
+     * @param reader
+     * @param depth the depth of the element (the root element is 1)
+     * @throws Exception
+     */
+    protected void endElement(XMLStreamReader reader, int depth) throws Exception {
+    }
+    
     protected void configureNamespaceMappings(StaticNamespaceContext namespaceContext) {
     }
 
+    /**
+     * Runs an XPath query (using the namespace mappings set up by {@link #configureNamespaceMappings(StaticNamespaceContext)})
+     * against the given element.  The compiled query is cached, so builders can call this as often as they like with
+     * the same queries.
+     * 
+     * @param element
+     * @param query
+     * @param returnType
+     * @return the result
+     * @throws XPathExpressionException
+     */
     protected Object query(Element element, String query, QName returnType) throws XPathExpressionException {
-        XPathExpression expr = xpath.compile(query);
-        return expr.evaluate(element, returnType);
+        return XPathExpressionCache.evaluate(namespaceContext, query, element, returnType);
     }
 }
@@ -19,9 +19,10 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
 
-import javax.xml.xpath.XPathConstants;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.xpath.XPathExpressionException;
 
+import org.apache.commons.lang.StringUtils;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.AttributeDeclaration;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactEnum;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
@@ -34,199 +35,281 @@ import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.XsdDocumentTarget;
 import org.overlord.sramp.common.ArtifactTypeEnum;
 import org.overlord.sramp.common.query.xpath.StaticNamespaceContext;
 import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import org.w3c.dom.Node;
 
 /**
+ * Creates the derived content (element, attribute and type declarations) of an XSD document, along with its
+ * imported, included and redefined XSDs.  The document is streamed, since only the top-level children of the
+ * schema need to be looked at - generated XSDs can be very large.  Subclasses that parse the content into a
+ * DOM instead (see {@link #XsdDocumentArtifactBuilder(boolean)}) get the same result from {@link #derive()}.
+ * 
  * @author Brett Meyer
  */
 public class XsdDocumentArtifactBuilder extends XmlArtifactBuilder {
     
+    private static final String XSD_NS = "http://www.w3.org/2001/XMLSchema"; //$NON-NLS-1$
+    
     protected IndexedArtifactCollection derivedArtifacts = new IndexedArtifactCollection();
+    
+    private String schemaTargetNS;
+    
+    /**
+     * Creates a (streaming) XSD builder.
+     */
+    public XsdDocumentArtifactBuilder() {
+        this(true);
+    }
+    
+    /**
+     * @param streaming true to stream the content (StAX) rather than parse it into a DOM
+     */
+    protected XsdDocumentArtifactBuilder(boolean streaming) {
+        super(streaming);
+    }
 
     @Override
     protected void configureNamespaceMappings(StaticNamespaceContext namespaceContext) {
         super.configureNamespaceMappings(namespaceContext);
 
-        namespaceContext.addMapping("xs", "http://www.w3.org/2001/XMLSchema"); //$NON-NLS-1$ //$NON-NLS-2$
-        namespaceContext.addMapping("xsd", "http://www.w3.org/2001/XMLSchema"); //$NON-NLS-1$ //$NON-NLS-2$
+        namespaceContext.addMapping("xs", XSD_NS); //$NON-NLS-1$
+        namespaceContext.addMapping("xsd", XSD_NS); //$NON-NLS-1$
     }
 
     @Override
-    protected void derive() throws IOException {
-        try {
-            String targetNS = rootElement.getAttribute("targetNamespace"); //$NON-NLS-1$
-            
+    protected void startElement(XMLStreamReader reader, int depth) throws Exception {
+        if (depth == 1) {
+            schemaTargetNS = StringUtils.defaultString(reader.getAttributeValue(null, "targetNamespace")); //$NON-NLS-1$
             if (getPrimaryArtifact() instanceof XsdDocument) {
-                ((XsdDocument) getPrimaryArtifact()).setTargetNamespace(targetNS);
+                ((XsdDocument) getPrimaryArtifact()).setTargetNamespace(schemaTargetNS);
             }
-
-            deriveXsd(rootElement);
-            processImportedXsds(rootElement, targetNS);
-            processIncludedXsds(rootElement, targetNS);
-            processRedefinedXsds(rootElement, targetNS);
-        } catch (Exception e) {
-            throw new IOException(e);
+        } else if (depth == 2 && XSD_NS.equals(reader.getNamespaceURI())) {
+            List<XsdDocumentTarget> importedXsds = null;
+            List<XsdDocumentTarget> includedXsds = null;
+            List<XsdDocumentTarget> redefinedXsds = null;
+            if (getPrimaryArtifact() instanceof XsdDocument) {
+                XsdDocument xsdDocument = (XsdDocument) getPrimaryArtifact();
+                importedXsds = xsdDocument.getImportedXsds();
+                includedXsds = xsdDocument.getIncludedXsds();
+                redefinedXsds = xsdDocument.getRedefinedXsds();
+            }
+            processSchemaComponent(reader.getLocalName(), reader.getAttributeValue(null, "name"), //$NON-NLS-1$
+                    reader.getAttributeValue(null, "namespace"), reader.getAttributeValue(null, "schemaLocation"), //$NON-NLS-1$ //$NON-NLS-2$
+                    schemaTargetNS, importedXsds, includedXsds, redefinedXsds);
+        }
+    }
+    
+    @Override
+    protected void derive() throws IOException {
+        if (rootElement == null) {
+            // Streamed - everything was derived as the elements went by
+            return;
         }
+        String targetNS = rootElement.getAttribute("targetNamespace"); //$NON-NLS-1$
+        List<XsdDocumentTarget> importedXsds = null;
+        List<XsdDocumentTarget> includedXsds = null;
+        List<XsdDocumentTarget> redefinedXsds = null;
+        if (getPrimaryArtifact() instanceof XsdDocument) {
+            XsdDocument xsdDocument = (XsdDocument) getPrimaryArtifact();
+            xsdDocument.setTargetNamespace(targetNS);
+            importedXsds = xsdDocument.getImportedXsds();
+            includedXsds = xsdDocument.getIncludedXsds();
+            redefinedXsds = xsdDocument.getRedefinedXsds();
+        }
+        deriveXsd(rootElement, importedXsds, includedXsds, redefinedXsds);
+    }
+    
+    /**
+     * Derives the content of a schema that has been parsed into a DOM (for example, one embedded in a WSDL).
+     * 
+     * @param schema the xsd:schema element
+     * @param importedXsds where to add the schema's imports (may be null)
+     * @param includedXsds where to add the schema's includes (may be null)
+     * @param redefinedXsds where to add the schema's redefines (may be null)
+     */
+    protected void deriveXsd(Element schema, List<XsdDocumentTarget> importedXsds,
+            List<XsdDocumentTarget> includedXsds, List<XsdDocumentTarget> redefinedXsds) {
+        processSchemaComponents(schema, null, schema.getAttribute("targetNamespace"), importedXsds, includedXsds, //$NON-NLS-1$
+                redefinedXsds);
     }
     
+    /**
+     * Derives the element, attribute and type declarations of a schema that has been parsed into a DOM.
+     * 
+     * @param schema the xsd:schema element
+     * @throws XPathExpressionException
+     * @deprecated use {@link #deriveXsd(Element, List, List, List)}, which also handles the imports, includes
+     *             and redefines in the same pass
+     */
+    @Deprecated
     protected void deriveXsd(Element schema) throws XPathExpressionException {
-        String targetNS = schema.getAttribute("targetNamespace"); //$NON-NLS-1$
-
-        processElementDeclarations(schema, targetNS);
-        processAttributeDeclarations(schema, targetNS);
-        processSimpleTypeDeclarations(schema, targetNS);
-        processComplexTypeDeclarations(schema, targetNS);
+        deriveXsd(schema, null, null, null);
     }
-
-    private void processElementDeclarations(Element schema, String targetNS) throws XPathExpressionException {
-        // xpath expression to find all global element decls
-        NodeList nodes = (NodeList) query(schema, "./xsd:element", XPathConstants.NODESET); //$NON-NLS-1$
-        for (int idx = 0; idx < nodes.getLength(); idx++) {
-            Element node = (Element) nodes.item(idx);
-            if (node.hasAttribute("name")) { //$NON-NLS-1$
-                String nsName = node.getAttribute("name"); //$NON-NLS-1$
+    
+    /**
+     * Adds the imports of a schema that has been parsed into a DOM to the given collection.
+     * 
+     * @param targetCollection
+     * @param schema the xsd:schema element
+     * @param targetNS the target namespace of the schema
+     * @throws XPathExpressionException
+     * @deprecated use {@link #deriveXsd(Element, List, List, List)}
+     */
+    @Deprecated
+    protected void processImportedXsds(List<XsdDocumentTarget> targetCollection, Element schema, String targetNS)
+            throws XPathExpressionException {
+        processSchemaComponents(schema, "import", targetNS, targetCollection, null, null); //$NON-NLS-1$
+    }
+    
+    /**
+     * Adds the includes of a schema that has been parsed into a DOM to the given collection.
+     * 
+     * @param targetCollection
+     * @param schema the xsd:schema element
+     * @param targetNS the target namespace of the schema
+     * @throws XPathExpressionException
+     * @deprecated use {@link #deriveXsd(Element, List, List, List)}
+     */
+    @Deprecated
+    protected void processIncludedXsds(List<XsdDocumentTarget> targetCollection, Element schema, String targetNS)
+            throws XPathExpressionException {
+        processSchemaComponents(schema, "include", targetNS, null, targetCollection, null); //$NON-NLS-1$
+    }
+    
+    /**
+     * Adds the redefines of a schema that has been parsed into a DOM to the given collection.
+     * 
+     * @param targetCollection
+     * @param schema the xsd:schema element
+     * @param targetNS the target namespace of the schema
+     * @throws XPathExpressionException
+     * @deprecated use {@link #deriveXsd(Element, List, List, List)}
+     */
+    @Deprecated
+    protected void processRedefinedXsds(List<XsdDocumentTarget> targetCollection, Element schema, String targetNS)
+            throws XPathExpressionException {
+        processSchemaComponents(schema, "redefine", targetNS, null, null, targetCollection); //$NON-NLS-1$
+    }
+    
+    /**
+     * Hands the top-level XSD children of a DOM schema to {@link #processSchemaComponent}.
+     * 
+     * @param schema the xsd:schema element
+     * @param localName only process the children with this local name (or all of them, if null)
+     * @param targetNS the target namespace of the schema
+     * @param importedXsds where to add imports (may be null)
+     * @param includedXsds where to add includes (may be null)
+     * @param redefinedXsds where to add redefines (may be null)
+     */
+    private void processSchemaComponents(Element schema, String localName, String targetNS,
+            List<XsdDocumentTarget> importedXsds, List<XsdDocumentTarget> includedXsds,
+            List<XsdDocumentTarget> redefinedXsds) {
+        for (Node node = schema.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeType() == Node.ELEMENT_NODE && XSD_NS.equals(node.getNamespaceURI())
+                    && (localName == null || localName.equals(node.getLocalName()))) {
+                Element child = (Element) node;
+                processSchemaComponent(child.getLocalName(), getAttribute(child, "name"), //$NON-NLS-1$
+                        getAttribute(child, "namespace"), getAttribute(child, "schemaLocation"), //$NON-NLS-1$ //$NON-NLS-2$
+                        targetNS, importedXsds, includedXsds, redefinedXsds);
+            }
+        }
+    }
+    
+    /**
+     * Handles a single top-level child of a schema: a global element, attribute or type declaration, or an
+     * import, include or redefine.  Anything else is ignored.
+     * 
+     * @param localName the local name of the schema child
+     * @param name its name attribute (or null)
+     * @param namespace its namespace attribute (or null)
+     * @param schemaLocation its schemaLocation attribute (or null)
+     * @param targetNS the target namespace of the schema
+     * @param importedXsds where to add imports (may be null)
+     * @param includedXsds where to add includes (may be null)
+     * @param redefinedXsds where to add redefines (may be null)
+     */
+    private void processSchemaComponent(String localName, String name, String namespace, String schemaLocation,
+            String targetNS, List<XsdDocumentTarget> importedXsds, List<XsdDocumentTarget> includedXsds,
+            List<XsdDocumentTarget> redefinedXsds) {
+        if ("element".equals(localName)) { //$NON-NLS-1$
+            if (name != null) {
                 ElementDeclaration elementDecl = new ElementDeclaration();
                 elementDecl.setArtifactType(BaseArtifactEnum.ELEMENT_DECLARATION);
-                elementDecl.setName(nsName);
+                elementDecl.setName(name);
                 elementDecl.setNamespace(targetNS);
-                elementDecl.setNCName(nsName);
+                elementDecl.setNCName(name);
                 derivedArtifacts.add(elementDecl);
             }
-        }
-    }
-
-    private void processAttributeDeclarations(Element schema, String targetNS) throws XPathExpressionException {
-        // xpath expression to find all global attribute decls
-        NodeList nodes = (NodeList) query(schema, "./xsd:attribute", XPathConstants.NODESET); //$NON-NLS-1$
-        for (int idx = 0; idx < nodes.getLength(); idx++) {
-            Element node = (Element) nodes.item(idx);
-            if (node.hasAttribute("name")) { //$NON-NLS-1$
-                String nsName = node.getAttribute("name"); //$NON-NLS-1$
+        } else if ("attribute".equals(localName)) { //$NON-NLS-1$
+            if (name != null) {
                 AttributeDeclaration attributeDecl = new AttributeDeclaration();
                 attributeDecl.setArtifactType(BaseArtifactEnum.ATTRIBUTE_DECLARATION);
-                attributeDecl.setName(nsName);
+                attributeDecl.setName(name);
                 attributeDecl.setNamespace(targetNS);
-                attributeDecl.setNCName(nsName);
+                attributeDecl.setNCName(name);
                 derivedArtifacts.add(attributeDecl);
             }
-        }
-    }
-
-    private void processSimpleTypeDeclarations(Element schema, String targetNS) throws XPathExpressionException {
-        // xpath expression to find all global simple type decls
-        NodeList nodes = (NodeList) query(schema, "./xsd:simpleType", XPathConstants.NODESET); //$NON-NLS-1$
-        for (int idx = 0; idx < nodes.getLength(); idx++) {
-            Element node = (Element) nodes.item(idx);
-            if (node.hasAttribute("name")) { //$NON-NLS-1$
-                String nsName = node.getAttribute("name"); //$NON-NLS-1$
+        } else if ("simpleType".equals(localName)) { //$NON-NLS-1$
+            if (name != null) {
                 SimpleTypeDeclaration simpleTypeDecl = new SimpleTypeDeclaration();
                 simpleTypeDecl.setArtifactType(BaseArtifactEnum.SIMPLE_TYPE_DECLARATION);
-                simpleTypeDecl.setName(nsName);
+                simpleTypeDecl.setName(name);
                 simpleTypeDecl.setNamespace(targetNS);
-                simpleTypeDecl.setNCName(nsName);
+                simpleTypeDecl.setNCName(name);
                 derivedArtifacts.add(simpleTypeDecl);
             }
-        }
-    }
-
-    private void processComplexTypeDeclarations(Element schema, String targetNS) throws XPathExpressionException {
-        // xpath expression to find all global complex type decls
-        NodeList nodes = (NodeList) query(schema, "./xsd:complexType", XPathConstants.NODESET); //$NON-NLS-1$
-        for (int idx = 0; idx < nodes.getLength(); idx++) {
-            Element node = (Element) nodes.item(idx);
-            if (node.hasAttribute("name")) { //$NON-NLS-1$
-                String nsName = node.getAttribute("name"); //$NON-NLS-1$
+        } else if ("complexType".equals(localName)) { //$NON-NLS-1$
+            if (name != null) {
                 ComplexTypeDeclaration complexTypeDecl = new ComplexTypeDeclaration();
                 complexTypeDecl.setArtifactType(BaseArtifactEnum.COMPLEX_TYPE_DECLARATION);
-                complexTypeDecl.setName(nsName);
+                complexTypeDecl.setName(name);
                 complexTypeDecl.setNamespace(targetNS);
-                complexTypeDecl.setNCName(nsName);
+                complexTypeDecl.setNCName(name);
                 derivedArtifacts.add(complexTypeDecl);
             }
-        }
-    }
-    
-    private void processImportedXsds(Element schema, String targetNS) throws XPathExpressionException {
-        if (getPrimaryArtifact() instanceof XsdDocument) {
-            processImportedXsds(((XsdDocument) getPrimaryArtifact()).getImportedXsds(), schema, targetNS);
-        }
-    }
-    
-    protected void processImportedXsds(List<XsdDocumentTarget> targetCollection, Element schema, String targetNS) throws XPathExpressionException {
-        NodeList nodes = (NodeList) query(schema, "./xsd:import", XPathConstants.NODESET); //$NON-NLS-1$
-        for (int idx = 0; idx < nodes.getLength(); idx++) {
-            Element node = (Element) nodes.item(idx);
-            if (node.hasAttribute("namespace") && node.hasAttribute("schemaLocation")) { //$NON-NLS-1$
-                String namespace = node.getAttribute("namespace");
-                String schemaLocation = node.getAttribute("schemaLocation");
-                stripPath(schemaLocation);
-                XsdDocument xsdDocumentRef = derivedArtifacts.lookupXsdDocument(namespace, schemaLocation);
-                XsdDocumentTarget xsdDocumentTarget = new XsdDocumentTarget();
-                xsdDocumentTarget.setArtifactType(XsdDocumentEnum.XSD_DOCUMENT);
-                if (xsdDocumentRef != null) {
-                    xsdDocumentTarget.setValue(xsdDocumentRef.getUuid());
-                } else {
-                    relationshipSources.add(new NamespaceRelationshipSource(namespace, schemaLocation,
-                            xsdDocumentTarget, targetCollection, ArtifactTypeEnum.XsdDocument.getModel(),
-                            ArtifactTypeEnum.XsdDocument.getType()));
-                }
-                targetCollection.add(xsdDocumentTarget);
+        } else if ("import".equals(localName)) { //$NON-NLS-1$
+            if (importedXsds != null && namespace != null && schemaLocation != null) {
+                addXsdReference(importedXsds, namespace, schemaLocation);
             }
-        }
-    }
-    
-    private void processIncludedXsds(Element schema, String targetNS) throws XPathExpressionException {
-        if (getPrimaryArtifact() instanceof XsdDocument) {
-            processIncludedXsds(((XsdDocument) getPrimaryArtifact()).getIncludedXsds(), schema, targetNS);
-        }
-    }
-    
-    protected void processIncludedXsds(List<XsdDocumentTarget> targetCollection, Element schema, String targetNS) throws XPathExpressionException {
-        NodeList nodes = (NodeList) query(schema, "./xsd:include", XPathConstants.NODESET); //$NON-NLS-1$
-        for (int idx = 0; idx < nodes.getLength(); idx++) {
-            Element node = (Element) nodes.item(idx);
-            if (node.hasAttribute("schemaLocation")) { //$NON-NLS-1$
-                String schemaLocation = node.getAttribute("schemaLocation");
-                stripPath(schemaLocation);
-                XsdDocument xsdDocumentRef = derivedArtifacts.lookupXsdDocument(targetNS, schemaLocation);
-                XsdDocumentTarget xsdDocumentTarget = new XsdDocumentTarget();
-                xsdDocumentTarget.setArtifactType(XsdDocumentEnum.XSD_DOCUMENT);
-                if (xsdDocumentRef != null) {
-                    xsdDocumentTarget.setValue(xsdDocumentRef.getUuid());
-                } else {
-                    relationshipSources.add(new NamespaceRelationshipSource(targetNS, schemaLocation, xsdDocumentTarget, targetCollection,
-                            ArtifactTypeEnum.XsdDocument.getModel(), ArtifactTypeEnum.XsdDocument.getType()));
-                }
-                targetCollection.add(xsdDocumentTarget);
+        } else if ("include".equals(localName)) { //$NON-NLS-1$
+            if (includedXsds != null && schemaLocation != null) {
+                addXsdReference(includedXsds, targetNS, schemaLocation);
+            }
+        } else if ("redefine".equals(localName)) { //$NON-NLS-1$
+            if (redefinedXsds != null && schemaLocation != null) {
+                addXsdReference(redefinedXsds, targetNS, schemaLocation);
             }
         }
     }
     
-    private void processRedefinedXsds(Element schema, String targetNS) throws XPathExpressionException {
-        if (getPrimaryArtifact() instanceof XsdDocument) {
-            processRedefinedXsds(((XsdDocument) getPrimaryArtifact()).getRedefinedXsds(), schema, targetNS);
+    /**
+     * Adds a reference to another XSD document to the given collection.  If the XSD is not one of the derived
+     * artifacts, it is resolved when the relationships are built.
+     * 
+     * @param targetCollection
+     * @param namespace
+     * @param schemaLocation
+     */
+    private void addXsdReference(List<XsdDocumentTarget> targetCollection, String namespace, String schemaLocation) {
+        stripPath(schemaLocation);
+        XsdDocument xsdDocumentRef = derivedArtifacts.lookupXsdDocument(namespace, schemaLocation);
+        XsdDocumentTarget xsdDocumentTarget = new XsdDocumentTarget();
+        xsdDocumentTarget.setArtifactType(XsdDocumentEnum.XSD_DOCUMENT);
+        if (xsdDocumentRef != null) {
+            xsdDocumentTarget.setValue(xsdDocumentRef.getUuid());
+        } else {
+            relationshipSources.add(new NamespaceRelationshipSource(namespace, schemaLocation, xsdDocumentTarget,
+                    targetCollection, ArtifactTypeEnum.XsdDocument.getModel(), ArtifactTypeEnum.XsdDocument.getType()));
         }
+        targetCollection.add(xsdDocumentTarget);
     }
     
-    protected void processRedefinedXsds(List<XsdDocumentTarget> targetCollection, Element schema, String targetNS) throws XPathExpressionException {
-        NodeList nodes = (NodeList) query(schema, "./xsd:redefine", XPathConstants.NODESET); //$NON-NLS-1$
-        for (int idx = 0; idx < nodes.getLength(); idx++) {
-            Element node = (Element) nodes.item(idx);
-            if (node.hasAttribute("schemaLocation")) { //$NON-NLS-1$
-                String schemaLocation = node.getAttribute("schemaLocation");
-                stripPath(schemaLocation);
-                XsdDocument xsdDocumentRef = derivedArtifacts.lookupXsdDocument(targetNS, schemaLocation);
-                XsdDocumentTarget xsdDocumentTarget = new XsdDocumentTarget();
-                xsdDocumentTarget.setArtifactType(XsdDocumentEnum.XSD_DOCUMENT);
-                if (xsdDocumentRef != null) {
-                    xsdDocumentTarget.setValue(xsdDocumentRef.getUuid());
-                } else {
-                    relationshipSources.add(new NamespaceRelationshipSource(targetNS, schemaLocation, xsdDocumentTarget, targetCollection,
-                            ArtifactTypeEnum.XsdDocument.getModel(), ArtifactTypeEnum.XsdDocument.getType()));
-                }
-                targetCollection.add(xsdDocumentTarget);
-            }
-        }
+    /**
+     * @param element
+     * @param name
+     * @return the value of the (unqualified) attribute, or null if it isn't there
+     */
+    private static String getAttribute(Element element, String name) {
+        return element.hasAttribute(name) ? element.getAttribute(name) : null;
     }
     
     // TODO: Move to a util?
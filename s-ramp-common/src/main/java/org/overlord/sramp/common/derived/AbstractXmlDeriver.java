@@ -22,11 +22,9 @@ import java.util.Collection;
 
 import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.DerivedArtifactType;
@@ -35,6 +33,8 @@ import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.DocumentArtifactTarget;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.Relationship;
 import org.overlord.sramp.common.SrampModelUtils;
 import org.overlord.sramp.common.query.xpath.StaticNamespaceContext;
+import org.overlord.sramp.common.xml.XPathExpressionCache;
+import org.overlord.sramp.common.xml.XmlParsers;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
@@ -64,15 +64,9 @@ public abstract class AbstractXmlDeriver implements ArtifactDeriver {
 	    Collection<BaseArtifactType> derivedArtifacts = createDerivedArtifactCollection();
 
 		try {
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			factory.setNamespaceAware(true);
-			factory.setValidating(false);
-			factory.setFeature("http://apache.org/xml/features/nonvalidating/load-dtd-grammar", false); //$NON-NLS-1$
-			factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false); //$NON-NLS-1$
-			DocumentBuilder builder = factory.newDocumentBuilder();
+			DocumentBuilder builder = XmlParsers.getDocumentBuilder();
 			Document document = builder.parse(content);
-			XPathFactory xPathfactory = XPathFactory.newInstance();
-			XPath xpath = xPathfactory.newXPath();
+			XPath xpath = XmlParsers.newXPath();
 			StaticNamespaceContext nsCtx = new StaticNamespaceContext();
 			configureNamespaceMappings(nsCtx);
 			xpath.setNamespaceContext(nsCtx);
@@ -124,6 +118,11 @@ public abstract class AbstractXmlDeriver implements ArtifactDeriver {
 	 * @throws XPathExpressionException
 	 */
 	protected Object query(XPath xpath, Element context, String query, QName returnType) throws XPathExpressionException {
+		if (xpath.getNamespaceContext() instanceof StaticNamespaceContext) {
+			// Compile the query once, rather than every time it is run
+			return XPathExpressionCache.evaluate((StaticNamespaceContext) xpath.getNamespaceContext(), query,
+					context, returnType);
+		}
 		XPathExpression expr = xpath.compile(query);
 		return expr.evaluate(context, returnType);
 	}
@@ -21,6 +21,7 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
 
 import javax.xml.namespace.NamespaceContext;
 
@@ -34,6 +35,8 @@ public class StaticNamespaceContext implements NamespaceContext {
 
 	/** Mapping of prefix->namespace. */
 	private Map<String, String> nsMapping = new HashMap<String, String>();
+	/** A string form of the mappings (cached until they change). */
+	private String key;
 	
 	/**
 	 * Default constructor.
@@ -48,6 +51,7 @@ public class StaticNamespaceContext implements NamespaceContext {
 	 */
 	public void addMapping(String prefix, String namespace) {
 		this.nsMapping.put(prefix, namespace);
+		this.key = null;
 	}
 	
 	/**
@@ -56,6 +60,19 @@ public class StaticNamespaceContext implements NamespaceContext {
 	 */
 	public void removeMapping(String prefix) {
 		this.nsMapping.remove(prefix);
+		this.key = null;
+	}
+
+	/**
+	 * Gets a key that identifies the mappings of this context: two contexts with the same
+	 * mappings have the same key.
+	 * @return the key
+	 */
+	public String getKey() {
+		if (this.key == null) {
+			this.key = new TreeMap<String, String>(this.nsMapping).toString();
+		}
+		return this.key;
 	}
 
 	/**
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.common.xml;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.xml.namespace.QName;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+
+import org.overlord.sramp.common.query.xpath.StaticNamespaceContext;
+
+/**
+ * A cache of compiled XPath expressions, shared by all of the artifact builders (and
+ * anything else that runs the same XPath queries over and over).  Builders run a small,
+ * fixed set of expressions against every document they process, so compiling each one
+ * once (rather than on every call) saves a lot of work on large documents.
+ * <br/>
+ * The prefixes in an expression are resolved when it is compiled, so expressions are
+ * cached per set of namespace mappings (see {@link StaticNamespaceContext#getKey()}).
+ * Neither {@link XPath} nor {@link XPathExpression} is thread safe, so each thread has
+ * its own XPath instance and its own compiled expressions.
+ */
+public final class XPathExpressionCache {
+
+    /** The number of distinct namespace contexts each thread keeps expressions for. */
+    private static final int MAX_NAMESPACE_CONTEXTS = 32;
+
+    private static final ThreadLocal<XPath> xpath = new ThreadLocal<XPath>() {
+        @Override
+        protected XPath initialValue() {
+            return XmlParsers.newXPath();
+        }
+    };
+
+    /* namespace context key -> expression -> compiled expression */
+    private static final ThreadLocal<Map<String, Map<String, XPathExpression>>> expressions = new ThreadLocal<Map<String, Map<String, XPathExpression>>>() {
+        @Override
+        protected Map<String, Map<String, XPathExpression>> initialValue() {
+            return new LinkedHashMap<String, Map<String, XPathExpression>>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+                @Override
+                protected boolean removeEldestEntry(Entry<String, Map<String, XPathExpression>> eldest) {
+                    return size() > MAX_NAMESPACE_CONTEXTS;
+                }
+            };
+        }
+    };
+
+    /**
+     * Constructor.
+     */
+    private XPathExpressionCache() {
+    }
+
+    /**
+     * Gets the compiled form of the given expression, compiling it (with the given namespace
+     * mappings) if this thread hasn't already done so.  The returned expression must only be
+     * used by the calling thread.
+     *
+     * @param namespaceContext the namespace mappings used by the expression
+     * @param expression the XPath expression
+     * @return the compiled expression
+     * @throws XPathExpressionException
+     */
+    public static XPathExpression getExpression(StaticNamespaceContext namespaceContext, String expression)
+            throws XPathExpressionException {
+        Map<String, Map<String, XPathExpression>> contexts = expressions.get();
+        String key = namespaceContext.getKey();
+        Map<String, XPathExpression> compiled = contexts.get(key);
+        if (compiled == null) {
+            compiled = new HashMap<String, XPathExpression>();
+            contexts.put(key, compiled);
+        }
+        XPathExpression expr = compiled.get(expression);
+        if (expr == null) {
+            XPath xp = xpath.get();
+            xp.setNamespaceContext(namespaceContext);
+            expr = xp.compile(expression);
+            compiled.put(expression, expr);
+        }
+        return expr;
+    }
+
+    /**
+     * Evaluates the given expression against the context node.
+     *
+     * @param namespaceContext the namespace mappings used by the expression
+     * @param expression the XPath expression
+     * @param context the context node
+     * @param returnType the type of result to return (see {@link javax.xml.xpath.XPathConstants})
+     * @return the result
+     * @throws XPathExpressionException
+     */
+    public static Object evaluate(StaticNamespaceContext namespaceContext, String expression, Object context,
+            QName returnType) throws XPathExpressionException {
+        return getExpression(namespaceContext, expression).evaluate(context, returnType);
+    }
+
+}
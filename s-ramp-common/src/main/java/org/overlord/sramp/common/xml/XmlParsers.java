@@ -0,0 +1,147 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.common.xml;
+
+import java.io.ByteArrayInputStream;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathFactory;
+
+/**
+ * Hands out the XML parsers used by the artifact builders, derivers and type detectors.
+ * <br/>
+ * Every *Factory.newInstance() call goes through the JAXP service lookup (system
+ * properties, jaxp.properties and a scan of the classpath for META-INF/services), which
+ * is expensive relative to parsing a small document.  Expanding an archive can mean
+ * parsing thousands of XML entries, so the factories are created and configured once per
+ * thread and the parsers themselves are reused.  None of the JAXP factories or parsers
+ * are thread safe, which is why nothing here is shared across threads.
+ * <br/>
+ * All parsers are namespace aware, non-validating and never load external DTDs or
+ * external entities.
+ */
+public final class XmlParsers {
+
+    private static final String LOAD_DTD_GRAMMAR = "http://apache.org/xml/features/nonvalidating/load-dtd-grammar"; //$NON-NLS-1$
+    private static final String LOAD_EXTERNAL_DTD = "http://apache.org/xml/features/nonvalidating/load-external-dtd"; //$NON-NLS-1$
+    private static final String EXTERNAL_GENERAL_ENTITIES = "http://xml.org/sax/features/external-general-entities"; //$NON-NLS-1$
+    private static final String EXTERNAL_PARAMETER_ENTITIES = "http://xml.org/sax/features/external-parameter-entities"; //$NON-NLS-1$
+
+    private static final ThreadLocal<DocumentBuilder> documentBuilder = new ThreadLocal<DocumentBuilder>() {
+        @Override
+        protected DocumentBuilder initialValue() {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setValidating(false);
+            setFeature(factory, XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            setFeature(factory, LOAD_DTD_GRAMMAR, false);
+            setFeature(factory, LOAD_EXTERNAL_DTD, false);
+            setFeature(factory, EXTERNAL_GENERAL_ENTITIES, false);
+            setFeature(factory, EXTERNAL_PARAMETER_ENTITIES, false);
+            try {
+                return factory.newDocumentBuilder();
+            } catch (ParserConfigurationException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    };
+
+    /**
+     * Resolves any external resource (an external DTD, or entity) that the StAX parser would
+     * otherwise load to empty content.
+     */
+    private static final XMLResolver EMPTY_RESOLVER = new XMLResolver() {
+        @Override
+        public Object resolveEntity(String publicID, String systemID, String baseURI, String namespace) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+    };
+
+    private static final ThreadLocal<XMLInputFactory> inputFactory = new ThreadLocal<XMLInputFactory>() {
+        @Override
+        protected XMLInputFactory initialValue() {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+            // The DTD is still processed so that documents declaring (and using) internal entities
+            // parse, just as they do with the DOM parser - only external content is never loaded.
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.TRUE);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+            factory.setXMLResolver(EMPTY_RESOLVER);
+            return factory;
+        }
+    };
+
+    private static final ThreadLocal<XPathFactory> xpathFactory = new ThreadLocal<XPathFactory>() {
+        @Override
+        protected XPathFactory initialValue() {
+            return XPathFactory.newInstance();
+        }
+    };
+
+    /**
+     * Constructor.
+     */
+    private XmlParsers() {
+    }
+
+    /**
+     * Gets this thread's {@link DocumentBuilder}, reset and ready to parse.  The builder must
+     * not be handed to another thread.
+     */
+    public static DocumentBuilder getDocumentBuilder() {
+        DocumentBuilder builder = documentBuilder.get();
+        builder.reset();
+        return builder;
+    }
+
+    /**
+     * Gets this thread's {@link XMLInputFactory}.  Readers created by it are independent of
+     * one another, but the factory itself must not be handed to another thread.
+     */
+    public static XMLInputFactory getXMLInputFactory() {
+        return inputFactory.get();
+    }
+
+    /**
+     * Creates a new {@link XPath} from this thread's {@link XPathFactory}.  Callers get their
+     * own instance since they are expected to set their own namespace context on it.
+     */
+    public static XPath newXPath() {
+        return xpathFactory.get().newXPath();
+    }
+
+    /**
+     * Sets a feature on the factory, ignoring features that the underlying implementation
+     * doesn't know about.
+     * @param factory
+     * @param feature
+     * @param value
+     */
+    private static void setFeature(DocumentBuilderFactory factory, String feature, boolean value) {
+        try {
+            factory.setFeature(feature, value);
+        } catch (ParserConfigurationException e) {
+            // Not supported by this implementation
+        }
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.common.xml;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * The root element of an XML document (its name and the namespaces declared on it), as
+ * found by peeking at the first few KB of the content.  This is all that type detection
+ * needs to know about most XML documents, and it is a lot cheaper than parsing them.
+ */
+public class XmlRootElement {
+
+    private final QName name;
+    private final Map<String, String> namespaces;
+
+    /**
+     * Constructor.
+     * @param name
+     * @param namespaces
+     */
+    public XmlRootElement(QName name, Map<String, String> namespaces) {
+        this.name = name;
+        this.namespaces = Collections.unmodifiableMap(namespaces);
+    }
+
+    /**
+     * @return the qualified name of the root element
+     */
+    public QName getName() {
+        return name;
+    }
+
+    /**
+     * @return the namespace URI of the root element (empty if it has none)
+     */
+    public String getNamespaceURI() {
+        return name.getNamespaceURI();
+    }
+
+    /**
+     * @return the local name of the root element
+     */
+    public String getLocalName() {
+        return name.getLocalPart();
+    }
+
+    /**
+     * @return the namespaces declared on the root element, keyed by prefix (the default
+     *         namespace, if declared, uses the empty prefix)
+     */
+    public Map<String, String> getNamespaces() {
+        return namespaces;
+    }
+
+    /**
+     * Finds the root element in the given header (the first bytes of a document).  Returns
+     * null if the header doesn't look like XML, or if the root element's start tag is not
+     * complete within the header.
+     *
+     * @param header the first bytes of the content
+     * @return the root element, or null
+     */
+    public static XmlRootElement peek(byte[] header) {
+        if (header == null || !startsLikeXml(header)) {
+            return null;
+        }
+        XMLStreamReader reader = null;
+        try {
+            reader = XmlParsers.getXMLInputFactory().createXMLStreamReader(new ByteArrayInputStream(header));
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                    Map<String, String> namespaces = new HashMap<String, String>();
+                    for (int idx = 0; idx < reader.getNamespaceCount(); idx++) {
+                        String prefix = reader.getNamespacePrefix(idx);
+                        namespaces.put(prefix == null ? "" : prefix, reader.getNamespaceURI(idx)); //$NON-NLS-1$
+                    }
+                    return new XmlRootElement(reader.getName(), namespaces);
+                }
+            }
+            return null;
+        } catch (XMLStreamException e) {
+            return null;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Cheap check so that binary content is rejected without creating a reader: after an
+     * optional byte order mark and whitespace, XML content starts with '&lt;'.
+     * @param header
+     */
+    private static boolean startsLikeXml(byte[] header) {
+        int idx = 0;
+        if (header.length >= 3 && (header[0] & 0xff) == 0xef && (header[1] & 0xff) == 0xbb && (header[2] & 0xff) == 0xbf) {
+            idx = 3;
+        } else if (header.length >= 2 && ((header[0] & 0xff) == 0xfe || (header[0] & 0xff) == 0xff)) {
+            // UTF-16 - leave it to the parser
+            return true;
+        }
+        for (; idx < header.length; idx++) {
+            byte b = header[idx];
+            if (b == '<') {
+                return true;
+            }
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return name.toString();
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.common;
+
+import java.io.ByteArrayInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.overlord.sramp.common.xml.XmlRootElement;
+
+/**
+ * Unit test for the {@link ArtifactContent} class.
+ */
+public class ArtifactContentTest {
+
+    @Test
+    public void testHashes() throws Exception {
+        ArtifactContent content = new ArtifactContent("test.txt", new ByteArrayInputStream("hello world".getBytes("UTF-8"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        try {
+            Assert.assertEquals("5eb63bbbe01eeed093cb22bb8f5acdc3", content.getMd5Hash()); //$NON-NLS-1$
+            Assert.assertEquals("2aae6c35c94fcfb415dbe95f408b9ce91ee846ed", content.getSha1Hash()); //$NON-NLS-1$
+            Assert.assertEquals("hello world", IOUtils.toString(content.getInputStream(), "UTF-8")); //$NON-NLS-1$ //$NON-NLS-2$
+        } finally {
+            content.cleanup();
+        }
+    }
+
+    @Test
+    public void testHeader() throws Exception {
+        String xml = "<?xml version=\"1.0\"?>\n<wsdl:definitions xmlns:wsdl=\"http://schemas.xmlsoap.org/wsdl/\" xmlns:tns=\"urn:test\"/>"; //$NON-NLS-1$
+        ArtifactContent content = new ArtifactContent("test.wsdl", new ByteArrayInputStream(xml.getBytes("UTF-8"))); //$NON-NLS-1$ //$NON-NLS-2$
+        try {
+            Assert.assertEquals(xml, new String(content.getHeader(), "UTF-8")); //$NON-NLS-1$
+            XmlRootElement root = content.getXmlRootElement();
+            Assert.assertNotNull(root);
+            Assert.assertEquals("http://schemas.xmlsoap.org/wsdl/", root.getNamespaceURI()); //$NON-NLS-1$
+            Assert.assertEquals("definitions", root.getLocalName()); //$NON-NLS-1$
+            Assert.assertEquals("urn:test", root.getNamespaces().get("tns")); //$NON-NLS-1$ //$NON-NLS-2$
+        } finally {
+            content.cleanup();
+        }
+
+        // Only the start of large content is kept, and that's enough to find the root element
+        StringBuilder large = new StringBuilder("<root xmlns=\"urn:test\">"); //$NON-NLS-1$
+        while (large.length() < ArtifactContent.HEADER_SIZE * 2) {
+            large.append("<child/>"); //$NON-NLS-1$
+        }
+        large.append("</root>"); //$NON-NLS-1$
+        content = new ArtifactContent("large.xml", new ByteArrayInputStream(large.toString().getBytes("UTF-8"))); //$NON-NLS-1$ //$NON-NLS-2$
+        try {
+            Assert.assertEquals(ArtifactContent.HEADER_SIZE, content.getHeader().length);
+            Assert.assertEquals("root", content.getXmlRootElement().getLocalName()); //$NON-NLS-1$
+        } finally {
+            content.cleanup();
+        }
+
+        content = new ArtifactContent("test.txt", new ByteArrayInputStream("hello world".getBytes("UTF-8"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        try {
+            Assert.assertNull(content.getXmlRootElement());
+        } finally {
+            content.cleanup();
+        }
+    }
+
+}
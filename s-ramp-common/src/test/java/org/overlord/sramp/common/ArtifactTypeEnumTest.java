@@ -0,0 +1,61 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.common;
+
+import java.lang.reflect.Modifier;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.Artifact;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.XsdType;
+
+/**
+ * Unit test for the {@link ArtifactTypeEnum} class.
+ */
+public class ArtifactTypeEnumTest {
+
+    /**
+     * Every (concrete) artifact type must round-trip through the {@link Artifact} wrapper.
+     * @throws Exception
+     */
+    @Test
+    public void testWrapUnwrap() throws Exception {
+        for (ArtifactTypeEnum type : ArtifactTypeEnum.values()) {
+            if (Modifier.isAbstract(type.getTypeClass().getModifiers()) || type.getTypeClass() == XsdType.class) {
+                continue;
+            }
+            BaseArtifactType artifact = type.getTypeClass().newInstance();
+            Artifact wrapper = new Artifact();
+            type.wrap(wrapper, artifact);
+            Assert.assertSame(type.name(), artifact, type.unwrap(wrapper));
+            Assert.assertSame(type.name(), type, ArtifactTypeEnum.valueOfTypeClass(artifact.getClass()));
+            Assert.assertSame(type.name(), type, ArtifactType.valueOf(wrapper, null).getArtifactType());
+            Assert.assertSame(type.name(), type, ArtifactType.valueOf(wrapper, type.name()).getArtifactType());
+            Assert.assertSame(type.name(), type, ArtifactTypeEnum.valueOf(type.getApiType()));
+        }
+    }
+
+    @Test
+    public void testUnwrapOtherType() throws Exception {
+        Artifact wrapper = new Artifact();
+        ArtifactTypeEnum.Document.wrap(wrapper, new org.oasis_open.docs.s_ramp.ns.s_ramp_v1.Document());
+        Assert.assertNull(ArtifactTypeEnum.XsdDocument.unwrap(wrapper));
+        Assert.assertNull(ArtifactTypeEnum.XsdType.unwrap(wrapper));
+        Assert.assertEquals(ArtifactTypeEnum.Document, ArtifactType.valueOf(wrapper, "XsdDocument").getArtifactType()); //$NON-NLS-1$
+    }
+
+}
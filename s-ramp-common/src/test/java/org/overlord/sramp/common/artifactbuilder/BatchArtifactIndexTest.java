@@ -0,0 +1,144 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.common.artifactbuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactEnum;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.ElementDeclaration;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.ExtendedArtifactType;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.XsdDocument;
+import org.overlord.sramp.common.SrampModelUtils;
+
+/**
+ * Unit test for the {@link BatchArtifactIndex} class.
+ */
+public class BatchArtifactIndexTest {
+
+    @Test
+    public void testFindByQName() throws Exception {
+        BatchArtifactIndex index = new BatchArtifactIndex();
+        ElementDeclaration foo = element("urn:test", "foo"); //$NON-NLS-1$ //$NON-NLS-2$
+        ElementDeclaration bar = element("urn:test", "bar"); //$NON-NLS-1$ //$NON-NLS-2$
+        ElementDeclaration otherFoo = element("urn:other", "foo"); //$NON-NLS-1$ //$NON-NLS-2$
+        index.add(foo);
+        index.add(bar);
+        index.add(otherFoo);
+
+        Collection<BaseArtifactType> found = index.findArtifacts("xsd", "ElementDeclaration", //$NON-NLS-1$ //$NON-NLS-2$
+                qname("urn:test", "foo")); //$NON-NLS-1$ //$NON-NLS-2$
+        Assert.assertEquals(1, found.size());
+        Assert.assertSame(foo, found.iterator().next());
+
+        found = index.findArtifacts("xsd", "ElementDeclaration", qname("urn:test", "baz")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        Assert.assertTrue(found.isEmpty());
+        found = index.findArtifacts("xsd", "ComplexTypeDeclaration", qname("urn:test", "foo")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        Assert.assertTrue(found.isEmpty());
+    }
+
+    @Test
+    public void testNewestFirst() throws Exception {
+        BatchArtifactIndex index = new BatchArtifactIndex();
+        ElementDeclaration first = element("urn:test", "foo"); //$NON-NLS-1$ //$NON-NLS-2$
+        index.add(first);
+        // Query once, so that adding another artifact has to invalidate the lookup
+        Assert.assertEquals(1, index.findArtifacts("xsd", "ElementDeclaration", qname("urn:test", "foo")).size()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+
+        ElementDeclaration second = element("urn:test", "foo"); //$NON-NLS-1$ //$NON-NLS-2$
+        index.add(second);
+        List<BaseArtifactType> found = new ArrayList<BaseArtifactType>(
+                index.findArtifacts("xsd", "ElementDeclaration", qname("urn:test", "foo"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        Assert.assertEquals(2, found.size());
+        Assert.assertSame(second, found.get(0));
+        Assert.assertSame(first, found.get(1));
+    }
+
+    @Test
+    public void testFindByTargetNamespace() throws Exception {
+        BatchArtifactIndex index = new BatchArtifactIndex();
+        XsdDocument xsd = new XsdDocument();
+        xsd.setArtifactType(BaseArtifactEnum.XSD_DOCUMENT);
+        xsd.setUuid(UUID.randomUUID().toString());
+        xsd.setName("test.xsd"); //$NON-NLS-1$
+        xsd.setTargetNamespace("urn:test"); //$NON-NLS-1$
+        index.add(xsd);
+
+        Map<String, String> criteria = new HashMap<String, String>();
+        criteria.put("targetNamespace", "urn:test"); //$NON-NLS-1$ //$NON-NLS-2$
+        Collection<BaseArtifactType> found = index.findArtifacts("xsd", "XsdDocument", criteria); //$NON-NLS-1$ //$NON-NLS-2$
+        Assert.assertEquals(1, found.size());
+        Assert.assertSame(xsd, found.iterator().next());
+    }
+
+    @Test
+    public void testFindByCustomProperty() throws Exception {
+        BatchArtifactIndex index = new BatchArtifactIndex();
+        ExtendedArtifactType javaClass = new ExtendedArtifactType();
+        javaClass.setArtifactType(BaseArtifactEnum.EXTENDED_ARTIFACT_TYPE);
+        javaClass.setExtendedType("JavaClass"); //$NON-NLS-1$
+        javaClass.setUuid(UUID.randomUUID().toString());
+        javaClass.setName("Foo"); //$NON-NLS-1$
+        SrampModelUtils.setCustomProperty(javaClass, "packageName", "org.example"); //$NON-NLS-1$ //$NON-NLS-2$
+        SrampModelUtils.setCustomProperty(javaClass, "className", "Foo"); //$NON-NLS-1$ //$NON-NLS-2$
+        index.add(javaClass);
+
+        Map<String, String> criteria = new HashMap<String, String>();
+        criteria.put("packageName", "org.example"); //$NON-NLS-1$ //$NON-NLS-2$
+        criteria.put("className", "Foo"); //$NON-NLS-1$ //$NON-NLS-2$
+        Collection<BaseArtifactType> found = index.findArtifacts("ext", "JavaClass", criteria); //$NON-NLS-1$ //$NON-NLS-2$
+        Assert.assertEquals(1, found.size());
+        Assert.assertSame(javaClass, found.iterator().next());
+
+        criteria.put("className", "Bar"); //$NON-NLS-1$ //$NON-NLS-2$
+        Assert.assertTrue(index.findArtifacts("ext", "JavaClass", criteria).isEmpty()); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    @Test
+    public void testUnsupportedCriteria() throws Exception {
+        BatchArtifactIndex index = new BatchArtifactIndex();
+        index.add(element("urn:test", "foo")); //$NON-NLS-1$ //$NON-NLS-2$
+
+        Map<String, String> criteria = new HashMap<String, String>();
+        criteria.put("createdBy", "admin"); //$NON-NLS-1$ //$NON-NLS-2$
+        Assert.assertNull(index.findArtifacts("xsd", "ElementDeclaration", criteria)); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    private static ElementDeclaration element(String namespace, String ncName) {
+        ElementDeclaration element = new ElementDeclaration();
+        element.setArtifactType(BaseArtifactEnum.ELEMENT_DECLARATION);
+        element.setUuid(UUID.randomUUID().toString());
+        element.setName(ncName);
+        element.setNamespace(namespace);
+        element.setNCName(ncName);
+        return element;
+    }
+
+    private static Map<String, String> qname(String namespace, String ncName) {
+        Map<String, String> criteria = new HashMap<String, String>();
+        criteria.put("namespace", namespace); //$NON-NLS-1$
+        criteria.put("ncName", ncName); //$NON-NLS-1$
+        return criteria;
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.common.artifactbuilder;
+
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactEnum;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.PolicyDocument;
+import org.overlord.sramp.common.ArtifactContent;
+
+/**
+ * Unit test for the {@link PolicyArtifactBuilder} class.  The policy is streamed, and must come out the
+ * same as when it is parsed into a DOM.
+ */
+public class PolicyArtifactBuilderTest {
+
+    private static final String POLICY = "<wsp:Policy xmlns:wsp=\"http://www.w3.org/ns/ws-policy\"" //$NON-NLS-1$
+            + " xmlns:sp=\"http://docs.oasis-open.org/ws-sx/ws-securitypolicy/200702\">" //$NON-NLS-1$
+            + "<wsp:ExactlyOne><wsp:All><sp:TransportBinding><wsp:Policy><sp:IncludeTimestamp/>" //$NON-NLS-1$
+            + "</wsp:Policy></sp:TransportBinding></wsp:All></wsp:ExactlyOne></wsp:Policy>"; //$NON-NLS-1$
+
+    @Test
+    public void testStreamingMatchesDom() throws Exception {
+        assertSameOutput("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>" + POLICY, "ISO-8859-1"); //$NON-NLS-1$ //$NON-NLS-2$
+        assertSameOutput("<?xml version=\"1.0\"?>" + POLICY, "UTF-8"); //$NON-NLS-1$ //$NON-NLS-2$
+        assertSameOutput(POLICY, "UTF-8"); //$NON-NLS-1$
+    }
+
+    @Test
+    public void testMalformed() throws Exception {
+        String malformed = "<wsp:Policy xmlns:wsp=\"http://www.w3.org/ns/ws-policy\"><wsp:All></wsp:Policy>"; //$NON-NLS-1$
+        assertMalformed(new PolicyArtifactBuilder(), malformed);
+        assertMalformed(new XmlArtifactBuilder(false), malformed);
+    }
+
+    /**
+     * Builds the policy with both the (streaming) policy builder and a DOM builder, and asserts that
+     * they produce the same output.
+     * @param policy
+     * @param expectedEncoding
+     * @throws Exception
+     */
+    private static void assertSameOutput(String policy, String expectedEncoding) throws Exception {
+        PolicyArtifactBuilder streamingBuilder = new PolicyArtifactBuilder();
+        PolicyDocument streamed = build(streamingBuilder, policy);
+        XmlArtifactBuilder domBuilder = new XmlArtifactBuilder(false);
+        PolicyDocument parsed = build(domBuilder, policy);
+
+        Assert.assertEquals(expectedEncoding, streamed.getContentEncoding());
+        Assert.assertEquals(parsed.getContentEncoding(), streamed.getContentEncoding());
+        Assert.assertEquals(domBuilder.getDerivedArtifacts(), streamingBuilder.getDerivedArtifacts());
+        Assert.assertTrue(streamingBuilder.getDerivedArtifacts().isEmpty());
+        Assert.assertEquals(parsed.getRelationship(), streamed.getRelationship());
+    }
+
+    private static void assertMalformed(XmlArtifactBuilder builder, String policy) {
+        try {
+            build(builder, policy);
+            fail("Expected an IOException."); //$NON-NLS-1$
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private static PolicyDocument build(XmlArtifactBuilder builder, String policy) throws IOException {
+        PolicyDocument policyDocument = new PolicyDocument();
+        policyDocument.setArtifactType(BaseArtifactEnum.POLICY_DOCUMENT);
+        policyDocument.setUuid(UUID.randomUUID().toString());
+        policyDocument.setName("policy.xml"); //$NON-NLS-1$
+        builder.buildArtifacts(policyDocument, new ArtifactContent("policy.xml", //$NON-NLS-1$
+                new ByteArrayInputStream(policy.getBytes("ISO-8859-1")))); //$NON-NLS-1$
+        builder.buildRelationships(new MockRelationshipContext());
+        return policyDocument;
+    }
+
+}
@@ -23,6 +23,8 @@ import org.overlord.sramp.common.ArtifactContent;
 
 import javax.xml.datatype.DatatypeFactory;
 import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.xpath.XPathExpressionException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
 
@@ -125,6 +127,146 @@ public class XsdDocumentArtifactBuilderTest {
 		}
 	}
 
+	@Test
+	public void testStreamingMatchesDom() throws Exception {
+		assertSameOutput("ws-humantask.xsd", new XsdDocumentArtifactBuilder(), new XsdDocumentArtifactBuilder(false)); //$NON-NLS-1$
+		XsdDocument streamed = assertSameOutput("references.xsd", new XsdDocumentArtifactBuilder(), //$NON-NLS-1$
+				new XsdDocumentArtifactBuilder(false));
+
+		// Only the top-level declarations are derived, not the nested or redefined ones
+		Assert.assertEquals("urn:test:references", streamed.getTargetNamespace()); //$NON-NLS-1$
+		Assert.assertEquals("ISO-8859-1", streamed.getContentEncoding()); //$NON-NLS-1$
+		Assert.assertEquals(1, streamed.getImportedXsds().size());
+		Assert.assertEquals(1, streamed.getIncludedXsds().size());
+		Assert.assertEquals(1, streamed.getRedefinedXsds().size());
+	}
+
+	@Test
+	public void testInternalEntities() throws Exception {
+		XsdDocumentArtifactBuilder streamingBuilder = new XsdDocumentArtifactBuilder();
+		XsdDocument streamed = assertSameOutput("entities.xsd", streamingBuilder, new XsdDocumentArtifactBuilder(false)); //$NON-NLS-1$
+
+		// The entities were expanded (the same way the DOM parser expands them)
+		Assert.assertEquals("urn:test:entities", streamed.getTargetNamespace()); //$NON-NLS-1$
+		Assert.assertEquals(1, streamed.getIncludedXsds().size());
+		Set<String> qnames = new HashSet<String>();
+		for (String description : describe(streamingBuilder.getDerivedArtifacts())) {
+			qnames.add(description.substring(description.indexOf(' ') + 1));
+		}
+		Assert.assertEquals(set("{urn:test:entities}entityElement", "{urn:test:entities}entityAttribute", //$NON-NLS-1$ //$NON-NLS-2$
+				"{urn:test:entities}entitySimpleType", "{urn:test:entities}entityType"), qnames); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testDeprecatedDomMethods() throws Exception {
+		assertSameOutput("ws-humantask.xsd", new XsdDocumentArtifactBuilder(), new DeprecatedXsdDocumentArtifactBuilder()); //$NON-NLS-1$
+		assertSameOutput("references.xsd", new XsdDocumentArtifactBuilder(), new DeprecatedXsdDocumentArtifactBuilder()); //$NON-NLS-1$
+	}
+
+	/**
+	 * Builds the given sample XSD with both builders, and asserts that they derived the same artifacts and
+	 * references.
+	 * @param name
+	 * @param expectedBuilder
+	 * @param actualBuilder
+	 * @return the primary artifact built by the expected builder
+	 * @throws Exception
+	 */
+	private XsdDocument assertSameOutput(String name, XsdDocumentArtifactBuilder expectedBuilder,
+			XsdDocumentArtifactBuilder actualBuilder) throws Exception {
+		XsdDocument expected = build(name, expectedBuilder);
+		XsdDocument actual = build(name, actualBuilder);
+		Assert.assertEquals(describe(expectedBuilder.getDerivedArtifacts()), describe(actualBuilder.getDerivedArtifacts()));
+		Assert.assertEquals(expected.getTargetNamespace(), actual.getTargetNamespace());
+		Assert.assertEquals(expected.getContentEncoding(), actual.getContentEncoding());
+		Assert.assertEquals(expected.getImportedXsds().size(), actual.getImportedXsds().size());
+		Assert.assertEquals(expected.getIncludedXsds().size(), actual.getIncludedXsds().size());
+		Assert.assertEquals(expected.getRedefinedXsds().size(), actual.getRedefinedXsds().size());
+		Assert.assertEquals(expectedBuilder.relationshipSources.size(), actualBuilder.relationshipSources.size());
+		return expected;
+	}
+
+	/**
+	 * Builds (the artifacts and relationships of) one of the sample XSDs.
+	 * @param name
+	 * @param builder
+	 * @throws Exception
+	 */
+	private XsdDocument build(String name, XsdDocumentArtifactBuilder builder) throws Exception {
+		XsdDocument xsdDocument = new XsdDocument();
+		xsdDocument.setArtifactType(BaseArtifactEnum.XSD_DOCUMENT);
+		xsdDocument.setUuid(UUID.randomUUID().toString());
+		xsdDocument.setName(name);
+		InputStream content = getClass().getResourceAsStream("/sample-files/xsd/" + name); //$NON-NLS-1$
+		try {
+			builder.buildArtifacts(xsdDocument, new ArtifactContent(name, content));
+			builder.buildRelationships(new MockRelationshipContext());
+		} finally {
+			IOUtils.closeQuietly(content);
+		}
+		// Every reference was resolved (by the mock context)
+		List<XsdDocumentTarget> targets = new ArrayList<XsdDocumentTarget>(xsdDocument.getImportedXsds());
+		targets.addAll(xsdDocument.getIncludedXsds());
+		targets.addAll(xsdDocument.getRedefinedXsds());
+		for (XsdDocumentTarget target : targets) {
+			Assert.assertNotNull(target.getValue());
+		}
+		return xsdDocument;
+	}
+
+	/**
+	 * Describes the derived XSD declarations (type and QName), in order.
+	 * @param derivedArtifacts
+	 */
+	private static List<String> describe(Collection<BaseArtifactType> derivedArtifacts) {
+		List<String> rval = new ArrayList<String>();
+		for (BaseArtifactType derivedArtifact : derivedArtifacts) {
+			String qname = null;
+			if (derivedArtifact instanceof ElementDeclaration) {
+				ElementDeclaration decl = (ElementDeclaration) derivedArtifact;
+				qname = "{" + decl.getNamespace() + "}" + decl.getNCName(); //$NON-NLS-1$ //$NON-NLS-2$
+			} else if (derivedArtifact instanceof AttributeDeclaration) {
+				AttributeDeclaration decl = (AttributeDeclaration) derivedArtifact;
+				qname = "{" + decl.getNamespace() + "}" + decl.getNCName(); //$NON-NLS-1$ //$NON-NLS-2$
+			} else if (derivedArtifact instanceof SimpleTypeDeclaration) {
+				SimpleTypeDeclaration decl = (SimpleTypeDeclaration) derivedArtifact;
+				qname = "{" + decl.getNamespace() + "}" + decl.getNCName(); //$NON-NLS-1$ //$NON-NLS-2$
+			} else if (derivedArtifact instanceof ComplexTypeDeclaration) {
+				ComplexTypeDeclaration decl = (ComplexTypeDeclaration) derivedArtifact;
+				qname = "{" + decl.getNamespace() + "}" + decl.getNCName(); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			rval.add(derivedArtifact.getArtifactType() + " " + qname); //$NON-NLS-1$
+		}
+		return rval;
+	}
+
+	/**
+	 * A DOM builder that derives the XSD the way subclasses written against the old (XPath)
+	 * methods do.
+	 */
+	private static class DeprecatedXsdDocumentArtifactBuilder extends XsdDocumentArtifactBuilder {
+
+		public DeprecatedXsdDocumentArtifactBuilder() {
+			super(false);
+		}
+
+		@SuppressWarnings("deprecation")
+		@Override
+		protected void derive() throws IOException {
+			try {
+				XsdDocument xsdDocument = (XsdDocument) getPrimaryArtifact();
+				String targetNS = rootElement.getAttribute("targetNamespace"); //$NON-NLS-1$
+				xsdDocument.setTargetNamespace(targetNS);
+				deriveXsd(rootElement);
+				processImportedXsds(xsdDocument.getImportedXsds(), rootElement, targetNS);
+				processIncludedXsds(xsdDocument.getIncludedXsds(), rootElement, targetNS);
+				processRedefinedXsds(xsdDocument.getRedefinedXsds(), rootElement, targetNS);
+			} catch (XPathExpressionException e) {
+				throw new IOException(e);
+			}
+		}
+	}
+
 	/**
 	 * Make a set from values.
 	 * @param values
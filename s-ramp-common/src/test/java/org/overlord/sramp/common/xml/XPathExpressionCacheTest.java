@@ -0,0 +1,69 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.common.xml;
+
+import java.io.StringReader;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPathConstants;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.overlord.sramp.common.query.xpath.StaticNamespaceContext;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+/**
+ * Unit test for the {@link XPathExpressionCache} class.
+ */
+public class XPathExpressionCacheTest {
+
+    @Test
+    public void testCompiledOncePerNamespaceContext() throws Exception {
+        StaticNamespaceContext ctx1 = new StaticNamespaceContext();
+        ctx1.addMapping("a", "urn:test:a"); //$NON-NLS-1$ //$NON-NLS-2$
+        StaticNamespaceContext ctx2 = new StaticNamespaceContext();
+        ctx2.addMapping("a", "urn:test:a"); //$NON-NLS-1$ //$NON-NLS-2$
+        StaticNamespaceContext ctx3 = new StaticNamespaceContext();
+        ctx3.addMapping("a", "urn:test:other"); //$NON-NLS-1$ //$NON-NLS-2$
+
+        String expression = "/a:root/a:child/@name"; //$NON-NLS-1$
+        Assert.assertSame(XPathExpressionCache.getExpression(ctx1, expression),
+                XPathExpressionCache.getExpression(ctx2, expression));
+        Assert.assertNotSame(XPathExpressionCache.getExpression(ctx1, expression),
+                XPathExpressionCache.getExpression(ctx3, expression));
+
+        // Changing the mappings must not hand back an expression compiled against the old ones
+        ctx2.addMapping("b", "urn:test:b"); //$NON-NLS-1$ //$NON-NLS-2$
+        Assert.assertNotSame(XPathExpressionCache.getExpression(ctx1, expression),
+                XPathExpressionCache.getExpression(ctx2, expression));
+    }
+
+    @Test
+    public void testEvaluate() throws Exception {
+        String xml = "<root xmlns=\"urn:test:a\"><child name=\"one\"/></root>"; //$NON-NLS-1$
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document document = factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+
+        StaticNamespaceContext ctx = new StaticNamespaceContext();
+        ctx.addMapping("a", "urn:test:a"); //$NON-NLS-1$ //$NON-NLS-2$
+        String expression = "/a:root/a:child/@name"; //$NON-NLS-1$
+        Assert.assertEquals("one", XPathExpressionCache.evaluate(ctx, expression, document, XPathConstants.STRING)); //$NON-NLS-1$
+        Assert.assertEquals("one", XPathExpressionCache.evaluate(ctx, expression, document, XPathConstants.STRING)); //$NON-NLS-1$
+    }
+
+}
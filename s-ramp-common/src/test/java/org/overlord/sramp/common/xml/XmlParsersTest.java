@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.common.xml;
+
+import java.io.File;
+import java.io.StringReader;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+/**
+ * Unit test for the {@link XmlParsers} class.
+ */
+public class XmlParsersTest {
+
+    @Test
+    public void testDocumentBuilderReused() throws Exception {
+        DocumentBuilder builder = XmlParsers.getDocumentBuilder();
+        Document document = builder.parse(new InputSource(new StringReader("<a xmlns=\"urn:test\"><b/></a>"))); //$NON-NLS-1$
+        Assert.assertEquals("urn:test", document.getDocumentElement().getNamespaceURI()); //$NON-NLS-1$
+
+        Assert.assertSame(builder, XmlParsers.getDocumentBuilder());
+        document = XmlParsers.getDocumentBuilder().parse(new InputSource(new StringReader("<c/>"))); //$NON-NLS-1$
+        Assert.assertEquals("c", document.getDocumentElement().getLocalName()); //$NON-NLS-1$
+    }
+
+    @Test
+    public void testExternalEntitiesNotLoaded() throws Exception {
+        File entity = File.createTempFile("external-entity", ".txt"); //$NON-NLS-1$ //$NON-NLS-2$
+        try {
+            FileUtils.writeStringToFile(entity, "SECRET"); //$NON-NLS-1$
+            String xml = "<!DOCTYPE a [<!ENTITY ext SYSTEM \"" + entity.toURI() + "\">]><a>&ext;</a>"; //$NON-NLS-1$ //$NON-NLS-2$
+
+            // The DOM parser skips the entity reference, leaving it unresolved
+            Document document = XmlParsers.getDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+            Assert.assertEquals("", document.getDocumentElement().getTextContent()); //$NON-NLS-1$
+            Assert.assertEquals(0, document.getDocumentElement().getChildNodes().getLength());
+
+            // The StAX parser skips it too
+            Assert.assertEquals("", streamText(xml)); //$NON-NLS-1$
+
+            // ... and never loads an external DTD
+            xml = "<!DOCTYPE a SYSTEM \"" + entity.toURI() + "\"><a>b</a>"; //$NON-NLS-1$ //$NON-NLS-2$
+            Assert.assertEquals("b", streamText(xml)); //$NON-NLS-1$
+        } finally {
+            entity.delete();
+        }
+    }
+
+    @Test
+    public void testInternalEntitiesExpanded() throws Exception {
+        String xml = "<!DOCTYPE a [<!ENTITY int \"value\">]><a b=\"&int;\">&int;</a>"; //$NON-NLS-1$
+
+        Document document = XmlParsers.getDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+        Assert.assertEquals("value", document.getDocumentElement().getTextContent()); //$NON-NLS-1$
+        Assert.assertEquals("value", document.getDocumentElement().getAttribute("b")); //$NON-NLS-1$ //$NON-NLS-2$
+
+        Assert.assertEquals("value", streamText(xml)); //$NON-NLS-1$
+        XMLStreamReader reader = XmlParsers.getXMLInputFactory().createXMLStreamReader(new StringReader(xml));
+        try {
+            // (nextTag() doesn't skip the DTD event)
+            while (reader.next() != XMLStreamConstants.START_ELEMENT) {
+            }
+            Assert.assertEquals("value", reader.getAttributeValue(null, "b")); //$NON-NLS-1$ //$NON-NLS-2$
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testXMLInputFactory() throws Exception {
+        XMLStreamReader reader = XmlParsers.getXMLInputFactory().createXMLStreamReader(new StringReader("<a xmlns=\"urn:test\"/>")); //$NON-NLS-1$
+        try {
+            reader.nextTag();
+            Assert.assertEquals("urn:test", reader.getNamespaceURI()); //$NON-NLS-1$
+        } finally {
+            reader.close();
+        }
+        Assert.assertSame(XmlParsers.getXMLInputFactory(), XmlParsers.getXMLInputFactory());
+    }
+
+    /**
+     * Streams the given document, returning all of its text.
+     * @param xml
+     */
+    private static String streamText(String xml) throws XMLStreamException {
+        XMLStreamReader reader = XmlParsers.getXMLInputFactory().createXMLStreamReader(new StringReader(xml));
+        StringBuilder text = new StringBuilder();
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.CHARACTERS) {
+                    text.append(reader.getText());
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return text.toString();
+    }
+
+}
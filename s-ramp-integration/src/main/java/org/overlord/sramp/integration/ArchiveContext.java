@@ -25,6 +25,7 @@ import org.overlord.sramp.common.ArtifactType;
 import java.io.File;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -48,7 +49,8 @@ public class ArchiveContext {
 
     private ArtifactType archiveArtifactType = null;
 
-    private Map<String, Object> customContext = new HashMap<String, Object>();
+    // Entries of an expanded archive are detected in parallel (see ArtifactProcessingPool)
+    private Map<String, Object> customContext = Collections.synchronizedMap(new HashMap<String, Object>());
 
     public ArchiveContext(ArtifactContent artifactContent, File archiveWorkDir) {
         this.artifactContent = artifactContent;
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.integration;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.overlord.sramp.common.SrampConfig;
+
+/**
+ * A bounded pool of threads that does the CPU-bound, per-artifact work of a batch: type detection,
+ * mime type detection and running the {@link org.overlord.sramp.common.artifactbuilder.ArtifactBuilder}s.
+ * The work for each artifact is independent of the others, so it runs in parallel, while the caller
+ * consumes the results (in their original order) to do the parts that are not thread safe, like
+ * writing to the repository.
+ * <br/>
+ * The pool size comes from {@link SrampConfig#getArtifactProcessingThreads()}.  With a size of 1,
+ * every task is simply run on the calling thread when it is submitted.
+ */
+public class ArtifactProcessingPool {
+
+    private static ExecutorService executor = null;
+
+    /**
+     * Submits a task.
+     *
+     * @param task
+     * @return the task's (eventual) result
+     */
+    public static <T> Future<T> submit(Callable<T> task) {
+        ExecutorService executor = getExecutor();
+        if (executor == null) {
+            FutureTask<T> future = new FutureTask<T>(task);
+            future.run();
+            return future;
+        }
+        return executor.submit(task);
+    }
+
+    /**
+     * Waits for the result of a submitted task.  If the task failed, its exception is thrown.
+     *
+     * @param future
+     * @return the task's result
+     * @throws Exception
+     */
+    public static <T> T get(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Stops the pool's threads.  The pool is re-created if another task is submitted.
+     */
+    public static synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * Returns the executor, creating it if necessary, or null if tasks should be run on the
+     * calling thread.
+     */
+    private static synchronized ExecutorService getExecutor() {
+        int threads = SrampConfig.getArtifactProcessingThreads();
+        if (threads <= 1) {
+            return null;
+        }
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(threads, new WorkerThreadFactory());
+        }
+        return executor;
+    }
+
+    /**
+     * Creates the (daemon) worker threads.  Artifact builders and type detectors may be loaded
+     * through the context classloader, so the workers use the one that loaded this class.
+     */
+    private static final class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadCounter = new AtomicInteger();
+
+        /**
+         * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+         */
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "S-RAMP Artifact Processing " + threadCounter.incrementAndGet()); //$NON-NLS-1$
+            thread.setDaemon(true);
+            thread.setContextClassLoader(ArtifactProcessingPool.class.getClassLoader());
+            return thread;
+        }
+    }
+
+}
@@ -38,6 +38,11 @@ public interface ArtifactTypeDetector {
      * Returning 'null' signifies that the artifact type wasn't handled by this module and the remaining detectors
      * should be attempted.
      *
+     * Every detector in the chain is called for every artifact (including every entry of an expanded archive), so
+     * detectors that need to look at the content should use ArtifactContent#getHeader() or
+     * ArtifactContent#getXmlRootElement() (which are read once and shared by all detectors) rather than opening
+     * and parsing ArtifactContent#getInputStream().
+     *
      * @param content
      * @return ArtifactType if a specific type is detected, else null.
      */
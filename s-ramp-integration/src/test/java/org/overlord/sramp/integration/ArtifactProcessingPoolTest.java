@@ -0,0 +1,159 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.integration;
+
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.overlord.sramp.common.SrampConstants;
+
+/**
+ * Unit test for the {@link ArtifactProcessingPool}.
+ */
+public class ArtifactProcessingPoolTest {
+
+    private static final long TIMEOUT = 30;
+
+    @After
+    public void after() {
+        ArtifactProcessingPool.shutdown();
+        System.clearProperty(SrampConstants.SRAMP_CONFIG_ARTIFACT_PROCESSING_THREADS);
+    }
+
+    @Test
+    public void testSingleThread() throws Exception {
+        setThreads(1);
+        Future<Thread> future = ArtifactProcessingPool.submit(new CurrentThread());
+        // The task was run on the calling thread, before submit returned
+        Assert.assertTrue(future.isDone());
+        Assert.assertSame(Thread.currentThread(), ArtifactProcessingPool.get(future));
+    }
+
+    @Test
+    public void testPool() throws Exception {
+        setThreads(3);
+        // Each task waits for all of the others to start, which only works if they run in parallel
+        final CountDownLatch started = new CountDownLatch(3);
+        List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+        for (int i = 0; i < 3; i++) {
+            final int idx = i;
+            futures.add(ArtifactProcessingPool.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    started.countDown();
+                    if (!started.await(TIMEOUT, TimeUnit.SECONDS)) {
+                        throw new IllegalStateException("The tasks did not run in parallel."); //$NON-NLS-1$
+                    }
+                    return idx;
+                }
+            }));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            Assert.assertEquals(Integer.valueOf(i), ArtifactProcessingPool.get(futures.get(i)));
+        }
+
+        Thread worker = ArtifactProcessingPool.get(ArtifactProcessingPool.submit(new CurrentThread()));
+        Assert.assertNotSame(Thread.currentThread(), worker);
+        Assert.assertTrue(worker.isDaemon());
+        Assert.assertTrue(worker.getName().startsWith("S-RAMP Artifact Processing")); //$NON-NLS-1$
+        Assert.assertSame(ArtifactProcessingPool.class.getClassLoader(), worker.getContextClassLoader());
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        setThreads(2);
+        Thread first = ArtifactProcessingPool.get(ArtifactProcessingPool.submit(new CurrentThread()));
+        ArtifactProcessingPool.shutdown();
+        first.join(TimeUnit.SECONDS.toMillis(TIMEOUT));
+        Assert.assertFalse(first.isAlive());
+
+        // The pool is re-created
+        Thread second = ArtifactProcessingPool.get(ArtifactProcessingPool.submit(new CurrentThread()));
+        Assert.assertNotSame(first, second);
+        Assert.assertTrue(second.isAlive());
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        setThreads(1);
+        assertErrors();
+        setThreads(2);
+        assertErrors();
+    }
+
+    /**
+     * Asserts that {@link ArtifactProcessingPool#get(Future)} throws what the task threw.
+     */
+    private static void assertErrors() throws Exception {
+        final IOException exception = new IOException("Simulated failure."); //$NON-NLS-1$
+        Future<Object> future = ArtifactProcessingPool.submit(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                throw exception;
+            }
+        });
+        try {
+            ArtifactProcessingPool.get(future);
+            fail("Expected an IOException."); //$NON-NLS-1$
+        } catch (IOException e) {
+            Assert.assertSame(exception, e);
+        }
+
+        final Error error = new LinkageError("Simulated error."); //$NON-NLS-1$
+        future = ArtifactProcessingPool.submit(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                throw error;
+            }
+        });
+        try {
+            ArtifactProcessingPool.get(future);
+            fail("Expected a LinkageError."); //$NON-NLS-1$
+        } catch (LinkageError e) {
+            Assert.assertSame(error, e);
+        }
+    }
+
+    /**
+     * Sets the pool size.  The pool is shut down, so that the next task re-creates it with the new size.
+     * @param threads
+     */
+    private static void setThreads(int threads) {
+        ArtifactProcessingPool.shutdown();
+        System.setProperty(SrampConstants.SRAMP_CONFIG_ARTIFACT_PROCESSING_THREADS, String.valueOf(threads));
+    }
+
+    /**
+     * Returns the thread it runs on.
+     */
+    private static final class CurrentThread implements Callable<Thread> {
+        @Override
+        public Thread call() throws Exception {
+            return Thread.currentThread();
+        }
+    }
+
+}
@@ -20,13 +20,12 @@ import java.util.HashSet;
 import java.util.Set;
 
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 
 import org.overlord.sramp.common.query.xpath.StaticNamespaceContext;
+import org.overlord.sramp.common.xml.XPathExpressionCache;
+import org.overlord.sramp.common.xml.XmlParsers;
 import org.overlord.sramp.integration.switchyard.model.SwitchYardModel;
 import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
@@ -57,21 +56,13 @@ public class SwitchYardAppIndex {
      */
     private void index() {
         try {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(true);
-            factory.setValidating(false);
-            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-dtd-grammar", false); //$NON-NLS-1$
-            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false); //$NON-NLS-1$
-            DocumentBuilder builder = factory.newDocumentBuilder();
+            DocumentBuilder builder = XmlParsers.getDocumentBuilder();
             Document document = builder.parse(switchyardXml);
-            XPathFactory xPathfactory = XPathFactory.newInstance();
-            XPath xpath = xPathfactory.newXPath();
             StaticNamespaceContext nsCtx = new StaticNamespaceContext();
             SwitchYardModel.addNamespaceMappings(nsCtx);
-            xpath.setNamespaceContext(nsCtx);
 
             Element rootElement = document.getDocumentElement();
-            index(xpath, rootElement);
+            index(nsCtx, rootElement);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -79,11 +70,11 @@ public class SwitchYardAppIndex {
 
     /**
      * Index the switchyard XML.
-     * @param xpath
+     * @param nsCtx
      * @param rootElement
      * @throws XPathExpressionException
      */
-    private void index(XPath xpath, Element rootElement) throws XPathExpressionException {
+    private void index(StaticNamespaceContext nsCtx, Element rootElement) throws XPathExpressionException {
         AttributeValueParser attrParser = new AttributeValueParser() {
             @Override
             public String parse(String attributeValue) {
@@ -94,40 +85,40 @@ public class SwitchYardAppIndex {
             }
         };
 
-        indexJavaClassesFromAttributes(xpath, rootElement, "//bean:implementation.bean/@class"); //$NON-NLS-1$
-        indexJavaClassesFromAttributes(xpath, rootElement, "//sca:interface.java/@interface"); //$NON-NLS-1$
-        indexJavaClassesFromAttributes(xpath, rootElement, "//tf:transform.java/@from", attrParser); //$NON-NLS-1$
-        indexJavaClassesFromAttributes(xpath, rootElement, "//tf:transform.java/@to", attrParser); //$NON-NLS-1$
-        indexJavaClassesFromAttributes(xpath, rootElement, "//tf:transform.java/@class"); //$NON-NLS-1$
-        indexJavaClassesFromAttributes(xpath, rootElement, "//tf:transform.java/@bean"); //$NON-NLS-1$
-        indexJavaClassesFromAttributes(xpath, rootElement, "//tf:validate.java/@from", attrParser); //$NON-NLS-1$
-        indexJavaClassesFromAttributes(xpath, rootElement, "//tf:validate.java/@to", attrParser); //$NON-NLS-1$
-        indexJavaClassesFromAttributes(xpath, rootElement, "//tf:validate.java/@class"); //$NON-NLS-1$
-        indexJavaClassesFromAttributes(xpath, rootElement, "//tf:validate.java/@bean"); //$NON-NLS-1$
+        indexJavaClassesFromAttributes(nsCtx, rootElement, "//bean:implementation.bean/@class"); //$NON-NLS-1$
+        indexJavaClassesFromAttributes(nsCtx, rootElement, "//sca:interface.java/@interface"); //$NON-NLS-1$
+        indexJavaClassesFromAttributes(nsCtx, rootElement, "//tf:transform.java/@from", attrParser); //$NON-NLS-1$
+        indexJavaClassesFromAttributes(nsCtx, rootElement, "//tf:transform.java/@to", attrParser); //$NON-NLS-1$
+        indexJavaClassesFromAttributes(nsCtx, rootElement, "//tf:transform.java/@class"); //$NON-NLS-1$
+        indexJavaClassesFromAttributes(nsCtx, rootElement, "//tf:transform.java/@bean"); //$NON-NLS-1$
+        indexJavaClassesFromAttributes(nsCtx, rootElement, "//tf:validate.java/@from", attrParser); //$NON-NLS-1$
+        indexJavaClassesFromAttributes(nsCtx, rootElement, "//tf:validate.java/@to", attrParser); //$NON-NLS-1$
+        indexJavaClassesFromAttributes(nsCtx, rootElement, "//tf:validate.java/@class"); //$NON-NLS-1$
+        indexJavaClassesFromAttributes(nsCtx, rootElement, "//tf:validate.java/@bean"); //$NON-NLS-1$
     }
 
     /**
      * Indexes java classes found in attributes.
-     * @param xpath
+     * @param nsCtx
      * @param rootElement
      * @param expression
      * @throws XPathExpressionException
      */
-    private void indexJavaClassesFromAttributes(XPath xpath, Element rootElement, String expression) throws XPathExpressionException {
-        indexJavaClassesFromAttributes(xpath, rootElement, expression, null);
+    private void indexJavaClassesFromAttributes(StaticNamespaceContext nsCtx, Element rootElement, String expression) throws XPathExpressionException {
+        indexJavaClassesFromAttributes(nsCtx, rootElement, expression, null);
     }
 
     /**
      * Indexes java classes found in attributes.
-     * @param xpath
+     * @param nsCtx
      * @param rootElement
      * @param expression
      * @param attributeValueParser
      * @throws XPathExpressionException
      */
-    private void indexJavaClassesFromAttributes(XPath xpath, Element rootElement, String expression,
+    private void indexJavaClassesFromAttributes(StaticNamespaceContext nsCtx, Element rootElement, String expression,
             AttributeValueParser attributeValueParser) throws XPathExpressionException {
-        NodeList nodes = (NodeList) xpath.evaluate(expression, rootElement, XPathConstants.NODESET);
+        NodeList nodes = (NodeList) XPathExpressionCache.evaluate(nsCtx, expression, rootElement, XPathConstants.NODESET);
         for (int idx = 0; idx < nodes.getLength(); idx++) {
             Attr node = (Attr) nodes.item(idx);
             String beanName = null;
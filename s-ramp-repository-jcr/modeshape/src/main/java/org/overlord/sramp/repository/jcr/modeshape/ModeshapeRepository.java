@@ -19,6 +19,11 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.modeshape.common.collection.Problems;
 import org.modeshape.jcr.RepositoryConfiguration;
+import org.modeshape.jcr.api.Workspace;
+import org.modeshape.jcr.api.index.IndexColumnDefinitionTemplate;
+import org.modeshape.jcr.api.index.IndexDefinition.IndexKind;
+import org.modeshape.jcr.api.index.IndexDefinitionTemplate;
+import org.modeshape.jcr.api.index.IndexManager;
 import org.modeshape.jcr.api.nodetype.NodeTypeManager;
 import org.overlord.commons.services.ServiceRegistryUtil;
 import org.overlord.sramp.common.SrampConfig;
@@ -50,6 +55,20 @@ public class ModeshapeRepository extends JCRRepository {
 	private static Logger log = LoggerFactory.getLogger(ModeshapeRepository.class);
 	private static String S_RAMP_JNDI = "jcr/sramp";
 
+	/**
+	 * Indexes registered (when an index provider is available) on startup.  Each entry is
+	 * { index name, node type, property name, property type }.
+	 */
+	private static final String [][] INDEXES = {
+	    { "auditArtifactUuid", JCRConstants.SRAMP_AUDIT_ENTRY, JCRConstants.SRAMP_AUDIT_ARTIFACT_UUID, PropertyType.TYPENAME_STRING },
+	    { "auditWho", JCRConstants.SRAMP_AUDIT_ENTRY, JCRConstants.SRAMP_AUDIT_WHO, PropertyType.TYPENAME_STRING },
+	    { "auditCreatedBy", JCRConstants.SRAMP_AUDIT_ENTRY, JCRConstants.JCR_CREATED_BY, PropertyType.TYPENAME_STRING },
+	    { "auditSortId", JCRConstants.SRAMP_AUDIT_ENTRY, JCRConstants.SRAMP_AUDIT_SORT_ID, PropertyType.TYPENAME_LONG },
+	    { "auditType", JCRConstants.SRAMP_AUDIT_ENTRY, JCRConstants.SRAMP_AUDIT_TYPE, PropertyType.TYPENAME_STRING },
+	    { "classifiedBy", JCRConstants.SRAMP_BASE_ARTIFACT_TYPE, JCRConstants.SRAMP_CLASSIFIED_BY, PropertyType.TYPENAME_STRING },
+	    { "normalizedClassifiedBy", JCRConstants.SRAMP_BASE_ARTIFACT_TYPE, JCRConstants.SRAMP_NORMALIZED_CLASSIFIED_BY, PropertyType.TYPENAME_STRING }
+	};
+
 	private Repository repository;
 
 	private RepositoryFactory theFactory = null;
@@ -125,6 +144,7 @@ public class ModeshapeRepository extends JCRRepository {
     		}
 	    }
 		configureNodeTypes();
+		configureIndexes();
 	}
 
     /**
@@ -210,6 +230,42 @@ public class ModeshapeRepository extends JCRRepository {
 		}
 	}
 
+	/**
+	 * Called to register the S-RAMP specific indexes.  This must happen *after* the node types
+	 * have been registered.  Indexes are only registered if the configured index provider
+	 * (sramp.modeshape.index.provider, default "local") is available in the repository.
+	 */
+	private void configureIndexes() throws RepositoryException {
+	    Session session = null;
+	    try {
+	        session = JCRRepositoryFactory.getSession();
+	        if (!(session.getWorkspace() instanceof Workspace)) {
+	            return;
+	        }
+	        IndexManager indexManager = ((Workspace) session.getWorkspace()).getIndexManager();
+	        String providerName = SrampConfig.getConfigProperty("sramp.modeshape.index.provider", "local");
+	        if (!indexManager.getProviderNames().contains(providerName)) {
+	            log.info(Messages.i18n.format("INDEX_PROVIDER_NOT_FOUND", providerName));
+	            return;
+	        }
+	        for (String [] index : INDEXES) {
+	            IndexColumnDefinitionTemplate column = indexManager.createIndexColumnDefinitionTemplate();
+	            column.setPropertyName(index[2]);
+	            column.setColumnType(PropertyType.valueFromName(index[3]));
+	            IndexDefinitionTemplate template = indexManager.createIndexDefinitionTemplate();
+	            template.setName(index[0]);
+	            template.setProviderName(providerName);
+	            template.setKind(IndexKind.VALUE);
+	            template.setNodeTypeName(index[1]);
+	            template.setColumnDefinitions(column);
+	            indexManager.registerIndex(template, true);
+	            log.debug(Messages.i18n.format("REGISTERED_INDEX", index[0], index[1], index[2]));
+	        }
+	    } finally {
+	        JCRRepositoryFactory.logoutQuietly(session);
+	    }
+	}
+
 	/**
 	 * @see org.overlord.sramp.repository.jcr.JCRRepository#doShutdown()
 	 */
@@ -32,9 +32,15 @@ import org.overlord.sramp.common.audit.AuditEntryTypes;
 import org.overlord.sramp.common.audit.AuditItemTypes;
 import org.overlord.sramp.common.audit.AuditUtils;
 import org.overlord.sramp.common.ontology.SrampOntology;
+import org.overlord.sramp.repository.audit.AuditEntryFilter;
 import org.overlord.sramp.repository.audit.AuditEntrySet;
+import org.overlord.sramp.repository.jcr.JCRConstants;
+import org.overlord.sramp.repository.jcr.JCRRepositoryFactory;
+import org.overlord.sramp.repository.jcr.util.JCRUtils;
 import org.overlord.sramp.repository.jcr.modeshape.auth.MockSecurityContext;
 
+import javax.jcr.Node;
+import javax.jcr.Session;
 import javax.xml.datatype.DatatypeFactory;
 import javax.xml.datatype.XMLGregorianCalendar;
 import java.io.InputStream;
@@ -314,6 +320,131 @@ public class JCRAuditTest extends AbstractAuditingJCRPersistenceTest {
         Assert.assertEquals(2, re.getAuditItem().iterator().next().getProperty().size());
     }
 
+    @Test
+    public void testFilteredAuditEntries() throws Exception {
+        BaseArtifactType artifact = createArtifact(null, "hello", "world");
+        for (int i = 0; i < 3; i++) {
+            artifact.setDescription("Description " + i);
+            persistenceManager.updateArtifact(artifact, ArtifactType.Document());
+        }
+
+        // Filter by type
+        AuditEntryFilter filter = new AuditEntryFilter();
+        filter.getTypes().add(AuditEntryTypes.ARTIFACT_UPDATE);
+        AuditEntrySet entries = auditManager.getArtifactAuditEntries(artifact.getUuid(), filter);
+        Assert.assertEquals(3, entries.size());
+        for (AuditEntry entry : entries) {
+            Assert.assertEquals(AuditEntryTypes.ARTIFACT_UPDATE, entry.getType());
+        }
+        entries.close();
+
+        // Paging - the size is the total, the iterator only returns the page
+        filter = new AuditEntryFilter();
+        filter.setStartIndex(1);
+        filter.setCount(2);
+        entries = auditManager.getArtifactAuditEntries(artifact.getUuid(), filter);
+        Assert.assertEquals(4, entries.size());
+        List<AuditEntry> page = new ArrayList<AuditEntry>();
+        for (AuditEntry entry : entries) {
+            page.add(entry);
+        }
+        entries.close();
+        Assert.assertEquals(2, page.size());
+
+        // Last (partial) page - the total is still the total
+        filter.setStartIndex(3);
+        entries = auditManager.getArtifactAuditEntries(artifact.getUuid(), filter);
+        Assert.assertEquals(4, entries.size());
+        Assert.assertTrue(entries.iterator().hasNext());
+        entries.close();
+
+        // Keyset paging - everything before the last entry of the page
+        AuditEntry last = page.get(1);
+        filter = new AuditEntryFilter();
+        filter.setBeforeTime(last.getWhen().toGregorianCalendar().getTimeInMillis());
+        filter.setBeforeUuid(last.getUuid());
+        entries = auditManager.getArtifactAuditEntries(artifact.getUuid(), filter);
+        Assert.assertEquals(1, entries.size());
+        entries.close();
+
+        // Time range in the future
+        filter = new AuditEntryFilter();
+        filter.setFrom(new Date(System.currentTimeMillis() + 60000));
+        entries = auditManager.getArtifactAuditEntries(artifact.getUuid(), filter);
+        Assert.assertEquals(0, entries.size());
+        entries.close();
+    }
+
+    @Test
+    public void testDeleteArtifactKeepsAuditEntries() throws Exception {
+        BaseArtifactType artifact = createArtifact(null);
+        artifact.setDescription("Updated description.");
+        persistenceManager.updateArtifact(artifact, ArtifactType.Document());
+        AuditEntrySet entries = auditManager.getArtifactAuditEntries(artifact.getUuid());
+        Assert.assertEquals(2, entries.size());
+        entries.close();
+
+        persistenceManager.deleteArtifact(artifact.getUuid(), ArtifactType.Document());
+
+        entries = auditManager.getArtifactAuditEntries(artifact.getUuid());
+        Assert.assertEquals(3, entries.size());
+        Iterator<AuditEntry> iterator = entries.iterator();
+        AuditEntry deleteEntry = iterator.next();
+        Assert.assertEquals(AuditEntryTypes.ARTIFACT_DELETE, deleteEntry.getType());
+        Assert.assertEquals("junituser", deleteEntry.getWho());
+        Assert.assertEquals(AuditEntryTypes.ARTIFACT_UPDATE, iterator.next().getType());
+        Assert.assertEquals(AuditEntryTypes.ARTIFACT_ADD, iterator.next().getType());
+        entries.close();
+
+        AuditEntry fetched = auditManager.getArtifactAuditEntry(artifact.getUuid(), deleteEntry.getUuid());
+        Assert.assertEquals(AuditEntryTypes.ARTIFACT_DELETE, fetched.getType());
+    }
+
+    @Test
+    public void testLegacyAuditEntries() throws Exception {
+        BaseArtifactType artifact = createArtifact(null);
+
+        // Audit entries used to be stored as children of the artifact node, without audit:artifactUuid
+        String legacyUuid = UUID.randomUUID().toString();
+        Session session = JCRRepositoryFactory.getSession();
+        try {
+            Node artifactNode = JCRUtils.findArtifactNodeByUuid(session, artifact.getUuid());
+            Node legacyNode = artifactNode.addNode("audit:" + legacyUuid, JCRConstants.SRAMP_AUDIT_ENTRY);
+            legacyNode.setProperty(JCRConstants.SRAMP_AUDIT_UUID, legacyUuid);
+            legacyNode.setProperty(JCRConstants.SRAMP_AUDIT_SORT_ID, 1L);
+            legacyNode.setProperty(JCRConstants.SRAMP_AUDIT_TYPE, AuditEntryTypes.ARTIFACT_UPDATE);
+            session.save();
+        } finally {
+            JCRRepositoryFactory.logoutQuietly(session);
+        }
+
+        assertLegacyAuditEntry(artifact.getUuid(), legacyUuid, 2);
+
+        // They go to the trash with the artifact, and stay part of its audit trail
+        persistenceManager.deleteArtifact(artifact.getUuid(), ArtifactType.Document());
+        assertLegacyAuditEntry(artifact.getUuid(), legacyUuid, 3);
+    }
+
+    /**
+     * Asserts that the (oldest) legacy audit entry is part of the artifact's audit trail.
+     * @param artifactUuid
+     * @param legacyUuid
+     * @param expectedSize
+     * @throws Exception
+     */
+    private void assertLegacyAuditEntry(String artifactUuid, String legacyUuid, int expectedSize) throws Exception {
+        AuditEntrySet entries = auditManager.getArtifactAuditEntries(artifactUuid);
+        Assert.assertEquals(expectedSize, entries.size());
+        AuditEntry oldest = null;
+        for (AuditEntry entry : entries) {
+            oldest = entry;
+        }
+        entries.close();
+        Assert.assertEquals(legacyUuid, oldest.getUuid());
+        Assert.assertEquals("junituser", oldest.getWho());
+        Assert.assertEquals(legacyUuid, auditManager.getArtifactAuditEntry(artifactUuid, legacyUuid).getUuid());
+    }
+
     /**
      * @return a new artifact
      * @throws SrampException
@@ -15,14 +15,20 @@
  */
 package org.overlord.sramp.repository.jcr.modeshape;
 
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Test;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.*;
 import org.overlord.sramp.common.ArtifactContent;
+import org.overlord.sramp.common.ArtifactType;
 import org.overlord.sramp.common.ArtifactTypeEnum;
+import org.overlord.sramp.common.SrampConstants;
 import org.overlord.sramp.common.SrampException;
+import org.overlord.sramp.integration.ArtifactProcessingPool;
 import org.overlord.sramp.repository.PersistenceManager.BatchItem;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
@@ -36,6 +42,12 @@ import java.util.List;
  */
 public class JCRBatchPersistenceTest extends AbstractNoAuditingJCRPersistenceTest {
 
+    @After
+    public void resetProcessingThreads() {
+        ArtifactProcessingPool.shutdown();
+        System.clearProperty(SrampConstants.SRAMP_CONFIG_ARTIFACT_PROCESSING_THREADS);
+    }
+
 	@Test
 	public void testSimpleBatch() throws Exception {
 	    List<BatchItem> items = new ArrayList<BatchItem>();
@@ -109,6 +121,66 @@ public class JCRBatchPersistenceTest extends AbstractNoAuditingJCRPersistenceTes
         Assert.assertEquals(extSimpleType.getUuid(), type.getUuid());
     }
     
+    @Test
+    public void testBatchOrder() throws Exception {
+        // The items are built on the calling thread, then in parallel
+        for (int threads : new int[] { 1, 4 }) {
+            setProcessingThreads(threads);
+            List<BatchItem> items = new ArrayList<BatchItem>();
+            for (int idx = 0; idx < 12; idx++) {
+                String name = "batch-order-" + threads + "-" + idx + ".txt";
+                InputStream contentStream = getClass().getResourceAsStream("/sample-files/batch/simple-" + (idx % 2 + 1) + ".txt");
+                items.add(createBatchItem(name, contentStream, new Document(), BaseArtifactEnum.DOCUMENT));
+            }
+
+            List<Object> response = persistenceManager.persistBatch(items);
+            Assert.assertEquals(items.size(), response.size());
+            for (int idx = 0; idx < response.size(); idx++) {
+                Assert.assertTrue(response.get(idx) instanceof BaseArtifactType);
+                BaseArtifactType artifact = (BaseArtifactType) response.get(idx);
+                Assert.assertEquals("batch-order-" + threads + "-" + idx + ".txt", artifact.getName());
+                Assert.assertEquals(items.get(idx).baseArtifactType.getUuid(), artifact.getUuid());
+            }
+        }
+    }
+
+    @Test
+    public void testBatchErrors() throws Exception {
+        for (int threads : new int[] { 1, 4 }) {
+            setProcessingThreads(threads);
+            List<BatchItem> items = new ArrayList<BatchItem>();
+            items.add(createBatchItem("/sample-files/xsd/PO.xsd", new XsdDocument(), BaseArtifactEnum.XSD_DOCUMENT));
+            // The XSD builder fails on this one
+            items.add(createBatchItem("broken-" + threads + ".xsd", new ByteArrayInputStream(
+                    "<xsd:schema xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\"><xsd:element".getBytes("UTF-8")),
+                    new XsdDocument(), BaseArtifactEnum.XSD_DOCUMENT));
+            items.add(createBatchItem("/sample-files/batch/simple-1.txt", new Document(), BaseArtifactEnum.DOCUMENT));
+
+            // The failure is returned for the broken item only, and doesn't stop the others
+            List<Object> response = persistenceManager.persistBatch(items);
+            Assert.assertEquals(3, response.size());
+            Assert.assertTrue(response.get(0) instanceof XsdDocument);
+            Assert.assertEquals("PO.xsd", ((XsdDocument) response.get(0)).getName());
+            Assert.assertTrue(response.get(1) instanceof IOException);
+            Assert.assertTrue(response.get(2) instanceof Document);
+            Assert.assertEquals("simple-1.txt", ((Document) response.get(2)).getName());
+
+            String brokenUuid = items.get(1).baseArtifactType.getUuid();
+            Assert.assertNotNull(brokenUuid);
+            Assert.assertNull(persistenceManager.getArtifact(brokenUuid, ArtifactType.XsdDocument()));
+        }
+    }
+
+    /**
+     * Sets the size of the pool that builds the batch items.  The pool is shut down, so that it is
+     * re-created with the new size.
+     * @param threads
+     */
+    private static void setProcessingThreads(int threads) {
+        ArtifactProcessingPool.shutdown();
+        System.setProperty(SrampConstants.SRAMP_CONFIG_ARTIFACT_PROCESSING_THREADS, String.valueOf(threads));
+    }
+
     /**
      * Creates a batch item for the given file.
      * @param filePath
@@ -120,10 +192,23 @@ public class JCRBatchPersistenceTest extends AbstractNoAuditingJCRPersistenceTes
         String artifactFileName = filePath.substring(filePath.lastIndexOf('/') + 1);
         InputStream contentStream = this.getClass().getResourceAsStream(filePath);
 
+        return createBatchItem(artifactFileName, contentStream, document, type);
+    }
+
+    /**
+     * Creates a batch item with the given name and content.
+     * @param artifactFileName
+     * @param contentStream
+     * @param document
+     * @param type
+     * @throws SrampException
+     */
+    private BatchItem createBatchItem(String artifactFileName, InputStream contentStream, DocumentArtifactType document,
+            BaseArtifactEnum type) throws Exception {
         document.setArtifactType(type);
         document.setName(artifactFileName);
 
-        return new BatchItem(filePath, document, new ArtifactContent(artifactFileName, contentStream));
+        return new BatchItem(artifactFileName, document, new ArtifactContent(artifactFileName, contentStream));
     }
 
 
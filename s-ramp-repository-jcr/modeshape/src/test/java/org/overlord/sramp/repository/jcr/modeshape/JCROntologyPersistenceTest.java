@@ -196,6 +196,31 @@ public class JCROntologyPersistenceTest extends AbstractNoAuditingJCRPersistence
     	Assert.assertEquals(2, ontologies.size());
     }
 
+    @Test
+    public void testGetOntologiesReturnsCopies() throws Exception {
+        SrampOntology ontology = new SrampOntology();
+        ontology.setBase("urn:example.org/test5");
+        ontology.setLabel("Test Ontology #5");
+        SrampOntology.SrampOntologyClass colors = createClass(ontology, null, "Colors", "Colors", null);
+        SrampOntology.SrampOntologyClass red = createClass(ontology, colors, "Red", "Red", null);
+        ontology.getRootClasses().add(colors);
+        colors.getChildren().add(red);
+        persistenceManager.persistOntology(ontology);
+
+        // Changing what was handed out must not change what the next caller gets
+        SrampOntology first = persistenceManager.getOntologies().get(0);
+        first.setLabel("Changed");
+        first.getRootClasses().get(0).getChildren().clear();
+        first.getRootClasses().clear();
+
+        SrampOntology second = persistenceManager.getOntologies().get(0);
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals("Test Ontology #5", second.getLabel());
+        Assert.assertEquals(1, second.getRootClasses().size());
+        Assert.assertEquals(1, second.getRootClasses().get(0).getChildren().size());
+        Assert.assertSame(second.getRootClasses().get(0), second.getRootClasses().get(0).getChildren().get(0).getParent());
+    }
+
     @Test
     public void testDeleteOntologies() throws Exception {
     	// Ensure that a "get" will return 0 ontologies first
@@ -19,12 +19,18 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.*;
 import org.overlord.sramp.common.*;
+import org.overlord.sramp.repository.PersistenceListener;
+import org.overlord.sramp.repository.PersistenceManager;
 import org.overlord.sramp.repository.query.ArtifactSet;
 import org.overlord.sramp.repository.query.SrampQuery;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.Assert.assertTrue;
@@ -196,6 +202,56 @@ public class JCRPersistenceTest extends AbstractNoAuditingJCRPersistenceTest {
         Assert.assertEquals(artifact.getLastModifiedTimestamp(), artifact2.getLastModifiedTimestamp());
     }
 
+    @Test
+    public void testGetArtifacts() throws Exception {
+        String artifactFileName = "PO.xsd";
+        InputStream POXsd = this.getClass().getResourceAsStream("/sample-files/xsd/" + artifactFileName);
+        XsdDocument xsd = new XsdDocument();
+        xsd.setName(artifactFileName);
+        xsd.setArtifactType(BaseArtifactEnum.XSD_DOCUMENT);
+        BaseArtifactType xsdArtifact = persistenceManager.persistArtifact(xsd, new ArtifactContent(artifactFileName, POXsd));
+
+        artifactFileName = "s-ramp-press-release.pdf";
+        InputStream pdf = this.getClass().getResourceAsStream("/sample-files/core/" + artifactFileName);
+        Document document = new Document();
+        document.setName(artifactFileName);
+        document.setArtifactType(BaseArtifactEnum.DOCUMENT);
+        BaseArtifactType pdfArtifact = persistenceManager.persistArtifact(document, new ArtifactContent(artifactFileName, pdf));
+
+        BaseArtifactType element = assertSingleArtifact(ArtifactTypeEnum.ElementDeclaration, "purchaseOrder");
+
+        // Mix primary and derived artifacts, an unknown UUID and a duplicate
+        List<BaseArtifactType> artifacts = persistenceManager.getArtifacts(Arrays.asList(
+                pdfArtifact.getUuid(), "not-a-real-uuid", element.getUuid(), xsdArtifact.getUuid(), pdfArtifact.getUuid()));
+        Assert.assertEquals(3, artifacts.size());
+        Assert.assertEquals(pdfArtifact.getUuid(), artifacts.get(0).getUuid());
+        Assert.assertEquals(Document.class, artifacts.get(0).getClass());
+        Assert.assertEquals(element.getUuid(), artifacts.get(1).getUuid());
+        Assert.assertEquals(ElementDeclaration.class, artifacts.get(1).getClass());
+        Assert.assertEquals(xsdArtifact.getUuid(), artifacts.get(2).getUuid());
+        Assert.assertEquals(XsdDocument.class, artifacts.get(2).getClass());
+
+        Assert.assertTrue(persistenceManager.getArtifacts(Collections.<String>emptyList()).isEmpty());
+    }
+
+    @Test
+    public void testGetArtifactsSkipsDeleted() throws Exception {
+        String artifactFileName = "PO.xsd";
+        InputStream POXsd = this.getClass().getResourceAsStream("/sample-files/xsd/" + artifactFileName);
+        XsdDocument xsd = new XsdDocument();
+        xsd.setName(artifactFileName);
+        xsd.setArtifactType(BaseArtifactEnum.XSD_DOCUMENT);
+        BaseArtifactType xsdArtifact = persistenceManager.persistArtifact(xsd, new ArtifactContent(artifactFileName, POXsd));
+        BaseArtifactType element = assertSingleArtifact(ArtifactTypeEnum.ElementDeclaration, "purchaseOrder");
+        Assert.assertEquals(2, persistenceManager.getArtifacts(Arrays.asList(xsdArtifact.getUuid(), element.getUuid())).size());
+
+        // Neither the deleted artifact nor the artifacts derived from it can be fetched any more - the same as
+        // with getArtifact
+        persistenceManager.deleteArtifact(xsdArtifact.getUuid(), ArtifactType.valueOf(xsdArtifact));
+        Assert.assertNull(persistenceManager.getArtifact(xsdArtifact.getUuid(), ArtifactType.valueOf(xsdArtifact)));
+        Assert.assertTrue(persistenceManager.getArtifacts(Arrays.asList(xsdArtifact.getUuid(), element.getUuid())).isEmpty());
+    }
+
     /**
      * Tests that we can update basic s-ramp meta data.
      * @throws Exception
@@ -543,4 +599,68 @@ public class JCRPersistenceTest extends AbstractNoAuditingJCRPersistenceTest {
         Assert.assertNull(deleted);
     }
 
+    @Test
+    public void testPersistenceListeners() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        persistenceManager.addListener(listener);
+        try {
+            String artifactFileName = "PO.xsd";
+            InputStream POXsd = this.getClass().getResourceAsStream("/sample-files/xsd/" + artifactFileName);
+            XsdDocument xsd = new XsdDocument();
+            xsd.setName(artifactFileName);
+            xsd.setArtifactType(BaseArtifactEnum.XSD_DOCUMENT);
+            BaseArtifactType artifact = persistenceManager.persistArtifact(xsd, new ArtifactContent(artifactFileName, POXsd));
+            // Only the primary artifact - not the ones derived from it
+            Assert.assertEquals(Arrays.asList(artifact.getUuid()), listener.persisted);
+
+            artifact.setName("My PO");
+            persistenceManager.updateArtifact(artifact, ArtifactType.XsdDocument());
+            Assert.assertEquals(2, listener.persisted.size());
+            Assert.assertEquals(artifact.getUuid(), listener.persisted.get(1));
+
+            Document document = new Document();
+            document.setName("batch.txt");
+            document.setArtifactType(BaseArtifactEnum.DOCUMENT);
+            List<PersistenceManager.BatchItem> items = Collections.singletonList(new PersistenceManager.BatchItem(
+                    "batch.txt", document, new ArtifactContent("batch.txt", new ByteArrayInputStream("batch".getBytes()))));
+            BaseArtifactType batchArtifact = (BaseArtifactType) persistenceManager.persistBatch(items).get(0);
+            Assert.assertEquals(3, listener.persisted.size());
+            Assert.assertEquals(batchArtifact.getUuid(), listener.persisted.get(2));
+
+            persistenceManager.deleteArtifact(artifact.getUuid(), ArtifactType.XsdDocument());
+            Assert.assertEquals(Arrays.asList(artifact.getUuid()), listener.deleted);
+        } finally {
+            persistenceManager.removeListener(listener);
+        }
+
+        // Not notified once removed
+        Document document = new Document();
+        document.setName("other.txt");
+        document.setArtifactType(BaseArtifactEnum.DOCUMENT);
+        persistenceManager.persistArtifact(document, new ArtifactContent("other.txt", new ByteArrayInputStream("other".getBytes())));
+        Assert.assertEquals(3, listener.persisted.size());
+    }
+
+    /**
+     * A persistence listener that records the UUIDs of the artifacts it is told about.
+     */
+    private static class RecordingListener implements PersistenceListener {
+        private final List<String> persisted = new ArrayList<String>();
+        private final List<String> deleted = new ArrayList<String>();
+
+        @Override
+        public void artifactPersisted(BaseArtifactType artifact) {
+            persisted.add(artifact.getUuid());
+        }
+
+        @Override
+        public void artifactDeleted(BaseArtifactType artifact) {
+            deleted.add(artifact.getUuid());
+        }
+
+        @Override
+        public void artifactsChanged() {
+        }
+    }
+
 }
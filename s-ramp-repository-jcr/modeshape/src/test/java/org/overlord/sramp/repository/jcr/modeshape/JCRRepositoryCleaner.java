@@ -20,6 +20,7 @@ import javax.jcr.PathNotFoundException;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 
+import org.overlord.sramp.repository.jcr.JCROntologyCache;
 import org.overlord.sramp.repository.jcr.JCRRepositoryFactory;
 
 /**
@@ -53,6 +54,7 @@ public class JCRRepositoryCleaner {
 	        	srampRoot.remove();
             }
         	session.save();
+        	JCROntologyCache.getInstance().invalidate();
 		} catch (PathNotFoundException e) {
 			// The node doesn't exist - so no worries.
 		} catch (Throwable t) {
@@ -17,16 +17,21 @@ package org.overlord.sramp.repository.jcr;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
+import org.jboss.downloads.overlord.sramp._2013.auditing.AuditEntry;
+import org.jboss.downloads.overlord.sramp._2013.auditing.AuditItemType;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.*;
 import org.overlord.sramp.common.*;
 import org.overlord.sramp.common.artifactbuilder.ArtifactBuilder;
+import org.overlord.sramp.common.artifactbuilder.BatchArtifactIndex;
 import org.overlord.sramp.common.artifactbuilder.RelationshipContext;
 import org.overlord.sramp.common.audit.AuditEntryTypes;
 import org.overlord.sramp.common.audit.AuditItemTypes;
+import org.overlord.sramp.common.audit.AuditUtils;
 import org.overlord.sramp.common.visitors.ArtifactVisitorHelper;
 import org.overlord.sramp.integration.ExtensionFactory;
 import org.overlord.sramp.repository.jcr.audit.ArtifactJCRNodeDiff;
 import org.overlord.sramp.repository.jcr.audit.ArtifactJCRNodeDiffer;
+import org.overlord.sramp.repository.jcr.audit.JCRAuditWriter;
 import org.overlord.sramp.repository.jcr.i18n.Messages;
 import org.overlord.sramp.repository.jcr.mapper.ArtifactToJCRNodeVisitor;
 import org.overlord.sramp.repository.jcr.util.JCRUtils;
@@ -34,9 +39,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.jcr.*;
-import javax.jcr.lock.LockException;
-import javax.jcr.nodetype.ConstraintViolationException;
-import javax.jcr.version.VersionException;
 import java.io.*;
 import java.lang.System;
 import java.util.ArrayList;
@@ -71,12 +73,25 @@ public final class JCRArtifactPersister {
         artifactBuilders = ExtensionFactory.createArtifactBuilders(primaryArtifact, artifactContent);
     }
 
-    public void persistArtifact(Session session) throws Exception {
+    /**
+     * Runs the artifact builders, without touching the repository.  This only works on the artifact's own
+     * content, so (unlike the rest of the phases) it is safe to call from any thread - see
+     * {@link JCRPersistence#persistBatch(List)}.  If it isn't called, {@link #persistArtifact(Session)}
+     * calls it.
+     * @throws Exception
+     */
+    public void buildArtifacts() throws Exception {
         if (StringUtils.isBlank(primaryArtifact.getUuid())) {
             primaryArtifact.setUuid(UUID.randomUUID().toString());
         }
 
         runArtifactBuilders();
+    }
+
+    public void persistArtifact(Session session) throws Exception {
+        if (derivedArtifacts == null) {
+            buildArtifacts();
+        }
 
         primaryArtifactNode = persistPrimaryArtifact(session);
         persistDerivedArtifacts(session);
@@ -105,8 +120,19 @@ public final class JCRArtifactPersister {
     }
 
     public void persistArtifactRelationships(Session session) throws Exception {
+        persistArtifactRelationships(session, null);
+    }
+
+    /**
+     * Persists the relationships, resolving relationship targets against the other artifacts
+     * of the same batch before querying the repository.
+     * @param session
+     * @param batchIndex the artifacts of the current batch (may be null)
+     * @throws Exception
+     */
+    public void persistArtifactRelationships(Session session, BatchArtifactIndex batchIndex) throws Exception {
         if (SrampModelUtils.isDocumentArtifact(primaryArtifact)) {
-            RelationshipContext relationshipContext = new JCRRelationshipContext(session);
+            RelationshipContext relationshipContext = new JCRRelationshipContext(session, batchIndex);
             for (ArtifactBuilder artifactBuilder : artifactBuilders) {
                 artifactBuilder.buildRelationships(relationshipContext);
             }
@@ -177,9 +203,8 @@ public final class JCRArtifactPersister {
         log.debug(Messages.i18n.format("SAVED_JCR_NODE", name, uuid));
         if (SrampConfig.isAuditingEnabled()) {
             auditCreateArtifact(artifactNode);
-            session.save();
         }
-        session.save();
+        JCRAuditWriter.save(session);
 
         return artifactNode;
     }
@@ -189,10 +214,15 @@ public final class JCRArtifactPersister {
         if (DocumentArtifactType.class.isAssignableFrom(artifactType.getArtifactType().getTypeClass())) {
             artifactNode.setProperty(JCRConstants.SRAMP_CONTENT_TYPE, artifactType.getMimeType());
             artifactNode.setProperty(JCRConstants.SRAMP_CONTENT_SIZE, artifactNode.getProperty(JCRConstants.JCR_CONTENT_DATA).getLength());
-            Binary binary = artifactNode.getProperty(JCRConstants.JCR_CONTENT_DATA).getBinary();
-            if (binary != null) {
-                String sha1Hash = JCRExtensions.getInstance().getSha1Hash(binary);
-                artifactNode.setProperty(JCRConstants.SRAMP_CONTENT_HASH, sha1Hash);
+            if (artifactContent != null && artifactContent.getSha1Hash() != null) {
+                // Already computed while the content was being received - no need to read it again
+                artifactNode.setProperty(JCRConstants.SRAMP_CONTENT_HASH, artifactContent.getSha1Hash());
+            } else {
+                Binary binary = artifactNode.getProperty(JCRConstants.JCR_CONTENT_DATA).getBinary();
+                if (binary != null) {
+                    String sha1Hash = JCRExtensions.getInstance().getSha1Hash(binary);
+                    artifactNode.setProperty(JCRConstants.SRAMP_CONTENT_HASH, sha1Hash);
+                }
             }
         }
         // XMLDocument
@@ -266,7 +296,7 @@ public final class JCRArtifactPersister {
 
             // Save current changes so that references to nodes can be found.  Note that if
             // transactions are enabled, this will not actually persist to final storage.
-            session.save();
+            JCRAuditWriter.save(session);
         } catch (SrampException e) {
             throw e;
         } catch (Throwable t) {
@@ -300,6 +330,16 @@ public final class JCRArtifactPersister {
         }
     }
 
+    /**
+     * Adds the primary artifact and all of its derived artifacts to the given batch index.
+     * Must be called after {@link #buildArtifacts()}.
+     * @param batchIndex
+     */
+    public void addToIndex(BatchArtifactIndex batchIndex) {
+        batchIndex.add(primaryArtifact);
+        batchIndex.addAll(derivedArtifacts);
+    }
+
     public Node getPrimaryArtifactNode() {
         return primaryArtifactNode;
     }
@@ -333,7 +373,7 @@ public final class JCRArtifactPersister {
 
 
     /**
-     * Audits an artifact create event.  This will add an audit entry as a child of the
+     * Audits an artifact create event.  This will add an audit entry for the
      * new artifact JCR node of type "artifact:add".  In addition, the initial state of
      * all properties, classifiers, and relationships will be recorded.
      * @param artifactNode
@@ -341,104 +381,89 @@ public final class JCRArtifactPersister {
      */
     public static void auditCreateArtifact(Node artifactNode) throws RepositoryException {
         ArtifactJCRNodeDiffer differ = new ArtifactJCRNodeDiffer(artifactNode);
-        Node auditEntryNode = createAuditEntryNode(artifactNode, AuditEntryTypes.ARTIFACT_ADD);
-        Node propAddedNode = createAuditItemNode(auditEntryNode, AuditItemTypes.PROPERTY_ADDED);
+        AuditEntry auditEntry = JCRAuditWriter.newAuditEntry(artifactNode.getSession(), AuditEntryTypes.ARTIFACT_ADD);
+        AuditItemType propAddedItem = AuditUtils.getOrCreateAuditItem(auditEntry, AuditItemTypes.PROPERTY_ADDED);
         for (Entry<String, String> entry : differ.getProperties().entrySet()) {
-            propAddedNode.setProperty(entry.getKey(), entry.getValue());
+            AuditUtils.setAuditItemProperty(propAddedItem, entry.getKey(), entry.getValue());
         }
         if (!differ.getClassifiers().isEmpty()) {
-            Node classifierAddedNode = createAuditItemNode(auditEntryNode, AuditItemTypes.CLASSIFIERS_ADDED);
+            AuditItemType classifierAddedItem = AuditUtils.getOrCreateAuditItem(auditEntry, AuditItemTypes.CLASSIFIERS_ADDED);
             int idx = 0;
             for (String classifier : differ.getClassifiers()) {
-                classifierAddedNode.setProperty("classifier-" + idx++, classifier);
+                AuditUtils.setAuditItemProperty(classifierAddedItem, "classifier-" + idx++, classifier);
             }
         }
+        writeAuditEntry(artifactNode, auditEntry);
     }
 
     /**
-     * Audits an artifact update event.  This will add an audit entry as a child of the
-     * new artifact JCR node of type "artifact:update".  In addition, any changes to
+     * Audits an artifact update event.  This will add an audit entry for the
+     * artifact JCR node of type "artifact:update".  In addition, any changes to
      * properties, classifiers, or relationships will be added as audit items to the
-     * audit entry.
+     * audit entry.  The diff is computed in-request (against the differ's in-memory
+     * snapshot); only the write of the resulting audit entry may be deferred.
      * @param artifactNode
      * @throws RepositoryException
      */
     public static void auditUpdateArtifact(ArtifactJCRNodeDiffer differ, Node artifactNode) throws RepositoryException {
-        Node auditEntryNode = createAuditEntryNode(artifactNode, AuditEntryTypes.ARTIFACT_UPDATE);
+        AuditEntry auditEntry = JCRAuditWriter.newAuditEntry(artifactNode.getSession(), AuditEntryTypes.ARTIFACT_UPDATE);
 
         ArtifactJCRNodeDiff diff = differ.diff(artifactNode);
         if (!diff.getAddedProperties().isEmpty()) {
-            Node propAddedNode = createAuditItemNode(auditEntryNode, AuditItemTypes.PROPERTY_ADDED);
+            AuditItemType propAddedItem = AuditUtils.getOrCreateAuditItem(auditEntry, AuditItemTypes.PROPERTY_ADDED);
             for (Entry<String, String> entry : diff.getAddedProperties().entrySet()) {
-                propAddedNode.setProperty(entry.getKey(), entry.getValue());
+                AuditUtils.setAuditItemProperty(propAddedItem, entry.getKey(), entry.getValue());
             }
         }
         if (!diff.getUpdatedProperties().isEmpty()) {
-            Node propChangedNode = createAuditItemNode(auditEntryNode, AuditItemTypes.PROPERTY_CHANGED);
+            AuditItemType propChangedItem = AuditUtils.getOrCreateAuditItem(auditEntry, AuditItemTypes.PROPERTY_CHANGED);
             for (Entry<String, String> entry : diff.getUpdatedProperties().entrySet()) {
-                propChangedNode.setProperty(entry.getKey(), entry.getValue());
+                AuditUtils.setAuditItemProperty(propChangedItem, entry.getKey(), entry.getValue());
             }
         }
         if (!diff.getDeletedProperties().isEmpty()) {
-            Node propRemovedNode = createAuditItemNode(auditEntryNode, AuditItemTypes.PROPERTY_REMOVED);
+            AuditItemType propRemovedItem = AuditUtils.getOrCreateAuditItem(auditEntry, AuditItemTypes.PROPERTY_REMOVED);
             for (String propName : diff.getDeletedProperties()) {
-                propRemovedNode.setProperty(propName, "");
+                AuditUtils.setAuditItemProperty(propRemovedItem, propName, "");
             }
         }
         if (!diff.getAddedClassifiers().isEmpty()) {
-            Node classifiersAddedNode = createAuditItemNode(auditEntryNode, AuditItemTypes.CLASSIFIERS_ADDED);
+            AuditItemType classifiersAddedItem = AuditUtils.getOrCreateAuditItem(auditEntry, AuditItemTypes.CLASSIFIERS_ADDED);
             int idx = 0;
             for (String classifier : diff.getAddedClassifiers()) {
-                classifiersAddedNode.setProperty("classifier-" + idx++, classifier);
+                AuditUtils.setAuditItemProperty(classifiersAddedItem, "classifier-" + idx++, classifier);
             }
         }
         if (!diff.getDeletedClassifiers().isEmpty()) {
-            Node classifiersRemovedNode = createAuditItemNode(auditEntryNode, AuditItemTypes.CLASSIFIERS_REMOVED);
+            AuditItemType classifiersRemovedItem = AuditUtils.getOrCreateAuditItem(auditEntry, AuditItemTypes.CLASSIFIERS_REMOVED);
             int idx = 0;
             for (String classifier : diff.getDeletedClassifiers()) {
-                classifiersRemovedNode.setProperty("classifier-" + idx++, classifier);
+                AuditUtils.setAuditItemProperty(classifiersRemovedItem, "classifier-" + idx++, classifier);
             }
         }
+        writeAuditEntry(artifactNode, auditEntry);
     }
 
     /**
-     * Creates a JCR node for a single audit entry for a single artifact.  This is called when
-     * recording audit information for an artifact.
+     * Audits an artifact delete event.  This will add an audit entry for the
+     * artifact JCR node of type "artifact:delete".
      * @param artifactNode
-     * @throws ValueFormatException
-     * @throws VersionException
-     * @throws LockException
-     * @throws ConstraintViolationException
      * @throws RepositoryException
      */
-    public static Node createAuditEntryNode(Node artifactNode, String type) throws ValueFormatException,
-            VersionException, LockException, ConstraintViolationException, RepositoryException {
-        String auditUuid = UUID.randomUUID().toString();
-        Node auditEntryNode = artifactNode.addNode("audit:" + auditUuid, JCRConstants.SRAMP_AUDIT_ENTRY);
-
-        auditEntryNode.setProperty("audit:uuid", auditUuid);
-        auditEntryNode.setProperty("audit:sortId", System.currentTimeMillis());
-        auditEntryNode.setProperty("audit:type", type);
-
-        return auditEntryNode;
+    public static void auditDeleteArtifact(Node artifactNode) throws RepositoryException {
+        AuditEntry auditEntry = JCRAuditWriter.newAuditEntry(artifactNode.getSession(), AuditEntryTypes.ARTIFACT_DELETE);
+        writeAuditEntry(artifactNode, auditEntry);
     }
 
     /**
-     * Creates the audit item node as a child of the given audit entry.
-     * @param auditEntryNode
+     * Hands the audit entry for the given artifact node off to the audit writer.
+     * @param artifactNode
+     * @param auditEntry
      * @throws RepositoryException
-     * @throws ConstraintViolationException
-     * @throws LockException
-     * @throws VersionException
-     * @throws ValueFormatException
      */
-    public static Node createAuditItemNode(Node auditEntryNode, String auditItemType)
-            throws ValueFormatException, VersionException, LockException, ConstraintViolationException,
-            RepositoryException {
-        String auditItemNodeName = "audit:" + auditItemType.replace(':', '_');
-        Node auditItemNode = auditEntryNode.addNode(auditItemNodeName, JCRConstants.SRAMP_AUDIT_ITEM);
-        auditItemNode.setProperty("audit:type", auditItemType);
-        return auditItemNode;
+    private static void writeAuditEntry(Node artifactNode, AuditEntry auditEntry) throws RepositoryException {
+        String artifactUuid = artifactNode.getProperty(JCRConstants.SRAMP_UUID).getString();
+        JCRAuditWriter.getInstance().write(artifactNode.getSession(), artifactUuid, auditEntry);
     }
 
 }
@@ -16,15 +16,15 @@
 package org.overlord.sramp.repository.jcr;
 
 import org.jboss.downloads.overlord.sramp._2013.auditing.AuditEntry;
-import org.jboss.downloads.overlord.sramp._2013.auditing.AuditItemType;
-import org.jboss.downloads.overlord.sramp._2013.auditing.AuditItemType.Property;
 import org.overlord.sramp.common.ArtifactNotFoundException;
 import org.overlord.sramp.common.AuditEntryNotFoundException;
 import org.overlord.sramp.common.SrampException;
 import org.overlord.sramp.common.SrampServerException;
 import org.overlord.sramp.repository.AuditManager;
+import org.overlord.sramp.repository.audit.AuditEntryFilter;
 import org.overlord.sramp.repository.audit.AuditEntrySet;
 import org.overlord.sramp.repository.jcr.audit.JCRAuditEntrySet;
+import org.overlord.sramp.repository.jcr.audit.JCRAuditWriter;
 import org.overlord.sramp.repository.jcr.i18n.Messages;
 import org.overlord.sramp.repository.jcr.mapper.JCRNodeToAuditEntryFactory;
 import org.overlord.sramp.repository.jcr.util.JCRUtils;
@@ -34,10 +34,9 @@ import org.slf4j.LoggerFactory;
 
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.jcr.query.QueryResult;
-import java.util.List;
-import java.util.UUID;
 
 /**
  * An implementation of the {@link AuditManager} using JCR.  Works along with the
@@ -50,16 +49,24 @@ public class JCRAuditManager implements AuditManager {
 
     private static Logger log = LoggerFactory.getLogger(JCRAuditManager.class);
     private static final String AUDIT_ENTRY_QUERY = "SELECT auditEntry.*"
-            + " FROM [sramp:baseArtifactType] AS artifact"
-            + " JOIN [audit:auditEntry] AS auditEntry ON ISCHILDNODE(auditEntry, artifact) "
-            + "WHERE artifact.[sramp:uuid] = '%1$s' AND auditEntry.[audit:uuid] = '%2$s'";
-    private static final String ARTIFACT_AUDIT_TRAIL_QUERY = "SELECT auditEntry.*"
-            + " FROM [sramp:baseArtifactType] AS artifact"
-            + " JOIN [audit:auditEntry] AS auditEntry ON ISCHILDNODE(auditEntry, artifact) "
-            + "WHERE artifact.[sramp:uuid] = '%1$s' ORDER BY auditEntry.[audit:sortId] DESC";
-    private static final String USER_AUDIT_TRAIL_QUERY = "SELECT auditEntry.*"
             + " FROM [audit:auditEntry] AS auditEntry "
-            + "WHERE auditEntry.[jcr:createdBy] = '%1$s' ORDER BY auditEntry.[audit:sortId] DESC";
+            + "WHERE %1$s AND auditEntry.[audit:uuid] = '%2$s'";
+    private static final String AUDIT_TRAIL_QUERY = "SELECT auditEntry.*"
+            + " FROM [audit:auditEntry] AS auditEntry WHERE %1$s"
+            + " ORDER BY auditEntry.[audit:sortId] DESC, auditEntry.[audit:uuid] DESC";
+    private static final String AUDIT_TRAIL_COUNT_QUERY = "SELECT auditEntry.[audit:uuid]"
+            + " FROM [audit:auditEntry] AS auditEntry WHERE %1$s";
+    private static final String ARTIFACT_CRITERIA = "auditEntry.[audit:artifactUuid] = '%1$s'";
+    // Entries written before audit:artifactUuid was introduced are children of the artifact node (which
+    // may since have been moved to the trash), so the artifact's nodes are looked up first
+    private static final String ARTIFACT_NODES_QUERY = "SELECT artifact.[sramp:uuid]"
+            + " FROM [sramp:baseArtifactType] AS artifact WHERE artifact.[sramp:uuid] = '%1$s'";
+    private static final String LEGACY_ARTIFACT_CRITERIA = "(auditEntry.[audit:artifactUuid] = '%1$s'"
+            + " OR (auditEntry.[audit:artifactUuid] IS NULL AND (%2$s)))";
+    private static final String CHILD_OF_CRITERIA = "ISCHILDNODE(auditEntry, [%1$s])";
+    // Entries written before audit:who was introduced only have jcr:createdBy
+    private static final String USER_CRITERIA = "(auditEntry.[audit:who] = '%1$s'"
+            + " OR (auditEntry.[audit:who] IS NULL AND auditEntry.[jcr:createdBy] = '%1$s'))";
 
 	/**
 	 * Default constructor.
@@ -77,28 +84,12 @@ public class JCRAuditManager implements AuditManager {
             session = JCRRepositoryFactory.getSession();
             Node artifactNode = JCRUtils.findArtifactNodeByUuid(session, artifactUuid);
             if (artifactNode != null) {
-                String auditEntryUuid = UUID.randomUUID().toString();
-                Node auditEntryNode = artifactNode.addNode("audit:" + auditEntryUuid, JCRConstants.SRAMP_AUDIT_ENTRY);
-                entry.setUuid(auditEntryUuid);
-
-                auditEntryNode.setProperty("audit:uuid", entry.getUuid());
-                auditEntryNode.setProperty("audit:sortId", System.currentTimeMillis());
-                auditEntryNode.setProperty("audit:type", entry.getType());
-
-                List<AuditItemType> auditItems = entry.getAuditItem();
-                for (AuditItemType auditItem : auditItems) {
-                    String type = auditItem.getType();
-                    String auditItemNodeName = "audit:" + type.replace(':', '_');
-                    Node auditItemNode = auditEntryNode.addNode(auditItemNodeName, JCRConstants.SRAMP_AUDIT_ITEM);
-                    auditItemNode.setProperty("audit:type", type);
-                    List<Property> properties = auditItem.getProperty();
-                    for (Property property : properties) {
-                        String propertyName = property.getName();
-                        String propertyValue = property.getValue();
-                        auditItemNode.setProperty(propertyName, propertyValue);
-                    }
-                }
-
+                // The caller's session (not the submitted entry) determines who/when.
+                AuditEntry auditEntry = JCRAuditWriter.newAuditEntry(session, entry.getType());
+                entry.setUuid(auditEntry.getUuid());
+                entry.setWho(auditEntry.getWho());
+                entry.setWhen(auditEntry.getWhen());
+                JCRAuditWriter.writeAuditEntry(session, artifactUuid, entry);
                 session.save();
                 return entry;
             } else {
@@ -121,10 +112,10 @@ public class JCRAuditManager implements AuditManager {
         // Prevent injection.
         if (artifactUuid.indexOf('\'') >= 0 || auditEntryUuid.indexOf('\'') >= 0)
             throw new InvalidQueryException();
-        String jcrSql2Query = String.format(AUDIT_ENTRY_QUERY, artifactUuid, auditEntryUuid);
         Session session = null;
         try {
             session = JCRRepositoryFactory.getSession();
+            String jcrSql2Query = String.format(AUDIT_ENTRY_QUERY, getArtifactCriteria(session, artifactUuid), auditEntryUuid);
             javax.jcr.query.QueryManager jcrQueryManager = session.getWorkspace().getQueryManager();
             javax.jcr.query.Query jcrQuery = jcrQueryManager.createQuery(jcrSql2Query, JCRConstants.JCR_SQL2);
             long startTime = System.currentTimeMillis();
@@ -150,11 +141,28 @@ public class JCRAuditManager implements AuditManager {
      */
     @Override
     public AuditEntrySet getArtifactAuditEntries(String artifactUuid) throws SrampException {
+        return getArtifactAuditEntries(artifactUuid, new AuditEntryFilter());
+    }
+
+    /**
+     * @see org.overlord.sramp.repository.AuditManager#getArtifactAuditEntries(java.lang.String, org.overlord.sramp.repository.audit.AuditEntryFilter)
+     */
+    @Override
+    public AuditEntrySet getArtifactAuditEntries(String artifactUuid, AuditEntryFilter filter) throws SrampException {
         // Prevent injection.
         if (artifactUuid.indexOf('\'') >= 0)
             throw new InvalidQueryException();
-        String jcrSql2Query = String.format(ARTIFACT_AUDIT_TRAIL_QUERY, artifactUuid);
-        return doAuditQuery(jcrSql2Query);
+        Session session = null;
+        try {
+            session = JCRRepositoryFactory.getSession();
+            return doAuditQuery(session, getArtifactCriteria(session, artifactUuid), filter);
+        } catch (SrampException se) {
+            JCRRepositoryFactory.logoutQuietly(session);
+            throw se;
+        } catch (Throwable t) {
+            JCRRepositoryFactory.logoutQuietly(session);
+            throw new SrampServerException(t);
+        }
     }
 
     /**
@@ -162,35 +170,139 @@ public class JCRAuditManager implements AuditManager {
      */
     @Override
     public AuditEntrySet getUserAuditEntries(String username) throws SrampException {
-        // Prevent injection.
-        if (username.indexOf('\'') >= 0)
-            throw new InvalidQueryException();
-        String jcrSql2Query = String.format(USER_AUDIT_TRAIL_QUERY, username);
-        return doAuditQuery(jcrSql2Query);
+        return getUserAuditEntries(username, new AuditEntryFilter());
     }
 
     /**
-     * Performs the audit query and returns the result as an audit entry set.
-     * @param query
-     * @throws SrampServerException
+     * @see org.overlord.sramp.repository.AuditManager#getUserAuditEntries(java.lang.String, org.overlord.sramp.repository.audit.AuditEntryFilter)
      */
-    private AuditEntrySet doAuditQuery(String query) throws SrampServerException {
+    @Override
+    public AuditEntrySet getUserAuditEntries(String username, AuditEntryFilter filter) throws SrampException {
+        // Prevent injection.
+        if (username.indexOf('\'') >= 0)
+            throw new InvalidQueryException();
         Session session = null;
         try {
             session = JCRRepositoryFactory.getSession();
-            javax.jcr.query.QueryManager jcrQueryManager = session.getWorkspace().getQueryManager();
-            javax.jcr.query.Query jcrQuery = jcrQueryManager.createQuery(query, JCRConstants.JCR_SQL2);
-            long startTime = System.currentTimeMillis();
-            QueryResult jcrQueryResult = jcrQuery.execute();
-            NodeIterator jcrNodes = jcrQueryResult.getNodes();
-            long endTime = System.currentTimeMillis();
-            log.debug(Messages.i18n.format("QUERY_EXECUTED", query));
-            log.debug(Messages.i18n.format("QUERY_EXECUTED_IN", endTime - startTime));
-            return new JCRAuditEntrySet(session, jcrNodes);
+            return doAuditQuery(session, String.format(USER_CRITERIA, username), filter);
+        } catch (SrampException se) {
+            JCRRepositoryFactory.logoutQuietly(session);
+            throw se;
         } catch (Throwable t) {
             JCRRepositoryFactory.logoutQuietly(session);
             throw new SrampServerException(t);
         }
     }
 
+    /**
+     * Builds the criteria that match the audit entries of the given artifact.  Besides the entries
+     * that point back to it via audit:artifactUuid, these are the (legacy) entries that are children
+     * of any of the artifact's nodes - the live one and any that were moved to the trash.
+     * @param session
+     * @param artifactUuid
+     * @throws RepositoryException
+     */
+    private static String getArtifactCriteria(Session session, String artifactUuid) throws RepositoryException {
+        String query = String.format(ARTIFACT_NODES_QUERY, artifactUuid);
+        javax.jcr.query.Query jcrQuery = session.getWorkspace().getQueryManager().createQuery(query, JCRConstants.JCR_SQL2);
+        NodeIterator artifactNodes = jcrQuery.execute().getNodes();
+        if (!artifactNodes.hasNext()) {
+            return String.format(ARTIFACT_CRITERIA, artifactUuid);
+        }
+        StringBuilder childOf = new StringBuilder();
+        while (artifactNodes.hasNext()) {
+            if (childOf.length() > 0)
+                childOf.append(" OR ");
+            childOf.append(String.format(CHILD_OF_CRITERIA, artifactNodes.nextNode().getPath()));
+        }
+        return String.format(LEGACY_ARTIFACT_CRITERIA, artifactUuid, childOf);
+    }
+
+    /**
+     * Adds the time range, type and keyset criteria from the filter to the given
+     * (already restricted) criteria.  Time based criteria are applied to the audit:sortId
+     * property, which is the (indexed) creation time of the audit entry in ms.
+     * @param criteria
+     * @param filter
+     * @throws InvalidQueryException
+     */
+    private static String buildCriteria(String criteria, AuditEntryFilter filter) throws InvalidQueryException {
+        StringBuilder builder = new StringBuilder(criteria);
+        if (filter.getFrom() != null) {
+            builder.append(" AND auditEntry.[audit:sortId] >= ").append(filter.getFrom().getTime());
+        }
+        if (filter.getTo() != null) {
+            builder.append(" AND auditEntry.[audit:sortId] < ").append(filter.getTo().getTime());
+        }
+        if (filter.getTypes() != null && !filter.getTypes().isEmpty()) {
+            builder.append(" AND (");
+            boolean first = true;
+            for (String type : filter.getTypes()) {
+                if (type.indexOf('\'') >= 0)
+                    throw new InvalidQueryException();
+                if (!first)
+                    builder.append(" OR ");
+                builder.append("auditEntry.[audit:type] = '").append(type).append("'");
+                first = false;
+            }
+            builder.append(")");
+        }
+        if (filter.getBeforeTime() != null) {
+            long before = filter.getBeforeTime();
+            if (filter.getBeforeUuid() == null) {
+                builder.append(" AND auditEntry.[audit:sortId] < ").append(before);
+            } else {
+                if (filter.getBeforeUuid().indexOf('\'') >= 0)
+                    throw new InvalidQueryException();
+                builder.append(" AND (auditEntry.[audit:sortId] < ").append(before)
+                        .append(" OR (auditEntry.[audit:sortId] = ").append(before)
+                        .append(" AND auditEntry.[audit:uuid] < '").append(filter.getBeforeUuid()).append("'))");
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Performs the audit query and returns the result as an audit entry set, which takes over
+     * the given session.  The offset and limit from the filter are pushed down into the JCR query.
+     * The total number of matching entries is only counted (by a separate query) when it can't
+     * be worked out from the page itself.
+     * @param session
+     * @param criteria
+     * @param filter
+     * @throws InvalidQueryException
+     * @throws RepositoryException
+     */
+    private AuditEntrySet doAuditQuery(Session session, String criteria, AuditEntryFilter filter)
+            throws InvalidQueryException, RepositoryException {
+        String where = buildCriteria(criteria, filter);
+        String query = String.format(AUDIT_TRAIL_QUERY, where);
+        javax.jcr.query.QueryManager jcrQueryManager = session.getWorkspace().getQueryManager();
+        javax.jcr.query.Query jcrQuery = jcrQueryManager.createQuery(query, JCRConstants.JCR_SQL2);
+        boolean paged = filter.getStartIndex() > 0 || filter.getCount() > 0;
+        if (filter.getStartIndex() > 0) {
+            jcrQuery.setOffset(filter.getStartIndex());
+        }
+        if (filter.getCount() > 0) {
+            jcrQuery.setLimit(filter.getCount());
+        }
+        long startTime = System.currentTimeMillis();
+        QueryResult jcrQueryResult = jcrQuery.execute();
+        NodeIterator jcrNodes = jcrQueryResult.getNodes();
+        long endTime = System.currentTimeMillis();
+        log.debug(Messages.i18n.format("QUERY_EXECUTED", query));
+        log.debug(Messages.i18n.format("QUERY_EXECUTED_IN", endTime - startTime));
+        // A page that isn't full is the last one, so the total is simply where it ends.
+        long pageSize = jcrNodes.getSize();
+        boolean last = pageSize >= 0 && (filter.getCount() <= 0 || pageSize < filter.getCount())
+                && (pageSize > 0 || filter.getStartIndex() == 0);
+        if (!paged) {
+            return new JCRAuditEntrySet(session, jcrNodes);
+        } else if (last) {
+            return new JCRAuditEntrySet(session, jcrNodes, filter.getStartIndex() + pageSize);
+        }
+        String countQuery = String.format(AUDIT_TRAIL_COUNT_QUERY, where);
+        return new JCRAuditEntrySet(session, jcrNodes, countQuery);
+    }
+
 }
@@ -57,6 +57,12 @@ public class JCRConstants {
     public static final String SRAMP_ARTIFACT_TYPE              = SRAMP_ + "artifactType";
     public static final String SRAMP_AUDIT_ENTRY                = SRAMP_AUDIT + ":auditEntry";
     public static final String SRAMP_AUDIT_ITEM                 = SRAMP_AUDIT + ":auditItem";
+    public static final String SRAMP_AUDIT_ARTIFACT_UUID        = SRAMP_AUDIT + ":artifactUuid";
+    public static final String SRAMP_AUDIT_SORT_ID              = SRAMP_AUDIT + ":sortId";
+    public static final String SRAMP_AUDIT_TYPE                 = SRAMP_AUDIT + ":type";
+    public static final String SRAMP_AUDIT_UUID                 = SRAMP_AUDIT + ":uuid";
+    public static final String SRAMP_AUDIT_WHEN                 = SRAMP_AUDIT + ":when";
+    public static final String SRAMP_AUDIT_WHO                  = SRAMP_AUDIT + ":who";
     public static final String SRAMP_BASE                       = SRAMP_ + "base";
     public static final String SRAMP_BASE_ARTIFACT_TYPE         = SRAMP_ + "baseArtifactType";
     public static final String SRAMP_CLASS                      = SRAMP_ + "class";
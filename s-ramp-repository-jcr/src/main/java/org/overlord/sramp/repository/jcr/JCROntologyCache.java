@@ -0,0 +1,325 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.repository.jcr;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.SimpleCredentials;
+import javax.jcr.observation.Event;
+import javax.jcr.observation.EventIterator;
+import javax.jcr.observation.EventListener;
+import javax.jcr.observation.ObservationManager;
+
+import org.overlord.sramp.common.SrampConfig;
+import org.overlord.sramp.common.ontology.SrampOntology;
+import org.overlord.sramp.common.ontology.SrampOntology.SrampOntologyClass;
+import org.overlord.sramp.repository.jcr.i18n.Messages;
+import org.overlord.sramp.repository.jcr.mapper.JCRNodeToOntology;
+import org.overlord.sramp.repository.jcr.util.JCRUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-memory cache of all ontologies in the repository.  Along with the ontologies
+ * themselves, the cache holds a flat index of every ontology class (by id and by URI) and
+ * the pre-computed normalized (class + ancestors) URI set of each class, so that resolving
+ * and normalizing a classifier doesn't need to touch the repository at all.
+ * <br/>
+ * The cache is invalidated explicitly whenever an ontology is added, updated or deleted
+ * through the persistence manager, and also by a JCR observation listener so that changes
+ * made by other cluster members are picked up.  Every invalidation bumps the cache version,
+ * which prevents a load that was started before the invalidation from being installed.
+ * <br/>
+ * The cached ontologies are shared by every request, so they are never handed out:
+ * {@link #getOntologies()} returns copies.
+ */
+public class JCROntologyCache {
+
+    private static Logger log = LoggerFactory.getLogger(JCROntologyCache.class);
+
+    private static final String ONTOLOGIES_PATH = "/s-ramp/ontologies";
+    private static final int EVENT_TYPES = Event.NODE_ADDED | Event.NODE_REMOVED | Event.PROPERTY_ADDED
+            | Event.PROPERTY_CHANGED | Event.PROPERTY_REMOVED;
+
+    private static JCRNodeToOntology jcr2o = new JCRNodeToOntology();
+
+    private static JCROntologyCache instance;
+
+    /**
+     * @return the ontology cache singleton
+     */
+    public static synchronized JCROntologyCache getInstance() {
+        if (instance == null) {
+            instance = new JCROntologyCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Shuts down the ontology cache singleton.
+     */
+    public static synchronized void destroy() {
+        if (instance != null) {
+            instance.shutdown();
+        }
+        instance = null;
+    }
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot;
+    private Session listenerSession;
+    private boolean listenerSkipped;
+    private final EventListener listener = new EventListener() {
+        @Override
+        public void onEvent(EventIterator events) {
+            invalidate();
+        }
+    };
+
+    /**
+     * Constructor.
+     */
+    protected JCROntologyCache() {
+    }
+
+    /**
+     * @return (copies of) all ontologies in the repository
+     * @throws RepositoryException
+     */
+    public List<SrampOntology> getOntologies() throws RepositoryException {
+        List<SrampOntology> ontologies = getSnapshot().ontologies;
+        List<SrampOntology> copies = new ArrayList<SrampOntology>(ontologies.size());
+        for (SrampOntology ontology : ontologies) {
+            copies.add(copy(ontology));
+        }
+        return copies;
+    }
+
+    /**
+     * Resolves an ontology class id or URI to the URI of the class, or returns null if there
+     * is no such class.
+     * @param idOrUri
+     * @throws RepositoryException
+     */
+    public URI resolve(String idOrUri) throws RepositoryException {
+        Snapshot s = getSnapshot();
+        SrampOntologyClass sclass = s.classesById.get(idOrUri);
+        if (sclass == null) {
+            sclass = s.classesByUri.get(idOrUri);
+        }
+        return sclass == null ? null : sclass.getUri();
+    }
+
+    /**
+     * Returns the normalized set of URIs (the class and all its ancestors) for the given
+     * ontology class URI, or null if the class is unknown.
+     * @param classification
+     * @throws RepositoryException
+     */
+    public Set<URI> normalize(URI classification) throws RepositoryException {
+        return getSnapshot().normalized.get(classification.toString());
+    }
+
+    /**
+     * Discards the cached ontologies.  They will be re-loaded from the repository the
+     * next time they are needed.
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+        snapshot = null;
+    }
+
+    /**
+     * Returns the current snapshot, loading it from the repository if necessary.
+     * @throws RepositoryException
+     */
+    private Snapshot getSnapshot() throws RepositoryException {
+        Snapshot s = snapshot;
+        if (s != null) {
+            return s;
+        }
+        long loadVersion = version.get();
+        Session session = null;
+        try {
+            session = JCRRepositoryFactory.getSession();
+            registerListener();
+            s = load(session);
+        } finally {
+            JCRRepositoryFactory.logoutQuietly(session);
+        }
+        synchronized (this) {
+            // Only install the snapshot if nothing changed while it was being loaded.
+            if (version.get() == loadVersion) {
+                snapshot = s;
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Reads all of the ontologies from the repository and builds the class indexes.
+     * @param session
+     * @throws RepositoryException
+     */
+    private static Snapshot load(Session session) throws RepositoryException {
+        Node ontologiesNode = JCRUtils.findOrCreateNode(session, ONTOLOGIES_PATH, JCRConstants.NT_FOLDER);
+        NodeIterator nodes = ontologiesNode.getNodes();
+        Snapshot s = new Snapshot();
+        while (nodes.hasNext()) {
+            Node node = nodes.nextNode();
+            SrampOntology ontology = new SrampOntology();
+            jcr2o.read(ontology, node);
+            s.ontologies.add(ontology);
+            for (SrampOntologyClass sclass : ontology.getAllClasses()) {
+                // The first ontology to define a class wins (same as a linear search would).
+                String uri = sclass.getUri().toString();
+                if (!s.classesById.containsKey(sclass.getId())) {
+                    s.classesById.put(sclass.getId(), sclass);
+                }
+                if (!s.classesByUri.containsKey(uri)) {
+                    s.classesByUri.put(uri, sclass);
+                    s.normalized.put(uri, Collections.unmodifiableSet(sclass.normalize()));
+                }
+            }
+        }
+        log.debug(Messages.i18n.format("ONTOLOGY_CACHE_LOADED", s.ontologies.size(), s.classesByUri.size()));
+        return s;
+    }
+
+    /**
+     * Registers (once) the JCR observation listener that invalidates the cache whenever
+     * something changes beneath the ontologies node.  The listener lives as long as the
+     * application, so its session is logged in with the configured system credentials (see
+     * {@link SrampConfig#getSystemUser()}) rather than as whichever user's request happens to
+     * load the cache.  Without system credentials, or if the listener cannot be registered, only
+     * local changes invalidate the cache.  If the session stops being live, the listener is
+     * registered again the next time the cache is loaded.
+     */
+    private synchronized void registerListener() {
+        if (listenerSession != null) {
+            if (listenerSession.isLive()) {
+                return;
+            }
+            listenerSession = null;
+        }
+        String user = SrampConfig.getSystemUser();
+        if (user == null || user.trim().length() == 0) {
+            if (!listenerSkipped) {
+                log.info(Messages.i18n.format("ONTOLOGY_LISTENER_NO_CREDENTIALS"));
+                listenerSkipped = true;
+            }
+            return;
+        }
+        try {
+            String password = SrampConfig.getSystemPassword();
+            listenerSession = JCRRepositoryFactory.getSession(new SimpleCredentials(user,
+                    password == null ? new char[0] : password.toCharArray()));
+            JCRUtils.findOrCreateNode(listenerSession, ONTOLOGIES_PATH, JCRConstants.NT_FOLDER);
+            listenerSession.save();
+            ObservationManager observationManager = listenerSession.getWorkspace().getObservationManager();
+            observationManager.addEventListener(listener, EVENT_TYPES, ONTOLOGIES_PATH, true, null, null, false);
+        } catch (RepositoryException e) {
+            log.warn(Messages.i18n.format("ONTOLOGY_LISTENER_FAILED"), e);
+            JCRRepositoryFactory.logoutQuietly(listenerSession);
+            listenerSession = null;
+        }
+    }
+
+    /**
+     * Removes the observation listener and discards the cache.
+     */
+    protected synchronized void shutdown() {
+        if (listenerSession != null) {
+            try {
+                listenerSession.getWorkspace().getObservationManager().removeEventListener(listener);
+            } catch (RepositoryException e) {
+                // Nothing to do - the session is going away anyway.
+            }
+            JCRRepositoryFactory.logoutQuietly(listenerSession);
+            listenerSession = null;
+        }
+        invalidate();
+    }
+
+    /**
+     * Creates a (deep) copy of the given ontology.
+     * @param ontology
+     */
+    private static SrampOntology copy(SrampOntology ontology) {
+        SrampOntology copy = new SrampOntology();
+        copy.setUuid(ontology.getUuid());
+        copy.setId(ontology.getId());
+        copy.setLabel(ontology.getLabel());
+        copy.setComment(ontology.getComment());
+        copy.setBase(ontology.getBase());
+        copy.setCreatedBy(ontology.getCreatedBy());
+        copy.setCreatedOn(copy(ontology.getCreatedOn()));
+        copy.setLastModifiedBy(ontology.getLastModifiedBy());
+        copy.setLastModifiedOn(copy(ontology.getLastModifiedOn()));
+        for (SrampOntologyClass rootClass : ontology.getRootClasses()) {
+            copy.getRootClasses().add(copy(rootClass, null));
+        }
+        return copy;
+    }
+
+    /**
+     * Creates a (deep) copy of the given ontology class and its children.
+     * @param sclass
+     * @param parent the copy of the class's parent
+     */
+    private static SrampOntologyClass copy(SrampOntologyClass sclass, SrampOntologyClass parent) {
+        SrampOntologyClass copy = new SrampOntologyClass();
+        copy.setId(sclass.getId());
+        copy.setLabel(sclass.getLabel());
+        copy.setComment(sclass.getComment());
+        copy.setUri(sclass.getUri());
+        copy.setParent(parent);
+        for (SrampOntologyClass child : sclass.getChildren()) {
+            copy.getChildren().add(copy(child, copy));
+        }
+        return copy;
+    }
+
+    /**
+     * @param date
+     */
+    private static Date copy(Date date) {
+        return date == null ? null : new Date(date.getTime());
+    }
+
+    /**
+     * An immutable view of the ontologies and their class indexes.
+     */
+    private static final class Snapshot {
+        private final List<SrampOntology> ontologies = new ArrayList<SrampOntology>();
+        private final Map<String, SrampOntologyClass> classesById = new HashMap<String, SrampOntologyClass>();
+        private final Map<String, SrampOntologyClass> classesByUri = new HashMap<String, SrampOntologyClass>();
+        private final Map<String, Set<URI>> normalized = new HashMap<String, Set<URI>>();
+    }
+
+}
@@ -20,32 +20,37 @@ import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.ExtendedDocument;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.StoredQuery;
 import org.overlord.sramp.common.*;
+import org.overlord.sramp.common.artifactbuilder.BatchArtifactIndex;
 import org.overlord.sramp.common.ontology.InvalidClassifiedByException;
 import org.overlord.sramp.common.ontology.OntologyAlreadyExistsException;
 import org.overlord.sramp.common.ontology.OntologyNotFoundException;
 import org.overlord.sramp.common.ontology.SrampOntology;
-import org.overlord.sramp.common.ontology.SrampOntology.SrampOntologyClass;
 import org.overlord.sramp.common.storedquery.StoredQueryAlreadyExistsException;
 import org.overlord.sramp.common.storedquery.StoredQueryNotFoundException;
 import org.overlord.sramp.common.visitors.ArtifactVisitorHelper;
+import org.overlord.sramp.integration.ArtifactProcessingPool;
+import org.overlord.sramp.repository.PersistenceListener;
 import org.overlord.sramp.repository.PersistenceManager;
 import org.overlord.sramp.repository.jcr.audit.ArtifactJCRNodeDiffer;
+import org.overlord.sramp.repository.jcr.audit.JCRAuditWriter;
 import org.overlord.sramp.repository.jcr.i18n.Messages;
 import org.overlord.sramp.repository.jcr.mapper.*;
-import org.overlord.sramp.repository.jcr.util.DeleteOnCloseFileInputStream;
 import org.overlord.sramp.repository.jcr.util.JCRArtifactConstraintUtil;
 import org.overlord.sramp.repository.jcr.util.JCRUtils;
+import org.overlord.sramp.repository.jcr.util.SessionBoundInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.jcr.Binary;
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
 import javax.jcr.Session;
-import java.io.File;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 /**
  * A JCR-specific implementation of the {@link PersistenceManager} interface, providing a JCR backend implementation
@@ -64,8 +69,6 @@ public class JCRPersistence implements PersistenceManager, ClassificationHelper
     private static StoredQueryToJCRNode q2jcr = new StoredQueryToJCRNode();
     private static JCRNodeToStoredQuery jcr2q = new JCRNodeToStoredQuery();
 
-    //  private Map<String, SrampOntology> ontologyCache = new HashMap<String, SrampOntology>();
-
     /**
      * Default constructor.
      */
@@ -79,11 +82,30 @@ public class JCRPersistence implements PersistenceManager, ClassificationHelper
         try {
             session = JCRRepositoryFactory.getSession();
 
-            // First, persist each item, *without* relationships.
-            for (BatchItem item : items) {
+            // First, run the artifact builders for every item.  They only look at the item's own content, so
+            // they run in parallel.  Everything that touches the session stays on this thread.
+            List<Future<JCRArtifactPersister>> persisters = new ArrayList<Future<JCRArtifactPersister>>(items.size());
+            for (final BatchItem item : items) {
+                persisters.add(ArtifactProcessingPool.submit(new Callable<JCRArtifactPersister>() {
+                    @Override
+                    public JCRArtifactPersister call() throws Exception {
+                        JCRArtifactPersister persister = new JCRArtifactPersister(item.baseArtifactType, item.content,
+                                JCRPersistence.this);
+                        persister.buildArtifacts();
+                        return persister;
+                    }
+                }));
+            }
+
+            // Then, persist each item (in order, as its builders finish), *without* relationships.  Everything
+            // that was persisted is indexed, so that relationships between the items can be resolved in memory.
+            BatchArtifactIndex batchIndex = new BatchArtifactIndex();
+            for (int idx = 0; idx < items.size(); idx++) {
+                BatchItem item = items.get(idx);
                 try {
-                    JCRArtifactPersister persister = new JCRArtifactPersister(item.baseArtifactType, item.content, this);
+                    JCRArtifactPersister persister = ArtifactProcessingPool.get(persisters.get(idx));
                     persister.persistArtifact(session);
+                    persister.addToIndex(batchIndex);
                     item.attributes.put("persister", persister);
                 } catch (Exception e) {
                     item.attributes.put("result", e);
@@ -96,7 +118,7 @@ public class JCRPersistence implements PersistenceManager, ClassificationHelper
                 try {
                     if (item.attributes.containsKey("persister")) {
                         JCRArtifactPersister persister = (JCRArtifactPersister) item.attributes.get("persister");
-                        persister.persistArtifactRelationships(session);
+                        persister.persistArtifactRelationships(session, batchIndex);
                         BaseArtifactType artifact = JCRNodeToArtifactFactory.createArtifact(
                                 session, persister.getPrimaryArtifactNode(), ArtifactType.valueOf(item.baseArtifactType));
                         item.attributes.put("result", artifact);
@@ -108,7 +130,11 @@ public class JCRPersistence implements PersistenceManager, ClassificationHelper
 
             // And return the appropriate value for each item
             for (BatchItem item : items) {
-                rval.add(item.attributes.get("result"));
+                Object result = item.attributes.get("result");
+                if (result instanceof BaseArtifactType) {
+                    JCRPersistenceListeners.getInstance().artifactPersisted((BaseArtifactType) result);
+                }
+                rval.add(result);
             }
         } catch (Throwable t) {
             throw new SrampServerException(t);
@@ -137,8 +163,10 @@ public class JCRPersistence implements PersistenceManager, ClassificationHelper
             }
 
             // Create the S-RAMP Artifact object from the JCR node
-            return JCRNodeToArtifactFactory.createArtifact(session, JCRUtils.findArtifactNode(
+            BaseArtifactType persisted = JCRNodeToArtifactFactory.createArtifact(session, JCRUtils.findArtifactNode(
                     primaryArtifact.getUuid(), artifactType, session), artifactType);
+            JCRPersistenceListeners.getInstance().artifactPersisted(persisted);
+            return persisted;
         } catch (SrampException se) {
             throw se;
         } catch (Throwable t) {
@@ -178,9 +206,71 @@ public class JCRPersistence implements PersistenceManager, ClassificationHelper
         }
     }
 
+    @Override
+    public List<BaseArtifactType> getArtifacts(Collection<String> uuids) throws SrampException {
+        Map<String, BaseArtifactType> found = new HashMap<String, BaseArtifactType>();
+        Session session = null;
+        try {
+            session = JCRRepositoryFactory.getSession();
+            // Primary artifacts can be found directly by their path.  Anything else (derived
+            // artifacts, or a UUID that doesn't exist) is looked up using a single query.  Just
+            // like getArtifact, deleted artifacts (and the artifacts derived from them) are skipped.
+            StringBuilder remaining = new StringBuilder();
+            for (String uuid : uuids) {
+                // A UUID with a quote in it can't exist (and mustn't end up in the query).
+                if (found.containsKey(uuid) || uuid.indexOf('\'') != -1) {
+                    continue;
+                }
+                String artifactPath = MapToJCRPath.getArtifactPath(uuid);
+                if (session.nodeExists(artifactPath)) {
+                    Node node = session.getNode(artifactPath);
+                    if (!JCRUtils.isDeleted(node)) {
+                        found.put(uuid, JCRNodeToArtifactFactory.createArtifact(session, node));
+                    }
+                } else {
+                    if (remaining.length() > 0) {
+                        remaining.append(", ");
+                    }
+                    remaining.append('\'').append(uuid).append('\'');
+                }
+            }
+            if (remaining.length() > 0) {
+                String jcrSql2Query = String.format("SELECT * FROM [sramp:baseArtifactType] WHERE [sramp:uuid] IN (%1$s)",
+                        remaining) + JCRConstants.NOT_DELETED_FILTER;
+                javax.jcr.query.Query jcrQuery = session.getWorkspace().getQueryManager().createQuery(jcrSql2Query,
+                        JCRConstants.JCR_SQL2);
+                NodeIterator nodes = jcrQuery.execute().getNodes();
+                while (nodes.hasNext()) {
+                    Node node = nodes.nextNode();
+                    if (!JCRUtils.isDeleted(node)) {
+                        found.put(node.getProperty(JCRConstants.SRAMP_UUID).getString(),
+                                JCRNodeToArtifactFactory.createArtifact(session, node));
+                    }
+                }
+            }
+        } catch (SrampException se) {
+            throw se;
+        } catch (Throwable t) {
+            throw new SrampServerException(t);
+        } finally {
+            JCRRepositoryFactory.logoutQuietly(session);
+        }
+
+        List<BaseArtifactType> rval = new ArrayList<BaseArtifactType>(found.size());
+        Set<String> added = new HashSet<String>();
+        for (String uuid : uuids) {
+            BaseArtifactType artifact = found.get(uuid);
+            if (artifact != null && added.add(uuid)) {
+                rval.add(artifact);
+            }
+        }
+        return rval;
+    }
+
     @Override
     public InputStream getArtifactContent(String uuid, ArtifactType type) throws SrampException {
         Session session = null;
+        boolean streaming = false;
 
         try {
             session = JCRRepositoryFactory.getSession();
@@ -199,14 +289,19 @@ public class JCRPersistence implements PersistenceManager, ClassificationHelper
                 }
             }
             Node artifactContentNode = artifactNode.getNode(JCRConstants.JCR_CONTENT);
-            File tempFile = JCRArtifactPersister.saveToTempFile(artifactContentNode);
-            return new DeleteOnCloseFileInputStream(tempFile);
+            // Stream straight from the binary - the session is closed when the stream is.
+            Binary binary = artifactContentNode.getProperty(JCRConstants.JCR_DATA).getBinary();
+            InputStream content = new SessionBoundInputStream(binary, session);
+            streaming = true;
+            return content;
         } catch (SrampException se) {
             throw se;
         } catch (Throwable t) {
             throw new SrampServerException(t);
         } finally {
-            JCRRepositoryFactory.logoutQuietly(session);
+            if (!streaming) {
+                JCRRepositoryFactory.logoutQuietly(session);
+            }
         }
     }
 
@@ -228,7 +323,13 @@ public class JCRPersistence implements PersistenceManager, ClassificationHelper
                     new JCRReferenceFactoryImpl(session), this);
             ArtifactVisitorHelper.visitArtifact(visitor, artifact);
             visitor.throwError();
-            session.save();
+            // The diff is computed against the (unsaved) node state so that, with "sync" audit
+            // durability, the audit entry is committed in the same save as the update itself (and,
+            // otherwise, only queued once that save has succeeded).
+            if (SrampConfig.isAuditingEnabled()) {
+                JCRArtifactPersister.auditUpdateArtifact(differ, artifactNode);
+            }
+            JCRAuditWriter.save(session);
 
             log.debug(Messages.i18n.format("UPDATED_ARTY_META_DATA", artifact.getUuid()));
 
@@ -236,12 +337,9 @@ public class JCRPersistence implements PersistenceManager, ClassificationHelper
                 printArtifactGraph(artifact.getUuid(), type);
             }
 
-            if (SrampConfig.isAuditingEnabled()) {
-                JCRArtifactPersister.auditUpdateArtifact(differ, artifactNode);
-                session.save();
-            }
-
-            return JCRNodeToArtifactFactory.createArtifact(session, artifactNode, type);
+            BaseArtifactType updated = JCRNodeToArtifactFactory.createArtifact(session, artifactNode, type);
+            JCRPersistenceListeners.getInstance().artifactPersisted(updated);
+            return updated;
         } catch (SrampException se) {
             throw se;
         } catch (Throwable t) {
@@ -282,8 +380,10 @@ public class JCRPersistence implements PersistenceManager, ClassificationHelper
             log.debug(Messages.i18n.format("UPDATED_ARTY_CONTENT", uuid));
 
             // Create the S-RAMP Artifact object from the JCR node
-            return JCRNodeToArtifactFactory.createArtifact(session, JCRUtils.findArtifactNode(
+            BaseArtifactType updated = JCRNodeToArtifactFactory.createArtifact(session, JCRUtils.findArtifactNode(
                     primaryArtifact.getUuid(), type, session), type);
+            JCRPersistenceListeners.getInstance().artifactPersisted(updated);
+            return updated;
         } catch (SrampException se) {
             throw se;
         } catch (Throwable t) {
@@ -317,10 +417,16 @@ public class JCRPersistence implements PersistenceManager, ClassificationHelper
             JCRUtils.findOrCreateNode(session, parentTrashPath, JCRConstants.NT_FOLDER);
             // Move the jcr node
             session.move(srcPath, trashPath);
-            session.save();
+            // The artifact's audit trail is kept (and gets a final "delete" entry).
+            if (SrampConfig.isAuditingEnabled()) {
+                JCRArtifactPersister.auditDeleteArtifact(artifactNode);
+            }
+            JCRAuditWriter.save(session);
             log.debug(Messages.i18n.format("DELETED_ARTY", uuid));
             
-            return JCRNodeToArtifactFactory.createArtifact(session, artifactNode, type);
+            BaseArtifactType deleted = JCRNodeToArtifactFactory.createArtifact(session, artifactNode, type);
+            JCRPersistenceListeners.getInstance().artifactDeleted(deleted);
+            return deleted;
         } catch (SrampException se) {
             throw se;
         } catch (Throwable t) {
@@ -360,8 +466,10 @@ public class JCRPersistence implements PersistenceManager, ClassificationHelper
             log.debug(Messages.i18n.format("DELETED_ARTY_CONTENT", uuid));
 
             // Create the S-RAMP Artifact object from the JCR node
-            return JCRNodeToArtifactFactory.createArtifact(session, JCRUtils.findArtifactNode(
+            BaseArtifactType updated = JCRNodeToArtifactFactory.createArtifact(session, JCRUtils.findArtifactNode(
                     uuid, type, session), type);
+            JCRPersistenceListeners.getInstance().artifactPersisted(updated);
+            return updated;
         } catch (SrampException se) {
             throw se;
         } catch (Throwable t) {
@@ -396,6 +504,7 @@ public class JCRPersistence implements PersistenceManager, ClassificationHelper
                 Node ontologyNode = ontologiesNode.addNode(ontology.getUuid(), JCRConstants.SRAMP_ONTOLOGY);
                 o2jcr.write(ontology, ontologyNode);
                 session.save();
+                JCROntologyCache.getInstance().invalidate();
                 log.debug(Messages.i18n.format("SAVED_ONTOLOGY", ontology.getUuid()));
                 return ontology;
             }
@@ -436,25 +545,10 @@ public class JCRPersistence implements PersistenceManager, ClassificationHelper
 
     @Override
     public List<SrampOntology> getOntologies() throws SrampException {
-        // TODO add caching based on the last modified date of the ontology node
-        Session session = null;
-
         try {
-            session = JCRRepositoryFactory.getSession();
-            Node ontologiesNode = JCRUtils.findOrCreateNode(session, "/s-ramp/ontologies", JCRConstants.NT_FOLDER);
-            NodeIterator nodes = ontologiesNode.getNodes();
-            List<SrampOntology> ontologies = new ArrayList<SrampOntology>();
-            while (nodes.hasNext()) {
-                Node node = nodes.nextNode();
-                SrampOntology ontology = new SrampOntology();
-                jcr2o.read(ontology, node);
-                ontologies.add(ontology);
-            }
-            return ontologies;
+            return JCROntologyCache.getInstance().getOntologies();
         } catch (Throwable t) {
             throw new SrampServerException(t);
-        } finally {
-            JCRRepositoryFactory.logoutQuietly(session);
         }
     }
 
@@ -473,6 +567,7 @@ public class JCRPersistence implements PersistenceManager, ClassificationHelper
             }
             log.debug(Messages.i18n.format("UPDATED_ONTOLOGY", ontology.getUuid()));
             session.save();
+            JCROntologyCache.getInstance().invalidate();
         } catch (SrampException se) {
             throw se;
         } catch (Throwable t) {
@@ -496,6 +591,7 @@ public class JCRPersistence implements PersistenceManager, ClassificationHelper
                 throw new OntologyNotFoundException(uuid);
             }
             session.save();
+            JCROntologyCache.getInstance().invalidate();
             log.debug(Messages.i18n.format("DELETED_ONTOLOGY", uuid));
         } catch (SrampException se) {
             throw se;
@@ -638,33 +734,34 @@ public class JCRPersistence implements PersistenceManager, ClassificationHelper
 
     @Override
     public URI resolve(String classifiedBy) throws SrampException {
-        URI classifiedUri = null;
+        // The classifier must at least be a valid URI.
         try {
-            classifiedUri = new URI(classifiedBy);
+            new URI(classifiedBy);
         } catch (URISyntaxException e) {
             throw new InvalidClassifiedByException(classifiedBy);
         }
-        Collection<SrampOntology> ontologies = getOntologies();
-        for (SrampOntology ontology : ontologies) {
-            SrampOntologyClass sclass = ontology.findClass(classifiedBy);
-            if (sclass == null) {
-                sclass = ontology.findClass(classifiedUri);
-            }
-            if (sclass != null) {
-                return sclass.getUri();
-            }
+        URI resolved = null;
+        try {
+            resolved = JCROntologyCache.getInstance().resolve(classifiedBy);
+        } catch (Throwable t) {
+            throw new SrampServerException(t);
+        }
+        if (resolved != null) {
+            return resolved;
         }
         throw new InvalidClassifiedByException(classifiedBy);
     }
 
     @Override
     public Collection<URI> normalize(URI classification) throws SrampException {
-        List<SrampOntology> ontologies = getOntologies();
-        for (SrampOntology ontology : ontologies) {
-            SrampOntologyClass sclass = ontology.findClass(classification);
-            if (sclass != null) {
-                return sclass.normalize();
-            }
+        Collection<URI> normalized = null;
+        try {
+            normalized = JCROntologyCache.getInstance().normalize(classification);
+        } catch (Throwable t) {
+            throw new SrampServerException(t);
+        }
+        if (normalized != null) {
+            return normalized;
         }
         throw new InvalidClassifiedByException(classification.toString());
     }
@@ -703,10 +800,21 @@ public class JCRPersistence implements PersistenceManager, ClassificationHelper
         }
     }
 
+    @Override
+    public void addListener(PersistenceListener listener) {
+        JCRPersistenceListeners.getInstance().addListener(listener);
+    }
+
+    @Override
+    public void removeListener(PersistenceListener listener) {
+        JCRPersistenceListeners.getInstance().removeListener(listener);
+    }
+
     @Override
     public void startup() {
         try {
             JCRExtensions.getInstance().startup();
+            JCRAuditWriter.startup();
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -714,6 +822,9 @@ public class JCRPersistence implements PersistenceManager, ClassificationHelper
     
     @Override
     public void shutdown() {
+        JCRAuditWriter.destroy();
+        JCRPersistenceListeners.destroy();
+        JCROntologyCache.destroy();
         JCRRepositoryFactory.destroy();
     }
 
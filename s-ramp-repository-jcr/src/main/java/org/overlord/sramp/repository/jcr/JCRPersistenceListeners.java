@@ -0,0 +1,220 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.repository.jcr;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.SimpleCredentials;
+import javax.jcr.observation.Event;
+import javax.jcr.observation.EventIterator;
+import javax.jcr.observation.EventListener;
+
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
+import org.overlord.sramp.common.SrampConfig;
+import org.overlord.sramp.repository.PersistenceListener;
+import org.overlord.sramp.repository.jcr.i18n.Messages;
+import org.overlord.sramp.repository.jcr.util.JCRUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link PersistenceListener}s registered with the {@link JCRPersistence}.  Artifacts changed
+ * through the persistence manager are handed to the listeners directly.  Changes made by any other
+ * server sharing the repository are picked up by a JCR observation listener on the artifacts tree,
+ * which ignores the changes saved by this server's own sessions (see
+ * {@link JCRRepositoryFactory#LOCAL_USER_DATA}) and tells the listeners about the rest.
+ */
+public class JCRPersistenceListeners {
+
+    private static Logger log = LoggerFactory.getLogger(JCRPersistenceListeners.class);
+
+    private static final String ARTIFACTS_PATH = JCRConstants.ROOT_PATH + "/artifacts";
+    private static final int EVENT_TYPES = Event.NODE_ADDED | Event.NODE_REMOVED | Event.NODE_MOVED
+            | Event.PROPERTY_ADDED | Event.PROPERTY_CHANGED | Event.PROPERTY_REMOVED;
+
+    private static JCRPersistenceListeners instance;
+
+    /**
+     * @return the listeners singleton
+     */
+    public static synchronized JCRPersistenceListeners getInstance() {
+        if (instance == null) {
+            instance = new JCRPersistenceListeners();
+        }
+        return instance;
+    }
+
+    /**
+     * Shuts down the listeners singleton.
+     */
+    public static synchronized void destroy() {
+        if (instance != null) {
+            instance.shutdown();
+        }
+        instance = null;
+    }
+
+    private final List<PersistenceListener> listeners = new CopyOnWriteArrayList<PersistenceListener>();
+    private Session observerSession;
+    private final EventListener observer = new EventListener() {
+        @Override
+        public void onEvent(EventIterator events) {
+            while (events.hasNext()) {
+                if (!isLocal(events.nextEvent())) {
+                    artifactsChanged();
+                    return;
+                }
+            }
+        }
+    };
+
+    /**
+     * Constructor.
+     */
+    protected JCRPersistenceListeners() {
+    }
+
+    /**
+     * Registers a listener.
+     * @param listener
+     */
+    public synchronized void addListener(PersistenceListener listener) {
+        listeners.add(listener);
+        registerObserver();
+    }
+
+    /**
+     * Unregisters a listener.
+     * @param listener
+     */
+    public synchronized void removeListener(PersistenceListener listener) {
+        listeners.remove(listener);
+        if (listeners.isEmpty()) {
+            unregisterObserver();
+        }
+    }
+
+    /**
+     * Tells the listeners that an artifact was created or updated.
+     * @param artifact
+     */
+    public void artifactPersisted(BaseArtifactType artifact) {
+        for (PersistenceListener listener : listeners) {
+            try {
+                listener.artifactPersisted(artifact);
+            } catch (RuntimeException e) {
+                log.warn(Messages.i18n.format("PERSISTENCE_LISTENER_FAILED", listener), e);
+            }
+        }
+    }
+
+    /**
+     * Tells the listeners that an artifact was deleted.
+     * @param artifact
+     */
+    public void artifactDeleted(BaseArtifactType artifact) {
+        for (PersistenceListener listener : listeners) {
+            try {
+                listener.artifactDeleted(artifact);
+            } catch (RuntimeException e) {
+                log.warn(Messages.i18n.format("PERSISTENCE_LISTENER_FAILED", listener), e);
+            }
+        }
+    }
+
+    /**
+     * Tells the listeners that artifacts were changed by another server.
+     */
+    public void artifactsChanged() {
+        for (PersistenceListener listener : listeners) {
+            try {
+                listener.artifactsChanged();
+            } catch (RuntimeException e) {
+                log.warn(Messages.i18n.format("PERSISTENCE_LISTENER_FAILED", listener), e);
+            }
+        }
+    }
+
+    /**
+     * Returns true if the event was caused by a session of this server.
+     * @param event
+     */
+    private static boolean isLocal(Event event) {
+        try {
+            return JCRRepositoryFactory.LOCAL_USER_DATA.equals(event.getUserData());
+        } catch (RepositoryException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Registers (once) the JCR observation listener on the artifacts tree.  Like the ontology
+     * cache's listener (see {@link JCROntologyCache}), it lives as long as the application, so
+     * its session is logged in with the configured system credentials.  Without them, or if the
+     * listener cannot be registered, only the changes made through this server are seen.
+     */
+    private synchronized void registerObserver() {
+        if (observerSession != null && observerSession.isLive()) {
+            return;
+        }
+        observerSession = null;
+        String user = SrampConfig.getSystemUser();
+        if (user == null || user.trim().length() == 0) {
+            log.info(Messages.i18n.format("ARTIFACT_LISTENER_NO_CREDENTIALS"));
+            return;
+        }
+        try {
+            String password = SrampConfig.getSystemPassword();
+            observerSession = JCRRepositoryFactory.getSession(new SimpleCredentials(user,
+                    password == null ? new char[0] : password.toCharArray()));
+            JCRUtils.findOrCreateNode(observerSession, ARTIFACTS_PATH, JCRConstants.NT_FOLDER);
+            observerSession.save();
+            observerSession.getWorkspace().getObservationManager().addEventListener(observer, EVENT_TYPES,
+                    ARTIFACTS_PATH, true, null, null, false);
+        } catch (RepositoryException e) {
+            log.warn(Messages.i18n.format("ARTIFACT_LISTENER_FAILED"), e);
+            JCRRepositoryFactory.logoutQuietly(observerSession);
+            observerSession = null;
+        }
+    }
+
+    /**
+     * Removes the JCR observation listener.
+     */
+    private synchronized void unregisterObserver() {
+        if (observerSession != null) {
+            try {
+                observerSession.getWorkspace().getObservationManager().removeEventListener(observer);
+            } catch (RepositoryException e) {
+                // Nothing to do - the session is going away anyway.
+            }
+            JCRRepositoryFactory.logoutQuietly(observerSession);
+            observerSession = null;
+        }
+    }
+
+    /**
+     * Removes the observation listener and all of the listeners.
+     */
+    protected synchronized void shutdown() {
+        unregisterObserver();
+        listeners.clear();
+    }
+
+}
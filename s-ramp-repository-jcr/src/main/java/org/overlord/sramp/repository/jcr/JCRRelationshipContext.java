@@ -24,6 +24,7 @@ import javax.jcr.Session;
 
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
 import org.overlord.sramp.common.SrampException;
+import org.overlord.sramp.common.artifactbuilder.BatchArtifactIndex;
 import org.overlord.sramp.common.artifactbuilder.RelationshipContext;
 import org.overlord.sramp.repository.jcr.query.JCRSrampQuery;
 import org.overlord.sramp.repository.query.ArtifactSet;
@@ -35,13 +36,25 @@ import org.overlord.sramp.repository.query.ArtifactSet;
 public class JCRRelationshipContext implements RelationshipContext {
 
     private final Session session;
+    private final BatchArtifactIndex batchIndex;
 
     /**
      * Constructor.
      * @param session
      */
     public JCRRelationshipContext(Session session) {
+        this(session, null);
+    }
+
+    /**
+     * Constructor.  Artifacts are looked up in the given batch index first, and the repository is
+     * only queried when the batch doesn't contain a match.
+     * @param session
+     * @param batchIndex
+     */
+    public JCRRelationshipContext(Session session, BatchArtifactIndex batchIndex) {
         this.session = session;
+        this.batchIndex = batchIndex;
     }
 
     /**
@@ -50,6 +63,13 @@ public class JCRRelationshipContext implements RelationshipContext {
     @Override
     public Collection<BaseArtifactType> findArtifacts(String model, String type,
             Map<String, String> criteria) {
+        if (batchIndex != null) {
+            Collection<BaseArtifactType> artifacts = batchIndex.findArtifacts(model, type, criteria);
+            if (artifacts != null && !artifacts.isEmpty()) {
+                return artifacts;
+            }
+        }
+
         StringBuilder builder = new StringBuilder();
         builder.append("/s-ramp/").append(model).append("/").append(type);
         if (!criteria.isEmpty()) {
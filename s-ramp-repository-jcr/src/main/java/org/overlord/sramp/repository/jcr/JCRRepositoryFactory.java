@@ -15,11 +15,14 @@
  */
 package org.overlord.sramp.repository.jcr;
 
+import java.util.UUID;
+
 import javax.jcr.Credentials;
 import javax.jcr.LoginException;
 import javax.jcr.NoSuchWorkspaceException;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
+import javax.jcr.observation.ObservationManager;
 
 import org.overlord.commons.services.ServiceRegistryUtil;
 import org.overlord.sramp.repository.jcr.i18n.Messages;
@@ -29,6 +32,12 @@ import org.slf4j.LoggerFactory;
 public class JCRRepositoryFactory {
 
     public static String WORKSPACE_NAME = "default";
+    /**
+     * The user data (see {@link ObservationManager#setUserData(String)}) of every session handed out
+     * by this factory.  It lets observation listeners tell the changes made by this server apart
+     * from those made by any other server sharing the repository.
+     */
+    public static final String LOCAL_USER_DATA = "s-ramp:" + UUID.randomUUID().toString();
 	private static Logger log = LoggerFactory.getLogger(JCRRepositoryFactory.class);
 
 	private static JCRRepository instance;
@@ -76,7 +85,32 @@ public class JCRRepositoryFactory {
         // the anonymous auth provider (if configured) or any other auth provider that might
         // be configured *and* can accept null creds.  Typically this means the JAAS provider,
         // which should use the current JAAS subject in the absence of credentials.
-        return getInstance().getRepo().login(loginCredentials.get(), WORKSPACE_NAME);
+        return markLocal(getInstance().getRepo().login(loginCredentials.get(), WORKSPACE_NAME));
+    }
+
+    /**
+     * Gets a JCR session for the given credentials rather than those of the current request.  This
+     * is used by work that happens outside of any request, like the background audit writer.
+     * @param credentials
+     * @throws RepositoryException
+     */
+    public static Session getSession(Credentials credentials) throws RepositoryException {
+        return markLocal(getInstance().getRepo().login(credentials, WORKSPACE_NAME));
+    }
+
+    /**
+     * Tags the changes saved by the given session as made by this server (see {@link #LOCAL_USER_DATA}).
+     * @param session
+     * @throws RepositoryException
+     */
+    private static Session markLocal(Session session) throws RepositoryException {
+        try {
+            session.getWorkspace().getObservationManager().setUserData(LOCAL_USER_DATA);
+            return session;
+        } catch (RepositoryException e) {
+            logoutQuietly(session);
+            throw e;
+        }
     }
 
     /**
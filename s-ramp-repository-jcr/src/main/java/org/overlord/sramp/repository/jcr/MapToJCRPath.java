@@ -15,12 +15,16 @@
  */
 package org.overlord.sramp.repository.jcr;
 
+import java.util.Calendar;
+import java.util.TimeZone;
+
 import javax.jcr.RepositoryException;
 import static org.overlord.sramp.repository.jcr.JCRConstants.ROOT_PATH;
 
 public class MapToJCRPath {
 
     private static int folderDepth     = 3;
+    private static final TimeZone UTC  = TimeZone.getTimeZone("UTC");
 
     /**
      * Given an artifact path, return the path to where that artifact would live if it were to
@@ -42,6 +46,24 @@ public class MapToJCRPath {
         return ROOT_PATH + "/artifacts/" + bTreePath(uuid);
     }
 
+    /**
+     * "/s-ramp/audit/[yyyy]/[MM]/[dd]/[UUID]"
+     *
+     * Audit entries are kept in their own time-bucketed tree rather than as children of
+     * the artifact node, so that frequently updated artifacts do not accumulate an
+     * unbounded number of child nodes.
+     *
+     * @param auditEntryUuid - Universally Unique ID of the audit entry
+     * @param timestamp - creation time of the audit entry (millis)
+     * @return path: "/s-ramp/audit/[yyyy]/[MM]/[dd]/[UUID]"
+     */
+    public static String getAuditEntryPath(String auditEntryUuid, long timestamp) {
+        Calendar cal = Calendar.getInstance(UTC);
+        cal.setTimeInMillis(timestamp);
+        return String.format("%1$s/audit/%2$04d/%3$02d/%4$02d/%5$s", ROOT_PATH, cal.get(Calendar.YEAR),
+                cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH), auditEntryUuid);
+    }
+
     /**
      * "/s-ramp/artifacts/[UUID]"
      *
@@ -19,10 +19,12 @@ import java.util.Iterator;
 
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 
 import org.jboss.downloads.overlord.sramp._2013.auditing.AuditEntry;
 import org.overlord.sramp.repository.audit.AuditEntrySet;
+import org.overlord.sramp.repository.jcr.JCRConstants;
 import org.overlord.sramp.repository.jcr.JCRRepositoryFactory;
 import org.overlord.sramp.repository.jcr.mapper.JCRNodeToAuditEntryFactory;
 
@@ -35,6 +37,8 @@ public class JCRAuditEntrySet implements AuditEntrySet, Iterator<AuditEntry> {
 
     private final Session session;
     private final NodeIterator jcrNodes;
+    private final String countQuery;
+    private Long totalSize;
 
     /**
      * Constructor.
@@ -42,8 +46,33 @@ public class JCRAuditEntrySet implements AuditEntrySet, Iterator<AuditEntry> {
      * @param jcrNodes
      */
     public JCRAuditEntrySet(Session session, NodeIterator jcrNodes) {
+        this(session, jcrNodes, null);
+    }
+
+    /**
+     * Constructor.  When the nodes are only a single page of the result, the given (un-paged)
+     * count query is used to determine the total number of matching audit entries.  It is only
+     * run if (and when) {@link #size()} is called.
+     * @param session
+     * @param jcrNodes
+     * @param countQuery
+     */
+    public JCRAuditEntrySet(Session session, NodeIterator jcrNodes, String countQuery) {
         this.session = session;
         this.jcrNodes = jcrNodes;
+        this.countQuery = countQuery;
+    }
+
+    /**
+     * Constructor.  The nodes are a single page of the result, and the total number of matching
+     * audit entries is already known.
+     * @param session
+     * @param jcrNodes
+     * @param totalSize
+     */
+    public JCRAuditEntrySet(Session session, NodeIterator jcrNodes, long totalSize) {
+        this(session, jcrNodes, null);
+        this.totalSize = totalSize;
     }
 
     /**
@@ -59,7 +88,20 @@ public class JCRAuditEntrySet implements AuditEntrySet, Iterator<AuditEntry> {
      */
     @Override
     public long size() {
-        return this.jcrNodes.getSize();
+        if (this.totalSize != null) {
+            return this.totalSize;
+        }
+        if (this.countQuery == null) {
+            return this.jcrNodes.getSize();
+        }
+        try {
+            javax.jcr.query.QueryManager jcrQueryManager = this.session.getWorkspace().getQueryManager();
+            javax.jcr.query.Query jcrQuery = jcrQueryManager.createQuery(this.countQuery, JCRConstants.JCR_SQL2);
+            this.totalSize = jcrQuery.execute().getRows().getSize();
+        } catch (RepositoryException e) {
+            throw new RuntimeException(e);
+        }
+        return this.totalSize;
     }
 
     /**
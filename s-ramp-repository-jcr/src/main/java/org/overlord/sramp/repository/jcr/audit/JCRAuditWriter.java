@@ -0,0 +1,458 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.repository.jcr.audit;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.jcr.Credentials;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.SimpleCredentials;
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+
+import org.jboss.downloads.overlord.sramp._2013.auditing.AuditEntry;
+import org.jboss.downloads.overlord.sramp._2013.auditing.AuditItemType;
+import org.jboss.downloads.overlord.sramp._2013.auditing.AuditItemType.Property;
+import org.overlord.sramp.common.SrampConfig;
+import org.overlord.sramp.repository.jcr.JCRConstants;
+import org.overlord.sramp.repository.jcr.JCRRepositoryFactory;
+import org.overlord.sramp.repository.jcr.MapToJCRPath;
+import org.overlord.sramp.repository.jcr.i18n.Messages;
+import org.overlord.sramp.repository.jcr.util.JCRUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes audit entries to the JCR audit tree.  Depending on the configured durability
+ * (see {@link SrampConfig#getAuditDurability()}) the audit entry is either written
+ * in the caller's session (and therefore saved along with the artifact change), or it is
+ * queued and written later by a single background thread that group-commits everything
+ * that is pending in one session save.
+ */
+public class JCRAuditWriter {
+
+    private static Logger log = LoggerFactory.getLogger(JCRAuditWriter.class);
+
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final int MAX_BATCH_ATTEMPTS = 3;
+    private static final long MIN_RETRY_DELAY = 1000l;
+    private static final long MAX_RETRY_DELAY = 30000l;
+    private static final long SHUTDOWN_TIMEOUT = 30000l;
+
+    /**
+     * The supported audit durability modes.
+     */
+    public static enum Durability {
+        sync, async, asyncInterval;
+
+        /**
+         * Parses the configured durability value.
+         * @param value
+         */
+        public static Durability fromConfig(String value) {
+            if ("async".equalsIgnoreCase(value)) {
+                return async;
+            } else if ("async-interval".equalsIgnoreCase(value)) {
+                return asyncInterval;
+            } else {
+                return sync;
+            }
+        }
+    }
+
+    private static final DatatypeFactory dtFactory;
+    static {
+        try {
+            dtFactory = DatatypeFactory.newInstance();
+        } catch (DatatypeConfigurationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static JCRAuditWriter instance;
+
+    /**
+     * @return the audit writer singleton
+     */
+    public static synchronized JCRAuditWriter getInstance() {
+        if (instance == null) {
+            Durability durability = Durability.fromConfig(SrampConfig.getAuditDurability());
+            Credentials credentials = null;
+            if (durability != Durability.sync) {
+                // The background writer runs outside of any request, so it can't use the
+                // request's credentials - it needs its own.
+                String user = SrampConfig.getAuditUser();
+                if (user == null || user.trim().length() == 0) {
+                    throw new IllegalStateException(Messages.i18n.format("AUDIT_USER_REQUIRED", SrampConfig.getAuditDurability()));
+                }
+                String password = SrampConfig.getAuditPassword();
+                credentials = new SimpleCredentials(user, password == null ? new char[0] : password.toCharArray());
+            }
+            instance = new JCRAuditWriter(durability, SrampConfig.getAuditCommitInterval(), credentials);
+        }
+        return instance;
+    }
+
+    /**
+     * Creates the audit writer singleton.  When auditing is asynchronous, this also makes sure
+     * that the background writer is able to log in to the repository, so that a misconfiguration
+     * is reported at startup rather than by losing audit entries later on.
+     * @throws RepositoryException
+     */
+    public static void startup() throws RepositoryException {
+        if (!SrampConfig.isAuditingEnabled()) {
+            return;
+        }
+        JCRAuditWriter writer = getInstance();
+        if (writer.credentials != null) {
+            JCRRepositoryFactory.logoutQuietly(writer.login());
+        }
+    }
+
+    /**
+     * Shuts down the audit writer singleton, flushing any pending audit entries.
+     */
+    public static synchronized void destroy() {
+        if (instance != null) {
+            instance.shutdown();
+        }
+        instance = null;
+    }
+
+    private final Durability durability;
+    private final long commitInterval;
+    private final Credentials credentials;
+    private final BlockingQueue<PendingAuditEntry> queue = new LinkedBlockingQueue<PendingAuditEntry>();
+    /* Entries written to sessions that haven't been saved yet - only queued once the save succeeds */
+    private final Map<Session, List<PendingAuditEntry>> unsaved = new WeakHashMap<Session, List<PendingAuditEntry>>();
+    private Thread writerThread;
+    private volatile boolean running;
+
+    /**
+     * Constructor.
+     * @param durability
+     * @param commitInterval
+     * @param credentials the credentials used by the background writer
+     */
+    protected JCRAuditWriter(Durability durability, long commitInterval, Credentials credentials) {
+        this.durability = durability;
+        this.commitInterval = commitInterval;
+        this.credentials = credentials;
+        if (durability != Durability.sync) {
+            running = true;
+            writerThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    writeLoop();
+                }
+            }, "S-RAMP Audit Writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+    }
+
+    /**
+     * Creates a new (empty) audit entry of the given type, recording the user of the given
+     * session as the "who" and the current time as the "when".
+     * @param session
+     * @param type
+     */
+    public static AuditEntry newAuditEntry(Session session, String type) {
+        try {
+            AuditEntry entry = new AuditEntry();
+            entry.setUuid(UUID.randomUUID().toString());
+            entry.setType(type);
+            entry.setWho(session.getUserID());
+            entry.setWhen(dtFactory.newXMLGregorianCalendar(new GregorianCalendar()));
+            return entry;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Records the given audit entry for the artifact with the given UUID.  In "sync" mode the
+     * audit nodes are added to the given session, so that they are saved along with the change
+     * being audited.  Otherwise the entry is held until the session is saved (see
+     * {@link #save(Session)}), and only then queued for the background writer - a change that
+     * is never saved must not be audited.
+     * @param session
+     * @param artifactUuid
+     * @param entry
+     * @throws RepositoryException
+     */
+    public void write(Session session, String artifactUuid, AuditEntry entry) throws RepositoryException {
+        if (durability == Durability.sync || !running) {
+            writeAuditEntry(session, artifactUuid, entry);
+        } else {
+            synchronized (unsaved) {
+                List<PendingAuditEntry> entries = unsaved.get(session);
+                if (entries == null) {
+                    entries = new ArrayList<PendingAuditEntry>();
+                    unsaved.put(session, entries);
+                }
+                entries.add(new PendingAuditEntry(artifactUuid, entry));
+            }
+        }
+    }
+
+    /**
+     * Saves the given session, which includes (or, with asynchronous durability, is followed by)
+     * writing the audit entries recorded against it.  If the save fails, those audit entries are
+     * discarded.  Sessions that may have audit entries written to them must be saved through here.
+     * @param session
+     * @throws RepositoryException
+     */
+    public static void save(Session session) throws RepositoryException {
+        JCRAuditWriter writer;
+        synchronized (JCRAuditWriter.class) {
+            writer = instance;
+        }
+        List<PendingAuditEntry> entries = null;
+        if (writer != null) {
+            synchronized (writer.unsaved) {
+                entries = writer.unsaved.remove(session);
+            }
+        }
+        session.save();
+        if (entries != null) {
+            writer.enqueue(entries);
+        }
+    }
+
+    /**
+     * Queues the audit entries of a saved change for the background writer.  If the writer has
+     * already been shut down, they are written right away instead.
+     * @param entries
+     */
+    private void enqueue(List<PendingAuditEntry> entries) {
+        if (running) {
+            queue.addAll(entries);
+        } else {
+            writeRemaining(entries);
+        }
+    }
+
+    /**
+     * Stops the background writer (if any), and then writes any pending audit entries before
+     * returning.  The writer is interrupted so that it doesn't finish waiting (for new entries,
+     * or before retrying a failed batch) first.
+     */
+    protected void shutdown() {
+        if (writerThread == null) {
+            return;
+        }
+        running = false;
+        writerThread.interrupt();
+        try {
+            writerThread.join(SHUTDOWN_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            log.error(Messages.i18n.format("AUDIT_WRITER_NOT_STOPPED"));
+        }
+        writerThread = null;
+        List<PendingAuditEntry> remaining = new ArrayList<PendingAuditEntry>();
+        queue.drainTo(remaining);
+        writeRemaining(remaining);
+    }
+
+    /**
+     * Writes the given audit entries on the calling thread, logging any that can't be written.
+     * @param entries
+     */
+    private void writeRemaining(List<PendingAuditEntry> entries) {
+        List<PendingAuditEntry> batch = new ArrayList<PendingAuditEntry>(entries);
+        if (!batch.isEmpty() && !writeBatch(batch) && !writeIndividually(batch)) {
+            log.error(Messages.i18n.format("AUDIT_ENTRIES_LOST", batch.size()));
+        }
+    }
+
+    /**
+     * The background writer's main loop.  A batch that fails to be written is kept and retried
+     * (with an increasing delay) rather than dropped.
+     */
+    private void writeLoop() {
+        List<PendingAuditEntry> batch = new ArrayList<PendingAuditEntry>();
+        int failedAttempts = 0;
+        long retryDelay = 0;
+        while (running) {
+            try {
+                if (retryDelay > 0) {
+                    Thread.sleep(retryDelay);
+                } else {
+                    PendingAuditEntry first = queue.poll(1, TimeUnit.SECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    if (durability == Durability.asyncInterval) {
+                        Thread.sleep(commitInterval);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Shutting down
+                break;
+            }
+            if (batch.size() < MAX_BATCH_SIZE) {
+                queue.drainTo(batch, MAX_BATCH_SIZE - batch.size());
+            }
+            if (writeBatch(batch)) {
+                batch.clear();
+                failedAttempts = 0;
+                retryDelay = 0;
+            } else if (++failedAttempts >= MAX_BATCH_ATTEMPTS && writeIndividually(batch)) {
+                // The batch was held up by (at most) a few bad entries, the rest are written now.
+                failedAttempts = 0;
+                retryDelay = 0;
+            } else {
+                retryDelay = Math.min(retryDelay == 0 ? MIN_RETRY_DELAY : retryDelay * 2, MAX_RETRY_DELAY);
+            }
+        }
+        // Whatever hasn't been written yet is written by shutdown(), on the caller's thread
+        queue.addAll(batch);
+    }
+
+    /**
+     * Writes a batch of pending audit entries using a single session and a single save.
+     * @param batch
+     * @return true if the batch was written
+     */
+    private boolean writeBatch(List<PendingAuditEntry> batch) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        Session session = null;
+        try {
+            session = login();
+            for (PendingAuditEntry pending : batch) {
+                writeAuditEntry(session, pending.artifactUuid, pending.entry);
+            }
+            session.save();
+            log.debug(Messages.i18n.format("AUDIT_BATCH_WRITTEN", batch.size()));
+            return true;
+        } catch (Throwable t) {
+            log.error(Messages.i18n.format("AUDIT_BATCH_FAILED", batch.size()), t);
+            return false;
+        } finally {
+            JCRRepositoryFactory.logoutQuietly(session);
+        }
+    }
+
+    /**
+     * Writes the entries of a batch that keeps failing one at a time, to find out whether the
+     * problem is with the entries or with the repository.  If at least one entry can be written,
+     * the entries that can't be written are dropped (and logged), and the batch is cleared.
+     * Otherwise the repository is assumed to be unavailable, and the batch is left as it is.
+     * @param batch
+     * @return true if the batch was cleared
+     */
+    private boolean writeIndividually(List<PendingAuditEntry> batch) {
+        List<PendingAuditEntry> failed = new ArrayList<PendingAuditEntry>();
+        for (PendingAuditEntry pending : batch) {
+            if (!writeBatch(Collections.singletonList(pending))) {
+                failed.add(pending);
+            }
+        }
+        if (failed.size() == batch.size()) {
+            return false;
+        }
+        for (PendingAuditEntry pending : failed) {
+            log.error(Messages.i18n.format("AUDIT_ENTRY_DROPPED", pending.entry.getUuid(), pending.artifactUuid));
+        }
+        batch.clear();
+        return true;
+    }
+
+    /**
+     * Logs in to the repository as the configured audit user.
+     * @throws RepositoryException
+     */
+    private Session login() throws RepositoryException {
+        return JCRRepositoryFactory.getSession(credentials);
+    }
+
+    /**
+     * Adds the JCR nodes for the given audit entry to the given session.  The audit entry is
+     * stored in the (time-bucketed) audit area of the repository, *not* as a child of the
+     * artifact node.  It is linked back to the artifact via the audit:artifactUuid property.
+     * @param session
+     * @param artifactUuid
+     * @param entry
+     * @throws RepositoryException
+     */
+    public static Node writeAuditEntry(Session session, String artifactUuid, AuditEntry entry) throws RepositoryException {
+        if (entry.getUuid() == null) {
+            entry.setUuid(UUID.randomUUID().toString());
+        }
+        Calendar when = entry.getWhen() != null ? entry.getWhen().toGregorianCalendar() : Calendar.getInstance();
+        long sortId = when.getTimeInMillis();
+        String auditEntryPath = MapToJCRPath.getAuditEntryPath(entry.getUuid(), sortId);
+        Node auditEntryNode = JCRUtils.findOrCreateNode(session, auditEntryPath, JCRConstants.NT_FOLDER,
+                JCRConstants.SRAMP_AUDIT_ENTRY);
+
+        auditEntryNode.setProperty(JCRConstants.SRAMP_AUDIT_UUID, entry.getUuid());
+        auditEntryNode.setProperty(JCRConstants.SRAMP_AUDIT_ARTIFACT_UUID, artifactUuid);
+        auditEntryNode.setProperty(JCRConstants.SRAMP_AUDIT_SORT_ID, sortId);
+        auditEntryNode.setProperty(JCRConstants.SRAMP_AUDIT_TYPE, entry.getType());
+        auditEntryNode.setProperty(JCRConstants.SRAMP_AUDIT_WHO,
+                entry.getWho() != null ? entry.getWho() : session.getUserID());
+        auditEntryNode.setProperty(JCRConstants.SRAMP_AUDIT_WHEN, when);
+
+        for (AuditItemType auditItem : entry.getAuditItem()) {
+            String auditItemNodeName = "audit:" + auditItem.getType().replace(':', '_');
+            Node auditItemNode = auditEntryNode.addNode(auditItemNodeName, JCRConstants.SRAMP_AUDIT_ITEM);
+            auditItemNode.setProperty(JCRConstants.SRAMP_AUDIT_TYPE, auditItem.getType());
+            for (Property property : auditItem.getProperty()) {
+                auditItemNode.setProperty(property.getName(), property.getValue());
+            }
+        }
+
+        return auditEntryNode;
+    }
+
+    /**
+     * An audit entry waiting to be written by the background writer.
+     */
+    private static final class PendingAuditEntry {
+        private final String artifactUuid;
+        private final AuditEntry entry;
+
+        /**
+         * Constructor.
+         * @param artifactUuid
+         * @param entry
+         */
+        public PendingAuditEntry(String artifactUuid, AuditEntry entry) {
+            this.artifactUuid = artifactUuid;
+            this.entry = entry;
+        }
+    }
+
+}
@@ -44,10 +44,14 @@ public class JCRNodeToAuditEntryFactory {
         try {
             DatatypeFactory dtFactory = DatatypeFactory.newInstance();
 
-            String uuid = jcrNode.getProperty("audit:uuid").getString();
-            String type = jcrNode.getProperty("audit:type").getString();
-            String who = jcrNode.getProperty(JCRConstants.JCR_CREATED_BY).getString();
-            XMLGregorianCalendar when = dtFactory.newXMLGregorianCalendar((GregorianCalendar)jcrNode.getProperty(JCRConstants.JCR_CREATED).getDate());
+            String uuid = jcrNode.getProperty(JCRConstants.SRAMP_AUDIT_UUID).getString();
+            String type = jcrNode.getProperty(JCRConstants.SRAMP_AUDIT_TYPE).getString();
+            // Audit entries written by the background audit writer record who/when explicitly,
+            // since the writer's own session user and creation time are not meaningful.
+            String whoProp = jcrNode.hasProperty(JCRConstants.SRAMP_AUDIT_WHO) ? JCRConstants.SRAMP_AUDIT_WHO : JCRConstants.JCR_CREATED_BY;
+            String whenProp = jcrNode.hasProperty(JCRConstants.SRAMP_AUDIT_WHEN) ? JCRConstants.SRAMP_AUDIT_WHEN : JCRConstants.JCR_CREATED;
+            String who = jcrNode.getProperty(whoProp).getString();
+            XMLGregorianCalendar when = dtFactory.newXMLGregorianCalendar((GregorianCalendar)jcrNode.getProperty(whenProp).getDate());
 
             AuditEntry entry = new AuditEntry();
             entry.setUuid(uuid);
@@ -65,7 +69,7 @@ public class JCRNodeToAuditEntryFactory {
                     Property property = properties.nextProperty();
                     String propName = property.getName();
                     String propValue = property.getString();
-                    if (propName.equals("audit:type")) {
+                    if (propName.equals(JCRConstants.SRAMP_AUDIT_TYPE)) {
                         auditItem.setType(propValue);
                     } else if (propName.equals(JCRConstants.JCR_PRIMARY_TYPE)) {
                         // Skip this one
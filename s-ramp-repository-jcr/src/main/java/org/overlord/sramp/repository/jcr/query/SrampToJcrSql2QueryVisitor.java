@@ -383,6 +383,9 @@ public class SrampToJcrSql2QueryVisitor implements XPathVisitor {
 
     private void visitClassifications(FunctionCall node, String propertyName, String operator) {
         Collection<URI> classifications = resolveArgumentsToClassifications(node.getArguments());
+        if (JCRConstants.SRAMP_NORMALIZED_CLASSIFIED_BY.equals(propertyName)) {
+            classifications = removeImpliedClassifications(classifications, "AND".equals(operator));
+        }
 
         if (classifications.size() > 1) {
             this.whereBuilder.append("(");
@@ -407,6 +410,45 @@ public class SrampToJcrSql2QueryVisitor implements XPathVisitor {
         }
     }
 
+    /**
+     * Removes classifications that are implied by other classifications in the same
+     * (normalized) classifiedBy function, using each class's closure (the class and all of
+     * its ancestors).  For "all of", an ancestor of another argument is implied by that
+     * argument.  For "any of", a descendant of another argument is already matched by
+     * that argument.  Either way the redundant predicate can be dropped.
+     * @param classifications
+     * @param allOf
+     */
+    private Collection<URI> removeImpliedClassifications(Collection<URI> classifications, boolean allOf) {
+        if (classifications.size() < 2) {
+            return classifications;
+        }
+        Map<URI, Collection<URI>> closures = new HashMap<URI, Collection<URI>>();
+        try {
+            for (URI classification : classifications) {
+                closures.put(classification, this.classificationHelper.normalize(classification));
+            }
+        } catch (SrampException e) {
+            this.error = e;
+            return classifications;
+        }
+        Collection<URI> rval = new LinkedHashSet<URI>(classifications);
+        for (URI classification : classifications) {
+            for (URI other : classifications) {
+                if (other.equals(classification) || !rval.contains(other)) {
+                    continue;
+                }
+                boolean implied = allOf ? closures.get(other).contains(classification)
+                        : closures.get(classification).contains(other);
+                if (implied) {
+                    rval.remove(classification);
+                    break;
+                }
+            }
+        }
+        return rval;
+    }
+
     /**
      * Resolves the list of arguments to a collection of classification URIs.
      * @param arguments
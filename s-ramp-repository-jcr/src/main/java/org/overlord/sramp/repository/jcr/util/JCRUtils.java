@@ -346,6 +346,17 @@ public class JCRUtils {
         }
     }
 
+    /**
+     * Returns true if the given artifact node has been deleted, in which case it lives in the
+     * trash rather than under the s-ramp root.  This is the same rule that
+     * {@link JCRConstants#NOT_DELETED_FILTER} applies to queries.
+     * @param artifactNode
+     * @throws RepositoryException
+     */
+    public static boolean isDeleted(Node artifactNode) throws RepositoryException {
+        return !artifactNode.getPath().startsWith(JCRConstants.ROOT_PATH + "/");
+    }
+
     /**
      * Finds the JCR node for the given artifact (UUID + type).
      * @param uuid
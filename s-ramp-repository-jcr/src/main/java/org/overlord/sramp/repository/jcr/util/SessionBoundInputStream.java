@@ -0,0 +1,68 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.repository.jcr.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+
+import javax.jcr.Binary;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.overlord.sramp.repository.jcr.JCRRepositoryFactory;
+
+/**
+ * An input stream over a JCR {@link Binary} that keeps the JCR session which
+ * owns the binary open until the stream is closed.  This allows artifact content
+ * to be streamed straight out of the repository, rather than first copying it
+ * to a temp file so that the session can be closed.
+ */
+public class SessionBoundInputStream extends FilterInputStream {
+
+    private final Binary binary;
+    private final Session session;
+    private boolean closed = false;
+
+    /**
+     * Constructor.
+     * @param binary
+     * @param session
+     * @throws RepositoryException
+     */
+    public SessionBoundInputStream(Binary binary, Session session) throws RepositoryException {
+        super(binary.getStream());
+        this.binary = binary;
+        this.session = session;
+    }
+
+    /**
+     * @see java.io.FilterInputStream#close()
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            super.close();
+        } finally {
+            binary.dispose();
+            JCRRepositoryFactory.logoutQuietly(session);
+        }
+    }
+
+}
@@ -60,6 +60,16 @@ public class MapToJCRPathTest {
         Assert.assertEquals("/s-ramp/ontologies/0123456789", path);
     }
 
+    /**
+     * Test method for {@link org.overlord.sramp.repository.jcr.MapToJCRPath#getAuditEntryPath(java.lang.String, long)}.
+     */
+    @Test
+    public void testGetAuditEntryPath() {
+        // 2013-03-05T23:30:00Z
+        String path = MapToJCRPath.getAuditEntryPath("0123456789", 1362526200000L);
+        Assert.assertEquals("/s-ramp/audit/2013/03/05/0123456789", path);
+    }
+
     /**
      * Test method for {@link org.overlord.sramp.repository.jcr.MapToJCRPath#getStoredQueryPath(java.lang.String)}.
      */
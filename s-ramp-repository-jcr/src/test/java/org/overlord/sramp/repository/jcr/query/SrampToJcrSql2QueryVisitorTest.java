@@ -189,6 +189,20 @@ public class SrampToJcrSql2QueryVisitorTest {
 			" AND ((artifact1.[sramp:normalizedClassifiedBy] = '#Spicy' OR artifact1.[sramp:normalizedClassifiedBy] = '#Sweet'))"
 			+ " AND (ISDESCENDANTNODE([sramp:baseArtifactType],'/s-ramp'))"
 		},
+		{
+			"/s-ramp/xsd/XsdDocument[s-ramp:classifiedByAnyOf(., '#Spicy', '#AdditionalNormalizedClassification')]",
+			"SELECT artifact1.* FROM [sramp:baseArtifactType] AS artifact1 " +
+			"WHERE artifact1.[sramp:artifactType] = 'XsdDocument'" +
+			" AND (artifact1.[sramp:normalizedClassifiedBy] = '#AdditionalNormalizedClassification')"
+			+ " AND (ISDESCENDANTNODE([sramp:baseArtifactType],'/s-ramp'))"
+		},
+		{
+			"/s-ramp/xsd/XsdDocument[s-ramp:classifiedByAllOf(., '#Spicy', '#AdditionalNormalizedClassification')]",
+			"SELECT artifact1.* FROM [sramp:baseArtifactType] AS artifact1 " +
+			"WHERE artifact1.[sramp:artifactType] = 'XsdDocument'" +
+			" AND (artifact1.[sramp:normalizedClassifiedBy] = '#Spicy')"
+			+ " AND (ISDESCENDANTNODE([sramp:baseArtifactType],'/s-ramp'))"
+		},
 		{
 			"/s-ramp/xsd/XsdDocument[xp2:matches(@name, '.*account.*')]",
 			"SELECT artifact1.* FROM [sramp:baseArtifactType] AS artifact1" +
@@ -17,6 +17,7 @@ package org.overlord.sramp.repository;
 
 import org.jboss.downloads.overlord.sramp._2013.auditing.AuditEntry;
 import org.overlord.sramp.common.SrampException;
+import org.overlord.sramp.repository.audit.AuditEntryFilter;
 import org.overlord.sramp.repository.audit.AuditEntrySet;
 
 
@@ -55,10 +56,30 @@ public interface AuditManager {
     public AuditEntrySet getArtifactAuditEntries(String artifactUuid) throws SrampException;
 
     /**
-     * Gets
+     * Gets the audit entries for a particular artifact that match the given filter.  Any
+     * time range, type and paging criteria are applied by the underlying store, so only
+     * the requested page is read.  The {@link AuditEntrySet#size()} of the result is the
+     * total number of matching entries (ignoring paging).
+     *
+     * @param artifactUuid
+     * @param filter
+     * @throws SrampException
+     */
+    public AuditEntrySet getArtifactAuditEntries(String artifactUuid, AuditEntryFilter filter) throws SrampException;
+
+    /**
+     * Gets all of the audit entries created by a particular user.
      * @param username
-     * @return
      * @throws SrampException
      */
     public AuditEntrySet getUserAuditEntries(String username) throws SrampException;
+
+    /**
+     * Gets the audit entries created by a particular user that match the given filter.
+     * See {@link #getArtifactAuditEntries(String, AuditEntryFilter)}.
+     * @param username
+     * @param filter
+     * @throws SrampException
+     */
+    public AuditEntrySet getUserAuditEntries(String username, AuditEntryFilter filter) throws SrampException;
 }
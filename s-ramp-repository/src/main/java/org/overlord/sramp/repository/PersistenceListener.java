@@ -0,0 +1,51 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.repository;
+
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
+
+/**
+ * Notified by the {@link PersistenceManager} once artifacts have been stored, so that
+ * anything derived from them (such as an in-memory index) can be kept up to date no
+ * matter which code path changed them.  See {@link PersistenceManager#addListener(PersistenceListener)}.
+ * <br/>
+ * Listeners are called on the thread that made the change, after it has been saved.  A
+ * listener that throws does not fail the change.
+ */
+public interface PersistenceListener {
+
+    /**
+     * A (primary) artifact was created, or its meta-data or content was updated.
+     *
+     * @param artifact the artifact, as stored
+     */
+    public void artifactPersisted(BaseArtifactType artifact);
+
+    /**
+     * An artifact was deleted.
+     *
+     * @param artifact the deleted artifact
+     */
+    public void artifactDeleted(BaseArtifactType artifact);
+
+    /**
+     * Artifacts were changed by some other means than this persistence manager (for example,
+     * by another server sharing the same repository), so the listener can't be told which
+     * ones.  Anything derived from the artifacts should be thrown away.
+     */
+    public void artifactsChanged();
+
+}
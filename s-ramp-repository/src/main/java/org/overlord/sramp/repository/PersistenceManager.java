@@ -16,6 +16,7 @@
 package org.overlord.sramp.repository;
 
 import java.io.InputStream;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -58,6 +59,16 @@ public interface PersistenceManager {
 	 */
 	public BaseArtifactType getArtifact(String uuid, ArtifactType type) throws SrampException;
 
+	/**
+	 * Gets a number of previously persisted artifacts (of any type) by their UUIDs.  The
+	 * artifacts are all fetched at once, which is a lot cheaper than looking them up one
+	 * at a time.
+	 * @param uuids the UUIDs of the s-ramp artifacts
+	 * @return the artifacts that were found, in the order their UUIDs were given
+	 * @throws SrampException
+	 */
+	public List<BaseArtifactType> getArtifacts(Collection<String> uuids) throws SrampException;
+
 	/**
 	 * Gets the content (media) for a previously persisted artifact by its UUID.
 	 * <br/><br/>
@@ -182,6 +193,20 @@ public interface PersistenceManager {
 	 */
     public void printArtifactGraph(String uuid, ArtifactType type);
 
+    /**
+     * Registers a listener that is notified of every artifact created, updated or
+     * deleted through this persistence manager, and of artifact changes made by
+     * other means (when the implementation can detect them).
+     * @param listener
+     */
+    public void addListener(PersistenceListener listener);
+
+    /**
+     * Unregisters a listener.
+     * @param listener
+     */
+    public void removeListener(PersistenceListener listener);
+
     /**
      * Called to startup the persistence manager, providing an opportunity
      * for the implementation to bootstrap.  This is optional - perhaps an
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.repository.audit;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Filtering and paging criteria used when fetching an audit trail from the
+ * audit manager.  All criteria are optional.  Audit entries are always returned
+ * newest first.
+ * <br/>
+ * Paging can either be done by offset (startIndex + count) or by keyset, where the
+ * "before" cursor is the time (in ms) and UUID of the last audit entry of the
+ * previous page.  Keyset paging does not need to skip over earlier pages and is
+ * therefore preferred when walking through a long audit trail.
+ */
+public class AuditEntryFilter {
+
+    private Date from;
+    private Date to;
+    private List<String> types = new ArrayList<String>();
+    private long startIndex;
+    private long count;
+    private Long beforeTime;
+    private String beforeUuid;
+
+    /**
+     * Constructor.
+     */
+    public AuditEntryFilter() {
+    }
+
+    /**
+     * @return the (inclusive) lower bound of the time range, or null
+     */
+    public Date getFrom() {
+        return from;
+    }
+
+    /**
+     * @param from the from to set
+     */
+    public void setFrom(Date from) {
+        this.from = from;
+    }
+
+    /**
+     * @return the (exclusive) upper bound of the time range, or null
+     */
+    public Date getTo() {
+        return to;
+    }
+
+    /**
+     * @param to the to to set
+     */
+    public void setTo(Date to) {
+        this.to = to;
+    }
+
+    /**
+     * @return the audit entry types to include (all types if empty)
+     */
+    public List<String> getTypes() {
+        return types;
+    }
+
+    /**
+     * @param types the types to set
+     */
+    public void setTypes(List<String> types) {
+        this.types = types;
+    }
+
+    /**
+     * @return the index of the first audit entry to return
+     */
+    public long getStartIndex() {
+        return startIndex;
+    }
+
+    /**
+     * @param startIndex the startIndex to set
+     */
+    public void setStartIndex(long startIndex) {
+        this.startIndex = startIndex;
+    }
+
+    /**
+     * @return the maximum number of audit entries to return (0 means no limit)
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @param count the count to set
+     */
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    /**
+     * @return the time (ms) of the keyset cursor, or null
+     */
+    public Long getBeforeTime() {
+        return beforeTime;
+    }
+
+    /**
+     * @param beforeTime the beforeTime to set
+     */
+    public void setBeforeTime(Long beforeTime) {
+        this.beforeTime = beforeTime;
+    }
+
+    /**
+     * @return the audit entry UUID of the keyset cursor, or null
+     */
+    public String getBeforeUuid() {
+        return beforeUuid;
+    }
+
+    /**
+     * @param beforeUuid the beforeUuid to set
+     */
+    public void setBeforeUuid(String beforeUuid) {
+        this.beforeUuid = beforeUuid;
+    }
+
+}
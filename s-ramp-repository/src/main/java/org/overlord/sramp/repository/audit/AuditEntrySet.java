@@ -25,7 +25,9 @@ import org.jboss.downloads.overlord.sramp._2013.auditing.AuditEntry;
 public interface AuditEntrySet extends Iterable<AuditEntry> {
 
     /**
-     * Returns the size of the artifact set.
+     * Returns the size of the audit entry set.  When the set was fetched using paging
+     * criteria, this is the total number of matching entries, not the size of the page, and
+     * computing it may mean counting the whole (unpaged) result.
      */
     public long size();
 
@@ -5,7 +5,9 @@ import javax.servlet.ServletContextListener;
 
 import org.overlord.sramp.events.EventProducer;
 import org.overlord.sramp.events.EventProducerFactory;
+import org.overlord.sramp.integration.ArtifactProcessingPool;
 import org.overlord.sramp.repository.PersistenceFactory;
+import org.overlord.sramp.server.mvn.services.MavenGavIndex;
 
 /**
  * Listener for deploy/undeploy events.
@@ -19,6 +21,7 @@ public class SrampLifeCycle implements ServletContextListener {
     public void contextInitialized(ServletContextEvent sce) {
 	    // TODO make this async
 	    PersistenceFactory.newInstance().startup();
+	    PersistenceFactory.newInstance().addListener(MavenGavIndex.getInstance());
 	    
 	    for (EventProducer eventProducer : EventProducerFactory.getEventProducers()) {
 	        eventProducer.startup();
@@ -30,6 +33,8 @@ public class SrampLifeCycle implements ServletContextListener {
      */
     @Override
     public void contextDestroyed(ServletContextEvent sce) {
+        ArtifactProcessingPool.shutdown();
+        PersistenceFactory.newInstance().removeListener(MavenGavIndex.getInstance());
         PersistenceFactory.newInstance().shutdown();
         
         for (EventProducer eventProducer : EventProducerFactory.getEventProducers()) {
@@ -15,24 +15,15 @@
  */
 package org.overlord.sramp.server.atom.services;
 
-import java.io.UnsupportedEncodingException;
-import java.net.URI;
-import java.net.URLEncoder;
-import java.util.Date;
-import java.util.Iterator;
 import java.util.Set;
-import java.util.UUID;
 
-import org.jboss.resteasy.plugins.providers.atom.Entry;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
 import org.jboss.resteasy.plugins.providers.atom.Feed;
-import org.jboss.resteasy.plugins.providers.atom.Link;
-import org.jboss.resteasy.plugins.providers.atom.Person;
-import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
 import org.overlord.sramp.atom.MediaType;
 import org.overlord.sramp.atom.err.SrampAtomException;
-import org.overlord.sramp.atom.visitors.ArtifactToSummaryAtomEntryVisitor;
-import org.overlord.sramp.common.SrampConstants;
-import org.overlord.sramp.common.visitors.ArtifactVisitorHelper;
 import org.overlord.sramp.repository.QueryManager;
 import org.overlord.sramp.repository.QueryManagerFactory;
 import org.overlord.sramp.repository.query.ArtifactSet;
@@ -57,17 +48,59 @@ public abstract class AbstractFeedResource extends AbstractResource {
 
 	/**
 	 * Common method that performs a query for artifacts and returns them in an Atom {@link Feed}.
+	 * The query itself is executed right away (so that a bad query is still reported as an
+	 * error), but the feed is streamed to the client by a {@link StreamingArtifactFeed}, which
+	 * also takes care of closing the query results.
 	 * @param query the x-path formatted s-ramp query
 	 * @param startIndex which index within the result set to start with (0 indexed)
 	 * @param count the number of items desired
 	 * @param orderBy the property to sort the results by
 	 * @param ascending the sort direction
 	 * @param propNames the set of s-ramp property names - the extra properties that the query should return as part of the {@link Feed}
-	 * @return an Atom {@link Feed}
+	 * @return the Atom {@link Feed}, ready to be streamed
 	 * @throws SrampAtomException
 	 */
-	protected Feed createArtifactFeed(String query, Integer startIndex, Integer count, String orderBy,
+	protected StreamingOutput createArtifactFeed(String query, Integer startIndex, Integer count, String orderBy,
 			Boolean ascending, Set<String> propNames, String baseUrl) throws SrampAtomException {
+		return createArtifactFeed(query, startIndex, count, orderBy, ascending, propNames, baseUrl, false);
+	}
+
+	/**
+	 * Common method that performs a query for artifacts and returns them either in an Atom
+	 * {@link Feed} or in the compact JSON format, whichever the client prefers (see the
+	 * Accept header).
+	 * @param jaxrsRequest the request (used to pick the representation)
+	 * @param query the x-path formatted s-ramp query
+	 * @param startIndex which index within the result set to start with (0 indexed)
+	 * @param count the number of items desired
+	 * @param orderBy the property to sort the results by
+	 * @param ascending the sort direction
+	 * @param propNames the set of s-ramp property names - the extra properties that the query should return as part of the {@link Feed}
+	 * @return a response that streams the feed
+	 * @throws SrampAtomException
+	 */
+	protected Response createArtifactFeed(Request jaxrsRequest, String query, Integer startIndex, Integer count,
+			String orderBy, Boolean ascending, Set<String> propNames, String baseUrl) throws SrampAtomException {
+		boolean json = isJsonRequested(jaxrsRequest, MediaType.APPLICATION_ATOM_XML_FEED_TYPE);
+		StreamingOutput feed = createArtifactFeed(query, startIndex, count, orderBy, ascending, propNames, baseUrl, json);
+		return Response.ok(feed, json ? MediaType.APPLICATION_SRAMP_JSON_TYPE : MediaType.APPLICATION_ATOM_XML_FEED_TYPE).build();
+	}
+
+	/**
+	 * Common method that performs a query for artifacts and returns them either in an Atom
+	 * {@link Feed} or in the compact JSON format.
+	 * @param query the x-path formatted s-ramp query
+	 * @param startIndex which index within the result set to start with (0 indexed)
+	 * @param count the number of items desired
+	 * @param orderBy the property to sort the results by
+	 * @param ascending the sort direction
+	 * @param propNames the set of s-ramp property names - the extra properties that the query should return as part of the {@link Feed}
+	 * @param json true to return the JSON representation of the feed
+	 * @return the feed, ready to be streamed
+	 * @throws SrampAtomException
+	 */
+	private StreamingOutput createArtifactFeed(String query, Integer startIndex, Integer count, String orderBy,
+			Boolean ascending, Set<String> propNames, String baseUrl, boolean json) throws SrampAtomException {
 	    if (query == null)
             throw new SrampAtomException(Messages.i18n.format("MISSING_QUERY_PARAM")); //$NON-NLS-1$
 
@@ -94,10 +127,16 @@ public abstract class AbstractFeedResource extends AbstractResource {
 			QueryManager queryManager = QueryManagerFactory.newInstance();
 			SrampQuery srampQuery = queryManager.createQuery(xpath, orderBy, ascending);
 			artifactSet = srampQuery.executeQuery();
-			int startIdx = startIndex;
-			int endIdx = startIdx + count - 1;
-			Feed feed = createFeed(artifactSet, startIdx, endIdx, propNames, baseUrl);
-			addPaginationLinks(feed, artifactSet, xpath, startIndex, count, orderBy, ascending, baseUrl);
+			StreamingOutput feed;
+			if (json) {
+				feed = new StreamingArtifactJsonFeed(artifactSet, xpath, startIndex, count, orderBy, ascending,
+						propNames, baseUrl);
+			} else {
+				feed = new StreamingArtifactFeed(artifactSet, xpath, startIndex, count, orderBy, ascending,
+						propNames, baseUrl);
+			}
+			// The feed now owns the artifact set.
+			artifactSet = null;
 			return feed;
 		} catch (Throwable e) {
 			logError(logger, Messages.i18n.format("Error trying to create an Artifact Feed."), e); //$NON-NLS-1$
@@ -108,102 +147,4 @@ public abstract class AbstractFeedResource extends AbstractResource {
 		}
 	}
 
-	/**
-	 * Creates the Atom {@link Feed} from the given artifact set (query result set).
-	 *
-	 * Note: the Atom feed format allows pagination via the following links:
-	 *
-	 * <pre>
-	 *   <link rel="first" href="http://www.example.org/feed"/>
-	 *   <link rel="next" href="http://www.example.org/feed?page=4"/>
-	 *   <link rel="previous" href="http://www.example.org/feed?page=2"/>
-	 *   <link rel="last" href="http://www.example.org/feed?page=147"/>
-	 * </pre>
-	 *
-	 * @param artifactSet the set of artifacts that matched the query
-	 * @param fromRow return rows starting at this index (inclusive)
-	 * @param toRow return rows ending at this index (inclusive)
-	 * @param propNames the additional s-ramp properties to return in the {@link Feed}
-	 * @return an Atom {@link Feed}
-	 * @throws Exception
-	 */
-	@SuppressWarnings("unchecked")
-    private Feed createFeed(ArtifactSet artifactSet, int fromRow, int toRow, Set<String> propNames, String baseUrl) throws Exception {
-		Feed feed = new Feed();
-		feed.getExtensionAttributes().put(SrampConstants.SRAMP_PROVIDER_QNAME, "JBoss Overlord"); //$NON-NLS-1$
-        feed.getExtensionAttributes().put(SrampConstants.SRAMP_ITEMS_PER_PAGE_QNAME, String.valueOf((toRow - fromRow) + 1));
-        feed.getExtensionAttributes().put(SrampConstants.SRAMP_START_INDEX_QNAME, String.valueOf(fromRow));
-        feed.getExtensionAttributes().put(SrampConstants.SRAMP_TOTAL_RESULTS_QNAME, String.valueOf(artifactSet.size()));
-		feed.setId(new URI("urn:uuid:" + UUID.randomUUID().toString())); //$NON-NLS-1$
-		feed.setTitle("S-RAMP Feed"); //$NON-NLS-1$
-		feed.setSubtitle("Ad Hoc query feed"); //$NON-NLS-1$
-		feed.setUpdated(new Date());
-		feed.getAuthors().add(new Person("anonymous")); //$NON-NLS-1$
-
-		Iterator<BaseArtifactType> iterator = artifactSet.iterator();
-
-		// Skip any initial rows
-		for (int i = 0; i < fromRow; i++) {
-			if (!iterator.hasNext())
-				break;
-			iterator.next();
-		}
-
-		// Now get only the rows we're interested in.
-		ArtifactToSummaryAtomEntryVisitor visitor = new ArtifactToSummaryAtomEntryVisitor(baseUrl, propNames);
-		for (int i = fromRow; i <= toRow; i++) {
-			if (!iterator.hasNext())
-				break;
-			BaseArtifactType artifact = iterator.next();
-			ArtifactVisitorHelper.visitArtifact(visitor, artifact);
-			Entry entry = visitor.getAtomEntry();
-			feed.getEntries().add(entry);
-			visitor.reset();
-		}
-
-		return feed;
-	}
-
-	/**
-	 * Add pagination links to the feed.
-	 *
-	 * TODO use real URLs rather than hard-coded localhost:8080 values
-	 *
-	 * @param feed
-	 * @param artifactSet
-	 * @param query
-	 * @param startIndex
-	 * @param count
-	 * @param orderBy
-	 * @param ascending
-	 * @param baseUrl
-	 * @throws UnsupportedEncodingException
-	 */
-	private void addPaginationLinks(Feed feed, ArtifactSet artifactSet, String query, int startIndex, int count,
-			String orderBy, boolean ascending, String baseUrl) throws UnsupportedEncodingException {
-
-		String hrefPattern = "%1$s?query=%2$s&page=%3$s&pageSize=%4$s&orderBy=%5$s&ascending=%6$s"; //$NON-NLS-1$
-		String encodedQuery = URLEncoder.encode(query, "UTF-8"); //$NON-NLS-1$
-		String firstHref = String.format(hrefPattern, baseUrl, encodedQuery, 0, String.valueOf(count),
-				String.valueOf(orderBy), String.valueOf(ascending));
-		int prevIndex = Math.max(0,  startIndex - count);
-		String prevHref = String.format(hrefPattern, baseUrl, encodedQuery, prevIndex, String.valueOf(count),
-				String.valueOf(orderBy), String.valueOf(ascending));
-		String nextHref = String.format(hrefPattern, baseUrl, encodedQuery, startIndex + count, String.valueOf(count),
-				String.valueOf(orderBy), String.valueOf(ascending));
-
-		Link first = new Link("first", firstHref, MediaType.APPLICATION_ATOM_XML_FEED_TYPE); //$NON-NLS-1$
-		Link prev = new Link("prev", prevHref, MediaType.APPLICATION_ATOM_XML_FEED_TYPE); //$NON-NLS-1$
-		Link next = new Link("next", nextHref, MediaType.APPLICATION_ATOM_XML_FEED_TYPE); //$NON-NLS-1$
-
-		if (startIndex > 0) {
-			feed.getLinks().add(first);
-			feed.getLinks().add(prev);
-		}
-		if (artifactSet.iterator().hasNext()) {
-			feed.getLinks().add(next);
-		}
-
-	}
-
 }
@@ -15,6 +15,12 @@
  */
 package org.overlord.sramp.server.atom.services;
 
+import java.util.List;
+
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Variant;
+
+import org.overlord.sramp.atom.MediaType;
 import org.overlord.sramp.common.SrampUserException;
 import org.slf4j.Logger;
 
@@ -35,4 +41,17 @@ public abstract class AbstractResource {
             logger.error(message, error);
         }
     }
+
+    /**
+     * Returns true if the client asked for the compact JSON representation (rather than the
+     * given default representation) in its Accept header.  The default representation wins
+     * if the client accepts both equally.
+     * @param request
+     * @param defaultType
+     */
+    protected static final boolean isJsonRequested(Request request, javax.ws.rs.core.MediaType defaultType) {
+        List<Variant> variants = Variant.mediaTypes(defaultType, MediaType.APPLICATION_SRAMP_JSON_TYPE).add().build();
+        Variant variant = request.selectVariant(variants);
+        return variant != null && MediaType.APPLICATION_SRAMP_JSON_TYPE.isCompatible(variant.getMediaType());
+    }
 }
@@ -18,6 +18,7 @@ package org.overlord.sramp.server.atom.services;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.jboss.resteasy.plugins.providers.atom.Entry;
+import org.jboss.resteasy.plugins.providers.atom.Feed;
 import org.jboss.resteasy.plugins.providers.multipart.InputPart;
 import org.jboss.resteasy.plugins.providers.multipart.MultipartConstants;
 import org.jboss.resteasy.plugins.providers.multipart.MultipartRelatedInput;
@@ -27,6 +28,7 @@ import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.DocumentArtifactType;
 import org.overlord.sramp.atom.MediaType;
 import org.overlord.sramp.atom.SrampAtomUtils;
+import org.overlord.sramp.atom.SrampJsonUtils;
 import org.overlord.sramp.atom.err.SrampAtomException;
 import org.overlord.sramp.atom.visitors.ArtifactContentTypeVisitor;
 import org.overlord.sramp.atom.visitors.ArtifactToFullAtomEntryVisitor;
@@ -35,6 +37,7 @@ import org.overlord.sramp.common.visitors.ArtifactVisitorHelper;
 import org.overlord.sramp.events.EventProducer;
 import org.overlord.sramp.events.EventProducerFactory;
 import org.overlord.sramp.integration.ArchiveContext;
+import org.overlord.sramp.integration.ArtifactProcessingPool;
 import org.overlord.sramp.integration.ExtensionFactory;
 import org.overlord.sramp.repository.PersistenceFactory;
 import org.overlord.sramp.repository.PersistenceManager;
@@ -45,26 +48,38 @@ import org.overlord.sramp.server.mime.MimeTypes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.URI;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 /**
  * The JAX-RS resource that handles artifact specific tasks, including:
  *
  * <ul>
  * <li>Add an artifact (upload)</li>
- * <li>Get an artifact (full Atom {@link Entry})</li>
+ * <li>Get an artifact (full Atom {@link Entry}, or compact JSON)</li>
+ * <li>Get a number of artifacts at once (Atom {@link Feed} of full entries, or compact JSON)</li>
  * <li>Get artifact content (binary content)</li>
  * <li>Update artifact meta data</li>
  * <li>Update artifact content</li>
@@ -231,7 +246,7 @@ public class ArtifactResource extends AbstractResource {
                 }
             }
 
-            String mimeType = MimeTypes.determineMimeType(fileName, content.getInputStream(), artifactType);
+            String mimeType = MimeTypes.determineMimeType(fileName, content, artifactType);
             artifactType.setMimeType(mimeType);
 
             BaseArtifactType artifact = artifactType.newArtifactInstance();
@@ -250,28 +265,38 @@ public class ArtifactResource extends AbstractResource {
                 // Set the artifact in the context for the type detectors to use.
                 archiveContext.setArchiveArtifactType(artifactType);
                 Collection<File> subFiles = archiveContext.expand();
+                // The entries are detected in parallel, but added to the batch in their original order.
+                List<ExpandedEntry> expandedEntries = new ArrayList<ExpandedEntry>(subFiles.size());
+                List<Future<ExpandedEntry>> futures = new ArrayList<Future<ExpandedEntry>>(subFiles.size());
                 for (File subFile : subFiles) {
-                    String pathInArchive = archiveContext.stripWorkDir(subFile.getAbsolutePath());
-                    ArtifactContent subArtifactContent = new ArtifactContent(pathInArchive, subFile);
-                    if (ExtensionFactory.allowExpansionFromArchive(subArtifactContent, archiveContext)) {
-                        ArtifactType subArtifactType = ExtensionFactory.detect(subArtifactContent, archiveContext);
+                    ExpandedEntry expandedEntry = new ExpandedEntry(subFile, archiveContext, artifact.getUuid());
+                    expandedEntries.add(expandedEntry);
+                    futures.add(ArtifactProcessingPool.submit(expandedEntry));
+                }
+                Exception expandError = null;
+                for (Future<ExpandedEntry> future : futures) {
+                    try {
+                        ExpandedEntry expandedEntry = ArtifactProcessingPool.get(future);
                         // detectors do not accept everything...
-                        if (subArtifactType != null) {
-                            String subMimeType = MimeTypes.determineMimeType(subFile.getName(),
-                                    subArtifactContent.getInputStream(), subArtifactType);
-                            subArtifactType.setMimeType(subMimeType);
-
-                            BaseArtifactType subArtifact = subArtifactType.newArtifactInstance();
-                            subArtifact.setName(subFile.getName());
-
-                            // set relevant properties/relationships
-                            SrampModelUtils.setCustomProperty(subArtifact, "expanded.from.archive.path", pathInArchive);
-                            SrampModelUtils.addGenericRelationship(subArtifact, "expandedFromDocument", artifact.getUuid());
-
-                            creates.add(subArtifact, subArtifactContent, subArtifactContent.getPath());
+                        if (expandError == null && expandedEntry.getArtifact() != null) {
+                            creates.add(expandedEntry.getArtifact(), expandedEntry.getContent(),
+                                    expandedEntry.getContent().getPath());
+                        }
+                    } catch (Exception e) {
+                        // Keep waiting for the rest, so that nothing is still reading the archive's work dir
+                        // when it is cleaned up.
+                        if (expandError == null) {
+                            expandError = e;
                         }
                     }
                 }
+                if (expandError != null) {
+                    // None of the entries will be persisted, so release the content of every one that got that far.
+                    for (ExpandedEntry expandedEntry : expandedEntries) {
+                        expandedEntry.cleanup();
+                    }
+                    throw expandError;
+                }
                 // Persist the batch.
                 creates.execute(PersistenceFactory.newInstance());
 
@@ -298,6 +323,78 @@ public class ArtifactResource extends AbstractResource {
         }
     }
 
+    /**
+     * Detects the type of a single file expanded from an archive and creates its artifact.  These run
+     * in parallel (see {@link ArtifactProcessingPool}), one per entry in the archive.
+     */
+    private static class ExpandedEntry implements Callable<ExpandedEntry> {
+
+        private final File subFile;
+        private final ArchiveContext archiveContext;
+        private final String archiveUuid;
+        private ArtifactContent content;
+        private BaseArtifactType artifact;
+
+        /**
+         * Constructor.
+         * @param subFile
+         * @param archiveContext
+         * @param archiveUuid
+         */
+        public ExpandedEntry(File subFile, ArchiveContext archiveContext, String archiveUuid) {
+            this.subFile = subFile;
+            this.archiveContext = archiveContext;
+            this.archiveUuid = archiveUuid;
+        }
+
+        /**
+         * @see java.util.concurrent.Callable#call()
+         */
+        @Override
+        public ExpandedEntry call() throws Exception {
+            String pathInArchive = archiveContext.stripWorkDir(subFile.getAbsolutePath());
+            content = new ArtifactContent(pathInArchive, subFile);
+            if (ExtensionFactory.allowExpansionFromArchive(content, archiveContext)) {
+                ArtifactType subArtifactType = ExtensionFactory.detect(content, archiveContext);
+                if (subArtifactType != null) {
+                    String subMimeType = MimeTypes.determineMimeType(subFile.getName(), content, subArtifactType);
+                    subArtifactType.setMimeType(subMimeType);
+
+                    artifact = subArtifactType.newArtifactInstance();
+                    artifact.setName(subFile.getName());
+
+                    // set relevant properties/relationships
+                    SrampModelUtils.setCustomProperty(artifact, "expanded.from.archive.path", pathInArchive);
+                    SrampModelUtils.addGenericRelationship(artifact, "expandedFromDocument", archiveUuid);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * @return the artifact, or null if no detector accepted the entry
+         */
+        public BaseArtifactType getArtifact() {
+            return artifact;
+        }
+
+        /**
+         * @return the entry's content
+         */
+        public ArtifactContent getContent() {
+            return content;
+        }
+
+        /**
+         * Cleans up the entry's content, if it was created.
+         */
+        public void cleanup() {
+            if (content != null) {
+                content.cleanup();
+            }
+        }
+    }
+
     private BaseArtifactType doUpload(BaseArtifactType artifact, ArtifactContent content, ArtifactType artifactType) throws Exception {
         if (artifactType == null) {
             // Early exit.  No detector wanted it, and we don't return general Documents.
@@ -372,7 +469,7 @@ public class ArtifactResource extends AbstractResource {
 				fileName = artifactMetaData.getName();
 
             ArtifactContent content = new ArtifactContent(fileName, secondpart.getBody(new GenericType<InputStream>() {}));
-			String mimeType = MimeTypes.determineMimeType(fileName, content.getInputStream(), artifactType);
+			String mimeType = MimeTypes.determineMimeType(fileName, content, artifactType);
 			artifactType.setMimeType(mimeType);
 
 			// Processing the content itself first
@@ -508,8 +605,14 @@ public class ArtifactResource extends AbstractResource {
 
 	/**
 	 * Called to get the meta data for an s-ramp artifact. This will return an Atom {@link Entry} with the
-	 * full information about the artifact.
+	 * full information about the artifact.  The response carries an ETag (derived from the
+	 * artifact's last modified timestamp) so that clients can revalidate a cached copy of
+	 * the meta data with If-None-Match, in which case a 304 is returned instead.  Clients
+	 * that prefer the compact JSON format (see the Accept header) get that instead of an
+	 * Atom entry.
 	 *
+	 * @param request
+	 * @param jaxrsRequest
 	 * @param model
 	 * @param type
 	 * @param uuid
@@ -517,9 +620,10 @@ public class ArtifactResource extends AbstractResource {
 	 */
 	@GET
 	@Path("{model}/{type}/{uuid}")
-	@Produces(MediaType.APPLICATION_ATOM_XML_ENTRY)
-	public Entry getMetaData(@Context HttpServletRequest request, @PathParam("model") String model,
-	        @PathParam("type") String type, @PathParam("uuid") String uuid) throws SrampAtomException, SrampException {
+	@Produces({ MediaType.APPLICATION_ATOM_XML_ENTRY, MediaType.APPLICATION_SRAMP_JSON })
+	public Response getMetaData(@Context HttpServletRequest request, @Context Request jaxrsRequest,
+	        @PathParam("model") String model, @PathParam("type") String type, @PathParam("uuid") String uuid)
+	        throws SrampAtomException, SrampException {
 		try {
 			String baseUrl = SrampConfig.getBaseUrl(request.getRequestURL().toString());
 			ArtifactType artifactType = ArtifactType.valueOf(model, type, false);
@@ -536,10 +640,21 @@ public class ArtifactResource extends AbstractResource {
 				throw new ArtifactNotFoundException(uuid);
 			}
 
+			// If the client already has this version of the artifact, tell it so.
+			boolean json = isJsonRequested(jaxrsRequest, MediaType.APPLICATION_ATOM_XML_ENTRY_TYPE);
+			EntityTag etag = createEntityTag(artifact, json);
+			Response.ResponseBuilder notModified = jaxrsRequest.evaluatePreconditions(etag);
+			if (notModified != null) {
+			    return notModified.tag(etag).build();
+			}
+			if (json) {
+			    return Response.ok(artifact, MediaType.APPLICATION_SRAMP_JSON_TYPE).tag(etag).build();
+			}
+
 			// Return the entry containing the s-ramp artifact
 			ArtifactToFullAtomEntryVisitor visitor = new ArtifactToFullAtomEntryVisitor(baseUrl);
 			ArtifactVisitorHelper.visitArtifact(visitor, artifact);
-			return visitor.getAtomEntry();
+			return Response.ok(visitor.getAtomEntry()).tag(etag).build();
 		} catch (ArtifactNotFoundException e) {
             // Simply re-throw.  Don't allow the following catch it -- ArtifactNotFoundException is mapped to a unique
             // HTTP response type.
@@ -550,6 +665,85 @@ public class ArtifactResource extends AbstractResource {
 		}
 	}
 
+	/**
+	 * Returns the full meta data of a number of artifacts at once, as a feed of full Atom
+	 * entries.  The artifacts can be of any type, and are identified by the (repeated)
+	 * "uuid" form parameter.  Unknown UUIDs are simply left out of the feed.  This is a
+	 * lot cheaper than fetching the artifacts one at a time, since all of them are looked
+	 * up together on the server.  Clients that prefer the compact JSON format get an
+	 * object with an "artifacts" array instead of a feed.  Requests for more artifacts than
+	 * {@link SrampConfig#getMaxBulkMetaDataUuids()} are rejected.
+	 *
+	 * @param request
+	 * @param jaxrsRequest
+	 * @param uuids
+	 * @throws SrampAtomException
+	 */
+	@POST
+	@Path("metadata")
+	@Consumes(MediaType.APPLICATION_FORM_URLENCODED)
+	@Produces({ MediaType.APPLICATION_ATOM_XML_FEED, MediaType.APPLICATION_SRAMP_JSON })
+	public Response getMetaData(@Context HttpServletRequest request, @Context Request jaxrsRequest,
+	        @FormParam("uuid") List<String> uuids) throws SrampAtomException {
+		try {
+			int maxUuids = SrampConfig.getMaxBulkMetaDataUuids();
+			if (uuids.size() > maxUuids) {
+				throw new BulkRequestTooLargeException(Messages.i18n.format("TOO_MANY_UUIDS", uuids.size(), maxUuids)); //$NON-NLS-1$
+			}
+			String baseUrl = SrampConfig.getBaseUrl(request.getRequestURL().toString());
+			PersistenceManager persistenceManager = PersistenceFactory.newInstance();
+			final List<BaseArtifactType> artifacts = persistenceManager.getArtifacts(uuids);
+
+			if (isJsonRequested(jaxrsRequest, MediaType.APPLICATION_ATOM_XML_FEED_TYPE)) {
+				StreamingOutput output = new StreamingOutput() {
+					@Override
+					public void write(OutputStream output) throws IOException, WebApplicationException {
+						JsonGenerator json = SrampJsonUtils.getFactory().createGenerator(output, JsonEncoding.UTF8);
+						json.writeStartObject();
+						json.writeNumberField("totalResults", artifacts.size()); //$NON-NLS-1$
+						json.writeArrayFieldStart("artifacts"); //$NON-NLS-1$
+						for (BaseArtifactType artifact : artifacts) {
+							SrampJsonUtils.writeArtifact(json, artifact);
+						}
+						json.writeEndArray();
+						json.writeEndObject();
+						json.close();
+					}
+				};
+				return Response.ok(output, MediaType.APPLICATION_SRAMP_JSON_TYPE).build();
+			}
+
+			Feed feed = new Feed();
+			feed.getExtensionAttributes().put(SrampConstants.SRAMP_PROVIDER_QNAME, "JBoss Overlord"); //$NON-NLS-1$
+			feed.getExtensionAttributes().put(SrampConstants.SRAMP_TOTAL_RESULTS_QNAME, String.valueOf(artifacts.size()));
+			feed.setId(new URI("urn:uuid:" + UUID.randomUUID().toString())); //$NON-NLS-1$
+			feed.setTitle("S-RAMP Artifact Meta Data"); //$NON-NLS-1$
+			feed.setUpdated(new Date());
+			for (BaseArtifactType artifact : artifacts) {
+				ArtifactToFullAtomEntryVisitor visitor = new ArtifactToFullAtomEntryVisitor(baseUrl);
+				ArtifactVisitorHelper.visitArtifact(visitor, artifact);
+				feed.getEntries().add(visitor.getAtomEntry());
+			}
+			return Response.ok(feed, MediaType.APPLICATION_ATOM_XML_FEED_TYPE).build();
+		} catch (Throwable e) {
+			logError(logger, Messages.i18n.format("ERROR_GETTING_BULK_META_DATA", uuids == null ? 0 : uuids.size()), e); //$NON-NLS-1$
+			throw new SrampAtomException(e);
+		}
+	}
+
+	/**
+	 * Creates the entity tag for the current version of the given artifact's meta data.
+	 * @param artifact
+	 * @param json true if the tag is for the JSON representation of the meta data
+	 */
+	private static EntityTag createEntityTag(BaseArtifactType artifact, boolean json) {
+	    long lastModified = 0;
+	    if (artifact.getLastModifiedTimestamp() != null) {
+	        lastModified = artifact.getLastModifiedTimestamp().toGregorianCalendar().getTimeInMillis();
+	    }
+	    return new EntityTag(artifact.getUuid() + "-" + lastModified + (json ? "-json" : "")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
 	/**
 	 * Returns the content of an artifact in the s-ramp repository.
 	 *
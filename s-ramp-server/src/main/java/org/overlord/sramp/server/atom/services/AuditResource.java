@@ -18,7 +18,7 @@ package org.overlord.sramp.server.atom.services;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Date;
-import java.util.Iterator;
+import java.util.List;
 import java.util.UUID;
 
 import javax.ws.rs.Consumes;
@@ -28,6 +28,7 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.xml.bind.DatatypeConverter;
 
 import org.jboss.downloads.overlord.sramp._2013.auditing.AuditEntry;
 import org.jboss.resteasy.plugins.providers.atom.Entry;
@@ -38,6 +39,7 @@ import org.overlord.sramp.atom.err.SrampAtomException;
 import org.overlord.sramp.common.SrampConstants;
 import org.overlord.sramp.repository.AuditManager;
 import org.overlord.sramp.repository.AuditManagerFactory;
+import org.overlord.sramp.repository.audit.AuditEntryFilter;
 import org.overlord.sramp.repository.audit.AuditEntrySet;
 import org.overlord.sramp.server.i18n.Messages;
 import org.slf4j.Logger;
@@ -114,7 +116,13 @@ public class AuditResource extends AbstractResource {
             @PathParam("artifactUuid") String artifactUuid,
             @QueryParam("startPage") Integer startPage,
             @QueryParam("startIndex") Integer startIndex,
-            @QueryParam("count") Integer count) throws SrampAtomException {
+            @QueryParam("count") Integer count,
+            @QueryParam("startDate") String startDate,
+            @QueryParam("endDate") String endDate,
+            @QueryParam("type") List<String> types,
+            @QueryParam("before") Long before,
+            @QueryParam("beforeId") String beforeId,
+            @QueryParam("totalResults") Boolean totalResults) throws SrampAtomException {
         if (startIndex == null && startPage != null) {
             int c = count != null ? count.intValue() : 100;
             startIndex = (startPage.intValue() - 1) * c;
@@ -127,10 +135,11 @@ public class AuditResource extends AbstractResource {
         int endIdx = startIdx + count - 1;
         try {
             AuditManager auditManager = AuditManagerFactory.newInstance();
+            AuditEntryFilter filter = createFilter(startIdx, count, startDate, endDate, types, before, beforeId);
 
-            // Get all audit entries by artifact uuid
-            AuditEntrySet entries = auditManager.getArtifactAuditEntries(artifactUuid);
-            return createAuditFeed(entries, startIdx, endIdx);
+            // Get the requested page of audit entries by artifact uuid
+            AuditEntrySet entries = auditManager.getArtifactAuditEntries(artifactUuid, filter);
+            return createAuditFeed(entries, startIdx, endIdx, totalResults == null || totalResults);
         } catch (Throwable e) {
             logError(logger, Messages.i18n.format("ERROR_GETTING_AUDIT_ENTRIES", artifactUuid), e); //$NON-NLS-1$
             throw new SrampAtomException(e);
@@ -148,7 +157,13 @@ public class AuditResource extends AbstractResource {
             @PathParam("username") String username,
             @QueryParam("startPage") Integer startPage,
             @QueryParam("startIndex") Integer startIndex,
-            @QueryParam("count") Integer count) throws SrampAtomException {
+            @QueryParam("count") Integer count,
+            @QueryParam("startDate") String startDate,
+            @QueryParam("endDate") String endDate,
+            @QueryParam("type") List<String> types,
+            @QueryParam("before") Long before,
+            @QueryParam("beforeId") String beforeId,
+            @QueryParam("totalResults") Boolean totalResults) throws SrampAtomException {
         if (startIndex == null && startPage != null) {
             int c = count != null ? count.intValue() : 100;
             startIndex = (startPage.intValue() - 1) * c;
@@ -161,10 +176,11 @@ public class AuditResource extends AbstractResource {
         int endIdx = startIdx + count - 1;
         try {
             AuditManager auditManager = AuditManagerFactory.newInstance();
+            AuditEntryFilter filter = createFilter(startIdx, count, startDate, endDate, types, before, beforeId);
 
-            // Get all audit entries by artifact uuid
-            AuditEntrySet entries = auditManager.getUserAuditEntries(username);
-            return createAuditFeed(entries, startIdx, endIdx);
+            // Get the requested page of audit entries by username
+            AuditEntrySet entries = auditManager.getUserAuditEntries(username, filter);
+            return createAuditFeed(entries, startIdx, endIdx, totalResults == null || totalResults);
         } catch (Throwable e) {
             logError(logger, Messages.i18n.format("ERROR_GETTING_AUDIT_ENTRIES_2", username), e); //$NON-NLS-1$
             throw new SrampAtomException(e);
@@ -172,47 +188,79 @@ public class AuditResource extends AbstractResource {
     }
 
     /**
-     * Creates a {@link Feed} of audit entries.
+     * Creates the audit entry filter from the (optional) query params.  The start and end
+     * dates are xsd:dateTime values.  The before/beforeId params are the keyset cursor
+     * (time in ms and uuid of the last entry on the previous page).
+     * @param startIndex
+     * @param count
+     * @param startDate
+     * @param endDate
+     * @param types
+     * @param before
+     * @param beforeId
+     */
+    private AuditEntryFilter createFilter(int startIndex, int count, String startDate, String endDate,
+            List<String> types, Long before, String beforeId) {
+        AuditEntryFilter filter = new AuditEntryFilter();
+        filter.setCount(count);
+        if (before != null) {
+            // Keyset paging - the cursor replaces the offset.
+            filter.setBeforeTime(before);
+            filter.setBeforeUuid(beforeId);
+        } else {
+            filter.setStartIndex(startIndex);
+        }
+        if (startDate != null) {
+            filter.setFrom(DatatypeConverter.parseDateTime(startDate).getTime());
+        }
+        if (endDate != null) {
+            filter.setTo(DatatypeConverter.parseDateTime(endDate).getTime());
+        }
+        if (types != null) {
+            filter.setTypes(types);
+        }
+        return filter;
+    }
+
+    /**
+     * Creates a {@link Feed} of audit entries.  The audit entry set is expected to contain
+     * only the requested page of audit entries.  Counting all of the matching entries can mean
+     * querying the whole (unpaged) audit trail, so clients that don't need the total (e.g. when
+     * paging through the rest of a trail) can leave it out with totalResults=false.
      * @param auditEntrySet
      * @param fromRow
      * @param toRow
+     * @param includeTotal
      * @throws Exception
      */
     @SuppressWarnings("unchecked")
-    private Feed createAuditFeed(AuditEntrySet auditEntrySet, int fromRow, int toRow) throws Exception {
+    private Feed createAuditFeed(AuditEntrySet auditEntrySet, int fromRow, int toRow, boolean includeTotal) throws Exception {
         Feed feed = new Feed();
         feed.getExtensionAttributes().put(SrampConstants.SRAMP_PROVIDER_QNAME, "JBoss Overlord"); //$NON-NLS-1$
         feed.getExtensionAttributes().put(SrampConstants.SRAMP_ITEMS_PER_PAGE_QNAME, String.valueOf((toRow - fromRow) + 1));
         feed.getExtensionAttributes().put(SrampConstants.SRAMP_START_INDEX_QNAME, String.valueOf(fromRow));
-        feed.getExtensionAttributes().put(SrampConstants.SRAMP_TOTAL_RESULTS_QNAME, String.valueOf(auditEntrySet.size()));
+        if (includeTotal) {
+            feed.getExtensionAttributes().put(SrampConstants.SRAMP_TOTAL_RESULTS_QNAME, String.valueOf(auditEntrySet.size()));
+        }
         feed.setId(new URI("urn:uuid:" + UUID.randomUUID().toString())); //$NON-NLS-1$
         feed.setTitle("S-RAMP Audit Feed"); //$NON-NLS-1$
         feed.setSubtitle("All Audit Entries for Artifact"); //$NON-NLS-1$
         feed.setUpdated(new Date());
 
-        Iterator<AuditEntry> iterator = auditEntrySet.iterator();
-
-        // Skip any initial rows
-        for (int i = 0; i < fromRow; i++) {
-            if (!iterator.hasNext())
-                break;
-            iterator.next();
-        }
+        try {
+            for (AuditEntry auditEntry : auditEntrySet) {
+                Entry entry = new Entry();
+                entry.setId(new URI(auditEntry.getUuid()));
+                entry.setPublished(auditEntry.getWhen().toGregorianCalendar().getTime());
+                entry.setUpdated(auditEntry.getWhen().toGregorianCalendar().getTime());
+                entry.getAuthors().add(new Person(auditEntry.getWho()));
+                entry.setTitle(auditEntry.getType());
+                entry.setSummary(""); //$NON-NLS-1$
 
-        // Now get only the rows we're interested in.
-        for (int i = fromRow; i <= toRow; i++) {
-            if (!iterator.hasNext())
-                break;
-            AuditEntry auditEntry = iterator.next();
-            Entry entry = new Entry();
-            entry.setId(new URI(auditEntry.getUuid()));
-            entry.setPublished(auditEntry.getWhen().toGregorianCalendar().getTime());
-            entry.setUpdated(auditEntry.getWhen().toGregorianCalendar().getTime());
-            entry.getAuthors().add(new Person(auditEntry.getWho()));
-            entry.setTitle(auditEntry.getType());
-            entry.setSummary(""); //$NON-NLS-1$
-
-            feed.getEntries().add(entry);
+                feed.getEntries().add(entry);
+            }
+        } finally {
+            auditEntrySet.close();
         }
 
         return feed;
@@ -124,11 +124,10 @@ public class BatchResource extends AbstractResource {
                     InputStream entryIs = archive.getInputStream(entry);
                     ArtifactContent entryContent = null;
                     if (entryIs != null) {
-                        entryContent = new ArtifactContent(path, archive.getInputStream(entry));
-                        mimeType = MimeTypes.determineMimeType(metaData.getName(),
-                                entryContent.getInputStream(), artifactType);
+                        entryContent = new ArtifactContent(path, entryIs);
+                        mimeType = MimeTypes.determineMimeType(metaData.getName(), entryContent, artifactType);
                     } else {
-                        mimeType = MimeTypes.determineMimeType(metaData.getName(), null, artifactType);
+                        mimeType = MimeTypes.determineMimeType(metaData.getName(), (InputStream) null, artifactType);
                     }
 
                     if (artifactType.isDerived()) {
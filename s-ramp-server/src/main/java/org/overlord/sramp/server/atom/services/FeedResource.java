@@ -24,8 +24,9 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
 
-import org.jboss.resteasy.plugins.providers.atom.Feed;
 import org.overlord.sramp.atom.MediaType;
 import org.overlord.sramp.common.SrampConfig;
 
@@ -55,9 +56,9 @@ public class FeedResource extends AbstractFeedResource {
 	 */
 	@GET
 	@Path("{model}")
-	@Produces(MediaType.APPLICATION_ATOM_XML_FEED)
-	public Feed getArtifactFeed(
-			@Context HttpServletRequest request,
+	@Produces({ MediaType.APPLICATION_ATOM_XML_FEED, MediaType.APPLICATION_SRAMP_JSON })
+	public Response getArtifactFeed(
+			@Context HttpServletRequest request, @Context Request jaxrsRequest,
 			@PathParam("model") String model,
 			@QueryParam("startPage") Integer startPage,
 			@QueryParam("startIndex") Integer startIndex,
@@ -71,7 +72,7 @@ public class FeedResource extends AbstractFeedResource {
 			int c = count != null ? count.intValue() : 100;
 			startIndex = (startPage.intValue() - 1) * c;
 		}
-		return createArtifactFeed(xpath, startIndex, count, orderBy, asc, propNames, baseUrl);
+		return createArtifactFeed(jaxrsRequest, xpath, startIndex, count, orderBy, asc, propNames, baseUrl);
 	}
 
 	/**
@@ -81,9 +82,9 @@ public class FeedResource extends AbstractFeedResource {
 	 */
 	@GET
 	@Path("{model}/{type}")
-	@Produces(MediaType.APPLICATION_ATOM_XML_FEED)
-	public Feed getArtifactFeed(
-			@Context HttpServletRequest request,
+	@Produces({ MediaType.APPLICATION_ATOM_XML_FEED, MediaType.APPLICATION_SRAMP_JSON })
+	public Response getArtifactFeed(
+			@Context HttpServletRequest request, @Context Request jaxrsRequest,
 			@PathParam("model") String model,
 			@PathParam("type") String type,
 			@QueryParam("startPage") Integer startPage,
@@ -98,7 +99,7 @@ public class FeedResource extends AbstractFeedResource {
 			int c = count != null ? count.intValue() : 100;
 			startIndex = (startPage.intValue() - 1) * c;
 		}
-		return createArtifactFeed(xpath, startIndex, count, orderBy, asc, propNames, baseUrl);
+		return createArtifactFeed(jaxrsRequest, xpath, startIndex, count, orderBy, asc, propNames, baseUrl);
 	}
 
 }
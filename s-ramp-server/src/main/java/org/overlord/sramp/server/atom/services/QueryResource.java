@@ -27,8 +27,9 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
 
-import org.jboss.resteasy.plugins.providers.atom.Feed;
 import org.jboss.resteasy.plugins.providers.multipart.InputPart;
 import org.jboss.resteasy.plugins.providers.multipart.MultipartFormDataInput;
 import org.jboss.resteasy.util.GenericType;
@@ -66,9 +67,9 @@ public class QueryResource extends AbstractFeedResource {
 	 * @throws SrampAtomException
 	 */
 	@GET
-	@Produces(MediaType.APPLICATION_ATOM_XML_FEED)
-	public Feed queryFromGet(
-			@Context HttpServletRequest request,
+	@Produces({ MediaType.APPLICATION_ATOM_XML_FEED, MediaType.APPLICATION_SRAMP_JSON })
+	public Response queryFromGet(
+			@Context HttpServletRequest request, @Context Request jaxrsRequest,
 			@QueryParam("query") String query,
 			@QueryParam("startPage") Integer startPage,
 			@QueryParam("startIndex") Integer startIndex,
@@ -82,7 +83,7 @@ public class QueryResource extends AbstractFeedResource {
 				int c = count != null ? count.intValue() : 100;
 				startIndex = (startPage.intValue() - 1) * c;
 			}
-			return createArtifactFeed(query, startIndex, count, orderBy, asc, propNames, baseUrl);
+			return createArtifactFeed(jaxrsRequest, query, startIndex, count, orderBy, asc, propNames, baseUrl);
 		} catch (Throwable e) {
 			logError(logger, Messages.i18n.format("ERROR_EXECUTING_QUERY", query), e); //$NON-NLS-1$
 			throw new SrampAtomException(e);
@@ -96,8 +97,9 @@ public class QueryResource extends AbstractFeedResource {
 	 */
 	@POST
 	@Consumes(MediaType.MULTIPART_FORM_DATA)
-	@Produces(MediaType.APPLICATION_ATOM_XML_FEED)
-	public Feed queryFromPost(@Context HttpServletRequest request, MultipartFormDataInput input) throws SrampAtomException {
+	@Produces({ MediaType.APPLICATION_ATOM_XML_FEED, MediaType.APPLICATION_SRAMP_JSON })
+	public Response queryFromPost(@Context HttpServletRequest request, @Context Request jaxrsRequest,
+	        MultipartFormDataInput input) throws SrampAtomException {
 		String query = null;
 		try {
 			String baseUrl = SrampConfig.getBaseUrl(request.getRequestURL().toString());
@@ -119,7 +121,7 @@ public class QueryResource extends AbstractFeedResource {
 				int c = count != null ? count.intValue() : 100;
 				startIndex = (startPage.intValue() - 1) * c;
 			}
-			return createArtifactFeed(query, startIndex, count, orderBy, asc, propNames, baseUrl);
+			return createArtifactFeed(jaxrsRequest, query, startIndex, count, orderBy, asc, propNames, baseUrl);
 		} catch (SrampAtomException e) {
 			throw e;
 		} catch (Throwable e) {
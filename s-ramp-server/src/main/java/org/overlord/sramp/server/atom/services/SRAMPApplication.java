@@ -20,6 +20,7 @@ import java.util.Set;
 
 import javax.ws.rs.core.Application;
 
+import org.overlord.sramp.atom.providers.ArtifactJsonProvider;
 import org.overlord.sramp.atom.providers.SrampAlreadyExistsExceptionProvider;
 import org.overlord.sramp.atom.providers.SrampNotFoundExceptionProvider;
 import org.overlord.sramp.atom.providers.AuditEntryProvider;
@@ -59,6 +60,7 @@ public class SRAMPApplication extends Application {
 		classes.add(SrampAtomExceptionProvider.class);
         classes.add(OntologyProvider.class);
         classes.add(AuditEntryProvider.class);
+        classes.add(ArtifactJsonProvider.class);
 	}
 
 	@Override
@@ -31,6 +31,7 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.jboss.resteasy.plugins.providers.atom.Entry;
 import org.jboss.resteasy.plugins.providers.atom.Feed;
@@ -151,7 +152,7 @@ public class StoredQueryResource extends AbstractFeedResource {
     @GET
     @Path("{queryName}/results")
     @Produces(MediaType.APPLICATION_ATOM_XML_FEED)
-    public Feed getResults(@Context HttpServletRequest request,
+    public StreamingOutput getResults(@Context HttpServletRequest request,
             @PathParam("queryName") String queryName,
             @QueryParam("startPage") Integer startPage,
             @QueryParam("startIndex") Integer startIndex,
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.server.atom.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+import javax.xml.bind.Marshaller;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.jboss.resteasy.plugins.providers.atom.Entry;
+import org.jboss.resteasy.plugins.providers.atom.Feed;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
+import org.overlord.sramp.atom.MediaType;
+import org.overlord.sramp.atom.SrampJaxbContexts;
+import org.overlord.sramp.atom.visitors.ArtifactToSummaryAtomEntryVisitor;
+import org.overlord.sramp.common.SrampConstants;
+import org.overlord.sramp.common.visitors.ArtifactVisitorHelper;
+import org.overlord.sramp.repository.query.ArtifactSet;
+import org.overlord.sramp.server.i18n.Messages;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes an Atom {@link Feed} of artifact summaries directly to the response.  Rather than
+ * building the whole feed (every entry, and every wrapped artifact) in memory and then
+ * marshalling it, the feed header is written with StAX and then each entry is created and
+ * marshalled as its row comes off the {@link ArtifactSet}.  Memory use is therefore the
+ * same no matter how many entries are requested, and the client starts receiving data
+ * right away.
+ * <br/>
+ * The feed owns the artifact set - it is closed once the feed has been written.
+ */
+public class StreamingArtifactFeed implements StreamingOutput {
+
+    private static Logger logger = LoggerFactory.getLogger(StreamingArtifactFeed.class);
+
+    private static final String ATOM_NS = "http://www.w3.org/2005/Atom"; //$NON-NLS-1$
+    private static final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+
+    protected final ArtifactSet artifactSet;
+    protected final String query;
+    protected final int startIndex;
+    protected final int count;
+    protected final String orderBy;
+    protected final boolean ascending;
+    protected final Set<String> propNames;
+    protected final String baseUrl;
+
+    /**
+     * Constructor.
+     * @param artifactSet the set of artifacts that matched the query
+     * @param query the (normalized) s-ramp query
+     * @param startIndex return rows starting at this index (inclusive)
+     * @param count the number of rows to return
+     * @param orderBy the property the results are sorted by
+     * @param ascending the sort direction
+     * @param propNames the additional s-ramp properties to return in the feed
+     * @param baseUrl
+     */
+    public StreamingArtifactFeed(ArtifactSet artifactSet, String query, int startIndex, int count,
+            String orderBy, boolean ascending, Set<String> propNames, String baseUrl) {
+        this.artifactSet = artifactSet;
+        this.query = query;
+        this.startIndex = startIndex;
+        this.count = count;
+        this.orderBy = orderBy;
+        this.ascending = ascending;
+        this.propNames = propNames;
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * @see javax.ws.rs.core.StreamingOutput#write(java.io.OutputStream)
+     */
+    @Override
+    public void write(OutputStream output) throws IOException, WebApplicationException {
+        try {
+            writeFeed(output);
+        } catch (IOException e) {
+            throw e;
+        } catch (Throwable e) {
+            // Too late to send an error response - all we can do is log it and abort.
+            logger.error(Messages.i18n.format("ERROR_STREAMING_FEED"), e); //$NON-NLS-1$
+            throw new WebApplicationException(e);
+        } finally {
+            artifactSet.close();
+        }
+    }
+
+    /**
+     * Writes the feed (as Atom XML) to the given output stream.
+     * @param output
+     * @throws Exception
+     */
+    protected void writeFeed(OutputStream output) throws Exception {
+        XMLStreamWriter writer = outputFactory.createXMLStreamWriter(output, "UTF-8"); //$NON-NLS-1$
+        writer.writeStartDocument("UTF-8", "1.0"); //$NON-NLS-1$ //$NON-NLS-2$
+        writer.setDefaultNamespace(ATOM_NS);
+        writer.setPrefix(SrampConstants.SRAMP_PREFIX, SrampConstants.SRAMP_NS);
+        writer.writeStartElement(ATOM_NS, "feed"); //$NON-NLS-1$
+        writer.writeDefaultNamespace(ATOM_NS);
+        writer.writeNamespace(SrampConstants.SRAMP_PREFIX, SrampConstants.SRAMP_NS);
+        writeAttribute(writer, SrampConstants.SRAMP_PROVIDER_QNAME, "JBoss Overlord"); //$NON-NLS-1$
+        writeAttribute(writer, SrampConstants.SRAMP_ITEMS_PER_PAGE_QNAME, String.valueOf(count));
+        writeAttribute(writer, SrampConstants.SRAMP_START_INDEX_QNAME, String.valueOf(startIndex));
+        writeAttribute(writer, SrampConstants.SRAMP_TOTAL_RESULTS_QNAME, String.valueOf(artifactSet.size()));
+
+        writeElement(writer, "id", "urn:uuid:" + UUID.randomUUID().toString()); //$NON-NLS-1$ //$NON-NLS-2$
+        writeElement(writer, "title", "S-RAMP Feed"); //$NON-NLS-1$ //$NON-NLS-2$
+        writeElement(writer, "subtitle", "Ad Hoc query feed"); //$NON-NLS-1$ //$NON-NLS-2$
+        GregorianCalendar now = new GregorianCalendar();
+        now.setTime(new Date());
+        writeElement(writer, "updated", DatatypeFactory.newInstance().newXMLGregorianCalendar(now).toXMLFormat()); //$NON-NLS-1$
+        writer.writeStartElement(ATOM_NS, "author"); //$NON-NLS-1$
+        writeElement(writer, "name", "anonymous"); //$NON-NLS-1$ //$NON-NLS-2$
+        writer.writeEndElement();
+
+        Iterator<BaseArtifactType> iterator = skipToStart();
+
+        // Now write only the rows we're interested in, one at a time.
+        Marshaller marshaller = SrampJaxbContexts.getMarshaller(Entry.class, false);
+        marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+        ArtifactToSummaryAtomEntryVisitor visitor = new ArtifactToSummaryAtomEntryVisitor(baseUrl, propNames);
+        for (int i = 0; i < count; i++) {
+            if (!iterator.hasNext())
+                break;
+            BaseArtifactType artifact = iterator.next();
+            ArtifactVisitorHelper.visitArtifact(visitor, artifact);
+            marshaller.marshal(visitor.getAtomEntry(), writer);
+            visitor.reset();
+        }
+
+        // The pagination links go last, since "next" depends on whether there are any rows left.
+        for (String[] link : createPaginationLinks(iterator.hasNext())) {
+            writer.writeEmptyElement(ATOM_NS, "link"); //$NON-NLS-1$
+            writer.writeAttribute("href", link[1]); //$NON-NLS-1$
+            writer.writeAttribute("rel", link[0]); //$NON-NLS-1$
+            writer.writeAttribute("type", MediaType.APPLICATION_ATOM_XML_FEED); //$NON-NLS-1$
+        }
+
+        writer.writeEndElement();
+        writer.writeEndDocument();
+        writer.flush();
+        writer.close();
+    }
+
+    /**
+     * Returns an iterator over the artifact set, positioned on the first row of the page.
+     */
+    protected Iterator<BaseArtifactType> skipToStart() {
+        Iterator<BaseArtifactType> iterator = artifactSet.iterator();
+        for (int i = 0; i < startIndex; i++) {
+            if (!iterator.hasNext())
+                break;
+            iterator.next();
+        }
+        return iterator;
+    }
+
+    /**
+     * Creates the pagination links (rel + href) for the feed.
+     * @param hasNext true if there are more rows after this page
+     * @throws UnsupportedEncodingException
+     */
+    protected List<String[]> createPaginationLinks(boolean hasNext) throws UnsupportedEncodingException {
+        List<String[]> links = new ArrayList<String[]>(3);
+        String hrefPattern = "%1$s?query=%2$s&page=%3$s&pageSize=%4$s&orderBy=%5$s&ascending=%6$s"; //$NON-NLS-1$
+        String encodedQuery = URLEncoder.encode(query, "UTF-8"); //$NON-NLS-1$
+        if (startIndex > 0) {
+            int prevIndex = Math.max(0, startIndex - count);
+            links.add(new String[] { "first", String.format(hrefPattern, baseUrl, encodedQuery, 0, //$NON-NLS-1$
+                    String.valueOf(count), String.valueOf(orderBy), String.valueOf(ascending)) });
+            links.add(new String[] { "prev", String.format(hrefPattern, baseUrl, encodedQuery, prevIndex, //$NON-NLS-1$
+                    String.valueOf(count), String.valueOf(orderBy), String.valueOf(ascending)) });
+        }
+        if (hasNext) {
+            links.add(new String[] { "next", String.format(hrefPattern, baseUrl, encodedQuery, startIndex + count, //$NON-NLS-1$
+                    String.valueOf(count), String.valueOf(orderBy), String.valueOf(ascending)) });
+        }
+        return links;
+    }
+
+    /**
+     * Writes a simple Atom element containing only text.
+     * @param writer
+     * @param localName
+     * @param text
+     * @throws XMLStreamException
+     */
+    private static void writeElement(XMLStreamWriter writer, String localName, String text) throws XMLStreamException {
+        writer.writeStartElement(ATOM_NS, localName);
+        writer.writeCharacters(text);
+        writer.writeEndElement();
+    }
+
+    /**
+     * Writes a (namespaced) attribute.
+     * @param writer
+     * @param name
+     * @param value
+     * @throws XMLStreamException
+     */
+    private static void writeAttribute(XMLStreamWriter writer, QName name, String value) throws XMLStreamException {
+        writer.writeAttribute(name.getPrefix(), name.getNamespaceURI(), name.getLocalPart(), value);
+    }
+
+}
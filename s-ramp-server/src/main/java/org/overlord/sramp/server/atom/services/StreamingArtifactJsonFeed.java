@@ -0,0 +1,94 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.server.atom.services;
+
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
+import org.overlord.sramp.atom.SrampJsonUtils;
+import org.overlord.sramp.repository.query.ArtifactSet;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes the artifact summaries of a query feed in the compact JSON format (see
+ * {@link SrampJsonUtils}) rather than as Atom.  The feed looks like this:
+ *
+ * <pre>
+ *   {
+ *     "provider" : "JBoss Overlord", "itemsPerPage" : 100, "startIndex" : 0, "totalResults" : 1234,
+ *     "artifacts" : [ { ...artifact summary... }, ... ],
+ *     "links" : { "first" : "...", "prev" : "...", "next" : "..." }
+ *   }
+ * </pre>
+ */
+public class StreamingArtifactJsonFeed extends StreamingArtifactFeed {
+
+    /**
+     * Constructor.
+     * @param artifactSet the set of artifacts that matched the query
+     * @param query the (normalized) s-ramp query
+     * @param startIndex return rows starting at this index (inclusive)
+     * @param count the number of rows to return
+     * @param orderBy the property the results are sorted by
+     * @param ascending the sort direction
+     * @param propNames the additional s-ramp properties to return in the feed
+     * @param baseUrl
+     */
+    public StreamingArtifactJsonFeed(ArtifactSet artifactSet, String query, int startIndex, int count,
+            String orderBy, boolean ascending, Set<String> propNames, String baseUrl) {
+        super(artifactSet, query, startIndex, count, orderBy, ascending, propNames, baseUrl);
+    }
+
+    /**
+     * @see org.overlord.sramp.server.atom.services.StreamingArtifactFeed#writeFeed(java.io.OutputStream)
+     */
+    @Override
+    protected void writeFeed(OutputStream output) throws Exception {
+        JsonGenerator json = SrampJsonUtils.getFactory().createGenerator(output, JsonEncoding.UTF8);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        json.writeStartObject();
+        json.writeStringField("provider", "JBoss Overlord"); //$NON-NLS-1$ //$NON-NLS-2$
+        json.writeNumberField("itemsPerPage", count); //$NON-NLS-1$
+        json.writeNumberField("startIndex", startIndex); //$NON-NLS-1$
+        json.writeNumberField("totalResults", artifactSet.size()); //$NON-NLS-1$
+
+        Iterator<BaseArtifactType> iterator = skipToStart();
+        json.writeArrayFieldStart("artifacts"); //$NON-NLS-1$
+        for (int i = 0; i < count; i++) {
+            if (!iterator.hasNext())
+                break;
+            SrampJsonUtils.writeArtifactSummary(json, iterator.next(), propNames);
+        }
+        json.writeEndArray();
+
+        List<String[]> links = createPaginationLinks(iterator.hasNext());
+        if (!links.isEmpty()) {
+            json.writeObjectFieldStart("links"); //$NON-NLS-1$
+            for (String[] link : links) {
+                json.writeStringField(link[0], link[1]);
+            }
+            json.writeEndObject();
+        }
+        json.writeEndObject();
+        json.close();
+    }
+
+}
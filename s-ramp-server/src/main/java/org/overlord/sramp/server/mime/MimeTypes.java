@@ -16,6 +16,7 @@
 package org.overlord.sramp.server.mime;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -23,6 +24,7 @@ import java.io.InputStream;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.tika.Tika;
+import org.overlord.sramp.common.ArtifactContent;
 import org.overlord.sramp.common.ArtifactType;
 import org.overlord.sramp.common.ArtifactTypeEnum;
 
@@ -91,4 +93,21 @@ public class MimeTypes {
         }
     }
 
+    /**
+     * Figures out the mime type of the new artifact, same as
+     * {@link #determineMimeType(String, InputStream, ArtifactType)}, but only looks at the header
+     * of the content (see {@link ArtifactContent#getHeader()}) rather than opening it again.
+     *
+     * @param fileName the slug request header
+     * @param content the artifact's content, or null if there is none
+     * @param artifactType the artifact type (based on the endpoint POSTed to)
+     */
+    public static String determineMimeType(String fileName, ArtifactContent content, ArtifactType artifactType) {
+        InputStream stream = null;
+        if (content != null && content.getHeader() != null) {
+            stream = new ByteArrayInputStream(content.getHeader());
+        }
+        return determineMimeType(fileName, stream, artifactType);
+    }
+
 }
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.server.mvn.services;
+
+import java.io.UnsupportedEncodingException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang.StringEscapeUtils;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * A maven-metadata.xml file generated from the {@link MavenGavIndex}, for an
+ * artifact (groupId + artifactId) or for one of its versions, along with its
+ * md5 and sha1 hashes.  The content is generated once and then served from the
+ * index until a file of the artifact changes.
+ */
+public class GeneratedMavenMetaData {
+
+    public static final String FILE_NAME = "maven-metadata.xml"; //$NON-NLS-1$
+
+    private static final String SNAPSHOT = "SNAPSHOT"; //$NON-NLS-1$
+    private static final String ENCODING = "UTF-8"; //$NON-NLS-1$
+
+    private final byte[] content;
+    private final String md5;
+    private final String sha1;
+    private final Date lastUpdated;
+
+    /**
+     * Constructor.
+     * @param content
+     * @param lastUpdated
+     */
+    private GeneratedMavenMetaData(String content, Date lastUpdated) {
+        try {
+            this.content = content.getBytes(ENCODING);
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+        this.md5 = DigestUtils.md5Hex(this.content);
+        this.sha1 = DigestUtils.shaHex(this.content);
+        this.lastUpdated = lastUpdated;
+    }
+
+    /**
+     * Generates the maven-metadata.xml of an artifact, which lists all of its
+     * versions (in the order they were first deployed) along with the latest
+     * version and the latest release.
+     *
+     * @param groupId
+     *            the group id
+     * @param artifactId
+     *            the artifact id
+     * @param versions
+     *            the files of the artifact, by version
+     * @return the generated meta-data, or null if the artifact has no versions
+     */
+    public static GeneratedMavenMetaData forArtifact(String groupId, String artifactId,
+            Map<String, Map<String, MavenIndexEntry>> versions) {
+        // The date each version was first deployed
+        final Map<String, Date> deployed = new HashMap<String, Date>();
+        Date lastUpdated = null;
+        for (Map.Entry<String, Map<String, MavenIndexEntry>> version : versions.entrySet()) {
+            for (MavenIndexEntry entry : version.getValue().values()) {
+                Date created = getCreatedDate(entry);
+                Date first = deployed.get(version.getKey());
+                if (first == null || created.before(first)) {
+                    deployed.put(version.getKey(), created);
+                }
+                if (lastUpdated == null || created.after(lastUpdated)) {
+                    lastUpdated = created;
+                }
+            }
+        }
+        if (deployed.isEmpty()) {
+            return null;
+        }
+        List<String> sortedVersions = new ArrayList<String>(deployed.keySet());
+        Collections.sort(sortedVersions, new Comparator<String>() {
+            @Override
+            public int compare(String version1, String version2) {
+                int result = deployed.get(version1).compareTo(deployed.get(version2));
+                return result != 0 ? result : version1.compareTo(version2);
+            }
+        });
+        String latest = sortedVersions.get(sortedVersions.size() - 1);
+        String release = null;
+        for (String version : sortedVersions) {
+            if (!version.endsWith(SNAPSHOT)) {
+                release = version;
+            }
+        }
+
+        StringBuilder mavenMetadata = new StringBuilder();
+        mavenMetadata.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"); //$NON-NLS-1$
+        mavenMetadata.append("<metadata>\n"); //$NON-NLS-1$
+        appendElement(mavenMetadata, "  ", "groupId", groupId); //$NON-NLS-1$ //$NON-NLS-2$
+        appendElement(mavenMetadata, "  ", "artifactId", artifactId); //$NON-NLS-1$ //$NON-NLS-2$
+        mavenMetadata.append("  <versioning>\n"); //$NON-NLS-1$
+        appendElement(mavenMetadata, "    ", "latest", latest); //$NON-NLS-1$ //$NON-NLS-2$
+        if (release != null) {
+            appendElement(mavenMetadata, "    ", "release", release); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        mavenMetadata.append("    <versions>\n"); //$NON-NLS-1$
+        for (String version : sortedVersions) {
+            appendElement(mavenMetadata, "      ", "version", version); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        mavenMetadata.append("    </versions>\n"); //$NON-NLS-1$
+        appendElement(mavenMetadata, "    ", "lastUpdated", formatDate("yyyyMMddHHmmss", lastUpdated)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        mavenMetadata.append("  </versioning>\n"); //$NON-NLS-1$
+        mavenMetadata.append("</metadata>\n"); //$NON-NLS-1$
+        return new GeneratedMavenMetaData(mavenMetadata.toString(), lastUpdated);
+    }
+
+    /**
+     * Generates the maven-metadata.xml of a version of an artifact, which lists the
+     * latest file of each classifier and type (for a SNAPSHOT version, this is the
+     * latest snapshot of each one).
+     *
+     * @param groupId
+     *            the group id
+     * @param artifactId
+     *            the artifact id
+     * @param version
+     *            the version
+     * @param files
+     *            the files of the version
+     * @return the generated meta-data, or null if the version has no files
+     */
+    public static GeneratedMavenMetaData forVersion(String groupId, String artifactId, String version,
+            Collection<MavenIndexEntry> files) {
+        // classifier::type -> latest file
+        Map<String, MavenIndexEntry> latestFiles = new LinkedHashMap<String, MavenIndexEntry>();
+        MavenIndexEntry latest = null;
+        for (MavenIndexEntry entry : files) {
+            if (StringUtils.isBlank(entry.getType()) || entry.getFileName().startsWith(FILE_NAME)) {
+                continue;
+            }
+            String key = StringUtils.defaultString(entry.getClassifier()) + "::" + entry.getType(); //$NON-NLS-1$
+            MavenIndexEntry current = latestFiles.get(key);
+            if (current == null || isLater(entry, current)) {
+                latestFiles.put(key, entry);
+            }
+            if (latest == null || isLater(entry, latest)) {
+                latest = entry;
+            }
+        }
+        if (latest == null) {
+            return null;
+        }
+        Date lastUpdated = getLastModifiedDate(latest);
+
+        StringBuilder mavenMetadata = new StringBuilder();
+        mavenMetadata.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"); //$NON-NLS-1$
+        mavenMetadata.append("<metadata>\n"); //$NON-NLS-1$
+        appendElement(mavenMetadata, "  ", "groupId", groupId); //$NON-NLS-1$ //$NON-NLS-2$
+        appendElement(mavenMetadata, "  ", "artifactId", artifactId); //$NON-NLS-1$ //$NON-NLS-2$
+        appendElement(mavenMetadata, "  ", "version", version); //$NON-NLS-1$ //$NON-NLS-2$
+        mavenMetadata.append("  <versioning>\n"); //$NON-NLS-1$
+        if (version.endsWith(SNAPSHOT)) {
+            // The snapshot id is timestamp-buildNumber
+            String timestamp = formatDate("yyyyMMdd.HHmmss", lastUpdated); //$NON-NLS-1$
+            String buildNumber = "1"; //$NON-NLS-1$
+            String snapshotId = latest.getSnapshotId();
+            if (StringUtils.isNotBlank(snapshotId) && snapshotId.indexOf('-') != -1) {
+                timestamp = snapshotId.substring(0, snapshotId.lastIndexOf('-'));
+                buildNumber = snapshotId.substring(snapshotId.lastIndexOf('-') + 1);
+            }
+            mavenMetadata.append("    <snapshot>\n"); //$NON-NLS-1$
+            appendElement(mavenMetadata, "      ", "timestamp", timestamp); //$NON-NLS-1$ //$NON-NLS-2$
+            appendElement(mavenMetadata, "      ", "buildNumber", buildNumber); //$NON-NLS-1$ //$NON-NLS-2$
+            mavenMetadata.append("    </snapshot>\n"); //$NON-NLS-1$
+        }
+        appendElement(mavenMetadata, "    ", "lastUpdated", formatDate("yyyyMMddHHmmss", lastUpdated)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        mavenMetadata.append("    <snapshotVersions>\n"); //$NON-NLS-1$
+        for (MavenIndexEntry entry : latestFiles.values()) {
+            String value = version;
+            if (version.endsWith(SNAPSHOT) && StringUtils.isNotBlank(entry.getSnapshotId())) {
+                value = version.substring(0, version.lastIndexOf(SNAPSHOT)) + entry.getSnapshotId();
+            }
+            mavenMetadata.append("      <snapshotVersion>\n"); //$NON-NLS-1$
+            if (StringUtils.isNotBlank(entry.getClassifier())) {
+                appendElement(mavenMetadata, "        ", "classifier", entry.getClassifier()); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+            appendElement(mavenMetadata, "        ", "extension", entry.getType()); //$NON-NLS-1$ //$NON-NLS-2$
+            appendElement(mavenMetadata, "        ", "value", value); //$NON-NLS-1$ //$NON-NLS-2$
+            appendElement(mavenMetadata, "        ", "updated", formatDate("yyyyMMddHHmmss", getLastModifiedDate(entry))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            mavenMetadata.append("      </snapshotVersion>\n"); //$NON-NLS-1$
+        }
+        mavenMetadata.append("    </snapshotVersions>\n"); //$NON-NLS-1$
+        mavenMetadata.append("  </versioning>\n"); //$NON-NLS-1$
+        mavenMetadata.append("</metadata>\n"); //$NON-NLS-1$
+        return new GeneratedMavenMetaData(mavenMetadata.toString(), lastUpdated);
+    }
+
+    /**
+     * Returns true if the first file is later than the second: a later snapshot, or
+     * (when the snapshot ids are the same) modified more recently.
+     * @param entry
+     * @param other
+     */
+    private static boolean isLater(MavenIndexEntry entry, MavenIndexEntry other) {
+        int result = StringUtils.defaultString(entry.getSnapshotId()).compareTo(
+                StringUtils.defaultString(other.getSnapshotId()));
+        if (result == 0) {
+            result = getLastModifiedDate(entry).compareTo(getLastModifiedDate(other));
+        }
+        return result >= 0;
+    }
+
+    /**
+     * Appends a simple element on its own line.
+     * @param builder
+     * @param indent
+     * @param name
+     * @param value
+     */
+    private static void appendElement(StringBuilder builder, String indent, String name, String value) {
+        builder.append(indent).append('<').append(name).append('>');
+        builder.append(StringEscapeUtils.escapeXml(value));
+        builder.append("</").append(name).append(">\n"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /**
+     * Formats a date the way maven does (in UTC).
+     * @param pattern
+     * @param date
+     */
+    private static String formatDate(String pattern, Date date) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern);
+        format.setTimeZone(TimeZone.getTimeZone("UTC")); //$NON-NLS-1$
+        return format.format(date);
+    }
+
+    /**
+     * @param entry
+     * @return the created date of the entry (never null)
+     */
+    private static Date getCreatedDate(MavenIndexEntry entry) {
+        if (entry.getCreatedDate() != null) {
+            return entry.getCreatedDate();
+        }
+        return getLastModifiedDate(entry);
+    }
+
+    /**
+     * @param entry
+     * @return the last modified date of the entry (never null)
+     */
+    private static Date getLastModifiedDate(MavenIndexEntry entry) {
+        if (entry.getLastModifiedDate() != null) {
+            return entry.getLastModifiedDate();
+        }
+        return entry.getCreatedDate() != null ? entry.getCreatedDate() : new Date(0);
+    }
+
+    /**
+     * Gets the content of the maven-metadata.xml file.
+     *
+     * @return the content
+     */
+    public byte[] getContent() {
+        return content;
+    }
+
+    /**
+     * Gets the md5 hash of the content.
+     *
+     * @return the md5 hash
+     */
+    public String getMd5() {
+        return md5;
+    }
+
+    /**
+     * Gets the sha1 hash of the content.
+     *
+     * @return the sha1 hash
+     */
+    public String getSha1() {
+        return sha1;
+    }
+
+    /**
+     * Gets the date the artifact (or version) was last updated.
+     *
+     * @return the last updated date
+     */
+    public Date getLastUpdated() {
+        return lastUpdated;
+    }
+
+}
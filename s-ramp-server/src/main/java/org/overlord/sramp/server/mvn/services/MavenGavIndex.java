@@ -0,0 +1,573 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.server.mvn.services;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.apache.commons.lang.StringUtils;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
+import org.overlord.sramp.repository.PersistenceListener;
+import org.overlord.sramp.repository.QueryManager;
+import org.overlord.sramp.repository.QueryManagerFactory;
+import org.overlord.sramp.repository.query.ArtifactSet;
+import org.overlord.sramp.repository.query.SrampQuery;
+import org.overlord.sramp.server.i18n.Messages;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-memory index of every (non-derived) s-ramp artifact that has maven
+ * coordinates, organized the way the maven repository is laid out: groupId ->
+ * artifactId -> version -> file.  It lets the {@link MavenRepositoryService}
+ * answer directory listings with map lookups instead of querying (and
+ * regex-matching) the whole repository, and to resolve downloads by their
+ * full coordinates (see {@link #find(String, String, String, String, String, String)}).
+ * It also generates (and caches) the maven-metadata.xml files of the artifacts
+ * that don't have one stored in the repository.
+ * <br/>
+ * The index is built with a single query the first time it is needed.  It is a
+ * {@link PersistenceListener}, registered with the persistence manager when the
+ * server starts (see {@link org.overlord.sramp.server.SrampLifeCycle}), so it is
+ * kept up to date as artifacts are created, updated and deleted, whichever way
+ * that happens.  When the repository is changed by other means (such as another
+ * cluster member), it is invalidated and rebuilt the next time it is used.
+ */
+public class MavenGavIndex implements PersistenceListener {
+
+    private static Logger logger = LoggerFactory.getLogger(MavenGavIndex.class);
+
+    private static final String LOAD_QUERY = "/s-ramp[@maven.groupId and @derived='false']"; //$NON-NLS-1$
+    private static final String GROUP_SEPARATOR = "."; //$NON-NLS-1$
+    private static final String DIRECTORY_SUFFIX = "/"; //$NON-NLS-1$
+    private static final String KEY_SEPARATOR = ":"; //$NON-NLS-1$
+
+    private static final MavenGavIndex instance = new MavenGavIndex();
+
+    /**
+     * @return the server's maven index
+     */
+    public static MavenGavIndex getInstance() {
+        return instance;
+    }
+
+    /**
+     * The files of a single maven artifact (groupId + artifactId), by version.
+     */
+    private static class ArtifactNode {
+        /* version -> file name -> entry */
+        final Map<String, Map<String, MavenIndexEntry>> versions = new ConcurrentSkipListMap<String, Map<String, MavenIndexEntry>>();
+        /* files that live directly in the artifact folder (e.g. maven-metadata.xml) */
+        final Map<String, MavenIndexEntry> files = new ConcurrentSkipListMap<String, MavenIndexEntry>();
+        /* generated maven-metadata.xml of the artifact and of its versions - dropped whenever a file changes */
+        volatile GeneratedMavenMetaData metaData;
+        final Map<String, GeneratedMavenMetaData> versionMetaData = new ConcurrentHashMap<String, GeneratedMavenMetaData>();
+
+        boolean isEmpty() {
+            return versions.isEmpty() && files.isEmpty();
+        }
+
+        void invalidateMetaData() {
+            metaData = null;
+            versionMetaData.clear();
+        }
+    }
+
+    /* groupId -> artifactId -> artifact */
+    private final ConcurrentSkipListMap<String, Map<String, ArtifactNode>> groups = new ConcurrentSkipListMap<String, Map<String, ArtifactNode>>();
+    /* uuid -> entry, so that an artifact's previous entry can be found when it changes */
+    private final Map<String, MavenIndexEntry> entries = new ConcurrentHashMap<String, MavenIndexEntry>();
+    /* groupId:artifactId:version:classifier:type:snapshotId -> entry.  SNAPSHOT files are also
+     * keyed without their snapshot id, pointing at the latest snapshot. */
+    private final Map<String, MavenIndexEntry> coordinates = new ConcurrentHashMap<String, MavenIndexEntry>();
+    private volatile boolean loaded = false;
+
+    /**
+     * Constructor.
+     */
+    MavenGavIndex() {
+    }
+
+    /**
+     * Lists the items of a maven repository folder.  If only the groupId is given,
+     * this is the sub-groups and the artifactIds of the group (each with a trailing
+     * "/").  If the artifactId is also given, it is the versions of the artifact
+     * along with any files stored directly in the artifact folder.  If the version
+     * is given as well, it is the files of that version, including their hashes.
+     *
+     * @param groupId
+     *            the group id (may be empty, to list the root of the repository)
+     * @param artifactId
+     *            the artifact id (optional)
+     * @param version
+     *            the version (optional)
+     * @return the items, sorted (never null)
+     * @throws MavenRepositoryException
+     */
+    public Set<String> list(String groupId, String artifactId, String version) throws MavenRepositoryException {
+        ensureLoaded();
+        Set<String> items = new TreeSet<String>();
+        if (StringUtils.isBlank(artifactId)) {
+            listGroup(groupId, items);
+            return items;
+        }
+        ArtifactNode artifact = getArtifactNode(groupId, artifactId);
+        if (artifact == null) {
+            return items;
+        }
+        if (StringUtils.isBlank(version)) {
+            items.addAll(artifact.versions.keySet());
+            items.addAll(artifact.files.keySet());
+        } else {
+            Map<String, MavenIndexEntry> files = artifact.versions.get(version);
+            if (files != null) {
+                for (MavenIndexEntry entry : files.values()) {
+                    items.add(entry.getFileName());
+                    if (StringUtils.isNotBlank(entry.getMd5())) {
+                        items.add(entry.getFileName() + GROUP_SEPARATOR + MavenFileExtensionEnum.HASH_MD5.getExtension());
+                    }
+                    if (StringUtils.isNotBlank(entry.getSha1())) {
+                        items.add(entry.getFileName() + GROUP_SEPARATOR + MavenFileExtensionEnum.HASH_SHA1.getExtension());
+                    }
+                }
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Finds the file with the given maven coordinates.  If no snapshot id is given
+     * for a SNAPSHOT version, the latest snapshot is returned.
+     *
+     * @param groupId
+     *            the group id
+     * @param artifactId
+     *            the artifact id
+     * @param version
+     *            the version (blank for files stored directly in the artifact folder)
+     * @param classifier
+     *            the classifier (optional)
+     * @param type
+     *            the type (file extension)
+     * @param snapshotId
+     *            the snapshot id (optional)
+     * @return the matching entry, or null if there is none
+     * @throws MavenRepositoryException
+     */
+    public MavenIndexEntry find(String groupId, String artifactId, String version, String classifier,
+            String type, String snapshotId) throws MavenRepositoryException {
+        ensureLoaded();
+        return coordinates.get(coordinateKey(groupId, artifactId, version, classifier, type, snapshotId));
+    }
+
+    /**
+     * Gets the maven-metadata.xml of an artifact (when no version is given) or of one
+     * of its versions, generated from the index.  The generated meta-data is cached
+     * until one of the artifact's files is added, changed or removed, so repeated
+     * requests for it (maven polls the meta-data of SNAPSHOT dependencies constantly)
+     * don't cost anything.
+     *
+     * @param groupId
+     *            the group id
+     * @param artifactId
+     *            the artifact id
+     * @param version
+     *            the version (optional)
+     * @return the generated meta-data, or null if the artifact (or version) has no files
+     * @throws MavenRepositoryException
+     */
+    public GeneratedMavenMetaData getMavenMetaData(String groupId, String artifactId, String version)
+            throws MavenRepositoryException {
+        ensureLoaded();
+        ArtifactNode node = getArtifactNode(groupId, artifactId);
+        if (node == null) {
+            return null;
+        }
+        GeneratedMavenMetaData metaData = StringUtils.isBlank(version) ? node.metaData : node.versionMetaData.get(version);
+        if (metaData != null) {
+            return metaData;
+        }
+        // Generate it while the index can't change, so that a stale copy is never cached.
+        synchronized (this) {
+            node = getArtifactNode(groupId, artifactId);
+            if (node == null) {
+                return null;
+            }
+            if (StringUtils.isBlank(version)) {
+                if (node.metaData == null) {
+                    node.metaData = GeneratedMavenMetaData.forArtifact(groupId, artifactId, node.versions);
+                }
+                return node.metaData;
+            }
+            metaData = node.versionMetaData.get(version);
+            Map<String, MavenIndexEntry> files = node.versions.get(version);
+            if (metaData == null && files != null) {
+                metaData = GeneratedMavenMetaData.forVersion(groupId, artifactId, version, files.values());
+                if (metaData != null) {
+                    node.versionMetaData.put(version, metaData);
+                }
+            }
+            return metaData;
+        }
+    }
+
+    /**
+     * Returns true if there is at least one artifact in the given group.
+     *
+     * @param groupId
+     *            the group id
+     * @return true if the group exists
+     * @throws MavenRepositoryException
+     */
+    public boolean hasGroup(String groupId) throws MavenRepositoryException {
+        ensureLoaded();
+        return groupId != null && groups.containsKey(groupId);
+    }
+
+    /**
+     * Returns true if any artifact in the given group has the given version.
+     *
+     * @param groupId
+     *            the group id
+     * @param version
+     *            the version
+     * @return true if the version exists in the group
+     * @throws MavenRepositoryException
+     */
+    public boolean hasVersion(String groupId, String version) throws MavenRepositoryException {
+        ensureLoaded();
+        Map<String, ArtifactNode> artifacts = groupId == null ? null : groups.get(groupId);
+        if (artifacts != null && version != null) {
+            for (ArtifactNode node : artifacts.values()) {
+                if (node.versions.containsKey(version)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the sub-groups and artifacts of the given group to the items.
+     * @param groupId
+     * @param items
+     */
+    private void listGroup(String groupId, Set<String> items) {
+        Map<String, Map<String, ArtifactNode>> subGroups;
+        int prefixLength;
+        if (StringUtils.isBlank(groupId)) {
+            subGroups = groups;
+            prefixLength = 0;
+        } else {
+            Map<String, ArtifactNode> artifacts = groups.get(groupId);
+            if (artifacts != null) {
+                for (String artifactId : artifacts.keySet()) {
+                    items.add(artifactId + DIRECTORY_SUFFIX);
+                }
+            }
+            // All of the groups that start with "groupId." - '/' sorts right after '.'
+            subGroups = groups.subMap(groupId + GROUP_SEPARATOR, groupId + DIRECTORY_SUFFIX);
+            prefixLength = groupId.length() + 1;
+        }
+        for (String subGroup : subGroups.keySet()) {
+            String rest = subGroup.substring(prefixLength);
+            int idx = rest.indexOf(GROUP_SEPARATOR);
+            items.add((idx == -1 ? rest : rest.substring(0, idx)) + DIRECTORY_SUFFIX);
+        }
+    }
+
+    /**
+     * Adds (or replaces) the given artifact in the index.  Artifacts without maven
+     * coordinates, and derived artifacts, are ignored (but any previous entry for
+     * the artifact is still removed).
+     *
+     * @param artifact
+     *            the created or updated artifact
+     * @see org.overlord.sramp.repository.PersistenceListener#artifactPersisted(org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType)
+     */
+    @Override
+    public synchronized void artifactPersisted(BaseArtifactType artifact) {
+        if (!loaded || artifact == null) {
+            // Nothing to do - it will be picked up when the index is built.
+            return;
+        }
+        removeEntry(artifact.getUuid());
+        addEntry(artifact);
+    }
+
+    /**
+     * Removes the given (deleted) artifact from the index.
+     *
+     * @param artifact
+     *            the deleted artifact
+     * @see org.overlord.sramp.repository.PersistenceListener#artifactDeleted(org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType)
+     */
+    @Override
+    public synchronized void artifactDeleted(BaseArtifactType artifact) {
+        if (!loaded || artifact == null) {
+            return;
+        }
+        removeEntry(artifact.getUuid());
+    }
+
+    /**
+     * @see org.overlord.sramp.repository.PersistenceListener#artifactsChanged()
+     */
+    @Override
+    public void artifactsChanged() {
+        invalidate();
+    }
+
+    /**
+     * Throws away the index, so that it will be rebuilt from the repository the
+     * next time it is used.
+     */
+    public synchronized void invalidate() {
+        loaded = false;
+        groups.clear();
+        entries.clear();
+        coordinates.clear();
+    }
+
+    /**
+     * Builds the index from the repository, if that hasn't been done yet.
+     * @throws MavenRepositoryException
+     */
+    private void ensureLoaded() throws MavenRepositoryException {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            ArtifactSet artifactSet = null;
+            try {
+                QueryManager queryManager = QueryManagerFactory.newInstance();
+                // Oldest first, so that the most recent artifact wins if two of them map to the same file.
+                SrampQuery srampQuery = queryManager.createQuery(LOAD_QUERY, "createdTimestamp", true); //$NON-NLS-1$
+                artifactSet = srampQuery.executeQuery();
+                load(artifactSet.iterator());
+            } catch (Exception e) {
+                logger.error(Messages.i18n.format("maven.index.load.error"), e); //$NON-NLS-1$
+                throw new MavenRepositoryException(Messages.i18n.format("maven.index.load.error"), e); //$NON-NLS-1$
+            } finally {
+                if (artifactSet != null) {
+                    artifactSet.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * (Re)builds the index from the given artifacts.
+     * @param artifacts
+     */
+    synchronized void load(Iterator<BaseArtifactType> artifacts) {
+        groups.clear();
+        entries.clear();
+        coordinates.clear();
+        while (artifacts.hasNext()) {
+            addEntry(artifacts.next());
+        }
+        loaded = true;
+    }
+
+    /**
+     * Adds an entry for the artifact, if it is a (non-derived) maven artifact.
+     * @param artifact
+     */
+    private void addEntry(BaseArtifactType artifact) {
+        MavenIndexEntry entry = new MavenIndexEntry(artifact);
+        if (entry.getArtifactType().isDerived()) {
+            return;
+        }
+        if (StringUtils.isBlank(entry.getGroupId()) || StringUtils.isBlank(entry.getArtifactId())
+                || entry.getFileName() == null) {
+            return;
+        }
+
+        Map<String, ArtifactNode> artifacts = groups.get(entry.getGroupId());
+        if (artifacts == null) {
+            artifacts = new ConcurrentSkipListMap<String, ArtifactNode>();
+            groups.put(entry.getGroupId(), artifacts);
+        }
+        ArtifactNode node = artifacts.get(entry.getArtifactId());
+        if (node == null) {
+            node = new ArtifactNode();
+            artifacts.put(entry.getArtifactId(), node);
+        }
+        node.invalidateMetaData();
+        Map<String, MavenIndexEntry> files = getFiles(node, entry.getVersion(), true);
+        files.put(entry.getFileName(), entry);
+        entries.put(entry.getUuid(), entry);
+
+        coordinates.put(coordinateKey(entry, entry.getSnapshotId()), entry);
+        if (StringUtils.isNotBlank(entry.getSnapshotId())) {
+            String latestKey = coordinateKey(entry, null);
+            MavenIndexEntry latest = coordinates.get(latestKey);
+            if (latest == null || isLater(entry, latest)) {
+                coordinates.put(latestKey, entry);
+            }
+        }
+    }
+
+    /**
+     * Removes the entry for the artifact with the given uuid (if any), along with
+     * any folders that are left empty.
+     * @param uuid
+     */
+    private void removeEntry(String uuid) {
+        MavenIndexEntry entry = uuid == null ? null : entries.remove(uuid);
+        if (entry == null) {
+            return;
+        }
+        Map<String, ArtifactNode> artifacts = groups.get(entry.getGroupId());
+        ArtifactNode node = artifacts == null ? null : artifacts.get(entry.getArtifactId());
+        if (node == null) {
+            return;
+        }
+        node.invalidateMetaData();
+        Map<String, MavenIndexEntry> files = getFiles(node, entry.getVersion(), false);
+        String key = coordinateKey(entry, entry.getSnapshotId());
+        if (coordinates.get(key) == entry) {
+            coordinates.remove(key);
+        }
+        // Another artifact may have since taken over the file name - leave it alone if so.
+        if (files != null && files.get(entry.getFileName()) == entry) {
+            files.remove(entry.getFileName());
+            if (files.isEmpty() && StringUtils.isNotBlank(entry.getVersion())) {
+                node.versions.remove(entry.getVersion());
+            }
+        }
+        String latestKey = coordinateKey(entry, null);
+        if (!coordinates.containsKey(latestKey) || coordinates.get(latestKey) == entry) {
+            updateLatest(latestKey, entry, files);
+        }
+        if (node.isEmpty()) {
+            artifacts.remove(entry.getArtifactId());
+            if (artifacts.isEmpty()) {
+                groups.remove(entry.getGroupId());
+            }
+        }
+    }
+
+    /**
+     * Re-points the "latest snapshot" key of the given (removed) entry at the latest
+     * remaining file with the same coordinates, if there is one.
+     * @param latestKey
+     * @param removed
+     * @param files
+     */
+    private void updateLatest(String latestKey, MavenIndexEntry removed, Map<String, MavenIndexEntry> files) {
+        MavenIndexEntry latest = null;
+        if (files != null) {
+            for (MavenIndexEntry candidate : files.values()) {
+                if (ObjectUtils.equals(candidate.getClassifier(), removed.getClassifier())
+                        && ObjectUtils.equals(candidate.getType(), removed.getType())
+                        && (latest == null || isLater(candidate, latest))) {
+                    latest = candidate;
+                }
+            }
+        }
+        if (latest == null) {
+            coordinates.remove(latestKey);
+        } else {
+            coordinates.put(latestKey, latest);
+        }
+    }
+
+    /**
+     * Returns true if the first entry is a later snapshot than the second.  Snapshot
+     * ids are timestamps (yyyyMMdd.HHmmss-buildNumber), so they sort naturally.
+     * @param entry
+     * @param other
+     */
+    private static boolean isLater(MavenIndexEntry entry, MavenIndexEntry other) {
+        String snapshotId = StringUtils.defaultString(entry.getSnapshotId());
+        String otherSnapshotId = StringUtils.defaultString(other.getSnapshotId());
+        return snapshotId.compareTo(otherSnapshotId) >= 0;
+    }
+
+    /**
+     * Creates the coordinate key of the given entry, with the given snapshot id.
+     * @param entry
+     * @param snapshotId
+     */
+    private static String coordinateKey(MavenIndexEntry entry, String snapshotId) {
+        return coordinateKey(entry.getGroupId(), entry.getArtifactId(), entry.getVersion(), entry.getClassifier(),
+                entry.getType(), snapshotId);
+    }
+
+    /**
+     * Creates a coordinate key.  Missing (blank) coordinates are all treated the same.
+     * @param groupId
+     * @param artifactId
+     * @param version
+     * @param classifier
+     * @param type
+     * @param snapshotId
+     */
+    private static String coordinateKey(String groupId, String artifactId, String version, String classifier,
+            String type, String snapshotId) {
+        StringBuilder key = new StringBuilder();
+        key.append(StringUtils.trimToEmpty(groupId)).append(KEY_SEPARATOR);
+        key.append(StringUtils.trimToEmpty(artifactId)).append(KEY_SEPARATOR);
+        key.append(StringUtils.trimToEmpty(version)).append(KEY_SEPARATOR);
+        key.append(StringUtils.trimToEmpty(classifier)).append(KEY_SEPARATOR);
+        key.append(StringUtils.trimToEmpty(type)).append(KEY_SEPARATOR);
+        key.append(StringUtils.trimToEmpty(snapshotId));
+        return key.toString();
+    }
+
+    /**
+     * Gets the files of the given version of an artifact (or the files stored
+     * directly in the artifact folder, when there is no version).
+     * @param node
+     * @param version
+     * @param create
+     */
+    private static Map<String, MavenIndexEntry> getFiles(ArtifactNode node, String version, boolean create) {
+        if (StringUtils.isBlank(version)) {
+            return node.files;
+        }
+        Map<String, MavenIndexEntry> files = node.versions.get(version);
+        if (files == null && create) {
+            files = new ConcurrentSkipListMap<String, MavenIndexEntry>();
+            node.versions.put(version, files);
+        }
+        return files;
+    }
+
+    /**
+     * Gets the artifact node for the given groupId and artifactId.
+     * @param groupId
+     * @param artifactId
+     */
+    private ArtifactNode getArtifactNode(String groupId, String artifactId) {
+        if (groupId == null) {
+            return null;
+        }
+        Map<String, ArtifactNode> artifacts = groups.get(groupId);
+        return artifacts == null ? null : artifacts.get(artifactId);
+    }
+
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.server.mvn.services;
+
+import java.util.Date;
+
+import org.apache.commons.lang.StringUtils;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.DocumentArtifactType;
+import org.overlord.sramp.common.ArtifactType;
+import org.overlord.sramp.common.SrampConstants;
+import org.overlord.sramp.common.SrampModelUtils;
+import org.overlord.sramp.integration.java.model.JavaModel;
+
+/**
+ * A single file in the {@link MavenGavIndex}: the maven coordinates of an s-ramp
+ * artifact, along with the name it is listed under in the maven repository and
+ * everything needed to serve its content (type, size, last modified date).
+ * Entries are immutable - the index replaces them when the artifact changes.
+ */
+public class MavenIndexEntry {
+
+    private static final String MAVEN_SEPARATOR = "-"; //$NON-NLS-1$
+    private static final String MAVEN_FILE_EXTENSION_SEPARATOR = "."; //$NON-NLS-1$
+
+    private final String uuid;
+    private final String fileName;
+    private final String groupId;
+    private final String artifactId;
+    private final String version;
+    private final String classifier;
+    private final String type;
+    private final String snapshotId;
+    private final String md5;
+    private final String sha1;
+    private final ArtifactType artifactType;
+    private final long contentLength;
+    private final Date createdDate;
+    private final Date lastModifiedDate;
+
+    /**
+     * Creates an index entry from the maven.* properties of the given artifact.
+     *
+     * @param artifact
+     *            the s-ramp artifact
+     */
+    public MavenIndexEntry(BaseArtifactType artifact) {
+        this.uuid = artifact.getUuid();
+        this.groupId = SrampModelUtils.getCustomProperty(artifact, JavaModel.PROP_MAVEN_GROUP_ID);
+        this.artifactId = SrampModelUtils.getCustomProperty(artifact, JavaModel.PROP_MAVEN_ARTIFACT_ID);
+        this.version = SrampModelUtils.getCustomProperty(artifact, JavaModel.PROP_MAVEN_VERSION);
+        this.classifier = SrampModelUtils.getCustomProperty(artifact, JavaModel.PROP_MAVEN_CLASSIFIER);
+        this.type = SrampModelUtils.getCustomProperty(artifact, JavaModel.PROP_MAVEN_TYPE);
+        this.snapshotId = SrampModelUtils.getCustomProperty(artifact, JavaModel.PROP_MAVEN_SNAPSHOT_ID);
+        this.md5 = SrampModelUtils.getCustomProperty(artifact, JavaModel.PROP_MAVEN_HASH_MD5);
+        this.sha1 = getSha1(artifact);
+        this.fileName = generateName(artifact.getName());
+        this.artifactType = ArtifactType.valueOf(artifact);
+        this.contentLength = getContentLength(artifact);
+        this.createdDate = artifact.getCreatedTimestamp() == null ? null
+                : artifact.getCreatedTimestamp().toGregorianCalendar().getTime();
+        this.lastModifiedDate = artifact.getLastModifiedTimestamp() == null ? null
+                : artifact.getLastModifiedTimestamp().toGregorianCalendar().getTime();
+    }
+
+    /**
+     * Gets the SHA-1 hash of the artifact's content.  If no maven hash was stored, the
+     * content hash that the repository computed when the content was stored is used
+     * (it is also a SHA-1 hash).
+     *
+     * @param artifact
+     *            the s-ramp artifact
+     * @return the sha1 hash
+     */
+    private static String getSha1(BaseArtifactType artifact) {
+        String sha1 = SrampModelUtils.getCustomProperty(artifact, JavaModel.PROP_MAVEN_HASH_SHA1);
+        if (StringUtils.isBlank(sha1) && artifact instanceof DocumentArtifactType) {
+            sha1 = ((DocumentArtifactType) artifact).getContentHash();
+        }
+        return sha1;
+    }
+
+    /**
+     * Gets the size of the artifact's content, or -1 if it is not known.
+     *
+     * @param artifact
+     *            the s-ramp artifact
+     * @return the content length
+     */
+    private static long getContentLength(BaseArtifactType artifact) {
+        if (artifact instanceof DocumentArtifactType && ((DocumentArtifactType) artifact).getContentSize() != null) {
+            return ((DocumentArtifactType) artifact).getContentSize();
+        }
+        String contentSize = artifact.getOtherAttributes().get(SrampConstants.SRAMP_CONTENT_SIZE_QNAME);
+        if (StringUtils.isNotBlank(contentSize)) {
+            try {
+                return Long.parseLong(contentSize);
+            } catch (NumberFormatException e) {
+                // Fall through - the size is unknown
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Generates the name of the file as it appears in the maven repository.
+     *
+     * @param artifactName
+     *            the s-ramp name of the artifact
+     * @return the maven file name
+     */
+    private String generateName(String artifactName) {
+        if (artifactName != null && artifactId != null && version != null && artifactName.contains(artifactId)) {
+            StringBuilder name = new StringBuilder(""); //$NON-NLS-1$
+            name.append(artifactId);
+            if (version.contains("SNAPSHOT") && StringUtils.isNotBlank(snapshotId)) { //$NON-NLS-1$
+                name.append(MAVEN_SEPARATOR).append(version.substring(0, version.indexOf("SNAPSHOT"))).append(snapshotId); //$NON-NLS-1$
+            } else {
+                name.append(MAVEN_SEPARATOR).append(version);
+            }
+            if (classifier != null) {
+                name.append(MAVEN_SEPARATOR).append(classifier);
+            }
+            name.append(MAVEN_FILE_EXTENSION_SEPARATOR).append(type);
+            return name.toString();
+        } else {
+            return artifactName;
+        }
+    }
+
+    /**
+     * Gets the uuid of the s-ramp artifact.
+     *
+     * @return the uuid
+     */
+    public String getUuid() {
+        return uuid;
+    }
+
+    /**
+     * Gets the name of the file in the maven repository.
+     *
+     * @return the file name
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Gets the group id.
+     *
+     * @return the group id
+     */
+    public String getGroupId() {
+        return groupId;
+    }
+
+    /**
+     * Gets the artifact id.
+     *
+     * @return the artifact id
+     */
+    public String getArtifactId() {
+        return artifactId;
+    }
+
+    /**
+     * Gets the version.
+     *
+     * @return the version
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the classifier.
+     *
+     * @return the classifier
+     */
+    public String getClassifier() {
+        return classifier;
+    }
+
+    /**
+     * Gets the type.
+     *
+     * @return the type
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Gets the snapshot id.
+     *
+     * @return the snapshot id
+     */
+    public String getSnapshotId() {
+        return snapshotId;
+    }
+
+    /**
+     * Gets the md5 hash of the file, if one was stored.
+     *
+     * @return the md5 hash
+     */
+    public String getMd5() {
+        return md5;
+    }
+
+    /**
+     * Gets the sha1 hash of the file, if one was stored.
+     *
+     * @return the sha1 hash
+     */
+    public String getSha1() {
+        return sha1;
+    }
+
+    /**
+     * Gets the s-ramp type of the artifact.
+     *
+     * @return the artifact type
+     */
+    public ArtifactType getArtifactType() {
+        return artifactType;
+    }
+
+    /**
+     * Gets the size of the content.
+     *
+     * @return the content length, or -1 if it is not known
+     */
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    /**
+     * Gets the created date.
+     *
+     * @return the created date
+     */
+    public Date getCreatedDate() {
+        return createdDate;
+    }
+
+    /**
+     * Gets the last modified date.
+     *
+     * @return the last modified date
+     */
+    public Date getLastModifiedDate() {
+        return lastModifiedDate;
+    }
+
+}
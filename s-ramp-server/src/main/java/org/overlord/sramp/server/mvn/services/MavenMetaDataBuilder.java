@@ -19,10 +19,6 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 
 import org.apache.commons.lang.StringUtils;
-import org.overlord.sramp.repository.QueryManager;
-import org.overlord.sramp.repository.QueryManagerFactory;
-import org.overlord.sramp.repository.query.SrampQuery;
-import org.overlord.sramp.server.i18n.Messages;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -288,19 +284,10 @@ public class MavenMetaDataBuilder {
      * @return true, if is group id
      */
     private static boolean isGroupId(String groupId) {
-        String query = "/s-ramp[@maven.groupId = ?]"; //$NON-NLS-1$
         try {
-            QueryManager queryManager = QueryManagerFactory.newInstance();
-            SrampQuery srampQuery = queryManager.createQuery(query);
-
-            srampQuery.setString(groupId);
-
-            org.overlord.sramp.repository.query.ArtifactSet artifactSet = srampQuery.executeQuery();
-            if (artifactSet.size() > 0) {
-                return true;
-            }
-        } catch (Throwable e) {
-            logger.error(Messages.i18n.format("maven.resource.query.error", query), e); //$NON-NLS-1$
+            return MavenGavIndex.getInstance().hasGroup(groupId);
+        } catch (MavenRepositoryException e) {
+            logger.error(e.getMessage(), e);
         }
 
         return false;
@@ -317,19 +304,10 @@ public class MavenMetaDataBuilder {
      * @return true, if successful
      */
     private static boolean existVersion(String groupId, String version) {
-        String query = "/s-ramp[@maven.groupId = ? and @maven.version = ? ]"; //$NON-NLS-1$
         try {
-            QueryManager queryManager = QueryManagerFactory.newInstance();
-            SrampQuery srampQuery = queryManager.createQuery(query);
-
-            srampQuery.setString(groupId);
-            srampQuery.setString(version);
-            org.overlord.sramp.repository.query.ArtifactSet artifactSet = srampQuery.executeQuery();
-            if (artifactSet.size() > 0) {
-                return true;
-            }
-        } catch (Throwable e) {
-            logger.error(Messages.i18n.format("maven.resource.query.error", query), e); //$NON-NLS-1$
+            return MavenGavIndex.getInstance().hasVersion(groupId, version);
+        } catch (MavenRepositoryException e) {
+            logger.error(e.getMessage(), e);
         }
 
         return false;
@@ -53,9 +53,6 @@ public class MavenRepositoryService extends HttpServlet {
 
     private static final long serialVersionUID = 1L;
 
-    private static final String MAVEN_SEPARATOR = "-"; //$NON-NLS-1$
-    private static final String MAVEN_FILE_EXTENSION_SEPARATOR = "."; //$NON-NLS-1$
-
     private static final String JSP_LOCATION_LIST_DIR = "/list_items.jsp"; //$NON-NLS-1$
     private static final String URL_CONTEXT_STR = "maven/repository"; //$NON-NLS-1$
 
@@ -210,103 +207,56 @@ public class MavenRepositoryService extends HttpServlet {
     }
 
     private MavenArtifactWrapper getArtifactContent(MavenMetaData metadata) throws MavenRepositoryException {
-        // List of criterias and the parameters associated
-        List<String> criteria = new ArrayList<String>();
-        List<Object> parameters = new ArrayList<Object>();
-        criteria.add("@maven.artifactId = ?"); //$NON-NLS-1$
-        criteria.add("@maven.groupId = ?"); //$NON-NLS-1$
-        criteria.add("@maven.type = ?"); //$NON-NLS-1$
-
-        parameters.add(metadata.getArtifactId());
-        parameters.add(metadata.getGroupId());
-        // If there is a parent type (in case of sha1 or md5, it is passed as
-        // parameter
+        // If there is a parent type (in case of sha1 or md5), the file being
+        // requested belongs to the parent artifact
+        String type = metadata.getType();
         if (StringUtils.isNotBlank(metadata.getParentType())) {
-            parameters.add(metadata.getParentType());
-        } else {
-            parameters.add(metadata.getType());
-        }
-        // Not always it is passed the maven version. This is the case when it
-        // is requested a file (normally maven-metadata.xml) that is stored in
-        // the artifact subfolder
-        if (StringUtils.isNotBlank(metadata.getVersion())) {
-            criteria.add("@maven.version = ?"); //$NON-NLS-1$
-            parameters.add(metadata.getVersion());
-        }
-        // If it is included a classfier it is added as parameter.
-        if (StringUtils.isNotBlank(metadata.getClassifier())) {
-            criteria.add("@maven.classifier = ?"); //$NON-NLS-1$
-            parameters.add(metadata.getClassifier());
-        } else {
-            criteria.add("xp2:not(@maven.classifier)"); //$NON-NLS-1$
-        }
-
-        if (StringUtils.isNotBlank(metadata.getSnapshotId())) {
-            criteria.add("@maven.snapshot.id = ?"); //$NON-NLS-1$
-            parameters.add(metadata.getSnapshotId());
-        }
-
-        ArtifactSet artifactSet = null;
-        BaseArtifactType baseArtifact = null;
-        try {
-            // query based on the previous criterias
-            artifactSet = query(criteria, parameters);
-            if (artifactSet.size() >= 1) {
-                // Found some content!
-                baseArtifact = artifactSet.iterator().next();
-            }
-        } catch (SrampAtomException e) {
-            throw new MavenRepositoryException(Messages.i18n.format(""), e); //$NON-NLS-1$
-        } finally {
-            if (artifactSet != null) {
-                artifactSet.close();
-            }
+            type = metadata.getParentType();
         }
+        // Resolve the artifact by its coordinates, straight from the GAV index
+        MavenIndexEntry entry = MavenGavIndex.getInstance().find(metadata.getGroupId(), metadata.getArtifactId(),
+                metadata.getVersion(), metadata.getClassifier(), type, metadata.getSnapshotId());
         // If the artifact returned is not null, then the content will be
         // retrieved
-        if (baseArtifact != null) {
-            PersistenceManager persistenceManager = PersistenceFactory.newInstance();
+        if (entry != null) {
             final InputStream artifactContent;
-            ArtifactType artifactType = ArtifactType.valueOf(baseArtifact.getArtifactType());
-            Date lastModifiedDate = null;
-            if (baseArtifact.getLastModifiedTimestamp() != null) {
-                lastModifiedDate = baseArtifact.getLastModifiedTimestamp().toGregorianCalendar().getTime();
-            }
-            int contentLength = -1;
+            ArtifactType artifactType = entry.getArtifactType();
+            long contentLength = -1;
             MavenFileExtensionEnum ext = MavenFileExtensionEnum.value(metadata.getType());
             if (ext != null && StringUtils.isNotBlank(ext.getCustomProperty())) {
                 // we need to set the input stream with the value of the custom
                 // property
-                String content = SrampModelUtils.getCustomProperty(baseArtifact, ext.getCustomProperty());
+                String content = ext == MavenFileExtensionEnum.HASH_MD5 ? entry.getMd5() : entry.getSha1();
                 if (StringUtils.isNotBlank(content)) {
                     artifactContent = new ByteArrayInputStream(content.getBytes());
                     contentLength = content.length();
                 } else {
-                    logger.info(Messages.i18n.format("maven.resource.get.subcontent.not.found", baseArtifact.getUuid(), ext.getCustomProperty())); //$NON-NLS-1$
+                    logger.info(Messages.i18n.format("maven.resource.get.subcontent.not.found", entry.getUuid(), ext.getCustomProperty())); //$NON-NLS-1$
                     return null;
                 }
 
             } else {
-                // we need to set the input stream with the artifact content
+                // we need to set the input stream with the artifact content,
+                // which is streamed straight from the repository
+                PersistenceManager persistenceManager = PersistenceFactory.newInstance();
                 try {
-                    artifactContent = persistenceManager.getArtifactContent(baseArtifact.getUuid(), artifactType);
+                    artifactContent = persistenceManager.getArtifactContent(entry.getUuid(), artifactType);
                 } catch (SrampException e) {
-                    logger.error(Messages.i18n.format("maven.resource.get.content.error", baseArtifact.getUuid()), e); //$NON-NLS-1$
+                    logger.error(Messages.i18n.format("maven.resource.get.content.error", entry.getUuid()), e); //$NON-NLS-1$
 
                     throw new MavenRepositoryException(Messages.i18n.format("maven.resource.get.content.error", //$NON-NLS-1$
-                            baseArtifact.getUuid()), e);
+                            entry.getUuid()), e);
 
                 }
-                String contentSize = baseArtifact.getOtherAttributes().get(SrampConstants.SRAMP_CONTENT_SIZE_QNAME);
-                if (StringUtils.isNotBlank(contentSize)) {
-                    contentLength = Integer.parseInt(contentSize);
-                }
-
+                contentLength = entry.getContentLength();
             }
 
-            MavenArtifactWrapper wrapper = new MavenArtifactWrapper(artifactContent, contentLength, lastModifiedDate, metadata.getFileName(),
-                    artifactType.getMimeType());
+            MavenArtifactWrapper wrapper = new MavenArtifactWrapper(artifactContent, (int) contentLength,
+                    entry.getLastModifiedDate(), metadata.getFileName(), artifactType.getMimeType());
             return wrapper;
+        } else if (metadata.getFileName().startsWith(GeneratedMavenMetaData.FILE_NAME)) {
+            // No maven-metadata.xml was stored for the artifact, so serve a generated one
+            return getGeneratedMetaData(metadata);
         } else {
             logger.error(Messages.i18n.format("maven.resource.item.null", metadata.toString())); //$NON-NLS-1$
             // Return null so that the servlet can return a 404
@@ -315,6 +265,28 @@ public class MavenRepositoryService extends HttpServlet {
 
     }
 
+    private MavenArtifactWrapper getGeneratedMetaData(MavenMetaData metadata) throws MavenRepositoryException {
+        GeneratedMavenMetaData generated = MavenGavIndex.getInstance().getMavenMetaData(metadata.getGroupId(),
+                metadata.getArtifactId(), metadata.getVersion());
+        if (generated == null) {
+            logger.error(Messages.i18n.format("maven.resource.item.null", metadata.toString())); //$NON-NLS-1$
+            return null;
+        }
+        byte[] content;
+        String contentType = "text/plain"; //$NON-NLS-1$
+        MavenFileExtensionEnum ext = MavenFileExtensionEnum.value(metadata.getType());
+        if (ext == MavenFileExtensionEnum.HASH_MD5) {
+            content = generated.getMd5().getBytes();
+        } else if (ext == MavenFileExtensionEnum.HASH_SHA1) {
+            content = generated.getSha1().getBytes();
+        } else {
+            content = generated.getContent();
+            contentType = "application/xml"; //$NON-NLS-1$
+        }
+        return new MavenArtifactWrapper(new ByteArrayInputStream(content), content.length,
+                generated.getLastUpdated(), metadata.getFileName(), contentType);
+    }
+
     private Set<String> getItems(String path) throws MavenRepositoryException {
         // It try to get the items based on the different combinations of
         // groupId versionId and artifactId
@@ -363,134 +335,9 @@ public class MavenRepositoryService extends HttpServlet {
         return items;
     }
 
-    private String generateName(BaseArtifactType artifact) {
-        String artifactId = SrampModelUtils.getCustomProperty(artifact, JavaModel.PROP_MAVEN_ARTIFACT_ID);
-        String version = SrampModelUtils.getCustomProperty(artifact, JavaModel.PROP_MAVEN_VERSION);
-        String snapshotId = SrampModelUtils.getCustomProperty(artifact, JavaModel.PROP_MAVEN_SNAPSHOT_ID);
-        String classifier = SrampModelUtils.getCustomProperty(artifact, JavaModel.PROP_MAVEN_CLASSIFIER);
-        String type = SrampModelUtils.getCustomProperty(artifact, JavaModel.PROP_MAVEN_TYPE);
-        if (artifact.getName().contains(artifactId)) {
-            StringBuilder name = new StringBuilder(""); //$NON-NLS-1$
-            name.append(artifactId);
-            if (version.contains("SNAPSHOT")) { //$NON-NLS-1$
-                if (StringUtils.isNotBlank(snapshotId)) {
-                    name.append(MAVEN_SEPARATOR).append(version.substring(0, version.indexOf("SNAPSHOT"))).append(snapshotId); //$NON-NLS-1$
-                } else {
-                    name.append(MAVEN_SEPARATOR).append(version);
-                }
-            } else {
-                name.append(MAVEN_SEPARATOR).append(version);
-            }
-            if (classifier != null) {
-                name.append(MAVEN_SEPARATOR).append(classifier);
-            }
-            name.append(MAVEN_FILE_EXTENSION_SEPARATOR).append(type);
-            return name.toString();
-        } else {
-            return artifact.getName();
-        }
-
-    }
-
     private Set<String> getItems(String groupId, String artifactId, String version) throws MavenRepositoryException {
-        // Add the criterias/parameters depends on the method parameters
-        List<String> criteria = new ArrayList<String>();
-        List<Object> parameters = new ArrayList<Object>();
-
-        Set<String> items = new TreeSet<String>();
-        if (StringUtils.isNotBlank(groupId)) {
-            criteria.add("fn:matches(@maven.groupId, ?)"); //$NON-NLS-1$
-            parameters.add(groupId + ".*"); //$NON-NLS-1$
-        } else {
-            criteria.add("@maven.groupId"); //$NON-NLS-1$
-        }
-
-        if (StringUtils.isNotBlank(version)) {
-            criteria.add("@maven.version= ?"); //$NON-NLS-1$
-            parameters.add(version);
-        }
-        if (StringUtils.isNotBlank(artifactId)) {
-            criteria.add("@maven.artifactId= ?"); //$NON-NLS-1$
-            parameters.add(artifactId);
-        }
-        criteria.add("@derived='false'"); //$NON-NLS-1$
-
-        ArtifactSet artifactSet = null;
-        try {
-            // Query the previous added criterias
-            artifactSet = query(criteria, parameters);
-            Iterator<BaseArtifactType> it = artifactSet.iterator();
-            // Iterate upon all the items retrieved
-            while (it.hasNext()) {
-                BaseArtifactType artifact = it.next();
-                String artifactGroupId = SrampModelUtils.getCustomProperty(artifact, JavaModel.PROP_MAVEN_GROUP_ID);
-                String artifactArtifactId = SrampModelUtils.getCustomProperty(artifact, JavaModel.PROP_MAVEN_ARTIFACT_ID);
-
-                // If it is supposed to belong to an artifact
-                if (StringUtils.isNotBlank(artifactId)) {
-                    String toAdd = ""; //$NON-NLS-1$
-                    // If the request is about listing a version folder
-                    if (StringUtils.isNotBlank(version)) {
-                        // It is added the artifact
-                        toAdd = generateName(artifact);
-                        items.add(toAdd);
-                        String md5 = SrampModelUtils.getCustomProperty(artifact, JavaModel.PROP_MAVEN_HASH_MD5);
-                        String sha1 = SrampModelUtils.getCustomProperty(artifact, JavaModel.PROP_MAVEN_HASH_SHA1);
-                        // If the artifact contains an md5 or sha1 then it is
-                        // added as another maven entry
-                        if (StringUtils.isNotBlank(md5)) {
-                            String itemAdded = toAdd + ".md5"; //$NON-NLS-1$
-                            items.add(itemAdded);
-                        }
-                        if (StringUtils.isNotBlank(sha1)) {
-                            String itemAdded = toAdd + ".sha1"; //$NON-NLS-1$
-                            items.add(itemAdded);
-                        }
-                    } else {// It is being listed the artifact folder, listing
-                            // all the files contained (could be contained a
-                            // maven-metadata.xml) and all the artifact's
-                            // versions
-                        String artifactVersionId = SrampModelUtils.getCustomProperty(artifact, JavaModel.PROP_MAVEN_VERSION);
-                        if (StringUtils.isNotBlank(artifactVersionId)) {
-                            items.add(artifactVersionId);
-                        } else {
-                            items.add(artifact.getName());
-                        }
-
-                    }
-                } else {// In this case, we need to list a part of a groupId
-                    // The remaining group id to be listed
-                    String restGroupId = artifactGroupId.substring(artifactGroupId.indexOf(groupId) + groupId.length());
-                    // This means it is being listed an element inside of the
-                    // groupId
-                    if (restGroupId.startsWith(".")) { //$NON-NLS-1$
-                        String removeBegin = restGroupId.substring(1);
-                        // Listing next element
-                        if (removeBegin.contains(".")) { //$NON-NLS-1$
-                            items.add(removeBegin.substring(0, removeBegin.indexOf(".")) + "/"); //$NON-NLS-1$ //$NON-NLS-2$
-                        } else {
-                            items.add(removeBegin + "/"); //$NON-NLS-1$
-                        }
-                    } else {
-                        if (restGroupId.contains(".")) { //$NON-NLS-1$
-                            items.add(restGroupId.substring(0, restGroupId.indexOf(".")) + "/"); //$NON-NLS-1$ //$NON-NLS-2$
-                        } else if (restGroupId.trim().equals("")) { //$NON-NLS-1$
-                            items.add(artifactArtifactId + "/"); //$NON-NLS-1$
-                        } else {
-                            items.add(restGroupId);
-                        }
-                    }
-                }
-            }
-        } catch (SrampAtomException e) {
-            throw new MavenRepositoryException(Messages.i18n.format("maven.resource.get.items.error", groupId, artifactId, version), e); //$NON-NLS-1$
-        } finally {
-            if (artifactSet != null) {
-                artifactSet.close();
-            }
-        }
-
-        return items;
+        // The items are served from the GAV index rather than by querying s-ramp
+        return MavenGavIndex.getInstance().list(groupId, artifactId, version);
     }
 
     private void uploadArtifact(HttpServletRequest req, HttpServletResponse response)
@@ -643,65 +490,78 @@ public class MavenRepositoryService extends HttpServlet {
             }
         } else {
             BaseArtifactType persisted = null;
-            // If there is an existing artifact in s-ramp it would be updaded
-            // with the new content
-            if (baseArtifact != null) {
-                if (metadata.isSnapshotVersion() || metadata.getFileName().equals("maven-metadata.xml")) { //$NON-NLS-1$
-                    ArtifactType artifactType = ArtifactType.valueOf(baseArtifact);
-                    try {
-                        persistenceManager.updateArtifactContent(baseArtifact.getUuid(), artifactType, new ArtifactContent(fileName, content));
-                    } catch (Exception e) {
-                        throw new MavenRepositoryException(Messages.i18n.format("maven.resource.upload.sramp.update.content.error", //$NON-NLS-1$
-                                baseArtifact.getUuid()), e);
+            ArtifactContent artifactContent = null;
+            try {
+                // If there is an existing artifact in s-ramp it would be updaded
+                // with the new content
+                if (baseArtifact != null) {
+                    if (metadata.isSnapshotVersion() || metadata.getFileName().equals("maven-metadata.xml")) { //$NON-NLS-1$
+                        ArtifactType artifactType = ArtifactType.valueOf(baseArtifact);
+                        try {
+                            artifactContent = new ArtifactContent(fileName, content);
+                            persistenceManager.updateArtifactContent(baseArtifact.getUuid(), artifactType, artifactContent);
+                        } catch (Exception e) {
+                            throw new MavenRepositoryException(Messages.i18n.format("maven.resource.upload.sramp.update.content.error", //$NON-NLS-1$
+                                    baseArtifact.getUuid()), e);
+                        }
+                        persisted = baseArtifact;
+                    } else {
+                        throw new MavenRepositoryException(Messages.i18n.format("maven.resource.upload.sramp.release.artifact.exist", //$NON-NLS-1$
+                                metadata.getFullName()));
                     }
-                    persisted = baseArtifact;
+
                 } else {
-                    throw new MavenRepositoryException(Messages.i18n.format("maven.resource.upload.sramp.release.artifact.exist", //$NON-NLS-1$
-                            metadata.getFullName()));
+                    // we need to create a new artifact in s-ramp and persist the
+                    // content
+                    ArtifactType artifactType = determineArtifactType(fileName);
+                    BaseArtifactType baseArtifactType = artifactType.newArtifactInstance();
+                    try {
+                        artifactContent = new ArtifactContent(fileName, content);
+                        persisted = persistenceManager.persistArtifact(baseArtifactType, artifactContent);
+                    } catch (Exception e1) {
+                        throw new MavenRepositoryException(Messages.i18n.format("maven.resource.upload.sramp.new.content.error"), e1); //$NON-NLS-1$
+                    }
                 }
+                // Store the metadata to the persisted artifact
+                SrampModelUtils.setCustomProperty(persisted, JavaModel.PROP_MAVEN_GROUP_ID, metadata.getGroupId());
+                SrampModelUtils.setCustomProperty(persisted, JavaModel.PROP_MAVEN_ARTIFACT_ID, metadata.getArtifactId());
+                SrampModelUtils.setCustomProperty(persisted, JavaModel.PROP_MAVEN_VERSION, metadata.getVersion());
 
-            } else {
-                // we need to create a new artifact in s-ramp and persist the
-                // content
-                ArtifactType artifactType = determineArtifactType(fileName);
-                BaseArtifactType baseArtifactType = artifactType.newArtifactInstance();
+                if (StringUtils.isNotBlank(metadata.getClassifier())) {
+                    SrampModelUtils.setCustomProperty(persisted, JavaModel.PROP_MAVEN_CLASSIFIER, metadata.getClassifier());
+                }
+                if (StringUtils.isNotBlank(metadata.getType())) {
+                    SrampModelUtils.setCustomProperty(persisted, JavaModel.PROP_MAVEN_TYPE, metadata.getType());
+                }
+                if (StringUtils.isNotBlank(metadata.getSnapshotId())) {
+                    SrampModelUtils.setCustomProperty(persisted, JavaModel.PROP_MAVEN_SNAPSHOT_ID, metadata.getSnapshotId());
+                }
+                // The checksums were computed while the content was received, so the
+                // .md5 and .sha1 files can be served without reading the content again
+                SrampModelUtils.setCustomProperty(persisted, JavaModel.PROP_MAVEN_HASH_MD5, artifactContent.getMd5Hash());
+                SrampModelUtils.setCustomProperty(persisted, JavaModel.PROP_MAVEN_HASH_SHA1, artifactContent.getSha1Hash());
                 try {
-                    persisted = persistenceManager.persistArtifact(baseArtifactType, new ArtifactContent(fileName, content));
-                } catch (Exception e1) {
-                    throw new MavenRepositoryException(Messages.i18n.format("maven.resource.upload.sramp.new.content.error"), e1); //$NON-NLS-1$
+                    // Persist the content size, because it will be required when
+                    // reading
+                    persisted.getOtherAttributes().put(SrampConstants.SRAMP_CONTENT_SIZE_QNAME, content.available() + ""); //$NON-NLS-1$
+                } catch (IOException e) {
+                    logger.error(""); //$NON-NLS-1$
                 }
-            }
-            // Store the metadata to the persisted artifact
-            SrampModelUtils.setCustomProperty(persisted, JavaModel.PROP_MAVEN_GROUP_ID, metadata.getGroupId());
-            SrampModelUtils.setCustomProperty(persisted, JavaModel.PROP_MAVEN_ARTIFACT_ID, metadata.getArtifactId());
-            SrampModelUtils.setCustomProperty(persisted, JavaModel.PROP_MAVEN_VERSION, metadata.getVersion());
-
-            if (StringUtils.isNotBlank(metadata.getClassifier())) {
-                SrampModelUtils.setCustomProperty(persisted, JavaModel.PROP_MAVEN_CLASSIFIER, metadata.getClassifier());
-            }
-            if (StringUtils.isNotBlank(metadata.getType())) {
-                SrampModelUtils.setCustomProperty(persisted, JavaModel.PROP_MAVEN_TYPE, metadata.getType());
-            }
-            if (StringUtils.isNotBlank(metadata.getSnapshotId())) {
-                SrampModelUtils.setCustomProperty(persisted, JavaModel.PROP_MAVEN_SNAPSHOT_ID, metadata.getSnapshotId());
-            }
-            try {
-                // Persist the content size, because it will be required when
-                // reading
-                persisted.getOtherAttributes().put(SrampConstants.SRAMP_CONTENT_SIZE_QNAME, content.available() + ""); //$NON-NLS-1$
-            } catch (IOException e) {
-                logger.error(""); //$NON-NLS-1$
-            }
 
-            persisted.setName(metadata.getFileName());
-            ArtifactType artifactType = ArtifactType.valueOf(persisted);
-            try {
-                persistenceManager.updateArtifact(persisted, artifactType);
-            } catch (SrampException e) {
-                throw new MavenRepositoryException(Messages.i18n.format("maven.resource.upload.sramp.update.content.metadata.error", //$NON-NLS-1$
-                        persisted.getUuid()), e);
+                persisted.setName(metadata.getFileName());
+                ArtifactType artifactType = ArtifactType.valueOf(persisted);
+                try {
+                    persistenceManager.updateArtifact(persisted, artifactType);
+                } catch (SrampException e) {
+                    throw new MavenRepositoryException(Messages.i18n.format("maven.resource.upload.sramp.update.content.metadata.error", //$NON-NLS-1$
+                            persisted.getUuid()), e);
+                }
+                uuid = persisted.getUuid();
+            } finally {
+                if (artifactContent != null) {
+                    artifactContent.cleanup();
+                }
             }
-            uuid = persisted.getUuid();
         }
 
         return uuid;
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.server.mvn.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
+import org.overlord.sramp.common.ArtifactType;
+import org.overlord.sramp.common.SrampModelUtils;
+import org.overlord.sramp.integration.java.model.JavaModel;
+
+/**
+ * Unit test for the {@link MavenGavIndex} class.
+ */
+public class MavenGavIndexTest {
+
+    private MavenGavIndex index;
+
+    @Before
+    public void setUp() {
+        List<BaseArtifactType> artifacts = new ArrayList<BaseArtifactType>();
+        artifacts.add(createArtifact("1", "org.overlord.sramp", "s-ramp-api", "1.0", "jar", "abc")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+        artifacts.add(createArtifact("2", "org.overlord.sramp", "s-ramp-api", "1.0", "pom", null)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+        artifacts.add(createArtifact("3", "org.overlord.sramp", "s-ramp-api", "1.1", "jar", null)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+        artifacts.add(createArtifact("4", "org.overlord.sramp.integration", "s-ramp-java", "1.0", "jar", null)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+        artifacts.add(createArtifact("5", "org.overlord.commons", "overlord-commons", "2.0", "jar", null)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+        artifacts.add(createArtifact("6", "org.overlord.sramp-extras", "extras", "1.0", "jar", null)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+        index = new MavenGavIndex();
+        index.load(artifacts.iterator());
+    }
+
+    @Test
+    public void testListGroups() throws Exception {
+        Assert.assertEquals(Arrays.asList("org/"), new ArrayList<String>(index.list("", null, null))); //$NON-NLS-1$ //$NON-NLS-2$
+        Assert.assertEquals(Arrays.asList("commons/", "sramp-extras/", "sramp/"), //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                new ArrayList<String>(index.list("org.overlord", null, null))); //$NON-NLS-1$
+        Assert.assertEquals(Arrays.asList("integration/", "s-ramp-api/"), //$NON-NLS-1$ //$NON-NLS-2$
+                new ArrayList<String>(index.list("org.overlord.sramp", null, null))); //$NON-NLS-1$
+        Assert.assertTrue(index.list("org.over", null, null).isEmpty()); //$NON-NLS-1$
+    }
+
+    @Test
+    public void testListArtifactAndVersion() throws Exception {
+        Assert.assertEquals(Arrays.asList("1.0", "1.1"), //$NON-NLS-1$ //$NON-NLS-2$
+                new ArrayList<String>(index.list("org.overlord.sramp", "s-ramp-api", null))); //$NON-NLS-1$ //$NON-NLS-2$
+        Assert.assertEquals(Arrays.asList("s-ramp-api-1.0.jar", "s-ramp-api-1.0.jar.md5", "s-ramp-api-1.0.pom"), //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                new ArrayList<String>(index.list("org.overlord.sramp", "s-ramp-api", "1.0"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        Assert.assertTrue(index.list("org.overlord.sramp", "s-ramp-api", "2.0").isEmpty()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    }
+
+    @Test
+    public void testIndexAndRemove() throws Exception {
+        BaseArtifactType artifact = createArtifact("7", "org.overlord.sramp", "s-ramp-api", "1.2", "jar", null); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+        index.artifactPersisted(artifact);
+        Assert.assertTrue(index.list("org.overlord.sramp", "s-ramp-api", null).contains("1.2")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+        // Moving the artifact to another version removes the old entry
+        SrampModelUtils.setCustomProperty(artifact, JavaModel.PROP_MAVEN_VERSION, "1.3"); //$NON-NLS-1$
+        artifact.setName("s-ramp-api-1.3.jar"); //$NON-NLS-1$
+        index.artifactPersisted(artifact);
+        Assert.assertEquals(Arrays.asList("1.0", "1.1", "1.3"), //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                new ArrayList<String>(index.list("org.overlord.sramp", "s-ramp-api", null))); //$NON-NLS-1$ //$NON-NLS-2$
+
+        index.artifactDeleted(artifact);
+        Assert.assertEquals(Arrays.asList("1.0", "1.1"), //$NON-NLS-1$ //$NON-NLS-2$
+                new ArrayList<String>(index.list("org.overlord.sramp", "s-ramp-api", null))); //$NON-NLS-1$ //$NON-NLS-2$
+
+        // Removing the last artifact of a group removes the group folders too
+        index.artifactDeleted(createArtifact("5", "org.overlord.commons", "overlord-commons", "2.0", "jar", null)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+        Assert.assertEquals(Arrays.asList("sramp-extras/", "sramp/"), //$NON-NLS-1$ //$NON-NLS-2$
+                new ArrayList<String>(index.list("org.overlord", null, null))); //$NON-NLS-1$
+    }
+
+    @Test
+    public void testArtifactsChanged() throws Exception {
+        index.artifactsChanged();
+        // Changes are ignored until the index has been rebuilt, which drops everything it held before
+        index.artifactPersisted(createArtifact("7", "org.overlord.sramp", "s-ramp-api", "1.2", "jar", null)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+        index.load(Collections.singletonList(
+                createArtifact("8", "org.overlord.sramp", "s-ramp-api", "2.0", "jar", null)).iterator()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+        Assert.assertEquals(Arrays.asList("2.0"), //$NON-NLS-1$
+                new ArrayList<String>(index.list("org.overlord.sramp", "s-ramp-api", null))); //$NON-NLS-1$ //$NON-NLS-2$
+        Assert.assertNull(index.find("org.overlord.sramp", "s-ramp-api", "1.0", null, "jar", null)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+    }
+
+    @Test
+    public void testFind() throws Exception {
+        MavenIndexEntry entry = index.find("org.overlord.sramp", "s-ramp-api", "1.0", null, "jar", null); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        Assert.assertNotNull(entry);
+        Assert.assertEquals("1", entry.getUuid()); //$NON-NLS-1$
+        Assert.assertEquals("abc", entry.getMd5()); //$NON-NLS-1$
+        Assert.assertNull(index.find("org.overlord.sramp", "s-ramp-api", "1.0", "sources", "jar", null)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+
+        // Without a snapshot id, the latest snapshot is found
+        BaseArtifactType snapshot1 = createArtifact("8", "org.overlord.sramp", "s-ramp-api", "2.0-SNAPSHOT", "jar", null); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+        SrampModelUtils.setCustomProperty(snapshot1, JavaModel.PROP_MAVEN_SNAPSHOT_ID, "20140102.030405-2"); //$NON-NLS-1$
+        BaseArtifactType snapshot2 = createArtifact("9", "org.overlord.sramp", "s-ramp-api", "2.0-SNAPSHOT", "jar", null); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+        SrampModelUtils.setCustomProperty(snapshot2, JavaModel.PROP_MAVEN_SNAPSHOT_ID, "20140101.030405-1"); //$NON-NLS-1$
+        index.artifactPersisted(snapshot1);
+        index.artifactPersisted(snapshot2);
+        Assert.assertEquals("8", index.find("org.overlord.sramp", "s-ramp-api", "2.0-SNAPSHOT", null, "jar", null).getUuid()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+        Assert.assertEquals("9", index.find("org.overlord.sramp", "s-ramp-api", "2.0-SNAPSHOT", null, "jar", "20140101.030405-1").getUuid()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+        Assert.assertEquals(Arrays.asList("s-ramp-api-2.0-20140101.030405-1.jar", "s-ramp-api-2.0-20140102.030405-2.jar"), //$NON-NLS-1$ //$NON-NLS-2$
+                new ArrayList<String>(index.list("org.overlord.sramp", "s-ramp-api", "2.0-SNAPSHOT"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+        index.artifactDeleted(snapshot1);
+        Assert.assertEquals("9", index.find("org.overlord.sramp", "s-ramp-api", "2.0-SNAPSHOT", null, "jar", null).getUuid()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+        index.artifactDeleted(snapshot2);
+        Assert.assertNull(index.find("org.overlord.sramp", "s-ramp-api", "2.0-SNAPSHOT", null, "jar", null)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+    }
+
+    @Test
+    public void testMavenMetaData() throws Exception {
+        GeneratedMavenMetaData metaData = index.getMavenMetaData("org.overlord.sramp", "s-ramp-api", null); //$NON-NLS-1$ //$NON-NLS-2$
+        String content = new String(metaData.getContent(), "UTF-8"); //$NON-NLS-1$
+        Assert.assertTrue(content.contains("<version>1.0</version>")); //$NON-NLS-1$
+        Assert.assertTrue(content.contains("<version>1.1</version>")); //$NON-NLS-1$
+        Assert.assertEquals(DigestUtils.md5Hex(metaData.getContent()), metaData.getMd5());
+        Assert.assertEquals(DigestUtils.shaHex(metaData.getContent()), metaData.getSha1());
+        // Cached until the artifact changes
+        Assert.assertSame(metaData, index.getMavenMetaData("org.overlord.sramp", "s-ramp-api", null)); //$NON-NLS-1$ //$NON-NLS-2$
+        GeneratedMavenMetaData other = index.getMavenMetaData("org.overlord.commons", "overlord-commons", null); //$NON-NLS-1$ //$NON-NLS-2$
+
+        BaseArtifactType snapshot = createArtifact("10", "org.overlord.sramp", "s-ramp-api", "2.0-SNAPSHOT", "jar", null); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+        SrampModelUtils.setCustomProperty(snapshot, JavaModel.PROP_MAVEN_SNAPSHOT_ID, "20140102.030405-2"); //$NON-NLS-1$
+        index.artifactPersisted(snapshot);
+        GeneratedMavenMetaData updated = index.getMavenMetaData("org.overlord.sramp", "s-ramp-api", null); //$NON-NLS-1$ //$NON-NLS-2$
+        Assert.assertNotSame(metaData, updated);
+        Assert.assertTrue(new String(updated.getContent(), "UTF-8").contains("<version>2.0-SNAPSHOT</version>")); //$NON-NLS-1$ //$NON-NLS-2$
+        // Other artifacts keep theirs
+        Assert.assertSame(other, index.getMavenMetaData("org.overlord.commons", "overlord-commons", null)); //$NON-NLS-1$ //$NON-NLS-2$
+
+        String snapshotContent = new String(index.getMavenMetaData("org.overlord.sramp", "s-ramp-api", "2.0-SNAPSHOT").getContent(), "UTF-8"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        Assert.assertTrue(snapshotContent.contains("<timestamp>20140102.030405</timestamp>")); //$NON-NLS-1$
+        Assert.assertTrue(snapshotContent.contains("<buildNumber>2</buildNumber>")); //$NON-NLS-1$
+        Assert.assertTrue(snapshotContent.contains("<value>2.0-20140102.030405-2</value>")); //$NON-NLS-1$
+        Assert.assertNull(index.getMavenMetaData("org.overlord.sramp", "s-ramp-api", "3.0")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    }
+
+    private static BaseArtifactType createArtifact(String uuid, String groupId, String artifactId, String version,
+            String type, String md5) {
+        BaseArtifactType artifact = ArtifactType.ExtendedDocument(JavaModel.TYPE_ARCHIVE).newArtifactInstance();
+        artifact.setUuid(uuid);
+        artifact.setName(artifactId + "-" + version + "." + type); //$NON-NLS-1$ //$NON-NLS-2$
+        SrampModelUtils.setCustomProperty(artifact, JavaModel.PROP_MAVEN_GROUP_ID, groupId);
+        SrampModelUtils.setCustomProperty(artifact, JavaModel.PROP_MAVEN_ARTIFACT_ID, artifactId);
+        SrampModelUtils.setCustomProperty(artifact, JavaModel.PROP_MAVEN_VERSION, version);
+        SrampModelUtils.setCustomProperty(artifact, JavaModel.PROP_MAVEN_TYPE, type);
+        if (md5 != null) {
+            SrampModelUtils.setCustomProperty(artifact, JavaModel.PROP_MAVEN_HASH_MD5, md5);
+        }
+        return artifact;
+    }
+
+}
@@ -46,6 +46,7 @@ public class DisconnectCommand extends BuiltInShellCommand {
 			return false;
 		}
 		getContext().removeVariable(varName);
+		client.close();
 		print(Messages.i18n.format("Disconnect.Success")); //$NON-NLS-1$
         return true;
 	}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.test.client;
+
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.overlord.sramp.atom.err.SrampAtomException;
+import org.overlord.sramp.client.PagedQueryResults;
+import org.overlord.sramp.client.SrampAtomApiClient;
+import org.overlord.sramp.client.SrampClientException;
+import org.overlord.sramp.client.SrampClientPagingException;
+import org.overlord.sramp.client.query.ArtifactSummary;
+import org.overlord.sramp.client.query.QueryResultSet;
+
+/**
+ * Unit test for the {@link PagedQueryResults}, see {@link org.overlord.sramp.client.SrampClientQuery#stream()}.
+ */
+public class PagedQueryResultsTest extends AbstractNoAuditingClientTest {
+
+    private static final String QUERY = "/s-ramp/core/XmlDocument"; //$NON-NLS-1$
+
+    @Test
+    public void testEmpty() throws Exception {
+        CountingClient client = countingClient();
+        Iterator<ArtifactSummary> iterator = stream(client, 0, 3).iterator();
+        Assert.assertFalse(iterator.hasNext());
+        Assert.assertFalse(iterator.hasNext());
+        try {
+            iterator.next();
+            fail("Expected a NoSuchElementException."); //$NON-NLS-1$
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+        Assert.assertEquals(1, client.queries.get());
+    }
+
+    @Test
+    public void testExactPages() throws Exception {
+        List<String> expected = addXmlDocs(6);
+        CountingClient client = countingClient();
+        assertSameArtifacts(expected, uuids(stream(client, 0, 3)));
+        // The total tells the iterator that there is nothing after the second (full) page
+        Assert.assertEquals(2, client.queries.get());
+    }
+
+    @Test
+    public void testPartialLastPage() throws Exception {
+        List<String> expected = addXmlDocs(7);
+        CountingClient client = countingClient();
+        assertSameArtifacts(expected, uuids(stream(client, 0, 3)));
+        Assert.assertEquals(3, client.queries.get());
+    }
+
+    @Test
+    public void testSinglePage() throws Exception {
+        List<String> expected = addXmlDocs(2);
+        CountingClient client = countingClient();
+        assertSameArtifacts(expected, uuids(stream(client, 0, 5)));
+        Assert.assertEquals(1, client.queries.get());
+    }
+
+    @Test
+    public void testStartIndex() throws Exception {
+        addXmlDocs(7);
+        SrampAtomApiClient client = client();
+        List<String> all = uuids(stream(client, 0, 10));
+        Assert.assertEquals(7, all.size());
+        List<String> rest = uuids(stream(client, 2, 3));
+        Assert.assertEquals(5, rest.size());
+        Assert.assertEquals(5, new HashSet<String>(rest).size());
+        Assert.assertTrue(all.containsAll(rest));
+        Assert.assertTrue(uuids(stream(client, 7, 3)).isEmpty());
+    }
+
+    @Test
+    public void testIteratorsAreIndependent() throws Exception {
+        List<String> expected = addXmlDocs(5);
+        PagedQueryResults results = stream(client(), 0, 2);
+        Iterator<ArtifactSummary> first = results.iterator();
+        List<String> firstUuids = new ArrayList<String>();
+        firstUuids.add(first.next().getUuid());
+        firstUuids.add(first.next().getUuid());
+        // A second iteration starts over
+        assertSameArtifacts(expected, uuids(results));
+        while (first.hasNext()) {
+            firstUuids.add(first.next().getUuid());
+        }
+        assertSameArtifacts(expected, firstUuids);
+    }
+
+    @Test
+    public void testQueryError() throws Exception {
+        PagedQueryResults results = client().buildQuery("12345").count(3).stream(); //$NON-NLS-1$
+        try {
+            results.iterator().hasNext();
+            fail("Expected a SrampClientPagingException."); //$NON-NLS-1$
+        } catch (SrampClientPagingException e) {
+            Assert.assertTrue(e.getCause() instanceof SrampAtomException);
+        }
+    }
+
+    /**
+     * Adds a number of XML documents, and returns their UUIDs.
+     * @param count
+     * @throws Exception
+     */
+    private List<String> addXmlDocs(int count) throws Exception {
+        List<String> uuids = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            uuids.add(addXmlDoc().getUuid());
+        }
+        return uuids;
+    }
+
+    /**
+     * Asserts that each of the expected artifacts was returned exactly once (artifacts created
+     * within the same millisecond may come back in either order).
+     * @param expected
+     * @param actual
+     */
+    private static void assertSameArtifacts(List<String> expected, List<String> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        Assert.assertEquals(new HashSet<String>(expected), new HashSet<String>(actual));
+    }
+
+    private static PagedQueryResults stream(SrampAtomApiClient client, int startIndex, int pageSize) throws Exception {
+        return client.buildQuery(QUERY).startIndex(startIndex).count(pageSize).orderBy("createdTimestamp") //$NON-NLS-1$
+                .ascending().stream();
+    }
+
+    private static List<String> uuids(PagedQueryResults results) {
+        List<String> uuids = new ArrayList<String>();
+        for (ArtifactSummary summary : results) {
+            uuids.add(summary.getUuid());
+        }
+        return uuids;
+    }
+
+    private CountingClient countingClient() throws Exception {
+        return new CountingClient(client().getEndpoint());
+    }
+
+    /**
+     * A client that counts the queries it makes.
+     */
+    private static final class CountingClient extends SrampAtomApiClient {
+        private final AtomicInteger queries = new AtomicInteger();
+
+        public CountingClient(String endpoint) throws SrampClientException, SrampAtomException {
+            super(endpoint, USERNAME, PASSWORD, true);
+        }
+
+        @Override
+        public QueryResultSet query(String srampQuery, int startIndex, int count, String orderBy, boolean ascending,
+                Collection<String> propertyNames) throws SrampClientException, SrampAtomException {
+            queries.incrementAndGet();
+            return super.query(srampQuery, startIndex, count, orderBy, ascending, propertyNames);
+        }
+    }
+
+}
@@ -18,11 +18,15 @@ package org.overlord.sramp.test.client;
 import static org.junit.Assert.fail;
 
 import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -33,6 +37,7 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactEnum;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.ElementDeclaration;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.ExtendedArtifactType;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.ExtendedDocument;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.XmlDocument;
@@ -40,7 +45,9 @@ import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.XsdDocument;
 import org.overlord.sramp.atom.archive.SrampArchive;
 import org.overlord.sramp.atom.err.SrampAtomException;
 import org.overlord.sramp.atom.mappers.RdfToOntologyMapper;
+import org.overlord.sramp.client.BatchEntry;
 import org.overlord.sramp.client.SrampAtomApiClient;
+import org.overlord.sramp.client.SrampClientException;
 import org.overlord.sramp.client.ontology.OntologySummary;
 import org.overlord.sramp.client.query.ArtifactSummary;
 import org.overlord.sramp.client.query.QueryResultSet;
@@ -493,6 +500,64 @@ public class SrampAtomApiClientTest extends AbstractNoAuditingClientTest {
 		}
 	}
 
+    /**
+     * Test method for {@link SrampAtomApiClient#uploadBatch(Iterator)}.
+     */
+    @Test
+    public void testStreamingBatchUpload() throws Exception {
+        List<ClosingInputStream> contents = new ArrayList<ClosingInputStream>();
+        List<BatchEntry> entries = new ArrayList<BatchEntry>();
+        for (int i = 0; i < 3; i++) {
+            ClosingInputStream content = new ClosingInputStream(
+                    this.getClass().getResourceAsStream("/sample-files/core/PO.xml")); //$NON-NLS-1$
+            contents.add(content);
+            XmlDocument metaData = new XmlDocument();
+            metaData.setName("PO-" + i + ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+            metaData.setArtifactType(BaseArtifactEnum.XML_DOCUMENT);
+            entries.add(new BatchEntry("core/PO-" + i + ".xml", metaData, content)); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+
+        Map<String, ?> results = client().uploadBatch(entries.iterator());
+        Assert.assertEquals(3, results.size());
+        for (int i = 0; i < 3; i++) {
+            XmlDocument xmlDoc = (XmlDocument) results.get("core/PO-" + i + ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+            Assert.assertNotNull(xmlDoc);
+            Assert.assertEquals("PO-" + i + ".xml", xmlDoc.getName()); //$NON-NLS-1$ //$NON-NLS-2$
+            Assert.assertTrue(contents.get(i).closed);
+        }
+        Assert.assertEquals(3, client().query("/s-ramp/core/XmlDocument").size()); //$NON-NLS-1$
+    }
+
+    /**
+     * Test method for {@link SrampAtomApiClient#uploadBatch(Iterator)} - the content of all
+     * entries is closed even when the upload fails.
+     */
+    @Test
+    public void testStreamingBatchUpload_Failure() throws Exception {
+        List<ClosingInputStream> contents = new ArrayList<ClosingInputStream>();
+        List<BatchEntry> entries = new ArrayList<BatchEntry>();
+        for (int i = 0; i < 3; i++) {
+            ClosingInputStream content = new ClosingInputStream(
+                    this.getClass().getResourceAsStream("/sample-files/core/PO.xml")); //$NON-NLS-1$
+            contents.add(content);
+            XmlDocument metaData = new XmlDocument();
+            metaData.setName("PO-" + i + ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+            metaData.setArtifactType(BaseArtifactEnum.XML_DOCUMENT);
+            entries.add(new BatchEntry("core/PO-" + i + ".xml", metaData, content)); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        // Nothing is listening on this port, so none of the package is ever written.
+        SrampAtomApiClient client = new SrampAtomApiClient("http://localhost:1/s-ramp-server"); //$NON-NLS-1$
+        try {
+            client.uploadBatch(entries.iterator());
+            fail("Expected the upload to fail."); //$NON-NLS-1$
+        } catch (SrampClientException e) {
+            // expected
+        }
+        for (ClosingInputStream content : contents) {
+            Assert.assertTrue(content.closed);
+        }
+    }
+
     /**
      * Test method for {@link SrampAtomApiClient#uploadBatch(SrampArchive)}.
      */
@@ -757,4 +822,85 @@ public class SrampAtomApiClientTest extends AbstractNoAuditingClientTest {
         Assert.assertEquals("9|8|7|6|5|4|3|2|1|0|", builder.toString()); //$NON-NLS-1$
     }
 
+    /**
+     * Test method for {@link SrampAtomApiClient#getArtifactMetaData(java.util.Collection)}.
+     */
+    @Test
+    public void testGetArtifactMetaDataBulk() throws Exception {
+        SrampAtomApiClient client = client();
+        BaseArtifactType first = addXmlDoc();
+        BaseArtifactType second = addXmlDoc();
+
+        // More UUIDs than fit in a single request, most of them unknown
+        List<String> uuids = new ArrayList<String>();
+        uuids.add(second.getUuid());
+        for (int i = 0; i < SrampAtomApiClient.BULK_META_DATA_BATCH_SIZE + 50; i++) {
+            uuids.add(UUID.randomUUID().toString());
+        }
+        uuids.add(first.getUuid());
+        uuids.add(second.getUuid());
+
+        List<BaseArtifactType> artifacts = client.getArtifactMetaData(uuids);
+        Assert.assertEquals(2, artifacts.size());
+        Assert.assertEquals(second.getUuid(), artifacts.get(0).getUuid());
+        Assert.assertEquals(first.getUuid(), artifacts.get(1).getUuid());
+
+        // Deleted artifacts are left out
+        client.deleteArtifact(first.getUuid(), ArtifactType.valueOf(first));
+        artifacts = client.getArtifactMetaData(uuids);
+        Assert.assertEquals(1, artifacts.size());
+        Assert.assertEquals(second.getUuid(), artifacts.get(0).getUuid());
+    }
+
+    /**
+     * Test method for {@link SrampAtomApiClient#getArtifactMetaData(ArtifactType, String)} with the
+     * compact JSON format preferred - single artifacts must still come back (and be cached) in full.
+     */
+    @Test
+    public void testGetArtifactMetaDataPreferJson() throws Exception {
+        SrampAtomApiClient client = client();
+        String artifactFileName = "PO.xsd"; //$NON-NLS-1$
+        InputStream is = this.getClass().getResourceAsStream("/sample-files/xsd/" + artifactFileName); //$NON-NLS-1$
+        try {
+            client.uploadArtifact(ArtifactType.XsdDocument(), is, artifactFileName);
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+        QueryResultSet rs = client.query("/s-ramp/xsd/ElementDeclaration[@ncName = 'purchaseOrder']"); //$NON-NLS-1$
+        Assert.assertEquals(1, rs.size());
+        String uuid = rs.get(0).getUuid();
+
+        client.setPreferJson(true);
+        client.enableMetaDataCache(10, 60000l);
+        try {
+            // The second call is served from the cache
+            for (int i = 0; i < 2; i++) {
+                BaseArtifactType fetched = client.getArtifactMetaData(ArtifactType.valueOf("ElementDeclaration"), uuid); //$NON-NLS-1$
+                Assert.assertTrue(fetched instanceof ElementDeclaration);
+                // Type specific meta-data isn't part of the JSON format
+                Assert.assertEquals("purchaseOrder", ((ElementDeclaration) fetched).getNCName()); //$NON-NLS-1$
+            }
+        } finally {
+            client.disableMetaDataCache();
+            client.setPreferJson(false);
+        }
+    }
+
+    /**
+     * An input stream that remembers whether it was closed.
+     */
+    private static final class ClosingInputStream extends FilterInputStream {
+        private boolean closed;
+
+        public ClosingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
+
 }
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.sramp.test.client;
+
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
+import org.overlord.sramp.atom.err.SrampAtomException;
+import org.overlord.sramp.client.SrampAtomAsyncClient;
+import org.overlord.sramp.client.SrampClientException;
+import org.overlord.sramp.client.query.ArtifactSummary;
+import org.overlord.sramp.client.query.QueryResultSet;
+import org.overlord.sramp.common.ArtifactType;
+
+/**
+ * Unit test for the {@link SrampAtomAsyncClient}.
+ */
+public class SrampAtomAsyncClientTest extends AbstractNoAuditingClientTest {
+
+    private static final long TIMEOUT = 30;
+
+    /**
+     * Test method for {@link SrampAtomAsyncClient#uploadArtifact(ArtifactType, InputStream, String)}
+     * and {@link SrampAtomAsyncClient#getArtifactMetaData(ArtifactType, String)}.
+     */
+    @Test
+    public void testUploadAndGetArtifactMetaData() throws Exception {
+        SrampAtomAsyncClient asyncClient = new SrampAtomAsyncClient(client(), 2);
+        try {
+            TrackingInputStream content = new TrackingInputStream(
+                    getClass().getResourceAsStream("/sample-files/xsd/PO.xsd")); //$NON-NLS-1$
+            Future<BaseArtifactType> upload = asyncClient.uploadArtifact(ArtifactType.XsdDocument(), content, "PO.xsd"); //$NON-NLS-1$
+            BaseArtifactType artifact = upload.get(TIMEOUT, TimeUnit.SECONDS);
+            Assert.assertTrue(upload.isDone());
+            Assert.assertNotNull(artifact);
+            Assert.assertEquals("PO.xsd", artifact.getName()); //$NON-NLS-1$
+            Assert.assertTrue(content.closed);
+
+            Future<BaseArtifactType> get = asyncClient.getArtifactMetaData(ArtifactType.XsdDocument(), artifact.getUuid());
+            BaseArtifactType fetched = get.get(TIMEOUT, TimeUnit.SECONDS);
+            Assert.assertEquals(artifact.getUuid(), fetched.getUuid());
+            Assert.assertEquals("PO.xsd", fetched.getName()); //$NON-NLS-1$
+
+            Future<InputStream> contentFuture = asyncClient.getArtifactContent(ArtifactType.XsdDocument(), artifact.getUuid());
+            InputStream is = contentFuture.get(TIMEOUT, TimeUnit.SECONDS);
+            try {
+                Assert.assertTrue(IOUtils.toString(is).contains("schema")); //$NON-NLS-1$
+            } finally {
+                IOUtils.closeQuietly(is);
+            }
+        } finally {
+            asyncClient.close();
+        }
+    }
+
+    /**
+     * Test method for {@link SrampAtomAsyncClient#getArtifactMetaData(java.util.Collection)}.
+     */
+    @Test
+    public void testBulkGetArtifactMetaData() throws Exception {
+        List<String> uuids = new ArrayList<String>();
+        for (int i = 0; i < 5; i++) {
+            uuids.add(addXmlDoc().getUuid());
+        }
+
+        // Fewer workers than requests, so that some of them have to wait their turn
+        SrampAtomAsyncClient asyncClient = new SrampAtomAsyncClient(client(), 2);
+        try {
+            QueryResultSet rs = asyncClient.query("/s-ramp/core/XmlDocument", 0, 10, "name", true) //$NON-NLS-1$ //$NON-NLS-2$
+                    .get(TIMEOUT, TimeUnit.SECONDS);
+            Assert.assertEquals(5, rs.size());
+            List<ArtifactSummary> summaries = new ArrayList<ArtifactSummary>();
+            for (ArtifactSummary summary : rs) {
+                summaries.add(summary);
+            }
+
+            List<Future<BaseArtifactType>> futures = asyncClient.getArtifactMetaData(summaries);
+            Assert.assertEquals(summaries.size(), futures.size());
+            for (int i = 0; i < futures.size(); i++) {
+                BaseArtifactType artifact = futures.get(i).get(TIMEOUT, TimeUnit.SECONDS);
+                // The futures are in the order of the summaries
+                Assert.assertEquals(summaries.get(i).getUuid(), artifact.getUuid());
+                Assert.assertTrue(uuids.contains(artifact.getUuid()));
+            }
+        } finally {
+            asyncClient.close();
+        }
+    }
+
+    /**
+     * Test method for {@link SrampAtomAsyncClient#query(String, int, int, String, boolean)}.
+     */
+    @Test
+    public void testQueryError() throws Exception {
+        SrampAtomAsyncClient asyncClient = new SrampAtomAsyncClient(client());
+        try {
+            Future<QueryResultSet> future = asyncClient.query("12345", 0, 20, "name", false); //$NON-NLS-1$ //$NON-NLS-2$
+            try {
+                QueryResultSet rset = future.get(TIMEOUT, TimeUnit.SECONDS);
+                fail("Expected a remote exception from the s-ramp server, but got: " + rset); //$NON-NLS-1$
+            } catch (ExecutionException e) {
+                Assert.assertTrue(future.isDone());
+                Assert.assertTrue(e.getCause() instanceof SrampAtomException);
+                Assert.assertEquals("Invalid artifact set (step 2).", e.getCause().getMessage()); //$NON-NLS-1$
+            }
+
+            // A failed request must not take its worker down with it
+            Assert.assertNotNull(asyncClient.query("/s-ramp").get(TIMEOUT, TimeUnit.SECONDS)); //$NON-NLS-1$
+        } finally {
+            asyncClient.close();
+        }
+    }
+
+    /**
+     * Test method for {@link SrampAtomAsyncClient#uploadArtifact(ArtifactType, InputStream, String)}.
+     */
+    @Test
+    public void testUploadError() throws Exception {
+        SrampAtomAsyncClient asyncClient = new SrampAtomAsyncClient(client());
+        try {
+            TrackingInputStream content = new TrackingInputStream(null);
+            Future<BaseArtifactType> future = asyncClient.uploadArtifact(ArtifactType.XmlDocument(), content, "broken.xml"); //$NON-NLS-1$
+            try {
+                BaseArtifactType artifact = future.get(TIMEOUT, TimeUnit.SECONDS);
+                fail("Expected the upload to fail, but got: " + artifact); //$NON-NLS-1$
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof SrampClientException);
+            }
+            // The content is closed even though the upload failed
+            Assert.assertTrue(content.closed);
+        } finally {
+            asyncClient.close();
+        }
+    }
+
+    /**
+     * An input stream that remembers whether it was closed.  With no delegate, every read fails.
+     */
+    private static final class TrackingInputStream extends InputStream {
+        private final InputStream delegate;
+        private volatile boolean closed;
+
+        public TrackingInputStream(InputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (delegate == null) {
+                throw new IOException("Simulated read failure."); //$NON-NLS-1$
+            }
+            return delegate.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (delegate == null) {
+                throw new IOException("Simulated read failure."); //$NON-NLS-1$
+            }
+            return delegate.read(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            if (delegate != null) {
+                delegate.close();
+            }
+        }
+    }
+
+}
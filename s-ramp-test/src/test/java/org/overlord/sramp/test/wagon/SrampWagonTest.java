@@ -16,13 +16,21 @@
 package org.overlord.sramp.test.wagon;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.maven.wagon.TransferFailedException;
 import org.apache.maven.wagon.authentication.AuthenticationInfo;
+import org.apache.maven.wagon.events.TransferEvent;
+import org.apache.maven.wagon.events.TransferListener;
 import org.apache.maven.wagon.repository.Repository;
 import org.codehaus.plexus.logging.console.ConsoleLogger;
 import org.jboss.arquillian.junit.Arquillian;
@@ -365,6 +373,117 @@ public class SrampWagonTest extends AbstractIntegrationTest {
 		}
 	}
 
+	/**
+	 * Unit test for putting files, which are uploaded in the background.
+	 */
+	@Test
+	public void testWagonPushFiles() throws Exception {
+		SrampWagon wagon = new SrampWagon();
+		setLogger(wagon);
+		RecordingTransferListener listener = new RecordingTransferListener();
+		wagon.addTransferListener(listener);
+		Repository repo = new Repository("sramp.repo", generateURL("/s-ramp/?artifactType=JavaArchive").replaceAll("http", "sramp")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		connect(wagon, repo);
+		String path = "org/overlord/sramp/test/archive/0.0.3/"; //$NON-NLS-1$
+		List<File> files = new ArrayList<File>();
+		try {
+			wagon.put(toFile("artifact-0.0.3.jar", files), path + "artifact-0.0.3.jar"); //$NON-NLS-1$ //$NON-NLS-2$
+			// The jar is still (or was, until now) being uploaded - it isn't complete until it has been waited on
+			Assert.assertFalse(listener.completed.contains(path + "artifact-0.0.3.jar")); //$NON-NLS-1$
+			wagon.put(toFile("artifact-0.0.3.jar.sha1", files), path + "artifact-0.0.3.jar.sha1"); //$NON-NLS-1$ //$NON-NLS-2$
+			wagon.put(toFile("artifact-0.0.3.pom", files), path + "artifact-0.0.3.pom"); //$NON-NLS-1$ //$NON-NLS-2$
+			wagon.put(toFile("artifact-0.0.3.pom.sha1", files), path + "artifact-0.0.3.pom.sha1"); //$NON-NLS-1$ //$NON-NLS-2$
+			wagon.put(toFile("maven-metadata.xml", files), path + "maven-metadata.xml"); //$NON-NLS-1$ //$NON-NLS-2$
+
+			// Both uploads completed before the maven-metadata.xml did
+			int metaDataIdx = listener.completed.indexOf(path + "maven-metadata.xml"); //$NON-NLS-1$
+			Assert.assertTrue(metaDataIdx >= 0);
+			int jarIdx = listener.completed.indexOf(path + "artifact-0.0.3.jar"); //$NON-NLS-1$
+			Assert.assertTrue(jarIdx >= 0 && jarIdx < metaDataIdx);
+			int pomIdx = listener.completed.indexOf(path + "artifact-0.0.3.pom"); //$NON-NLS-1$
+			Assert.assertTrue(pomIdx >= 0 && pomIdx < metaDataIdx);
+			Assert.assertTrue(listener.errors.isEmpty());
+		} finally {
+			wagon.disconnect();
+			deleteFiles(files);
+		}
+
+		SrampAtomApiClient client = client();
+		QueryResultSet rset = client.query("/s-ramp/ext/JavaArchive"); //$NON-NLS-1$
+		Assert.assertEquals(1, rset.size());
+		BaseArtifactType jar = client.getArtifactMetaData(rset.get(0).getUuid());
+		Assert.assertEquals(IOUtils.toString(getClass().getResourceAsStream("artifact-0.0.3.jar.sha1")), //$NON-NLS-1$
+				SrampModelUtils.getCustomProperty(jar, "maven.hash.sha1")); //$NON-NLS-1$
+		rset = client.query("/s-ramp/ext/MavenPom"); //$NON-NLS-1$
+		Assert.assertEquals(1, rset.size());
+		BaseArtifactType pom = client.getArtifactMetaData(rset.get(0).getUuid());
+		Assert.assertEquals(IOUtils.toString(getClass().getResourceAsStream("artifact-0.0.3.pom.sha1")), //$NON-NLS-1$
+				SrampModelUtils.getCustomProperty(pom, "maven.hash.sha1")); //$NON-NLS-1$
+	}
+
+	/**
+	 * Unit test for a file that fails to upload in the background.
+	 */
+	@Test
+	public void testWagonPushFilesUploadFailure() throws Exception {
+		SrampWagon wagon = new SrampWagon();
+		setLogger(wagon);
+		RecordingTransferListener listener = new RecordingTransferListener();
+		wagon.addTransferListener(listener);
+		// The jar isn't an XML Schema, so the server will refuse it
+		Repository repo = new Repository("sramp.repo", generateURL("/s-ramp/?artifactType=XsdDocument").replaceAll("http", "sramp")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		connect(wagon, repo);
+		String path = "org/overlord/sramp/test/archive/0.0.3/"; //$NON-NLS-1$
+		List<File> files = new ArrayList<File>();
+		try {
+			wagon.put(toFile("artifact-0.0.3.jar", files), path + "artifact-0.0.3.jar"); //$NON-NLS-1$ //$NON-NLS-2$
+			try {
+				wagon.put(toFile("maven-metadata.xml", files), path + "maven-metadata.xml"); //$NON-NLS-1$ //$NON-NLS-2$
+				Assert.fail("Expected the failed upload to fail the maven-metadata.xml put."); //$NON-NLS-1$
+			} catch (TransferFailedException e) {
+				Assert.assertTrue(e.getMessage(), e.getMessage().contains(path + "artifact-0.0.3.jar")); //$NON-NLS-1$
+			}
+			Assert.assertFalse(listener.completed.contains(path + "artifact-0.0.3.jar")); //$NON-NLS-1$
+			Assert.assertFalse(listener.completed.contains(path + "maven-metadata.xml")); //$NON-NLS-1$
+			Assert.assertEquals(Collections.singletonList(path + "artifact-0.0.3.jar"), listener.errors); //$NON-NLS-1$
+		} finally {
+			// Nothing left to flush
+			wagon.disconnect();
+			deleteFiles(files);
+		}
+	}
+
+	/**
+	 * Copies a test resource to a temporary file.
+	 * @param resourceName
+	 * @param files the temporary files, to delete when done
+	 * @throws IOException
+	 */
+	private File toFile(String resourceName, List<File> files) throws IOException {
+		File file = File.createTempFile("s-ramp-wagon-test", ".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+		files.add(file);
+		InputStream is = getClass().getResourceAsStream(resourceName);
+		OutputStream os = null;
+		try {
+			Assert.assertNotNull(is);
+			os = new FileOutputStream(file);
+			IOUtils.copy(is, os);
+		} finally {
+			IOUtils.closeQuietly(os);
+			IOUtils.closeQuietly(is);
+		}
+		return file;
+	}
+
+	/**
+	 * @param files
+	 */
+	private static void deleteFiles(List<File> files) {
+		for (File file : files) {
+			file.delete();
+		}
+	}
+
 	/**
 	 * Verifies that the correct file content was downloaded.
 	 * @param expected
@@ -402,4 +521,38 @@ public class SrampWagonTest extends AbstractIntegrationTest {
         wagon.connect(repo, auth);
 	}
 
+	/**
+	 * Records the resources whose transfers completed or failed, in order.
+	 */
+	private static class RecordingTransferListener implements TransferListener {
+		private final List<String> completed = Collections.synchronizedList(new ArrayList<String>());
+		private final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+
+		@Override
+		public void transferInitiated(TransferEvent transferEvent) {
+		}
+
+		@Override
+		public void transferStarted(TransferEvent transferEvent) {
+		}
+
+		@Override
+		public void transferProgress(TransferEvent transferEvent, byte[] buffer, int length) {
+		}
+
+		@Override
+		public void transferCompleted(TransferEvent transferEvent) {
+			completed.add(transferEvent.getResource().getName());
+		}
+
+		@Override
+		public void transferError(TransferEvent transferEvent) {
+			errors.add(transferEvent.getResource().getName());
+		}
+
+		@Override
+		public void debug(String message) {
+		}
+	}
+
 }
@@ -15,6 +15,13 @@
  */
 package org.overlord.sramp.ui.server.services.util;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.Target;
 import org.overlord.sramp.client.SrampAtomApiClient;
@@ -45,31 +52,49 @@ public class RelationshipResolver {
     }
 
     /**
+     * Resolves all of the artifact's relationships.  The targets of the relationships are
+     * fetched from the server using a single (bulk) request.
      * @param artifact
      */
     public void resolveAll(BaseArtifactType artifact) {
+        final List<String[]> relationships = new ArrayList<String[]>();
+        final Set<String> targetUuids = new LinkedHashSet<String>();
         ArtifactVisitorHelper.visitArtifact(new RelationshipArtifactVisitor() {
             @Override
             protected void visitRelationship(String type, Target target) {
                 if (target == null)
                     return;
-                String targetUuid = target.getValue();
-                try {
-                    BaseArtifactType targetArtifact = client.getArtifactMetaData(targetUuid);
-                    ArtifactType targetArtifactType = ArtifactType.valueOf(targetArtifact);
-                    ArtifactRelationshipBean bean = new ArtifactRelationshipBean();
-                    bean.setRelationshipType(type);
-                    bean.setTargetLastModified(targetArtifact.getLastModifiedTimestamp().toGregorianCalendar().getTime());
-                    bean.setTargetName(targetArtifact.getName());
-                    bean.setTargetUuid(targetUuid);
-                    bean.setTargetType(targetArtifactType.getType());
-                    indexedRelationships.addRelationship(bean);
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                    // TODO handle the error case here?  what to do?
-                }
+                relationships.add(new String[] { type, target.getValue() });
+                targetUuids.add(target.getValue());
             }
         }, artifact);
+        if (relationships.isEmpty())
+            return;
+
+        Map<String, BaseArtifactType> targets = new HashMap<String, BaseArtifactType>();
+        try {
+            for (BaseArtifactType targetArtifact : client.getArtifactMetaData(targetUuids)) {
+                targets.put(targetArtifact.getUuid(), targetArtifact);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+            // TODO handle the error case here?  what to do?
+        }
+
+        for (String[] relationship : relationships) {
+            String targetUuid = relationship[1];
+            BaseArtifactType targetArtifact = targets.get(targetUuid);
+            if (targetArtifact == null)
+                continue;
+            ArtifactType targetArtifactType = ArtifactType.valueOf(targetArtifact);
+            ArtifactRelationshipBean bean = new ArtifactRelationshipBean();
+            bean.setRelationshipType(relationship[0]);
+            bean.setTargetLastModified(targetArtifact.getLastModifiedTimestamp().toGregorianCalendar().getTime());
+            bean.setTargetName(targetArtifact.getName());
+            bean.setTargetUuid(targetUuid);
+            bean.setTargetType(targetArtifactType.getType());
+            indexedRelationships.addRelationship(bean);
+        }
     }
 
 }
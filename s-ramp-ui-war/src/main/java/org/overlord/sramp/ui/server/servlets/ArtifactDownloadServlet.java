@@ -19,17 +19,17 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.Method;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.xml.bind.JAXBContext;
 
 import org.apache.commons.io.IOUtils;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.Artifact;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.DocumentArtifactType;
+import org.overlord.sramp.atom.SrampAtomUtils;
+import org.overlord.sramp.atom.SrampJaxbContexts;
 import org.overlord.sramp.atom.visitors.ArtifactContentTypeVisitor;
 import org.overlord.sramp.client.SrampAtomApiClient;
 import org.overlord.sramp.common.ArtifactType;
@@ -123,12 +123,9 @@ public class ArtifactDownloadServlet extends AbstractDownloadServlet {
      */
     private void doDownloadMetaData(HttpServletResponse httpResponse, SrampAtomApiClient client,
             ArtifactType artyType, BaseArtifactType artifact) throws Exception {
-        JAXBContext jaxbContext = JAXBContext.newInstance(Artifact.class);
-        Artifact wrapper = new Artifact();
-        Method method = Artifact.class.getMethod("set" + artifact.getClass().getSimpleName(), artifact.getClass()); //$NON-NLS-1$
-        method.invoke(wrapper, artifact);
+        Artifact wrapper = SrampAtomUtils.createArtifactWrapper(artifact);
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        jaxbContext.createMarshaller().marshal(wrapper, baos);
+        SrampJaxbContexts.getMarshaller(Artifact.class, false).marshal(wrapper, baos);
         InputStream is = new ByteArrayInputStream(baos.toByteArray());
         IOUtils.copy(is, httpResponse.getOutputStream());
     }
@@ -23,11 +23,11 @@ import java.io.StringWriter;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.Marshaller;
 import javax.xml.namespace.QName;
 
 import org.apache.commons.lang.StringUtils;
+import org.overlord.sramp.atom.SrampJaxbContexts;
 import org.overlord.sramp.client.SrampAtomApiClient;
 import org.overlord.sramp.ui.server.api.SrampApiClientAccessor;
 import org.overlord.sramp.ui.server.i18n.Messages;
@@ -103,11 +103,8 @@ public class OntologyDownloadServlet extends AbstractDownloadServlet {
         String contentType = "application/rdf+xml"; //$NON-NLS-1$
         RDF ontologyRDF=client.getOntology(uuid);
         StringWriter writer=new StringWriter();
-        JAXBContext jaxbContext = JAXBContext.newInstance(RDF.class);
-        Marshaller jaxbMarshaller = jaxbContext.createMarshaller();
-
         // output pretty printed
-        jaxbMarshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+        Marshaller jaxbMarshaller = SrampJaxbContexts.getMarshaller(RDF.class, true);
         jaxbMarshaller.marshal(ontologyRDF, writer);
         String content = writer.getBuffer().toString();
         ontologyContent = new ByteArrayInputStream(content.getBytes("UTF-8")); //$NON-NLS-1$
@@ -30,11 +30,14 @@ import org.codehaus.plexus.component.annotations.Requirement;
 import org.codehaus.plexus.logging.Logger;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactEnum;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.DocumentArtifactType;
 import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.ExtendedArtifactType;
 import org.overlord.sramp.atom.archive.SrampArchive;
 import org.overlord.sramp.atom.archive.SrampArchiveEntry;
 import org.overlord.sramp.atom.archive.SrampArchiveException;
 import org.overlord.sramp.atom.err.SrampAtomException;
+import org.overlord.sramp.client.BatchEntry;
+import org.overlord.sramp.client.PagedQueryResults;
 import org.overlord.sramp.client.SrampAtomApiClient;
 import org.overlord.sramp.client.SrampClientException;
 import org.overlord.sramp.client.SrampClientQuery;
@@ -52,6 +55,12 @@ import java.io.*;
 import java.security.MessageDigest;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Implements a wagon provider that uses the S-RAMP Atom API.
@@ -64,8 +73,20 @@ public class SrampWagon extends StreamWagon {
 	@Requirement
 	private Logger logger;
 
+    /**
+     * The number of artifact files (put from a {@link File}) that are uploaded concurrently.
+     */
+    private static final int MAX_CONCURRENT_UPLOADS = 4;
+
 	private transient SrampArchive archive;
 	private transient SrampAtomApiClient client;
+	private transient ExecutorService uploadExecutor;
+	// Uploaded artifacts whose maven meta-data has not been sent yet, keyed by resource name.
+	private transient Map<String, PendingArtifact> pendingArtifacts;
+	// The (type, classifier, snapshot-id) of every artifact known to exist, keyed by G:A:V.
+	private transient Map<String, List<String[]>> deployedArtifacts;
+	// Generated maven-metadata.xml files (along with their hashes), keyed by G:A or G:A:V.
+	private transient Map<String, GeneratedMetaData> generatedMetaData;
 
     private final boolean allowSnapshot;
 
@@ -103,6 +124,9 @@ public class SrampWagon extends StreamWagon {
 		try {
 		    // Create the archive
 			this.archive = new SrampArchive();
+			this.pendingArtifacts = new LinkedHashMap<String, PendingArtifact>();
+			this.deployedArtifacts = new HashMap<String, List<String[]>>();
+			this.generatedMetaData = new HashMap<String, GeneratedMetaData>();
 
 			// Now create and configure the client.
             String endpoint = getSrampEndpoint();
@@ -126,6 +150,8 @@ public class SrampWagon extends StreamWagon {
             }
 
             this.client = new SrampAtomApiClient(endpoint, username, password, true);
+            // The same artifacts are looked up repeatedly during a deploy - always revalidate.
+            this.client.enableMetaDataCache(500, 0);
 		} catch (SrampArchiveException e) {
 			throw new ConnectionException(Messages.i18n.format("FAILED_TO_CREATE_ARCHIVE"), e); //$NON-NLS-1$
 		} catch (SrampClientException e) {
@@ -164,11 +190,38 @@ public class SrampWagon extends StreamWagon {
     }
 
     /**
+	 * Sends the maven meta-data of any artifacts that weren't followed by a maven-metadata.xml
+	 * put (which is when it is normally sent).  Maven only logs a failure to disconnect at debug
+	 * level, so such a failure is (also) logged as an error here.
 	 * @see org.apache.maven.wagon.StreamWagon#closeConnection()
 	 */
 	@Override
 	public void closeConnection() throws ConnectionException {
-		SrampArchive.closeQuietly(archive);
+	    try {
+	        if (this.pendingArtifacts != null && !this.pendingArtifacts.isEmpty()) {
+	            String artifacts = StringUtils.join(this.pendingArtifacts.keySet(), ", "); //$NON-NLS-1$
+	            ClassLoader oldCtxCL = Thread.currentThread().getContextClassLoader();
+	            Thread.currentThread().setContextClassLoader(SrampWagon.class.getClassLoader());
+	            try {
+	                flushPendingArtifacts();
+	            } catch (Exception e) {
+	                String message = Messages.i18n.format("FAILED_TO_STORE_META_DATA_ON_CLOSE", artifacts); //$NON-NLS-1$
+	                logger.error(message, e);
+	                throw new ConnectionException(message, e);
+	            } finally {
+	                Thread.currentThread().setContextClassLoader(oldCtxCL);
+	            }
+	        }
+	    } finally {
+	        if (this.uploadExecutor != null) {
+	            this.uploadExecutor.shutdown();
+	            this.uploadExecutor = null;
+	        }
+    		SrampArchive.closeQuietly(archive);
+    		if (this.client != null) {
+    		    this.client.close();
+    		}
+	    }
 	}
 
 	/**
@@ -202,7 +255,8 @@ public class SrampWagon extends StreamWagon {
 	/**
 	 * Generates the maven-metadata.xml file dynamically for a given groupId/artifactId pair.  This will
 	 * list all of the versions available for that groupId+artifactId, along with the latest release and
-	 * snapshot versions.
+	 * snapshot versions.  The generated file (and its hashes) is kept until an artifact with the
+	 * same groupId+artifactId is put.
      * @param gavInfo
      * @param inputData
 	 * @throws ResourceDoesNotExistException
@@ -213,20 +267,14 @@ public class SrampWagon extends StreamWagon {
         ClassLoader oldCtxCL = Thread.currentThread().getContextClassLoader();
         Thread.currentThread().setContextClassLoader(SrampWagon.class.getClassLoader());
         try {
-            String artyPath = gavInfo.getFullName();
-            if (gavInfo.isHash()) {
-                artyPath = artyPath.substring(0, artyPath.lastIndexOf('.'));
-            }
-            SrampArchiveEntry entry = this.archive.getEntry(artyPath);
-            if (entry == null) {
-                QueryResultSet resultSet = client.buildQuery("/s-ramp[@maven.groupId = ? and @maven.artifactId = ?]") //$NON-NLS-1$
+            String key = getMetaDataKey(gavInfo);
+            GeneratedMetaData metaData = this.generatedMetaData.get(key);
+            if (metaData == null) {
+                PagedQueryResults results = client.buildQuery("/s-ramp[@maven.groupId = ? and @maven.artifactId = ?]") //$NON-NLS-1$
                         .parameter(gavInfo.getGroupId())
                         .parameter(gavInfo.getArtifactId())
                         .propertyName("maven.version") //$NON-NLS-1$
-                        .count(500).orderBy("createdTimestamp").ascending().query(); //$NON-NLS-1$
-                if (resultSet.size() == 0) {
-                    throw new Exception(Messages.i18n.format("NO_ARTIFACTS_FOUND")); //$NON-NLS-1$
-                }
+                        .count(500).orderBy("createdTimestamp").ascending().stream(); //$NON-NLS-1$
 
                 String groupId = gavInfo.getGroupId();
                 String artifactId = gavInfo.getArtifactId();
@@ -236,7 +284,7 @@ public class SrampWagon extends StreamWagon {
 
                 LinkedHashSet<String> versions = new LinkedHashSet<String>();
                 SimpleDateFormat format = new SimpleDateFormat("yyyyMMddHHmmss"); //$NON-NLS-1$
-                for (ArtifactSummary artifactSummary : resultSet) {
+                for (ArtifactSummary artifactSummary : results) {
                     String version = artifactSummary.getCustomPropertyValue("maven.version"); //$NON-NLS-1$
                     if (versions.add(version)) {
                         latest = version;
@@ -246,6 +294,9 @@ public class SrampWagon extends StreamWagon {
                     }
                     lastUpdated = format.format(artifactSummary.getCreatedTimestamp());
                 }
+                if (lastUpdated == null) {
+                    throw new Exception(Messages.i18n.format("NO_ARTIFACTS_FOUND")); //$NON-NLS-1$
+                }
 
                 StringBuilder mavenMetadata = new StringBuilder();
                 mavenMetadata.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"); //$NON-NLS-1$
@@ -264,17 +315,16 @@ public class SrampWagon extends StreamWagon {
                 mavenMetadata.append("  </versioning>\n"); //$NON-NLS-1$
                 mavenMetadata.append("</metadata>\n"); //$NON-NLS-1$
 
-                BaseArtifactType artifact = ArtifactType.ExtendedDocument("MavenMetaData").newArtifactInstance(); //$NON-NLS-1$
-                this.archive.addEntry(artyPath, artifact, IOUtils.toInputStream(mavenMetadata.toString()));
-
-                entry = this.archive.getEntry(artyPath);
+                metaData = new GeneratedMetaData(mavenMetadata.toString());
+                this.generatedMetaData.put(key, metaData);
             }
 
             if (!gavInfo.isHash()) {
-                inputData.setInputStream(this.archive.getInputStream(entry));
+                inputData.setInputStream(new ByteArrayInputStream(metaData.content));
+            } else if ("MD5".equals(gavInfo.getHashAlgorithm())) { //$NON-NLS-1$
+                inputData.setInputStream(IOUtils.toInputStream(metaData.md5));
             } else {
-                String hash = generateHash(this.archive.getInputStream(entry), gavInfo.getHashAlgorithm());
-                inputData.setInputStream(IOUtils.toInputStream(hash));
+                inputData.setInputStream(IOUtils.toInputStream(metaData.sha1));
             }
         } catch (Exception e) {
             throw new ResourceDoesNotExistException(Messages.i18n.format("FAILED_TO_GENERATE_METADATA"), e); //$NON-NLS-1$
@@ -285,7 +335,8 @@ public class SrampWagon extends StreamWagon {
 
     /**
      * Generates the maven-metadata.xml file dynamically for a given groupId/artifactId/snapshot-version.
-     * This will list all of the snapshot versions available.
+     * This will list all of the snapshot versions available.  Like the artifact's maven-metadata.xml,
+     * it is kept until an artifact with the same groupId+artifactId is put.
      * @param gavInfo
      * @param inputData
      * @throws ResourceDoesNotExistException
@@ -296,21 +347,15 @@ public class SrampWagon extends StreamWagon {
         ClassLoader oldCtxCL = Thread.currentThread().getContextClassLoader();
         Thread.currentThread().setContextClassLoader(SrampWagon.class.getClassLoader());
         try {
-            String artyPath = gavInfo.getFullName();
-            if (gavInfo.isHash()) {
-                artyPath = artyPath.substring(0, artyPath.lastIndexOf('.'));
-            }
-            SrampArchiveEntry entry = this.archive.getEntry(artyPath);
-            if (entry == null) {
-                QueryResultSet resultSet = client.buildQuery("/s-ramp[@maven.groupId = ? and @maven.artifactId = ? and @maven.version = ?]") //$NON-NLS-1$
+            String key = getMetaDataKey(gavInfo);
+            GeneratedMetaData metaData = this.generatedMetaData.get(key);
+            if (metaData == null) {
+                PagedQueryResults results = client.buildQuery("/s-ramp[@maven.groupId = ? and @maven.artifactId = ? and @maven.version = ?]") //$NON-NLS-1$
                         .parameter(gavInfo.getGroupId())
                         .parameter(gavInfo.getArtifactId())
                         .parameter(gavInfo.getVersion())
                         .propertyName("maven.classifier").propertyName("maven.type") //$NON-NLS-1$ //$NON-NLS-2$
-                        .count(500).orderBy("createdTimestamp").ascending().query(); //$NON-NLS-1$
-                if (resultSet.size() == 0) {
-                    throw new Exception(Messages.i18n.format("NO_ARTIFACTS_FOUND")); //$NON-NLS-1$
-                }
+                        .count(500).orderBy("createdTimestamp").ascending().stream(); //$NON-NLS-1$
 
                 SimpleDateFormat timestampFormat = new SimpleDateFormat("yyyyMMdd.HHmmss"); //$NON-NLS-1$
                 SimpleDateFormat updatedFormat = new SimpleDateFormat("yyyyMMddHHmmss"); //$NON-NLS-1$
@@ -319,7 +364,7 @@ public class SrampWagon extends StreamWagon {
                 snapshotVersions.append("    <snapshotVersions>\n"); //$NON-NLS-1$
                 Set<String> processed = new HashSet<String>();
                 Date latestDate = null;
-                for (ArtifactSummary artifactSummary : resultSet) {
+                for (ArtifactSummary artifactSummary : results) {
                     String extension = artifactSummary.getCustomPropertyValue("maven.type"); //$NON-NLS-1$
                     String classifier = artifactSummary.getCustomPropertyValue("maven.classifier"); //$NON-NLS-1$
                     String value = gavInfo.getVersion();
@@ -339,6 +384,9 @@ public class SrampWagon extends StreamWagon {
                         }
                     }
                 }
+                if (latestDate == null) {
+                    throw new Exception(Messages.i18n.format("NO_ARTIFACTS_FOUND")); //$NON-NLS-1$
+                }
                 snapshotVersions.append("    </snapshotVersions>\n"); //$NON-NLS-1$
 
                 String groupId = gavInfo.getGroupId();
@@ -362,17 +410,16 @@ public class SrampWagon extends StreamWagon {
                 mavenMetadata.append("  </versioning>\n"); //$NON-NLS-1$
                 mavenMetadata.append("</metadata>\n"); //$NON-NLS-1$
 
-                BaseArtifactType artifact = ArtifactType.ExtendedDocument("MavenMetaData").newArtifactInstance(); //$NON-NLS-1$
-                this.archive.addEntry(artyPath, artifact, IOUtils.toInputStream(mavenMetadata.toString()));
-
-                entry = this.archive.getEntry(artyPath);
+                metaData = new GeneratedMetaData(mavenMetadata.toString());
+                this.generatedMetaData.put(key, metaData);
             }
 
             if (!gavInfo.isHash()) {
-                inputData.setInputStream(this.archive.getInputStream(entry));
+                inputData.setInputStream(new ByteArrayInputStream(metaData.content));
+            } else if ("MD5".equals(gavInfo.getHashAlgorithm())) { //$NON-NLS-1$
+                inputData.setInputStream(IOUtils.toInputStream(metaData.md5));
             } else {
-                String hash = generateHash(this.archive.getInputStream(entry), gavInfo.getHashAlgorithm());
-                inputData.setInputStream(IOUtils.toInputStream(hash));
+                inputData.setInputStream(IOUtils.toInputStream(metaData.sha1));
             }
         } catch (Exception e) {
             throw new ResourceDoesNotExistException(Messages.i18n.format("FAILED_TO_GENERATE_METADATA"), e); //$NON-NLS-1$
@@ -413,6 +460,10 @@ public class SrampWagon extends StreamWagon {
     		BaseArtifactType metaData = entry.getMetaData();
 
     		String hashValue = SrampModelUtils.getCustomProperty(metaData, hashPropName);
+    		if (hashValue == null && "maven.hash.sha1".equals(hashPropName) && metaData instanceof DocumentArtifactType) { //$NON-NLS-1$
+    			// The repository computes the SHA-1 hash of all content when it is stored
+    			hashValue = StringUtils.trimToNull(((DocumentArtifactType) metaData).getContentHash());
+    		}
     		if (hashValue == null) {
     			throw new ResourceDoesNotExistException(Messages.i18n.format("MISSING_RESOURCE_HASH", gavInfo.getName())); //$NON-NLS-1$
     		}
@@ -527,14 +578,29 @@ public class SrampWagon extends StreamWagon {
 
     		firePutStarted(resource, source);
     		if (resource.getName().contains("maven-metadata.xml")) { //$NON-NLS-1$
+    			// Maven sends the metadata once a module's files are all up - a good time to
+    			// send the maven meta-data of those files to the repository.
+    			ClassLoader oldCtxCL = Thread.currentThread().getContextClassLoader();
+    			Thread.currentThread().setContextClassLoader(SrampWagon.class.getClassLoader());
+    			try {
+    			    flushPendingArtifacts();
+    			} catch (TransferFailedException e) {
+    			    throw e;
+    			} catch (Exception e) {
+    			    throw new TransferFailedException(Messages.i18n.format("FAILED_TO_STORE_META_DATA"), e); //$NON-NLS-1$
+    			} finally {
+    			    Thread.currentThread().setContextClassLoader(oldCtxCL);
+    			}
     			logger.info(Messages.i18n.format("SKIPPING_ARTY", resource.getName())); //$NON-NLS-1$
     			try {
     				transfer(resource, content, new DevNullOutputStream(), TransferEvent.REQUEST_PUT);
     			} catch (IOException e) {
     				throw new TransferFailedException(e.getMessage(), e);
     			}
-    		} else {
-    			doPut(gavInfo, content);
+    		} else if (!doPut(gavInfo, resource, source, content)) {
+    		    // Uploading in the background - put-completed is fired once the upload has
+    		    // finished (see #awaitUpload)
+    		    return;
     		}
     		firePutCompleted(resource, source);
 	    } else {
@@ -560,14 +626,18 @@ public class SrampWagon extends StreamWagon {
 	/**
 	 * Puts the maven resource into the s-ramp repository.
 	 * @param gavInfo
+	 * @param resource
+	 * @param source the file being put (or null if putting from a stream)
 	 * @param resourceInputStream
+	 * @return false if the resource is still being uploaded in the background
 	 * @throws TransferFailedException
 	 */
-	private void doPut(MavenGavInfo gavInfo, InputStream resourceInputStream) throws TransferFailedException {
+	private boolean doPut(MavenGavInfo gavInfo, Resource resource, File source, InputStream resourceInputStream) throws TransferFailedException {
 		if (gavInfo.isHash()) {
 			doPutHash(gavInfo, resourceInputStream);
+			return true;
 		} else {
-			doPutArtifact(gavInfo, resourceInputStream);
+			return doPutArtifact(gavInfo, resource, source, resourceInputStream);
 		}
 	}
 
@@ -591,6 +661,17 @@ public class SrampWagon extends StreamWagon {
 			}
 			String hashValue = IOUtils.toString(resourceInputStream);
 
+			// If the artifact's maven meta-data hasn't been sent yet, the hash simply goes along with it.
+			PendingArtifact pending = this.pendingArtifacts.get(artyPath);
+			if (pending != null) {
+			    // No point in holding on to the hash of an artifact that already failed to upload
+			    if (pending.upload.isDone()) {
+			        awaitUpload(pending);
+			    }
+			    pending.properties.put(hashPropName, hashValue);
+			    return;
+			}
+
             // See the comment in {@link SrampWagon#fillInputData(InputData)} about why we're doing this
             // context classloader magic.
             ClassLoader oldCtxCL = Thread.currentThread().getContextClassLoader();
@@ -609,71 +690,254 @@ public class SrampWagon extends StreamWagon {
 			} finally {
 				Thread.currentThread().setContextClassLoader(oldCtxCL);
 			}
+		} catch (TransferFailedException e) {
+		    throw e;
 		} catch (Exception e) {
 			throw new TransferFailedException(Messages.i18n.format("FAILED_TO_STORE_HASH", gavInfo.getName()), e); //$NON-NLS-1$
 		}
 	}
 
 	/**
-	 * Puts the artifact into the s-ramp repository.
+	 * Puts the artifact into the s-ramp repository.  Only the content is uploaded here - the
+	 * maven meta-data (including the hashes, which Maven puts next) is collected and sent for
+	 * all of the pending artifacts at once by {@link #flushPendingArtifacts()}.  Artifacts put
+	 * from a file are uploaded in the background, so that the files of a module are uploaded
+	 * concurrently.
 	 * @param gavInfo
+	 * @param resource
+	 * @param source the file being put (or null if putting from a stream)
 	 * @param resourceInputStream
+	 * @return false if the artifact is still being uploaded in the background
 	 * @throws TransferFailedException
 	 */
-	private void doPutArtifact(final MavenGavInfo gavInfo, InputStream resourceInputStream) throws TransferFailedException {
+	private boolean doPutArtifact(final MavenGavInfo gavInfo, Resource resource, File source, final InputStream resourceInputStream) throws TransferFailedException {
 		// See the comment in {@link SrampWagon#fillInputData(InputData)} about why we're doing this
 		// context classloader magic.
 		ClassLoader oldCtxCL = Thread.currentThread().getContextClassLoader();
 		Thread.currentThread().setContextClassLoader(SrampWagon.class.getClassLoader());
-		SrampArchive archive = null;
-		BaseArtifactType artifactGrouping = null;
 		try {
-			// Is the artifact grouping option enabled?
-			if (isPrimaryArtifact(gavInfo) && getParamFromRepositoryUrl("artifactGrouping") != null) { //$NON-NLS-1$
-			    artifactGrouping = ensureArtifactGrouping();
-			}
-
 			// Only search for existing artifacts by GAV info here
-			BaseArtifactType artifact = findExistingArtifactByGAV(client, gavInfo);
-			// If we found an artifact, we should update its content.  If not, we should upload
-			// the artifact to the repository.
-			if (artifact != null) {
+			if (isAlreadyDeployed(gavInfo)) {
                 throw new TransferFailedException(Messages.i18n.format("ARTIFACT_UPDATE_NOT_ALLOWED", gavInfo.getFullName())); //$NON-NLS-1$
+			}
 
+			final ArtifactType artifactType = getArtifactType(gavInfo);
+			FutureTask<BaseArtifactType> upload = new FutureTask<BaseArtifactType>(new Callable<BaseArtifactType>() {
+			    @Override
+			    public BaseArtifactType call() throws Exception {
+			        try {
+			            return client.uploadArtifact(artifactType, resourceInputStream, gavInfo.getName());
+			        } finally {
+			            IOUtils.closeQuietly(resourceInputStream);
+			        }
+			    }
+			});
+			boolean background = source != null;
+			if (background) {
+			    getUploadExecutor().execute(upload);
 			} else {
-                ArtifactType artifactType = getArtifactType(gavInfo);
-				// Upload the content, then add the maven properties to the artifact
-				// as meta-data
-                artifact = client.uploadArtifact(artifactType, resourceInputStream, gavInfo.getName());
-				SrampModelUtils.setCustomProperty(artifact, "maven.groupId", gavInfo.getGroupId()); //$NON-NLS-1$
-				SrampModelUtils.setCustomProperty(artifact, "maven.artifactId", gavInfo.getArtifactId()); //$NON-NLS-1$
-				SrampModelUtils.setCustomProperty(artifact, "maven.version", gavInfo.getVersion()); //$NON-NLS-1$
-				artifact.setVersion(gavInfo.getVersion());
-                if (gavInfo.getClassifier() != null) {
-					SrampModelUtils.setCustomProperty(artifact, "maven.classifier", gavInfo.getClassifier()); //$NON-NLS-1$
-                }
-                if (gavInfo.getSnapshotId() != null && !gavInfo.getSnapshotId().equals("")) { //$NON-NLS-1$
-                    SrampModelUtils.setCustomProperty(artifact, "maven.snapshot.id", gavInfo.getSnapshotId()); //$NON-NLS-1$
-                }
-				SrampModelUtils.setCustomProperty(artifact, "maven.type", gavInfo.getType()); //$NON-NLS-1$
-				// Also create a relationship to the artifact grouping, if necessary
-				if (artifactGrouping != null) {
-				    SrampModelUtils.addGenericRelationship(artifact, "groupedBy", artifactGrouping.getUuid()); //$NON-NLS-1$
-				    SrampModelUtils.addGenericRelationship(artifactGrouping, "groups", artifact.getUuid()); //$NON-NLS-1$
-				    client.updateArtifactMetaData(artifactGrouping);
-				}
-
-				client.updateArtifactMetaData(artifact);
-				this.archive.addEntry(gavInfo.getFullName(), artifact, null);
+			    // The caller owns the stream, so it must be consumed before returning.
+			    upload.run();
+			    upload.get();
 			}
+
+			getDeployedArtifacts(gavInfo).add(new String[] { gavInfo.getType(), gavInfo.getClassifier(), gavInfo.getSnapshotId() });
+			invalidateMetaData(gavInfo);
+			boolean grouped = isPrimaryArtifact(gavInfo) && getParamFromRepositoryUrl("artifactGrouping") != null; //$NON-NLS-1$
+			this.pendingArtifacts.put(gavInfo.getFullName(), new PendingArtifact(gavInfo, background ? resource : null,
+			        source, upload, grouped));
+			return !background;
+		} catch (TransferFailedException e) {
+		    throw e;
+		} catch (ExecutionException e) {
+		    throw new TransferFailedException(Messages.i18n.format("ARTIFACT_UPLOAD_FAILED", gavInfo.getFullName()), e.getCause()); //$NON-NLS-1$
 		} catch (Throwable t) {
 			throw new TransferFailedException(t.getMessage(), t);
 		} finally {
 			Thread.currentThread().setContextClassLoader(oldCtxCL);
-			SrampArchive.closeQuietly(archive);
 		}
 	}
 
+	/**
+	 * Waits for the upload of a pending artifact to finish.  If the artifact was uploaded in
+	 * the background, this is also when its put-completed (or transfer error) event is fired.
+	 * @param pending
+	 * @return the uploaded artifact
+	 * @throws TransferFailedException if the upload failed
+	 * @throws InterruptedException
+	 */
+	private BaseArtifactType awaitUpload(PendingArtifact pending) throws TransferFailedException, InterruptedException {
+	    try {
+	        BaseArtifactType artifact = pending.upload.get();
+	        if (pending.resource != null) {
+	            firePutCompleted(pending.resource, pending.source);
+	            pending.resource = null;
+	        }
+	        return artifact;
+	    } catch (ExecutionException e) {
+	        TransferFailedException failure = new TransferFailedException(
+	                Messages.i18n.format("ARTIFACT_UPLOAD_FAILED", pending.gavInfo.getFullName()), e.getCause()); //$NON-NLS-1$
+	        if (pending.resource != null) {
+	            fireTransferError(pending.resource, failure, TransferEvent.REQUEST_PUT);
+	            pending.resource = null;
+	        }
+	        throw failure;
+	    }
+	}
+
+	/**
+	 * Sends the maven meta-data (GAV properties, hashes and artifact grouping relationships)
+	 * of all the pending artifacts to the repository in a single batch, after waiting for any
+	 * uploads still in progress.  Any artifacts that uploaded successfully get their meta-data,
+	 * even if some other upload failed.
+	 * @throws Exception the first failure (a failed upload names the artifact)
+	 */
+	private void flushPendingArtifacts() throws Exception {
+	    if (this.pendingArtifacts.isEmpty()) {
+	        return;
+	    }
+	    Exception failure = null;
+	    try {
+	        Map<PendingArtifact, BaseArtifactType> uploaded = new LinkedHashMap<PendingArtifact, BaseArtifactType>();
+	        for (PendingArtifact pending : this.pendingArtifacts.values()) {
+	            try {
+	                uploaded.put(pending, awaitUpload(pending));
+	            } catch (TransferFailedException e) {
+	                if (failure == null)
+	                    failure = e;
+	            }
+	        }
+
+	        BaseArtifactType artifactGrouping = null;
+	        for (PendingArtifact pending : uploaded.keySet()) {
+	            if (pending.grouped) {
+	                artifactGrouping = ensureArtifactGrouping();
+	                break;
+	            }
+	        }
+
+	        List<BatchEntry> entries = new ArrayList<BatchEntry>(uploaded.size() + 1);
+	        for (Map.Entry<PendingArtifact, BaseArtifactType> upload : uploaded.entrySet()) {
+	            PendingArtifact pending = upload.getKey();
+	            BaseArtifactType artifact = upload.getValue();
+	            MavenGavInfo gavInfo = pending.gavInfo;
+	            SrampModelUtils.setCustomProperty(artifact, "maven.groupId", gavInfo.getGroupId()); //$NON-NLS-1$
+	            SrampModelUtils.setCustomProperty(artifact, "maven.artifactId", gavInfo.getArtifactId()); //$NON-NLS-1$
+	            SrampModelUtils.setCustomProperty(artifact, "maven.version", gavInfo.getVersion()); //$NON-NLS-1$
+	            artifact.setVersion(gavInfo.getVersion());
+	            if (gavInfo.getClassifier() != null) {
+	                SrampModelUtils.setCustomProperty(artifact, "maven.classifier", gavInfo.getClassifier()); //$NON-NLS-1$
+	            }
+	            if (gavInfo.getSnapshotId() != null && !gavInfo.getSnapshotId().equals("")) { //$NON-NLS-1$
+	                SrampModelUtils.setCustomProperty(artifact, "maven.snapshot.id", gavInfo.getSnapshotId()); //$NON-NLS-1$
+	            }
+	            SrampModelUtils.setCustomProperty(artifact, "maven.type", gavInfo.getType()); //$NON-NLS-1$
+	            for (Map.Entry<String, String> property : pending.properties.entrySet()) {
+	                SrampModelUtils.setCustomProperty(artifact, property.getKey(), property.getValue());
+	            }
+	            // Also create a relationship to the artifact grouping, if necessary
+	            if (pending.grouped && artifactGrouping != null) {
+	                SrampModelUtils.addGenericRelationship(artifact, "groupedBy", artifactGrouping.getUuid()); //$NON-NLS-1$
+	                SrampModelUtils.addGenericRelationship(artifactGrouping, "groups", artifact.getUuid()); //$NON-NLS-1$
+	            }
+	            entries.add(new BatchEntry(gavInfo.getFullName(), artifact, null));
+	            this.archive.addEntry(gavInfo.getFullName(), artifact, null);
+	        }
+	        if (artifactGrouping != null) {
+	            entries.add(new BatchEntry(artifactGrouping.getUuid(), artifactGrouping, null));
+	        }
+
+	        if (!entries.isEmpty()) {
+	            Map<String, ?> results = client.uploadBatch(entries.iterator());
+	            for (Object result : results.values()) {
+	                if (result instanceof Exception && failure == null) {
+	                    failure = (Exception) result;
+	                }
+	            }
+	        }
+	    } finally {
+	        this.pendingArtifacts.clear();
+	    }
+	    if (failure != null) {
+	        throw failure;
+	    }
+	}
+
+	/**
+	 * Returns true if an artifact matching the given GAV information (including its type,
+	 * classifier and snapshot-id) already exists in the repository.  The artifacts of each
+	 * groupId/artifactId/version are looked up once (with a single query) and then tracked
+	 * locally as more of them are uploaded.
+	 * @param gavInfo
+	 * @throws SrampClientException
+	 */
+	private boolean isAlreadyDeployed(MavenGavInfo gavInfo) throws SrampClientException {
+	    for (String[] deployed : getDeployedArtifacts(gavInfo)) {
+	        if (StringUtils.isNotBlank(gavInfo.getType()) && !gavInfo.getType().equals(deployed[0]))
+	            continue;
+	        // If no classifier in the GAV info, only match the artifact that also has no classifier
+	        if (StringUtils.isNotBlank(gavInfo.getClassifier())) {
+	            if (!gavInfo.getClassifier().equals(deployed[1]))
+	                continue;
+	        } else if (deployed[1] != null) {
+	            continue;
+	        }
+	        if (StringUtils.isNotBlank(gavInfo.getSnapshotId()) && !gavInfo.getSnapshotId().equals(deployed[2]))
+	            continue;
+	        return true;
+	    }
+	    return false;
+	}
+
+	/**
+	 * Returns the (type, classifier, snapshot-id) of each artifact with the same
+	 * groupId/artifactId/version as the given GAV information, querying the repository the
+	 * first time a given groupId/artifactId/version is seen.
+	 * @param gavInfo
+	 * @throws SrampClientException
+	 */
+	private List<String[]> getDeployedArtifacts(MavenGavInfo gavInfo) throws SrampClientException {
+	    String gav = gavInfo.getGroupId() + ':' + gavInfo.getArtifactId() + ':' + gavInfo.getVersion();
+	    List<String[]> deployed = this.deployedArtifacts.get(gav);
+	    if (deployed == null) {
+	        deployed = new ArrayList<String[]>();
+	        PagedQueryResults results = client.buildQuery("/s-ramp[@maven.groupId = ? and @maven.artifactId = ? and @maven.version = ?]") //$NON-NLS-1$
+	                .parameter(gavInfo.getGroupId())
+	                .parameter(gavInfo.getArtifactId())
+	                .parameter(gavInfo.getVersion())
+	                .propertyName("maven.type").propertyName("maven.classifier").propertyName("maven.snapshot.id") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	                .count(500).orderBy("createdTimestamp").ascending().stream(); //$NON-NLS-1$
+	        for (ArtifactSummary summary : results) {
+	            deployed.add(new String[] {
+	                    summary.getCustomPropertyValue("maven.type"), //$NON-NLS-1$
+	                    summary.getCustomPropertyValue("maven.classifier"), //$NON-NLS-1$
+	                    summary.getCustomPropertyValue("maven.snapshot.id") //$NON-NLS-1$
+	            });
+	        }
+	        this.deployedArtifacts.put(gav, deployed);
+	    }
+	    return deployed;
+	}
+
+	/**
+	 * Returns the executor used to upload artifact files in the background, creating it if
+	 * necessary.  The upload threads use the wagon's classloader as their context classloader.
+	 */
+	private ExecutorService getUploadExecutor() {
+	    if (this.uploadExecutor == null) {
+	        this.uploadExecutor = Executors.newFixedThreadPool(MAX_CONCURRENT_UPLOADS, new ThreadFactory() {
+	            @Override
+	            public Thread newThread(Runnable r) {
+	                Thread thread = new Thread(r, "S-RAMP Wagon Upload"); //$NON-NLS-1$
+	                thread.setDaemon(true);
+	                thread.setContextClassLoader(SrampWagon.class.getClassLoader());
+	                return thread;
+	            }
+	        });
+	    }
+	    return this.uploadExecutor;
+	}
+
     /**
      * Ensures that the required ArtifactGrouping is present in the repository.
 	 * @throws SrampAtomException
@@ -880,6 +1144,35 @@ public class SrampWagon extends StreamWagon {
         return gavInfo.getClassifier() == null;
     }
 
+    /**
+     * Gets the key of the maven-metadata.xml (or of its hash) being requested: G:A for the
+     * artifact's meta-data, G:A:V for a version's.
+     * @param gavInfo
+     */
+    private static String getMetaDataKey(MavenGavInfo gavInfo) {
+        String key = gavInfo.getGroupId() + ":" + gavInfo.getArtifactId(); //$NON-NLS-1$
+        if (gavInfo.getVersion() != null) {
+            key += ":" + gavInfo.getVersion(); //$NON-NLS-1$
+        }
+        return key;
+    }
+
+    /**
+     * Throws away any maven-metadata.xml generated for the artifact (or any of its versions),
+     * since a new file has been added to it.
+     * @param gavInfo
+     */
+    private void invalidateMetaData(MavenGavInfo gavInfo) {
+        String key = gavInfo.getGroupId() + ":" + gavInfo.getArtifactId(); //$NON-NLS-1$
+        this.generatedMetaData.remove(key);
+        Iterator<String> keys = this.generatedMetaData.keySet().iterator();
+        while (keys.hasNext()) {
+            if (keys.next().startsWith(key + ":")) { //$NON-NLS-1$
+                keys.remove();
+            }
+        }
+    }
+
     /**
      * Generates a hash for the given content using the given hash algorithm.
      * @param inputStream
@@ -927,4 +1220,57 @@ public class SrampWagon extends StreamWagon {
             logger.error(message, t);
     }
 
+    /**
+     * A generated maven-metadata.xml file, along with its hashes (which Maven asks for
+     * right after the file itself).
+     */
+    private class GeneratedMetaData {
+        private final byte[] content;
+        private final String md5;
+        private final String sha1;
+
+        /**
+         * Constructor.
+         * @param content
+         * @throws Exception
+         */
+        public GeneratedMetaData(String content) throws Exception {
+            this.content = content.getBytes("UTF-8"); //$NON-NLS-1$
+            this.md5 = generateHash(new ByteArrayInputStream(this.content), "MD5"); //$NON-NLS-1$
+            this.sha1 = generateHash(new ByteArrayInputStream(this.content), "SHA1"); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * An artifact whose content has been (or is being) uploaded, but whose maven meta-data
+     * has not yet been sent to the repository.
+     */
+    private static class PendingArtifact {
+        private final MavenGavInfo gavInfo;
+        // The resource being uploaded in the background, until its put-completed event is fired.
+        private Resource resource;
+        private final File source;
+        private final FutureTask<BaseArtifactType> upload;
+        private final boolean grouped;
+        // Additional properties (the hashes) to set on the artifact.
+        private final Map<String, String> properties = new HashMap<String, String>();
+
+        /**
+         * Constructor.
+         * @param gavInfo
+         * @param resource the resource being uploaded in the background (or null)
+         * @param source
+         * @param upload
+         * @param grouped
+         */
+        public PendingArtifact(MavenGavInfo gavInfo, Resource resource, File source,
+                FutureTask<BaseArtifactType> upload, boolean grouped) {
+            this.gavInfo = gavInfo;
+            this.resource = resource;
+            this.source = source;
+            this.upload = upload;
+            this.grouped = grouped;
+        }
+    }
+
 }